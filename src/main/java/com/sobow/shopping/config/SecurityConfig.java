@@ -11,6 +11,7 @@ import com.sobow.shopping.security.JwtService;
 import com.sobow.shopping.security.filters.JwtAuthenticationFilter;
 import com.sobow.shopping.services.user.AdminService;
 import com.sobow.shopping.services.user.CurrentUserService;
+import jakarta.servlet.DispatcherType;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -50,6 +51,9 @@ public class SecurityConfig {
     ) throws Exception {
         httpSecurity
             .authorizeHttpRequests(requests -> requests
+                // 0) Async dispatches (streamed responses) continue a request that was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                
                 // 1) Admin-only
                 .requestMatchers(apiPrefix + "/admin/**").hasRole("ADMIN")
                 
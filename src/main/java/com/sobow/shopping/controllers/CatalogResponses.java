@@ -0,0 +1,42 @@
+package com.sobow.shopping.controllers;
+
+import com.sobow.shopping.services.catalog.CatalogVersion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Conditional GET support for public catalog endpoints, keyed on a {@link CatalogVersion} scope.
+ */
+public final class CatalogResponses {
+    
+    // Caches may store the response but must revalidate it (cheaply, via 304) before every reuse
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+    
+    private CatalogResponses() {
+    }
+    
+    /**
+     * @return {@code true} when the client's ETag / Last-Modified is still current; the 304 has then been prepared
+     * and the handler must return {@code null} without doing any work
+     */
+    public static boolean notModified(WebRequest request, CatalogVersion.Snapshot version) {
+        // A date shared with an earlier version cannot tell the two apart: validate on the ETag alone
+        return version.uniqueDate()
+               ? request.checkNotModified(version.etag(), version.lastModified())
+               : request.checkNotModified(version.etag());
+    }
+    
+    public static ResponseEntity.BodyBuilder ok(CatalogVersion.Snapshot version) {
+        return status(HttpStatus.OK, version);
+    }
+    
+    // A date that cannot validate on its own is left out: clients revalidate with the ETag instead
+    public static ResponseEntity.BodyBuilder status(HttpStatus status, CatalogVersion.Snapshot version) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(status)
+                                                           .eTag(version.etag())
+                                                           .cacheControl(REVALIDATE);
+        return version.uniqueDate() ? builder.lastModified(version.lastModified()) : builder;
+    }
+}
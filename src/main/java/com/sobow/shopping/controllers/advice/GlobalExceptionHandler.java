@@ -4,9 +4,14 @@ import com.sobow.shopping.controllers.advice.dto.ErrorResponse;
 import com.sobow.shopping.exceptions.CartEmptyException;
 import com.sobow.shopping.exceptions.CartItemAlreadyExistsException;
 import com.sobow.shopping.exceptions.CategoryAlreadyExistsException;
+import com.sobow.shopping.exceptions.CheckoutQueueFullException;
+import com.sobow.shopping.exceptions.CheckoutTimeoutException;
 import com.sobow.shopping.exceptions.EmailAlreadyExistsException;
+import com.sobow.shopping.exceptions.HotStockActiveException;
+import com.sobow.shopping.exceptions.IdempotencyKeyInFlightException;
 import com.sobow.shopping.exceptions.ImageProcessingException;
 import com.sobow.shopping.exceptions.InsufficientStockException;
+import com.sobow.shopping.exceptions.InvalidCursorException;
 import com.sobow.shopping.exceptions.InvalidOldPasswordException;
 import com.sobow.shopping.exceptions.InvalidPriceException;
 import com.sobow.shopping.exceptions.InvalidUserAuthoritiesException;
@@ -19,6 +24,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
@@ -176,6 +183,59 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(pd.getStatus()).body(pd);
     }
     
+    @ExceptionHandler(HotStockActiveException.class)
+    public ResponseEntity<ProblemDetail> handleHotStockActive(HotStockActiveException e, HttpServletRequest request) {
+        ProblemDetail pd = ProblemDetail.forStatus(HttpStatus.CONFLICT);
+        pd.setTitle("Hot stock active");
+        pd.setDetail(e.getMessage());
+        pd.setProperty("path", request.getRequestURI());
+        return ResponseEntity.status(pd.getStatus()).body(pd);
+    }
+    
+    @ExceptionHandler(IdempotencyKeyInFlightException.class)
+    public ResponseEntity<ProblemDetail> handleIdempotencyKeyInFlight(
+        IdempotencyKeyInFlightException e,
+        HttpServletRequest request
+    ) {
+        ProblemDetail pd = ProblemDetail.forStatus(HttpStatus.CONFLICT);
+        pd.setTitle("Idempotency key in flight");
+        pd.setDetail(e.getMessage());
+        pd.setProperty("path", request.getRequestURI());
+        return ResponseEntity.status(pd.getStatus()).body(pd);
+    }
+    
+    // A versioned row (product, category, image) changed between this request's read and its write
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ProblemDetail> handleOptimisticLock(OptimisticLockingFailureException e, HttpServletRequest request) {
+        ProblemDetail pd = ProblemDetail.forStatus(HttpStatus.CONFLICT);
+        pd.setTitle("Concurrent modification");
+        pd.setDetail("The resource was changed by another request; reload it and retry");
+        pd.setProperty("path", request.getRequestURI());
+        return ResponseEntity.status(pd.getStatus()).body(pd);
+    }
+    
+    @ExceptionHandler(CheckoutQueueFullException.class)
+    public ResponseEntity<ProblemDetail> handleCheckoutQueueFull(CheckoutQueueFullException e, HttpServletRequest request) {
+        ProblemDetail pd = ProblemDetail.forStatus(HttpStatus.SERVICE_UNAVAILABLE);
+        pd.setTitle("Checkout queue full");
+        pd.setDetail(e.getMessage());
+        pd.setProperty("path", request.getRequestURI());
+        return ResponseEntity.status(pd.getStatus())
+                             .header(HttpHeaders.RETRY_AFTER, "1")
+                             .body(pd);
+    }
+    
+    @ExceptionHandler(CheckoutTimeoutException.class)
+    public ResponseEntity<ProblemDetail> handleCheckoutTimeout(CheckoutTimeoutException e, HttpServletRequest request) {
+        ProblemDetail pd = ProblemDetail.forStatus(HttpStatus.SERVICE_UNAVAILABLE);
+        pd.setTitle("Checkout timed out");
+        pd.setDetail(e.getMessage());
+        pd.setProperty("path", request.getRequestURI());
+        return ResponseEntity.status(pd.getStatus())
+                             .header(HttpHeaders.RETRY_AFTER, "1")
+                             .body(pd);
+    }
+    
     @ExceptionHandler(CartItemAlreadyExistsException.class)
     public ResponseEntity<ProblemDetail> handleCartItemConflict(CartItemAlreadyExistsException e, HttpServletRequest request) {
         ProblemDetail pd = ProblemDetail.forStatus(HttpStatus.CONFLICT);
@@ -217,6 +277,15 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(pd.getStatus()).body(pd);
     }
     
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ProblemDetail> handleInvalidCursor(InvalidCursorException ex, HttpServletRequest request) {
+        ProblemDetail pd = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+        pd.setTitle("Invalid cursor");
+        pd.setDetail(ex.getMessage());
+        pd.setProperty("path", request.getRequestURI());
+        return ResponseEntity.status(pd.getStatus()).body(pd);
+    }
+    
     @ExceptionHandler(CartEmptyException.class)
     public ResponseEntity<ProblemDetail> handleCartEmpty(CartEmptyException ex, HttpServletRequest req) {
         var pd = ProblemDetail.forStatus(HttpStatus.UNPROCESSABLE_ENTITY);
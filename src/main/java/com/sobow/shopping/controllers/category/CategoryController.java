@@ -1,9 +1,11 @@
 package com.sobow.shopping.controllers.category;
 
 import com.sobow.shopping.controllers.ApiResponseDto;
+import com.sobow.shopping.controllers.CatalogResponses;
 import com.sobow.shopping.controllers.category.dto.CategoryResponse;
 import com.sobow.shopping.domain.category.Category;
 import com.sobow.shopping.mappers.category.CategoryResponseMapper;
+import com.sobow.shopping.services.catalog.CatalogVersion;
 import com.sobow.shopping.services.category.CategoryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -20,6 +22,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RequiredArgsConstructor
 @RestController
@@ -32,21 +35,28 @@ public class CategoryController {
     
     private final CategoryService categoryService;
     private final CategoryResponseMapper categoryResponseMapper;
+    private final CatalogVersion catalogVersion;
     
     @Operation(
         summary = "List categories"
     )
     @ApiResponses({
-        @ApiResponse(responseCode = "200", description = "Found")
+        @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "304", description = "Not modified since the given ETag / Last-Modified")
     })
     @GetMapping
-    public ResponseEntity<ApiResponseDto> getAllCategories() {
+    public ResponseEntity<ApiResponseDto> getAllCategories(WebRequest webRequest) {
+        CatalogVersion.Snapshot version = catalogVersion.current(CatalogVersion.Scope.CATEGORIES);
+        if (CatalogResponses.notModified(webRequest, version)) {
+            return null;
+        }
+        
         List<CategoryResponse> responseList = categoryService.findAll()
                                                              .stream()
                                                              .map(categoryResponseMapper::mapToDto)
                                                              .toList();
         
-        return ResponseEntity.ok(new ApiResponseDto("Found", responseList));
+        return CatalogResponses.ok(version).body(new ApiResponseDto("Found", responseList));
     }
     
     @Operation(
@@ -57,14 +67,20 @@ public class CategoryController {
     })
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "304", description = "Not modified since the given ETag / Last-Modified"),
         @ApiResponse(responseCode = "400", description = "Validation error"),
         @ApiResponse(responseCode = "404", description = "Not found")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponseDto> getCategory(@PathVariable @Positive long id) {
+    public ResponseEntity<ApiResponseDto> getCategory(@PathVariable @Positive long id, WebRequest webRequest) {
+        CatalogVersion.Snapshot version = catalogVersion.current(CatalogVersion.Scope.CATEGORIES);
+        if (CatalogResponses.notModified(webRequest, version)) {
+            return null;
+        }
+        
         Category category = categoryService.findById(id);
         CategoryResponse response = categoryResponseMapper.mapToDto(category);
-        return ResponseEntity.ok(new ApiResponseDto("Found", response));
+        return CatalogResponses.ok(version).body(new ApiResponseDto("Found", response));
     }
     
     @Operation(
@@ -75,14 +91,20 @@ public class CategoryController {
     })
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "304", description = "Not modified since the given ETag / Last-Modified"),
         @ApiResponse(responseCode = "400", description = "Validation error"),
         @ApiResponse(responseCode = "404", description = "Not found")
     })
     @GetMapping("/by-name/{name}")
-    public ResponseEntity<ApiResponseDto> getCategoryByName(@PathVariable @NotBlank String name) {
+    public ResponseEntity<ApiResponseDto> getCategoryByName(@PathVariable @NotBlank String name, WebRequest webRequest) {
+        CatalogVersion.Snapshot version = catalogVersion.current(CatalogVersion.Scope.CATEGORIES);
+        if (CatalogResponses.notModified(webRequest, version)) {
+            return null;
+        }
+        
         Category category = categoryService.findByName(name);
         CategoryResponse response = categoryResponseMapper.mapToDto(category);
-        return ResponseEntity.ok(new ApiResponseDto("Found", response));
+        return CatalogResponses.ok(version).body(new ApiResponseDto("Found", response));
     }
     
 }
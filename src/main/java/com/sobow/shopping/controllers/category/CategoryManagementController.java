@@ -6,6 +6,8 @@ import com.sobow.shopping.controllers.category.dto.CategoryResponse;
 import com.sobow.shopping.domain.category.Category;
 import com.sobow.shopping.mappers.category.CategoryResponseMapper;
 import com.sobow.shopping.services.category.CategoryService;
+import com.sobow.shopping.services.image.ImageArchiveService;
+import com.sobow.shopping.services.image.Impl.ImageArchive;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
@@ -19,14 +21,19 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import java.net.URI;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RequiredArgsConstructor
 @RestController
@@ -39,6 +46,7 @@ public class CategoryManagementController {
     
     private final CategoryService categoryService;
     private final CategoryResponseMapper categoryResponseMapper;
+    private final ImageArchiveService imageArchiveService;
     
     @Operation(
         summary = "Create a new category",
@@ -127,4 +135,33 @@ public class CategoryManagementController {
         categoryService.deleteById(id);
         return ResponseEntity.noContent().build();
     }
+    
+    @Operation(
+        summary = "Download all images of a category as a ZIP",
+        description = "Streams the images of every product in the category, one folder per product",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @Parameters({
+        @Parameter(name = "id", required = true, description = "Category ID")
+    })
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Archive streamed"),
+        @ApiResponse(responseCode = "400", description = "Validation error"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Forbidden"),
+        @ApiResponse(responseCode = "404", description = "Not found")
+    })
+    @GetMapping("/{id}/images/archive")
+    public ResponseEntity<StreamingResponseBody> downloadImageArchive(@PathVariable @Positive long id) {
+        ImageArchive archive = imageArchiveService.categoryArchive(id);
+        StreamingResponseBody body = out -> imageArchiveService.write(archive, out);
+        return ResponseEntity.ok()
+                             .contentType(MediaType.parseMediaType("application/zip"))
+                             .header(HttpHeaders.CONTENT_DISPOSITION,
+                                     ContentDisposition.attachment()
+                                                       .filename(archive.fileName())
+                                                       .build()
+                                                       .toString())
+                             .body(body);
+    }
 }
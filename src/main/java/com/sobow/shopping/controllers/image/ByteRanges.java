@@ -0,0 +1,140 @@
+package com.sobow.shopping.controllers.image;
+
+import com.sobow.shopping.services.catalog.CatalogVersion;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+
+/**
+ * HTTP range requests (RFC 9110 §14) for binary downloads: {@code Range} / {@code If-Range} evaluation and the
+ * {@code multipart/byteranges} body. Parts are written through a {@link RegionWriter}, so only the requested regions
+ * are ever read from the store.
+ */
+public final class ByteRanges {
+    
+    /**
+     * Inclusive byte range within a representation.
+     */
+    public record Range(long start, long end) {
+        
+        public long length() {
+            return end - start + 1;
+        }
+        
+        public String contentRange(long total) {
+            return "bytes " + start + "-" + end + "/" + total;
+        }
+    }
+    
+    @FunctionalInterface
+    public interface RegionWriter {
+        
+        void write(long position, long count, OutputStream out) throws IOException;
+    }
+    
+    private static final String CRLF = "\r\n";
+    
+    private ByteRanges() {
+    }
+    
+    /**
+     * @return {@code null} when the full representation must be sent (no or malformed {@code Range}, stale
+     * {@code If-Range}, or ranges adding up to more than the whole); an empty list when no range is satisfiable
+     * (416); otherwise the satisfiable ranges in request order
+     */
+    @Nullable
+    public static List<Range> resolve(
+        @Nullable String rangeHeader,
+        @Nullable String ifRangeHeader,
+        CatalogVersion.Snapshot version,
+        long length
+    ) {
+        if (rangeHeader == null || (ifRangeHeader != null && !ifRangeMatches(ifRangeHeader, version))) {
+            return null;
+        }
+        
+        List<HttpRange> requested;
+        try {
+            requested = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        
+        List<Range> satisfiable = new ArrayList<>(requested.size());
+        long total = 0;
+        for (HttpRange range : requested) {
+            try {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                if (start > end) continue;
+                satisfiable.add(new Range(start, end));
+                total += end - start + 1;
+            } catch (IllegalArgumentException e) {
+                // Starts past the end: unsatisfiable, other ranges may still be served
+            }
+        }
+        
+        // Overlapping ranges that add up to more than the resource would let a client amplify one download
+        return total > length ? null : satisfiable;
+    }
+    
+    public static long multipartLength(List<Range> ranges, String boundary, MediaType contentType, long total) {
+        long length = closing(boundary).length();
+        for (Range range : ranges) {
+            length += partHeader(range, boundary, contentType, total).length() + range.length();
+        }
+        return length;
+    }
+    
+    public static void writeMultipart(
+        List<Range> ranges,
+        String boundary,
+        MediaType contentType,
+        long total,
+        RegionWriter writer,
+        OutputStream out
+    ) throws IOException {
+        for (Range range : ranges) {
+            out.write(partHeader(range, boundary, contentType, total).getBytes(StandardCharsets.US_ASCII));
+            writer.write(range.start(), range.length(), out);
+        }
+        out.write(closing(boundary).getBytes(StandardCharsets.US_ASCII));
+    }
+    
+    private static String partHeader(Range range, String boundary, MediaType contentType, long total) {
+        return CRLF + "--" + boundary + CRLF
+            + "Content-Type: " + contentType + CRLF
+            + "Content-Range: " + range.contentRange(total) + CRLF
+            + CRLF;
+    }
+    
+    private static String closing(String boundary) {
+        return CRLF + "--" + boundary + "--" + CRLF;
+    }
+    
+    // If-Range carries either a strong entity tag or an HTTP date; both must match exactly, and the date only counts
+    // while no earlier version shares it
+    private static boolean ifRangeMatches(String ifRange, CatalogVersion.Snapshot version) {
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return value.equals(version.etag());
+        }
+        if (!version.uniqueDate()) {
+            return false;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli()
+                == version.lastModified();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
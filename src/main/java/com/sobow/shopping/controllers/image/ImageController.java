@@ -1,7 +1,14 @@
 package com.sobow.shopping.controllers.image;
 
+import com.sobow.shopping.controllers.ApiResponseDto;
+import com.sobow.shopping.controllers.CatalogResponses;
+import com.sobow.shopping.controllers.image.dto.ImageResponse;
+import com.sobow.shopping.mappers.image.ImageResponseMapper;
+import com.sobow.shopping.services.catalog.CatalogVersion;
 import com.sobow.shopping.services.image.ImageService;
+import com.sobow.shopping.services.image.Impl.ContentTransfer;
 import com.sobow.shopping.services.image.Impl.FileContent;
+import com.sobow.shopping.services.image.Impl.ImageSize;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
@@ -12,34 +19,76 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.constraints.Positive;
+import java.util.List;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("${api.prefix}/products/{productId}/images")
 @Tag(
     name = "Image Controller",
-    description = "API to download Images"
+    description = "API to list and download Images"
 )
 public class ImageController {
     
     private final ImageService imageService;
+    private final ImageResponseMapper imageResponseMapper;
+    private final CatalogVersion catalogVersion;
     
     @Operation(
-        summary = "Download product image"
+        summary = "List product images",
+        description = "Names, types and download URLs, read from image metadata only; the payloads are never loaded"
+    )
+    @Parameters({
+        @Parameter(name = "productId", required = true, description = "Product ID")
+    })
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "304", description = "Not modified since the given ETag / Last-Modified"),
+        @ApiResponse(responseCode = "400", description = "Validation error"),
+        @ApiResponse(responseCode = "404", description = "Product not found")
+    })
+    @GetMapping
+    public ResponseEntity<ApiResponseDto> getImages(@PathVariable @Positive long productId, WebRequest webRequest) {
+        CatalogVersion.Snapshot version = catalogVersion.current(CatalogVersion.Scope.IMAGES);
+        if (CatalogResponses.notModified(webRequest, version)) {
+            return null;
+        }
+        
+        List<ImageResponse> responseList = imageService.findMetadataByProductId(productId)
+                                                       .stream()
+                                                       .map(metadata -> imageResponseMapper.mapToDto(productId, metadata))
+                                                       .toList();
+        
+        return CatalogResponses.ok(version).body(new ApiResponseDto("Found", responseList));
+    }
+    
+    @Operation(
+        summary = "Download product image",
+        description = "Supports byte ranges: a Range header (optionally guarded by If-Range) gets 206 with the "
+            + "requested region, or multipart/byteranges for several regions."
     )
     @Parameters({
         @Parameter(name = "productId", required = true, description = "Product ID"),
-        @Parameter(name = "imageId", required = true, description = "Image ID")
+        @Parameter(name = "imageId", required = true, description = "Image ID"),
+        @Parameter(name = "size", description = "ORIGINAL (default), SMALL (128 px) or MEDIUM (512 px). A derivative "
+            + "that is still being generated is answered with the original, marked no-store")
     })
     @ApiResponses({
         @ApiResponse(
@@ -53,20 +102,88 @@ public class ImageController {
                     description = "e.g. attachment; filename=\"image.jpg\"")
             }
         ),
+        @ApiResponse(responseCode = "206", description = "Requested byte range(s)"),
+        @ApiResponse(responseCode = "304", description = "Not modified since the given ETag / Last-Modified"),
         @ApiResponse(responseCode = "400", description = "Validation error"),
-        @ApiResponse(responseCode = "404", description = "Image not found")
+        @ApiResponse(responseCode = "404", description = "Image not found"),
+        @ApiResponse(responseCode = "416", description = "No requested range overlaps the image")
     })
     @GetMapping("/{imageId}")
-    public ResponseEntity<Resource> downloadImage(
+    public ResponseEntity<StreamingResponseBody> downloadImage(
         @PathVariable @Positive long productId,
-        @PathVariable @Positive long imageId
+        @PathVariable @Positive long imageId,
+        @RequestParam(defaultValue = "ORIGINAL") ImageSize size,
+        @RequestHeader(name = HttpHeaders.RANGE, required = false) String range,
+        @RequestHeader(name = HttpHeaders.IF_RANGE, required = false) String ifRange,
+        WebRequest webRequest
     ) {
-        FileContent fileContent = imageService.getImageContent(productId, imageId);
-        ByteArrayResource byteArrayResource = new ByteArrayResource(fileContent.bytes());
-        return ResponseEntity.ok()
-                             .contentType(MediaType.parseMediaType(fileContent.fileType()))
-                             .contentLength(fileContent.length())
-                             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileContent.fileName() + "\"")
-                             .body(byteArrayResource);
+        CatalogVersion.Snapshot version = catalogVersion.current(CatalogVersion.Scope.IMAGES);
+        // An original is never provisional: answer 304 before touching the database
+        if (size == ImageSize.ORIGINAL && CatalogResponses.notModified(webRequest, version)) {
+            return null;
+        }
+        
+        FileContent fileContent = imageService.getImageContent(productId, imageId, size);
+        boolean provisional = fileContent.size() != size;
+        // checkNotModified writes the catalog validators onto the response, so a provisional original must skip it
+        if (size != ImageSize.ORIGINAL && !provisional && CatalogResponses.notModified(webRequest, version)) {
+            return null;
+        }
+        long length = fileContent.length();
+        MediaType contentType = MediaType.parseMediaType(fileContent.fileType());
+        Resource content = fileContent.content();
+        ByteRanges.RegionWriter writer = content != null
+                                         ? (position, count, out) -> ContentTransfer.copyRange(content, position, count, out)
+                                         // Legacy row not yet migrated: positioned reads from the database BLOB
+                                         : (position, count, out) -> imageService.writeImageContent(
+                                             productId, imageId, position, count, out);
+        
+        List<ByteRanges.Range> ranges = ByteRanges.resolve(range, ifRange, version, length);
+        if (ranges == null) {
+            return respond(HttpStatus.OK, version, provisional)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(contentType)
+                .contentLength(length)
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(fileContent))
+                .body(out -> writer.write(0, length, out));
+        }
+        
+        if (ranges.isEmpty()) {
+            return respond(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, version, provisional)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                .build();
+        }
+        
+        ResponseEntity.BodyBuilder partial =
+            respond(HttpStatus.PARTIAL_CONTENT, version, provisional)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(fileContent));
+        
+        if (ranges.size() == 1) {
+            ByteRanges.Range only = ranges.getFirst();
+            return partial.contentType(contentType)
+                          .contentLength(only.length())
+                          .header(HttpHeaders.CONTENT_RANGE, only.contentRange(length))
+                          .body(out -> writer.write(only.start(), only.length(), out));
+        }
+        
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        return partial.contentType(new MediaType("multipart", "byteranges", Map.of("boundary", boundary)))
+                      .contentLength(ByteRanges.multipartLength(ranges, boundary, contentType, length))
+                      .body(out -> ByteRanges.writeMultipart(ranges, boundary, contentType, length, writer, out));
+    }
+    
+    // The original standing in for a derivative that is not generated yet must not be cached under the catalog
+    // validators, or clients would keep revalidating it to 304 long after the derivative exists
+    private static ResponseEntity.BodyBuilder respond(
+        HttpStatus status, CatalogVersion.Snapshot version, boolean provisional
+    ) {
+        return provisional
+               ? ResponseEntity.status(status).cacheControl(CacheControl.noStore())
+               : CatalogResponses.status(status, version);
+    }
+    
+    private static String contentDisposition(FileContent fileContent) {
+        return "attachment; filename=\"" + fileContent.fileName() + "\"";
     }
 }
@@ -4,7 +4,9 @@ import com.sobow.shopping.controllers.ApiResponseDto;
 import com.sobow.shopping.controllers.image.dto.ImageResponse;
 import com.sobow.shopping.domain.image.Image;
 import com.sobow.shopping.mappers.image.ImageResponseMapper;
+import com.sobow.shopping.services.image.ImageArchiveService;
 import com.sobow.shopping.services.image.ImageService;
+import com.sobow.shopping.services.image.Impl.ImageArchive;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
@@ -18,10 +20,13 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -29,6 +34,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RequiredArgsConstructor
 @RestController
@@ -40,6 +46,7 @@ import org.springframework.web.multipart.MultipartFile;
 public class ImageManagementController {
     
     private final ImageService imageService;
+    private final ImageArchiveService imageArchiveService;
     
     private final ImageResponseMapper imageResponseMapper;
     
@@ -139,4 +146,34 @@ public class ImageManagementController {
         imageService.deleteByProductIdAndId(productId, imageId);
         return ResponseEntity.noContent().build();
     }
+    
+    @Operation(
+        summary = "Download all product images as a ZIP",
+        description = "Streams every image of the product, one at a time; already-compressed formats are stored as-is",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @Parameters({
+        @Parameter(name = "productId", required = true, description = "Product ID")
+    })
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Archive streamed"),
+        @ApiResponse(responseCode = "400", description = "Validation error"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Forbidden"),
+        @ApiResponse(responseCode = "404", description = "Product not found")
+    })
+    @GetMapping("/archive")
+    public ResponseEntity<StreamingResponseBody> downloadArchive(@PathVariable @Positive long productId) {
+        // Resolved before streaming starts, so a missing product is still a 404
+        ImageArchive archive = imageArchiveService.productArchive(productId);
+        StreamingResponseBody body = out -> imageArchiveService.write(archive, out);
+        return ResponseEntity.ok()
+                             .contentType(MediaType.parseMediaType("application/zip"))
+                             .header(HttpHeaders.CONTENT_DISPOSITION,
+                                     ContentDisposition.attachment()
+                                                       .filename(archive.fileName())
+                                                       .build()
+                                                       .toString())
+                             .body(body);
+    }
 }
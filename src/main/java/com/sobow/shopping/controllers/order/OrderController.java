@@ -1,26 +1,42 @@
 package com.sobow.shopping.controllers.order;
 
 import com.sobow.shopping.controllers.ApiResponseDto;
+import com.sobow.shopping.controllers.advice.GlobalExceptionHandler;
+import com.sobow.shopping.controllers.order.dto.OrderAttemptResponse;
 import com.sobow.shopping.controllers.order.dto.OrderResponse;
 import com.sobow.shopping.domain.order.Order;
 import com.sobow.shopping.mappers.order.OrderResponseMapper;
+import com.sobow.shopping.services.order.AsyncOrderCheckout;
+import com.sobow.shopping.services.order.IdempotentOrderCheckout;
+import com.sobow.shopping.services.order.OrderAttempt;
+import com.sobow.shopping.services.order.OrderCheckout;
 import com.sobow.shopping.services.order.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @RequiredArgsConstructor
@@ -32,24 +48,65 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 )
 public class OrderController {
     
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    private static final String CHECKOUT_FAILED = "Checkout failed; please retry later.";
+    private static final ExceptionHandlerMethodResolver EXCEPTION_HANDLERS =
+        new ExceptionHandlerMethodResolver(GlobalExceptionHandler.class);
+    
     private final OrderService orderService;
+    private final OrderCheckout orderCheckout;
+    private final IdempotentOrderCheckout idempotentOrderCheckout;
+    private final AsyncOrderCheckout asyncOrderCheckout;
     
     private final OrderResponseMapper orderResponseMapper;
     
     @Operation(
         summary = "Create order from authenticated user's cart",
-        security = {@SecurityRequirement(name = "bearerAuth")}
+        security = {@SecurityRequirement(name = "bearerAuth")},
+        parameters = {
+            @Parameter(
+                name = "Idempotency-Key",
+                in = ParameterIn.HEADER,
+                description = "Client-chosen key; a retry with the same key returns the order placed by the first request"
+            )
+        }
     )
     @ApiResponses({
-        @ApiResponse(responseCode = "201", description = "Order created"),
+        @ApiResponse(responseCode = "201", description = "Order created (or replayed for a known Idempotency-Key)"),
+        @ApiResponse(responseCode = "202", description = "Checkout queued (asynchronous checkout); poll the attempt"),
+        @ApiResponse(responseCode = "400", description = "Invalid Idempotency-Key"),
         @ApiResponse(responseCode = "401", description = "Unauthorized"),
         @ApiResponse(responseCode = "403", description = "Forbidden"),
-        @ApiResponse(responseCode = "409", description = "Insufficient stock"),
-        @ApiResponse(responseCode = "422", description = "Cart is empty")
+        @ApiResponse(responseCode = "409", description = "Insufficient stock, or Idempotency-Key still in flight"),
+        @ApiResponse(responseCode = "422", description = "Cart is empty"),
+        @ApiResponse(responseCode = "503", description = "Checkout queue full (asynchronous checkout)")
     })
     @PostMapping
-    public ResponseEntity<ApiResponseDto> selfCreateOrder() {
-        Order order = orderService.selfCreateOrder();
+    public ResponseEntity<ApiResponseDto> selfCreateOrder(
+        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) @Size(min = 1, max = 255) String idempotencyKey
+    ) {
+        if (asyncOrderCheckout.isEnabled()) {
+            OrderAttempt attempt = asyncOrderCheckout.selfSubmit(idempotencyKey);
+            URI location = ServletUriComponentsBuilder
+                .fromCurrentRequestUri()
+                .path("/attempts/{id}")
+                .buildAndExpand(attempt.getId())
+                .toUri();
+            return ResponseEntity.accepted()
+                                 .location(location)
+                                 .body(new ApiResponseDto("Accepted", attemptResponse(attempt)));
+        }
+        
+        Order order;
+        boolean replayed = false;
+        if (idempotencyKey == null) {
+            order = orderCheckout.selfCheckout();
+        } else {
+            IdempotentOrderCheckout.Result result = idempotentOrderCheckout.selfCheckout(idempotencyKey);
+            order = result.order();
+            replayed = result.replayed();
+        }
         OrderResponse response = orderResponseMapper.mapToDto(order);
         
         URI location = ServletUriComponentsBuilder
@@ -58,8 +115,35 @@ public class OrderController {
             .buildAndExpand(order.getId())
             .toUri();
         
-        return ResponseEntity.created(location)
-                             .body(new ApiResponseDto("Created", response));
+        ResponseEntity.BodyBuilder created = ResponseEntity.created(location);
+        if (replayed) created.header(IDEMPOTENT_REPLAYED, "true");
+        return created.body(new ApiResponseDto("Created", response));
+    }
+    
+    @Operation(
+        summary = "Get authenticated user's checkout attempt (asynchronous checkout)",
+        security = {@SecurityRequirement(name = "bearerAuth")},
+        parameters = {
+            @Parameter(name = "attemptId", description = "Attempt id from the 202 response", required = true),
+            @Parameter(name = "waitSeconds", description = "Wait up to this long for a pending attempt to finish")
+        }
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Found; status PENDING, PLACED (with order) or FAILED (with error)"),
+        @ApiResponse(responseCode = "400", description = "Invalid wait"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Forbidden"),
+        @ApiResponse(responseCode = "404", description = "Attempt not found or expired")
+    })
+    @GetMapping("attempts/{attemptId}")
+    public CompletableFuture<ResponseEntity<ApiResponseDto>> selfGetOrderAttempt(
+        @PathVariable UUID attemptId,
+        @RequestParam(defaultValue = "0") @Min(0) @Max(30) int waitSeconds
+    ) {
+        return asyncOrderCheckout.selfAwait(attemptId, Duration.ofSeconds(waitSeconds))
+                                 .thenApply(attempt -> ResponseEntity.ok(
+                                     new ApiResponseDto("Found", attemptResponse(attempt))
+                                 ));
     }
     
     @Operation(
@@ -101,4 +185,24 @@ public class OrderController {
         return ResponseEntity.ok(new ApiResponseDto("Found", response));
     }
     
+    private OrderAttemptResponse attemptResponse(OrderAttempt attempt) {
+        // Status first: an attempt finishing meanwhile must not show up as PENDING with an order
+        OrderAttempt.Status status = attempt.getStatus();
+        return OrderAttemptResponse.builder()
+                                   .id(attempt.getId())
+                                   .status(status.name())
+                                   .order(status == OrderAttempt.Status.PLACED
+                                          ? orderResponseMapper.mapToDto(attempt.getOrder())
+                                          : null)
+                                   .error(status == OrderAttempt.Status.FAILED
+                                          ? errorMessage(attempt.getFailure())
+                                          : null)
+                                   .build();
+    }
+    
+    // As the synchronous checkout would answer: failures GlobalExceptionHandler maps carry a message meant for the
+    // client, anything else (database errors, bugs) gets a generic one
+    private static String errorMessage(Throwable failure) {
+        return EXCEPTION_HANDLERS.resolveMethodByThrowable(failure) != null ? failure.getMessage() : CHECKOUT_FAILED;
+    }
 }
@@ -0,0 +1,14 @@
+package com.sobow.shopping.controllers.order.dto;
+
+import java.util.UUID;
+import lombok.Builder;
+
+@Builder
+public record OrderAttemptResponse(
+    UUID id,
+    String status,
+    OrderResponse order,
+    String error
+) {
+    
+}
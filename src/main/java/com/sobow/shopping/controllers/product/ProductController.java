@@ -1,15 +1,23 @@
 package com.sobow.shopping.controllers.product;
 
 import com.sobow.shopping.controllers.ApiResponseDto;
+import com.sobow.shopping.controllers.CatalogResponses;
+import com.sobow.shopping.controllers.product.dto.ProductBatchResponse;
+import com.sobow.shopping.controllers.product.dto.ProductPageResponse;
 import com.sobow.shopping.controllers.product.dto.ProductResponse;
-import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.controllers.product.dto.ProductSuggestionsResponse;
+import com.sobow.shopping.services.catalog.CatalogVersion;
 import com.sobow.shopping.services.product.ProductService;
+import com.sobow.shopping.services.product.ProductSort;
+import com.sobow.shopping.services.product.ProductSuggestService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -19,6 +27,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RequiredArgsConstructor
 @RestController
@@ -29,31 +38,84 @@ import org.springframework.web.bind.annotation.RestController;
 )
 public class ProductController {
     
+    private static final String DEFAULT_PAGE_SIZE = "20";
+    
     private final ProductService productService;
+    private final CatalogVersion catalogVersion;
+    private final ProductSuggestService productSuggestService;
     
-    @Operation(summary = "Get all products")
+    @Operation(
+        summary = "Get products page",
+        parameters = {
+            @Parameter(name = "cursor", description = "Opaque token from the previous page's nextCursor", required = false),
+            @Parameter(name = "size", description = "Page size, capped at " + ProductService.MAX_PAGE_SIZE, required = false),
+            @Parameter(name = "sort", description = "Ordering: ID or PRICE", required = false)
+        }
+    )
     @ApiResponses({
-        @ApiResponse(responseCode = "200", description = "Found")
+        @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "304", description = "Not modified since the given ETag / Last-Modified"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or page size")
     })
     @GetMapping
-    public ResponseEntity<ApiResponseDto> getAllProducts() {
-        List<Product> products = productService.findAll();
-        List<ProductResponse> responseList = productService.mapProductsToResponsesWithImageIds(products);
-        return ResponseEntity.ok(new ApiResponseDto("Found", responseList));
+    public ResponseEntity<ApiResponseDto> getAllProducts(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) @Positive int size,
+        @RequestParam(defaultValue = "ID") ProductSort sort,
+        WebRequest webRequest
+    ) {
+        CatalogVersion.Snapshot version = catalogVersion.current(CatalogVersion.Scope.PRODUCTS);
+        if (CatalogResponses.notModified(webRequest, version)) {
+            return null;
+        }
+        
+        ProductPageResponse page = productService.findPage(sort, cursor, size);
+        return CatalogResponses.ok(version).body(new ApiResponseDto("Found", page));
+    }
+    
+    @Operation(
+        summary = "Get products by ids",
+        description = "Resolves up to " + ProductService.MAX_BATCH_SIZE + " ids in one call. Items keep the "
+            + "requested order; ids without a product are reported in missingIds.",
+        parameters = {
+            @Parameter(name = "ids", description = "Comma-separated product ids", required = true)
+        }
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "304", description = "Not modified since the given ETag / Last-Modified"),
+        @ApiResponse(responseCode = "400", description = "Empty, too many or invalid ids")
+    })
+    @GetMapping(params = "ids")
+    public ResponseEntity<ApiResponseDto> getProductsByIds(
+        @RequestParam @Size(min = 1, max = ProductService.MAX_BATCH_SIZE) List<@Positive Long> ids,
+        WebRequest webRequest
+    ) {
+        CatalogVersion.Snapshot version = catalogVersion.current(CatalogVersion.Scope.PRODUCTS);
+        if (CatalogResponses.notModified(webRequest, version)) {
+            return null;
+        }
+        
+        ProductBatchResponse response = productService.findResponsesByIds(ids);
+        return CatalogResponses.ok(version).body(new ApiResponseDto("Found", response));
     }
     
     @Operation(summary = "Get product by id")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "304", description = "Not modified since the given ETag / Last-Modified"),
         @ApiResponse(responseCode = "400", description = "Invalid id"),
         @ApiResponse(responseCode = "404", description = "Product not found")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponseDto> getProduct(@PathVariable @Positive long id) {
-        Product product = productService.findById(id);
-        List<ProductResponse> responseList = productService.mapProductsToResponsesWithImageIds(List.of(product));
-        ProductResponse response = responseList.getFirst();
-        return ResponseEntity.ok(new ApiResponseDto("Found", response));
+    public ResponseEntity<ApiResponseDto> getProduct(@PathVariable @Positive long id, WebRequest webRequest) {
+        CatalogVersion.Snapshot version = catalogVersion.current(CatalogVersion.Scope.PRODUCTS);
+        if (CatalogResponses.notModified(webRequest, version)) {
+            return null;
+        }
+        
+        ProductResponse response = productService.findResponseById(id);
+        return CatalogResponses.ok(version).body(new ApiResponseDto("Found", response));
     }
     
     @Operation(
@@ -61,25 +123,64 @@ public class ProductController {
         parameters = {
             @Parameter(name = "name", description = "Product name", required = false),
             @Parameter(name = "brandName", description = "Brand name", required = false),
-            @Parameter(name = "categoryName", description = "Category name", required = false)
+            @Parameter(name = "categoryName", description = "Category name", required = false),
+            @Parameter(name = "cursor", description = "Opaque token from the previous page's nextCursor", required = false),
+            @Parameter(name = "size", description = "Page size, capped at " + ProductService.MAX_PAGE_SIZE, required = false),
+            @Parameter(name = "sort", description = "Ordering: ID, PRICE or RELEVANCE", required = false),
+            @Parameter(name = "facets", description = "Include brand, category and price range counts", required = false)
         }
     )
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "304", description = "Not modified since the given ETag / Last-Modified"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
         @ApiResponse(responseCode = "404", description = "Not found")
     })
     @GetMapping("/search")
     public ResponseEntity<ApiResponseDto> searchProducts(
         @RequestParam(required = false) String name,
         @RequestParam(required = false) String brandName,
-        @RequestParam(required = false) String categoryName
+        @RequestParam(required = false) String categoryName,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) @Positive int size,
+        @RequestParam(defaultValue = "ID") ProductSort sort,
+        @RequestParam(defaultValue = "false") boolean facets,
+        WebRequest webRequest
     ) {
-        List<Product> products = productService.search(name, brandName, categoryName);
-        List<ProductResponse> responseList = productService.mapProductsToResponsesWithImageIds(products);
+        CatalogVersion.Snapshot version = catalogVersion.current(CatalogVersion.Scope.PRODUCTS);
+        if (CatalogResponses.notModified(webRequest, version)) {
+            return null;
+        }
+        
+        ProductPageResponse page = productService.searchPage(name, brandName, categoryName, sort, cursor, size);
+        if (facets) {
+            page = page.withFacets(productService.searchFacets(name, brandName, categoryName));
+        }
         
-        HttpStatus status = responseList.isEmpty() ? HttpStatus.NOT_FOUND : HttpStatus.OK;
-        String message = responseList.isEmpty() ? "Not found" : "Found";
+        HttpStatus status = page.items().isEmpty() ? HttpStatus.NOT_FOUND : HttpStatus.OK;
+        String message = page.items().isEmpty() ? "Not found" : "Found";
         
-        return new ResponseEntity<>(new ApiResponseDto(message, responseList), status);
+        return CatalogResponses.status(status, version).body(new ApiResponseDto(message, page));
+    }
+    
+    @Operation(
+        summary = "Suggest product names and brands",
+        description = "Prefix autocomplete served from memory; never queries the database.",
+        parameters = {
+            @Parameter(name = "q", description = "Prefix typed so far", required = true),
+            @Parameter(name = "limit", description = "Suggestions per list, capped at " + ProductSuggestService.MAX_SUGGESTIONS, required = false)
+        }
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "400", description = "Blank prefix or invalid limit")
+    })
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponseDto> suggestProducts(
+        @RequestParam @NotBlank String q,
+        @RequestParam(defaultValue = "10") @Positive int limit
+    ) {
+        ProductSuggestionsResponse response = productSuggestService.suggest(q, limit);
+        return ResponseEntity.ok(new ApiResponseDto("Found", response));
     }
 }
@@ -6,6 +6,10 @@ import com.sobow.shopping.controllers.product.dto.ProductResponse;
 import com.sobow.shopping.controllers.product.dto.ProductUpdateRequest;
 import com.sobow.shopping.domain.product.Product;
 import com.sobow.shopping.mappers.product.ProductResponseMapper;
+import com.sobow.shopping.services.image.ImageService;
+import com.sobow.shopping.services.product.HotStockService;
+import com.sobow.shopping.services.product.ProductExportFormat;
+import com.sobow.shopping.services.product.ProductExportService;
 import com.sobow.shopping.services.product.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -19,14 +23,20 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import java.net.URI;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RequiredArgsConstructor
 @RestController
@@ -39,6 +49,9 @@ public class ProductManagementController {
     
     private final ProductService productService;
     private final ProductResponseMapper productResponseMapper;
+    private final ImageService imageService;
+    private final ProductExportService productExportService;
+    private final HotStockService hotStockService;
     
     @Operation(
         summary = "Create a new product",
@@ -134,4 +147,116 @@ public class ProductManagementController {
         productService.deleteById(id);
         return ResponseEntity.noContent().build();
     }
+    
+    @Operation(
+        summary = "Enable hot stock mode for a product",
+        description = "Flash-sale mode: checkouts take the product's stock from striped in-memory counters and a "
+            + "write-behind ledger updates the row every few milliseconds. Stock edits are rejected while enabled; "
+            + "the mode is per instance and off again after a restart",
+        security = {@SecurityRequirement(name = "bearerAuth")},
+        parameters = {
+            @Parameter(name = "id", description = "Product id", required = true)
+        }
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Enabled"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Forbidden (admin only)"),
+        @ApiResponse(responseCode = "404", description = "Product not found")
+    })
+    @PutMapping("/{id}/hot-stock")
+    public ResponseEntity<ApiResponseDto> enableHotStock(@PathVariable @Positive long id) {
+        return ResponseEntity.ok(new ApiResponseDto("Enabled", hotStockService.enable(id)));
+    }
+    
+    @Operation(
+        summary = "Disable hot stock mode for a product",
+        description = "Flushes the pending ledger, then checkouts go back to the product row",
+        security = {@SecurityRequirement(name = "bearerAuth")},
+        parameters = {
+            @Parameter(name = "id", description = "Product id", required = true)
+        }
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "204", description = "Disabled"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Forbidden (admin only)")
+    })
+    @DeleteMapping("/{id}/hot-stock")
+    public ResponseEntity<Void> disableHotStock(@PathVariable @Positive long id) {
+        hotStockService.disable(id);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @Operation(
+        summary = "List products in hot stock mode",
+        description = "Product ids with the units left in their in-memory counters",
+        security = {@SecurityRequirement(name = "bearerAuth")}
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Forbidden (admin only)")
+    })
+    @GetMapping("/hot-stock")
+    public ResponseEntity<ApiResponseDto> getHotStock() {
+        return ResponseEntity.ok(new ApiResponseDto("Found", hotStockService.status()));
+    }
+    
+    @Operation(
+        summary = "Get product cache statistics",
+        security = {@SecurityRequirement(name = "bearerAuth")}
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Forbidden (admin only)")
+    })
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponseDto> getCacheStats() {
+        return ResponseEntity.ok(new ApiResponseDto("Found", productService.responseCacheStats()));
+    }
+    
+    @Operation(
+        summary = "Get product image cache statistics",
+        description = "Hits, misses, hit ratio, evictions and off-heap bytes of the image payload cache",
+        security = {@SecurityRequirement(name = "bearerAuth")}
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Found"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Forbidden (admin only)")
+    })
+    @GetMapping("/images/cache/stats")
+    public ResponseEntity<ApiResponseDto> getImageCacheStats() {
+        return ResponseEntity.ok(new ApiResponseDto("Found", imageService.contentCacheStats()));
+    }
+    
+    @Operation(
+        summary = "Export the whole catalog",
+        description = "Streams every product as NDJSON (one JSON object per line) or CSV, ordered by id",
+        security = {@SecurityRequirement(name = "bearerAuth")},
+        parameters = {
+            @Parameter(name = "format", description = "NDJSON or CSV", required = false)
+        }
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Export streamed"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Forbidden (admin only)")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+        @RequestParam(defaultValue = "NDJSON") ProductExportFormat format
+    ) {
+        StreamingResponseBody body = out -> productExportService.export(format, out);
+        return ResponseEntity.ok()
+                             .contentType(MediaType.parseMediaType(format.mediaType()))
+                             .header(HttpHeaders.CONTENT_DISPOSITION,
+                                     ContentDisposition.attachment()
+                                                       .filename("products." + format.fileExtension())
+                                                       .build()
+                                                       .toString())
+                             .body(body);
+    }
 }
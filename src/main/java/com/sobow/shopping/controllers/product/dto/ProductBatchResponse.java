@@ -0,0 +1,16 @@
+package com.sobow.shopping.controllers.product.dto;
+
+import java.util.List;
+
+/**
+ * <p>Result of a multi-get by product ids.</p>
+ *
+ * {@code items} follow the order of the requested ids (duplicates collapsed); ids without a product are listed in
+ * {@code missingIds}.
+ */
+public record ProductBatchResponse(
+    List<ProductResponse> items,
+    List<Long> missingIds
+) {
+
+}
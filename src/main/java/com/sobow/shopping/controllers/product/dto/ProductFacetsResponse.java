@@ -0,0 +1,19 @@
+package com.sobow.shopping.controllers.product.dto;
+
+import java.util.List;
+
+/**
+ * <p>Facet counts over the whole set of products matching a search, independent of the page returned.</p>
+ *
+ * Brands and categories are ordered by count, descending; price ranges follow ascending price.
+ */
+public record ProductFacetsResponse(
+    List<FacetCount> brands,
+    List<FacetCount> categories,
+    List<FacetCount> priceRanges
+) {
+    
+    public record FacetCount(String value, long count) {
+    
+    }
+}
@@ -0,0 +1,26 @@
+package com.sobow.shopping.controllers.product.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import java.util.List;
+
+/**
+ * <p>One page of products returned by keyset pagination.</p>
+ *
+ * {@code nextCursor} is an opaque token to pass back as the {@code cursor} request parameter. It is omitted from JSON
+ * on the last page. {@code facets} is only present when requested.
+ */
+public record ProductPageResponse(
+    List<ProductResponse> items,
+    @JsonInclude(Include.NON_NULL) String nextCursor,
+    @JsonInclude(Include.NON_NULL) ProductFacetsResponse facets
+) {
+    
+    public ProductPageResponse(List<ProductResponse> items, String nextCursor) {
+        this(items, nextCursor, null);
+    }
+    
+    public ProductPageResponse withFacets(ProductFacetsResponse facets) {
+        return new ProductPageResponse(items, nextCursor, facets);
+    }
+}
@@ -0,0 +1,16 @@
+package com.sobow.shopping.controllers.product.dto;
+
+import java.util.List;
+
+/**
+ * <p>Autocomplete suggestions for a prefix.</p>
+ *
+ * Distinct product {@code names} and {@code brands} starting with the prefix (case-insensitive), each in alphabetical
+ * order.
+ */
+public record ProductSuggestionsResponse(
+    List<String> names,
+    List<String> brands
+) {
+
+}
@@ -0,0 +1,8 @@
+package com.sobow.shopping.domain.category;
+
+/**
+ * Published when a category is created or updated.
+ */
+public record CategoryChangedEvent(Category category) {
+
+}
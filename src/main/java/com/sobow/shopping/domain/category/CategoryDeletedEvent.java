@@ -0,0 +1,8 @@
+package com.sobow.shopping.domain.category;
+
+/**
+ * Published when a category is deleted. Deleting a category cascades to all of its products.
+ */
+public record CategoryDeletedEvent(long categoryId) {
+
+}
@@ -2,18 +2,22 @@ package com.sobow.shopping.domain.image;
 
 import com.sobow.shopping.domain.product.Product;
 import com.sobow.shopping.exceptions.ImageProcessingException;
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.sql.Blob;
+import java.sql.SQLException;
 import java.util.Objects;
-import javax.sql.rowset.serial.SerialBlob;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -22,6 +26,7 @@ import org.springframework.web.multipart.MultipartFile;
 @Getter
 @NoArgsConstructor
 @Entity
+@EntityListeners(ImageContentListener.class)
 @Table(name = "images")
 public class Image {
     
@@ -30,7 +35,8 @@ public class Image {
     public Image(String fileName, String fileType, Blob file) {
         this.fileName = fileName;
         this.fileType = fileType;
-        this.file = file;
+        this.payload = file == null ? null : new ImagePayload(file);
+        this.fileSize = lengthOf(file);
     }
     
     // ---- Identifier & Basic columns ------------------------
@@ -44,11 +50,24 @@ public class Image {
     @Column(nullable = false)
     private String fileType;
     
-    @Lob
+    // SHA-256 (hex) of the payload, the key under which ImageStorage keeps it; null for legacy rows
+    @Column(length = 64)
+    private String contentHash;
+    
+    // Kept next to the payload so downloads can send Content-Length without opening it
     @Column(nullable = false)
-    private Blob file;
+    private long fileSize;
+    
+    @Version
+    private Long version;
     
     // ---- Associations --------------------------------------
+    // Legacy in-database payload, in its own table so loading an image never reads or locates the LOB; fetched only
+    // by the legacy download and migration paths. Null once the content lives in ImageStorage
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "payload_id")
+    private ImagePayload payload;
+    
     @ManyToOne(optional = false)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
@@ -58,19 +77,36 @@ public class Image {
         Objects.requireNonNull(patch, "Image patch must not be null");
         if (patch.getOriginalFilename() != null) this.fileName = patch.getOriginalFilename();
         if (patch.getContentType() != null) this.fileType = patch.getContentType();
-        try {
-            if (patch.getBytes() != null) this.file = new SerialBlob(patch.getBytes());
-        } catch (Exception e) {
-            throw new ImageProcessingException("Failed to process image file: " + patch.getOriginalFilename(), e);
-        }
+    }
+    
+    public void attachContent(String contentHash, long fileSize) {
+        this.contentHash = Objects.requireNonNull(contentHash, "Content hash must not be null");
+        this.fileSize = fileSize;
+        this.payload = null;
     }
     
     public void linkTo(Product product) {
         this.product = product;
     }
     
+    private static long lengthOf(Blob file) {
+        try {
+            return file == null ? 0L : file.length();
+        } catch (SQLException e) {
+            throw new ImageProcessingException("Failed to read image file length", e);
+        }
+    }
+    
     // ---- Derived / non-persistent --------------------------
+    public Blob getFile() {
+        return payload == null ? null : payload.getFile();
+    }
+    
     public String getDownloadUrl() {
-        return "/api/products/%d/images/%d".formatted(product.getId(), this.id);
+        return downloadUrlOf(product.getId(), this.id);
+    }
+    
+    public static String downloadUrlOf(long productId, long imageId) {
+        return "/api/products/%d/images/%d".formatted(productId, imageId);
     }
 }
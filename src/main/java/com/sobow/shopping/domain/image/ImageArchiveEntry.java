@@ -0,0 +1,15 @@
+package com.sobow.shopping.domain.image;
+
+/**
+ * Image columns needed to put one image into a ZIP archive, selected without the payload.
+ */
+public record ImageArchiveEntry(
+    Long productId,
+    Long imageId,
+    String fileName,
+    String fileType,
+    long fileSize,
+    String contentHash
+) {
+
+}
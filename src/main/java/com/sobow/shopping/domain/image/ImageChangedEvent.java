@@ -0,0 +1,8 @@
+package com.sobow.shopping.domain.image;
+
+/**
+ * Published when an existing image's content is replaced or the image is deleted.
+ */
+public record ImageChangedEvent(long productId, long imageId) {
+
+}
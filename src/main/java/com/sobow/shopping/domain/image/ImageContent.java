@@ -0,0 +1,33 @@
+package com.sobow.shopping.domain.image;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * One stored payload and the number of images pointing at it. Identical uploads share a row; the payload is deleted
+ * from storage only when {@code refCount} drops to zero.
+ * <p>
+ * Rows are created and counted through {@link ImageContentRepository}'s atomic statements, never by loading and
+ * saving the entity, so concurrent uploads of the same bytes do not lose updates.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "image_contents")
+public class ImageContent {
+    
+    // SHA-256 (hex) of the payload, the key under which ImageStorage keeps it
+    @Id
+    @Column(length = 64)
+    private String contentHash;
+    
+    @Column(nullable = false)
+    private long fileSize;
+    
+    @Column(nullable = false)
+    private long refCount;
+}
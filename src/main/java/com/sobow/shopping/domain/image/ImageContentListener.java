@@ -0,0 +1,27 @@
+package com.sobow.shopping.domain.image;
+
+import jakarta.persistence.PreRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports payloads released by image removal, including removals cascaded from product and category deletes, which
+ * never pass through the image service.
+ * <p>
+ * Fires on {@code remove()} rather than at flush, so the release is published while the transaction can still
+ * decrement the content's reference count before it commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImageContentListener {
+    
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @PreRemove
+    public void onRemoved(Image image) {
+        if (image.getContentHash() != null) {
+            eventPublisher.publishEvent(new ImageContentReleasedEvent(image.getContentHash()));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.sobow.shopping.domain.image;
+
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImageContentRepository extends JpaRepository<ImageContent, String> {
+    
+    // Plain INSERT would fail when another transaction stored the same bytes first
+    @Modifying
+    @Query(value = """
+           INSERT INTO image_contents (content_hash, file_size, ref_count)
+           VALUES (:contentHash, :fileSize, 0)
+           ON CONFLICT DO NOTHING
+        """, nativeQuery = true)
+    void insertIfAbsent(String contentHash, long fileSize);
+    
+    // Returns 0 when the row is gone, e.g. deleted by a cleaner that held its lock
+    @Modifying
+    @Query("UPDATE ImageContent c SET c.refCount = c.refCount + 1 WHERE c.contentHash = :contentHash")
+    int acquire(String contentHash);
+    
+    @Modifying
+    @Query("UPDATE ImageContent c SET c.refCount = c.refCount - 1 WHERE c.contentHash = :contentHash AND c.refCount > 0")
+    int release(String contentHash);
+    
+    // Waits for uploads that are acquiring the row, then only matches if none of them committed a reference
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM ImageContent c WHERE c.contentHash = :contentHash AND c.refCount = 0")
+    Optional<ImageContent> findUnreferencedForUpdate(String contentHash);
+}
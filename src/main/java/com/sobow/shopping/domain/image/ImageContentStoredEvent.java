@@ -0,0 +1,5 @@
+package com.sobow.shopping.domain.image;
+
+public record ImageContentStoredEvent(String contentHash) {
+
+}
@@ -0,0 +1,14 @@
+package com.sobow.shopping.domain.image;
+
+/**
+ * Image columns without the binary payload, for reads that must not open the LOB: downloads and image listings.
+ */
+public record ImageMetadata(
+    Long id,
+    String fileName,
+    String fileType,
+    long fileSize,
+    String contentHash
+) {
+
+}
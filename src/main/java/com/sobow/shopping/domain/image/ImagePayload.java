@@ -0,0 +1,35 @@
+package com.sobow.shopping.domain.image;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import java.sql.Blob;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Image bytes still stored in the database, split from {@link Image} so metadata reads never touch the LOB. Only rows
+ * from before content-addressed storage have one; it is removed when the content moves to ImageStorage.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "image_payloads")
+public class ImagePayload {
+    
+    ImagePayload(Blob file) {
+        this.file = file;
+    }
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Lob
+    @Column(nullable = false)
+    private Blob file;
+}
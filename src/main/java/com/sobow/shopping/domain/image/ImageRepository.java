@@ -2,6 +2,7 @@ package com.sobow.shopping.domain.image;
 
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -11,6 +12,48 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
     
     Optional<Image> findByProductIdAndId(long productId, long imageId);
     
+    @Query("""
+           SELECT new com.sobow.shopping.domain.image.ImageMetadata(
+               i.id, i.fileName, i.fileType, i.fileSize, i.contentHash
+           )
+           FROM Image i
+           WHERE i.product.id = :productId AND i.id = :imageId
+        """)
+    Optional<ImageMetadata> findMetadataByProductIdAndId(long productId, long imageId);
+    
+    @Query("""
+           SELECT new com.sobow.shopping.domain.image.ImageMetadata(
+               i.id, i.fileName, i.fileType, i.fileSize, i.contentHash
+           )
+           FROM Image i
+           WHERE i.product.id = :productId
+           ORDER BY i.id
+        """)
+    List<ImageMetadata> findMetadataByProductId(long productId);
+    
+    @Query("""
+           SELECT new com.sobow.shopping.domain.image.ImageArchiveEntry(
+               i.product.id, i.id, i.fileName, i.fileType, i.fileSize, i.contentHash
+           )
+           FROM Image i
+           WHERE i.product.id = :productId
+           ORDER BY i.id
+        """)
+    List<ImageArchiveEntry> findArchiveEntriesByProductId(long productId);
+    
+    @Query("""
+           SELECT new com.sobow.shopping.domain.image.ImageArchiveEntry(
+               i.product.id, i.id, i.fileName, i.fileType, i.fileSize, i.contentHash
+           )
+           FROM Image i
+           WHERE i.product.category.id = :categoryId
+           ORDER BY i.product.id, i.id
+        """)
+    List<ImageArchiveEntry> findArchiveEntriesByCategoryId(long categoryId);
+    
+    @Query("SELECT i FROM Image i JOIN FETCH i.payload WHERE i.contentHash IS NULL ORDER BY i.id")
+    List<Image> findLegacyBlobBatch(Pageable pageable);
+    
     @Query("""
            SELECT i.product.id AS productId, i.id AS imageId
            FROM Image i
@@ -0,0 +1,59 @@
+package com.sobow.shopping.domain.order;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * An {@code Idempotency-Key} a user sent with {@code POST /users/me/orders}. The row is inserted (committed) before
+ * the checkout runs, so the unique constraint lets only one request per key through, and gets the order id in the
+ * order's own transaction. A row without an order id is a checkout still in flight; a failed checkout deletes its row so the
+ * key can be retried.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(
+    name = "order_idempotency_keys",
+    uniqueConstraints = {
+        @UniqueConstraint(
+            name = "uc_order_idempotency_keys_user_key",
+            columnNames = {"user_id", "idempotency_key"}
+        )
+    },
+    indexes = {
+        @Index(name = "idx_order_idempotency_keys_created_at", columnList = "created_at")
+    }
+)
+public class OrderIdempotencyKey {
+    
+    public OrderIdempotencyKey(long userId, String idempotencyKey, Instant createdAt) {
+        this.userId = userId;
+        this.idempotencyKey = idempotencyKey;
+        this.createdAt = createdAt;
+    }
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Plain ids, not associations: a replay reads this row and the order, nothing else
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private String idempotencyKey;
+    
+    private Long orderId;
+    
+    @Column(nullable = false)
+    private Instant createdAt;
+}
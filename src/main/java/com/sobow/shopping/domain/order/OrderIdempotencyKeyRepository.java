@@ -0,0 +1,54 @@
+package com.sobow.shopping.domain.order;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrderIdempotencyKeyRepository extends JpaRepository<OrderIdempotencyKey, Long> {
+    
+    Optional<OrderIdempotencyKey> findByUserIdAndIdempotencyKey(long userId, String idempotencyKey);
+    
+    // Locks claims in id order; the checkout holds them until its order commits
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+        SELECT k
+        FROM OrderIdempotencyKey k
+        WHERE k.id IN :ids
+        ORDER BY k.id
+        """)
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "5000"))
+        // value in ms
+    List<OrderIdempotencyKey> findAllForUpdate(Collection<Long> ids);
+    
+    @Modifying
+    @Query("UPDATE OrderIdempotencyKey k SET k.orderId = :orderId WHERE k.id = :id AND k.orderId IS NULL")
+    int complete(long id, Long orderId);
+    
+    // Returns 0 when another request took the abandoned claim over first
+    @Modifying
+    @Query("""
+        UPDATE OrderIdempotencyKey k
+        SET k.createdAt = :now
+        WHERE k.id = :id AND k.orderId IS NULL AND k.createdAt = :claimedAt
+        """)
+    int takeOver(long id, Instant claimedAt, Instant now);
+    
+    @Modifying
+    @Query("DELETE FROM OrderIdempotencyKey k WHERE k.id = :id AND k.orderId IS NULL")
+    int release(long id);
+    
+    @Modifying
+    @Query("DELETE FROM OrderIdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(Instant cutoff);
+}
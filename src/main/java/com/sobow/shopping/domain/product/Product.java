@@ -14,6 +14,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.Digits;
 import java.math.BigDecimal;
@@ -23,6 +24,7 @@ import java.util.Objects;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 @Getter
 @NoArgsConstructor
@@ -69,6 +71,15 @@ public class Product {
     @Column(nullable = false)
     private Integer availableQty;
     
+    // Sum of live cart reservations. Changed only by ProductRepository's atomic statements, never written from here
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int reservedQty;
+    
+    // Incremented by Hibernate on every update
+    @Version
+    private Long version;
+    
     // ---- Associations --------------------------------------
     @ManyToOne(optional = false)
     @JoinColumn(name = "category_id", nullable = false)
@@ -100,6 +111,12 @@ public class Product {
         images.remove(img);
     }
     
+    // ---- Derived / non-persistent --------------------------
+    // Stock not held by any cart, as of when this entity was loaded
+    public int getAvailableToSell() {
+        return availableQty - reservedQty;
+    }
+    
     // ---- Setter methods ------------------------------------
     public void setAvailableQty(int newQty) {
         if (newQty < 0) throw new OverDecrementException(id, newQty);
@@ -0,0 +1,12 @@
+package com.sobow.shopping.domain.product;
+
+/**
+ * Published whenever a product's state visible to readers changes: created, updated, stock decremented, or an image
+ * added or removed.
+ * <p>
+ * Carries the entity rather than its id because a product created in the current transaction only gets its id on
+ * flush. Listeners run after commit, when the id is assigned.
+ */
+public record ProductChangedEvent(Product product) {
+
+}
@@ -0,0 +1,5 @@
+package com.sobow.shopping.domain.product;
+
+public record ProductDeletedEvent(long productId) {
+
+}
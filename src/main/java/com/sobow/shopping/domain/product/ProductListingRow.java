@@ -0,0 +1,29 @@
+package com.sobow.shopping.domain.product;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only projection of a product for listings, selected directly by JPQL constructor expression.
+ *
+ * @param imageIds comma-separated image ids aggregated by the query; {@code null} when the product has no images
+ */
+public record ProductListingRow(
+    Long id,
+    String name,
+    String brandName,
+    BigDecimal price,
+    Integer availableQty,
+    String description,
+    Long categoryId,
+    String imageIds
+) {
+    
+    public List<Long> imageIdList() {
+        if (imageIds == null || imageIds.isEmpty()) return List.of();
+        return Arrays.stream(imageIds.split(","))
+                     .map(Long::valueOf)
+                     .toList();
+    }
+}
@@ -2,12 +2,22 @@ package com.sobow.shopping.domain.product;
 
 import jakarta.persistence.LockModeType;
 import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
@@ -30,6 +40,84 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
         """)
     List<Product> findAllWithImages();
     
+    // Keyset pagination: callers pass an unsorted first-page Pageable (PageRequest.ofSize) only to cap the row count,
+    // so no OFFSET is ever issued and every page costs the same regardless of depth.
+    @Query("""
+        SELECT p
+        FROM Product p
+        WHERE p.id > :afterId
+        ORDER BY p.id
+        """)
+    List<Product> findPageOrderedById(long afterId, Pageable limit);
+    
+    // Read-only listing projection: one row per product straight into a DTO, with the category id taken from the FK
+    // column and image ids aggregated in the same statement. No entities, no persistence context, no second query.
+    String LISTING_SELECT = """
+        SELECT new com.sobow.shopping.domain.product.ProductListingRow(
+            p.id, p.name, p.brandName, p.price, p.availableQty, p.description, p.category.id,
+            listagg(cast(i.id AS String), ',') WITHIN GROUP (ORDER BY i.id)
+        )
+        FROM Product p
+        LEFT JOIN p.images i
+        """;
+    
+    String LISTING_GROUP_BY = """
+        GROUP BY p.id, p.name, p.brandName, p.price, p.availableQty, p.description, p.category.id
+        """;
+    
+    @Query(LISTING_SELECT + """
+        WHERE p.id > :afterId
+        """ + LISTING_GROUP_BY + """
+        ORDER BY p.id
+        """)
+    List<ProductListingRow> findListingPageOrderedById(long afterId, Pageable limit);
+    
+    @Query(LISTING_SELECT + LISTING_GROUP_BY + """
+        ORDER BY p.price, p.id
+        """)
+    List<ProductListingRow> findListingPageOrderedByPrice(Pageable limit);
+    
+    @Query(LISTING_SELECT + """
+        WHERE p.price > :afterPrice OR (p.price = :afterPrice AND p.id > :afterId)
+        """ + LISTING_GROUP_BY + """
+        ORDER BY p.price, p.id
+        """)
+    List<ProductListingRow> findListingPageOrderedByPriceAfter(BigDecimal afterPrice, long afterId, Pageable limit);
+    
+    @Query(LISTING_SELECT + """
+        WHERE p.id IN :ids
+        """ + LISTING_GROUP_BY)
+    List<ProductListingRow> findListingRowsByIds(Collection<Long> ids);
+    
+    /**
+     * Loads listing rows by id and returns them in the order of {@code ids}. Ids without a row are skipped.
+     */
+    default List<ProductListingRow> findListingRowsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        Map<Long, ProductListingRow> byId = findListingRowsByIds(ids).stream()
+                                                                     .collect(Collectors.toMap(
+                                                                         ProductListingRow::id, Function.identity()
+                                                                     ));
+        return ids.stream()
+                  .map(byId::get)
+                  .filter(Objects::nonNull)
+                  .toList();
+    }
+    
+    // Forward-only scroll for full exports: rows arrive from the driver in fetch-size batches instead of one list.
+    // Must be consumed inside a transaction and closed by the caller.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT p
+        FROM Product p
+        JOIN FETCH p.category
+        ORDER BY p.id
+        """)
+    Stream<Product> streamAllWithCategory();
+    
     boolean existsByNameAndBrandName(String name, String brandName);
     
     boolean existsByNameAndBrandNameAndIdNot(String name, String brandName, long id);
@@ -43,4 +131,43 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "5000"))
         // value in ms
     List<Product> findAllForUpdate(List<Long> ids);
+    
+    // Reservations are counted with native, single-statement check-and-change updates (reserved_qty is not writable
+    // through the entity). A hold being replaced is passed as :held, so it counts as free for the cart that owns it.
+    @Modifying
+    @Query(value = """
+           UPDATE products
+           SET reserved_qty = reserved_qty - :held + :qty
+           WHERE id = :id AND available_qty - reserved_qty + :held >= :qty
+        """, nativeQuery = true)
+    int reserve(long id, int held, int qty);
+    
+    @Modifying
+    @Query(value = "UPDATE products SET reserved_qty = GREATEST(reserved_qty - :qty, 0) WHERE id = :id",
+           nativeQuery = true)
+    int releaseReserved(long id, int qty);
+    
+    // Checkout: takes the stock and drops the hold in one step; bumps version like any other stock change
+    @Modifying
+    @Query(value = """
+           UPDATE products
+           SET available_qty = available_qty - :qty,
+               reserved_qty = GREATEST(reserved_qty - :held, 0),
+               version = version + 1
+           WHERE id = :id AND available_qty - reserved_qty + :held >= :qty
+        """, nativeQuery = true)
+    int convertReserved(long id, int held, int qty);
+    
+    @Query(value = "SELECT available_qty - reserved_qty FROM products WHERE id = :id", nativeQuery = true)
+    Optional<Integer> findAvailableToSell(long id);
+    
+    // Hot stock: applies ledger rows whose quantity the in-memory counter already checked, so no stock condition here
+    @Modifying
+    @Query(value = """
+           UPDATE products
+           SET available_qty = available_qty - :qty,
+               version = version + 1
+           WHERE id = :id
+        """, nativeQuery = true)
+    int applyLedger(long id, int qty);
 }
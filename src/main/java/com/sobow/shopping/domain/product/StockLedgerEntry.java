@@ -0,0 +1,37 @@
+package com.sobow.shopping.domain.product;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stock taken from a hot product's in-memory counter by a committed checkout, not yet subtracted from
+ * {@code products.available_qty}. Rows are insert-only, so checkouts of the same product never wait on each other;
+ * the ledger flusher folds them into the product row and deletes them in one transaction.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "stock_ledger")
+public class StockLedgerEntry {
+    
+    public StockLedgerEntry(long productId, int qty) {
+        this.productId = productId;
+        this.qty = qty;
+    }
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long productId;
+    
+    @Column(nullable = false)
+    private int qty;
+}
@@ -0,0 +1,24 @@
+package com.sobow.shopping.domain.product;
+
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockLedgerRepository extends JpaRepository<StockLedgerEntry, Long> {
+    
+    // Callers pass PageRequest.ofSize only to cap the batch, as in ProductRepository.findPageOrderedById
+    @Query("SELECT e FROM StockLedgerEntry e ORDER BY e.id")
+    List<StockLedgerEntry> findBatch(Pageable limit);
+    
+    @Query("SELECT COALESCE(SUM(e.qty), 0) FROM StockLedgerEntry e WHERE e.productId = :productId")
+    long sumPendingByProductId(long productId);
+    
+    @Modifying
+    @Query("DELETE FROM StockLedgerEntry e WHERE e.id IN :ids")
+    int deleteByIds(Collection<Long> ids);
+}
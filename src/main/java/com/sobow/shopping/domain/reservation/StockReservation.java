@@ -0,0 +1,62 @@
+package com.sobow.shopping.domain.reservation;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stock held for one cart line until {@code expiresAt}. The held quantity is also counted in the product's
+ * {@code reservedQty}, which is what other carts reserve against.
+ * <p>
+ * A row is never updated: changing a hold deletes the row and inserts a new one. Whoever deletes the row (cart,
+ * checkout or sweeper) owns releasing its quantity, so a hold is never released twice.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(
+    name = "stock_reservations",
+    uniqueConstraints = {
+        @UniqueConstraint(
+            name = "uc_stock_reservations_cart_product",
+            columnNames = {"cart_id", "product_id"}
+        )
+    },
+    indexes = {
+        @Index(name = "idx_stock_reservations_expires_at", columnList = "expires_at")
+    }
+)
+public class StockReservation {
+    
+    public StockReservation(long cartId, long productId, int qty, Instant expiresAt) {
+        this.cartId = cartId;
+        this.productId = productId;
+        this.qty = qty;
+        this.expiresAt = expiresAt;
+    }
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Plain ids, not associations: the sweeper releases holds without loading carts or products
+    @Column(nullable = false)
+    private Long cartId;
+    
+    @Column(nullable = false)
+    private Long productId;
+    
+    @Column(nullable = false)
+    private int qty;
+    
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
@@ -0,0 +1,32 @@
+package com.sobow.shopping.domain.reservation;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+    
+    Optional<StockReservation> findByCartIdAndProductId(long cartId, long productId);
+    
+    List<StockReservation> findAllByCartIdOrderByIdAsc(long cartId);
+    
+    // Callers pass PageRequest.ofSize only to cap the batch, as in ProductRepository.findPageOrderedById
+    @Query("SELECT r FROM StockReservation r WHERE r.expiresAt < :now ORDER BY r.id")
+    List<StockReservation> findExpired(Instant now, Pageable limit);
+    
+    // Returns 0 when another transaction deleted the row first; only the caller that got 1 may release its quantity
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.id = :id")
+    int claim(long id);
+    
+    // As claim, but skips a hold that was renewed since it was found expired
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.id = :id AND r.expiresAt < :now")
+    int claimExpired(long id, Instant now);
+}
@@ -0,0 +1,8 @@
+package com.sobow.shopping.exceptions;
+
+public class CheckoutQueueFullException extends RuntimeException {
+    
+    public CheckoutQueueFullException(int capacity) {
+        super("Checkout queue is full (" + capacity + " pending); retry later.");
+    }
+}
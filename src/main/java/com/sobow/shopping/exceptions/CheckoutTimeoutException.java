@@ -0,0 +1,11 @@
+package com.sobow.shopping.exceptions;
+
+import java.time.Duration;
+
+public class CheckoutTimeoutException extends RuntimeException {
+    
+    public CheckoutTimeoutException(Duration timeout) {
+        super("Checkout did not finish within " + timeout.toMillis() + " ms and may still be placed; "
+                  + "retry later with the same Idempotency-Key.");
+    }
+}
@@ -0,0 +1,8 @@
+package com.sobow.shopping.exceptions;
+
+public class HotStockActiveException extends RuntimeException {
+    
+    public HotStockActiveException(long productId) {
+        super("Stock of product " + productId + " is managed by hot stock mode; disable it before changing the quantity.");
+    }
+}
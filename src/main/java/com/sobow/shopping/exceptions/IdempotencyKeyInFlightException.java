@@ -0,0 +1,13 @@
+package com.sobow.shopping.exceptions;
+
+public class IdempotencyKeyInFlightException extends RuntimeException {
+    
+    public IdempotencyKeyInFlightException(String idempotencyKey) {
+        super("A checkout with idempotency key '" + idempotencyKey + "' is still in progress; retry later.");
+    }
+    
+    // The claim was taken over or already records an order: a retry gets the stored result
+    public IdempotencyKeyInFlightException(long keyId) {
+        super("Idempotency key claim " + keyId + " is no longer held by this checkout; retry later.");
+    }
+}
@@ -0,0 +1,12 @@
+package com.sobow.shopping.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    
+    public InvalidCursorException(String cursor) {
+        super("Invalid page cursor: " + cursor);
+    }
+    
+    public InvalidCursorException(String cursor, Throwable cause) {
+        super("Invalid page cursor: " + cursor, cause);
+    }
+}
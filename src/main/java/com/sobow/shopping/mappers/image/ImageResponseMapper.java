@@ -2,8 +2,10 @@ package com.sobow.shopping.mappers.image;
 
 import com.sobow.shopping.controllers.image.dto.ImageResponse;
 import com.sobow.shopping.domain.image.Image;
+import com.sobow.shopping.domain.image.ImageMetadata;
 import com.sobow.shopping.mappers.Mapper;
 
 public interface ImageResponseMapper extends Mapper<Image, ImageResponse> {
-
+    
+    ImageResponse mapToDto(long productId, ImageMetadata metadata);
 }
@@ -2,6 +2,7 @@ package com.sobow.shopping.mappers.image.Impl;
 
 import com.sobow.shopping.controllers.image.dto.ImageResponse;
 import com.sobow.shopping.domain.image.Image;
+import com.sobow.shopping.domain.image.ImageMetadata;
 import com.sobow.shopping.mappers.image.ImageResponseMapper;
 import org.springframework.stereotype.Component;
 
@@ -18,4 +19,14 @@ public class ImageResponseMapperImpl implements ImageResponseMapper {
             image.getDownloadUrl()
         );
     }
+    
+    @Override
+    public ImageResponse mapToDto(long productId, ImageMetadata metadata) {
+        return new ImageResponse(
+            metadata.id(),
+            metadata.fileName(),
+            metadata.fileType(),
+            Image.downloadUrlOf(productId, metadata.id())
+        );
+    }
 }
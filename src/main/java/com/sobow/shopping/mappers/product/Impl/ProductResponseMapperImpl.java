@@ -2,6 +2,7 @@ package com.sobow.shopping.mappers.product.Impl;
 
 import com.sobow.shopping.controllers.product.dto.ProductResponse;
 import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductListingRow;
 import com.sobow.shopping.mappers.product.ProductResponseMapper;
 import java.util.List;
 import org.springframework.stereotype.Component;
@@ -35,4 +36,18 @@ public class ProductResponseMapperImpl implements ProductResponseMapper {
                               .imageIds(imageIds)
                               .build();
     }
+    
+    @Override
+    public ProductResponse mapToDto(ProductListingRow row) {
+        return ProductResponse.builder()
+                              .id(row.id())
+                              .name(row.name())
+                              .brandName(row.brandName())
+                              .price(row.price())
+                              .availableQty(row.availableQty())
+                              .description(row.description())
+                              .categoryId(row.categoryId())
+                              .imageIds(row.imageIdList())
+                              .build();
+    }
 }
@@ -11,7 +11,9 @@ import com.sobow.shopping.domain.user.User;
 import com.sobow.shopping.domain.user.UserProfile;
 import com.sobow.shopping.exceptions.CartItemAlreadyExistsException;
 import com.sobow.shopping.services.cart.CartService;
+import com.sobow.shopping.services.order.StockAllocator;
 import com.sobow.shopping.services.product.ProductService;
+import com.sobow.shopping.services.reservation.StockReservationService;
 import com.sobow.shopping.services.user.CurrentUserService;
 import com.sobow.shopping.services.user.UserProfileService;
 import jakarta.persistence.EntityNotFoundException;
@@ -29,6 +31,8 @@ public class CartServiceImpl implements CartService {
     private final ProductService productService;
     private final CurrentUserService currentUserService;
     private final UserProfileService userProfileService;
+    private final StockReservationService reservationService;
+    private final StockAllocator stockAllocator;
     
     @Override
     public Cart findByUserIdWithItems(long userId) {
@@ -56,6 +60,7 @@ public class CartServiceImpl implements CartService {
         Authentication authentication = currentUserService.getAuthentication();
         User user = currentUserService.getAuthenticatedUser(authentication);
         UserProfile userProfile = userProfileService.findByUserId(user.getId());
+        if (userProfile.getCart() != null) reservationService.releaseAll(userProfile.getCart());
         userProfile.removeCart();
     }
     
@@ -76,6 +81,7 @@ public class CartServiceImpl implements CartService {
         
         CartItem newItem = new CartItem(product, createRequest.requestedQty());
         cart.addCartItemAndLink(newItem);
+        reserve(newItem);
         return newItem;
     }
     
@@ -88,7 +94,11 @@ public class CartServiceImpl implements CartService {
         
         CartItem item = findCartItemByCartIdAndItemId(cart.getId(), itemId);
         item.updateFrom(updateRequest);
-        if (item.isEmpty()) selfRemoveCartItem(itemId);
+        if (item.isEmpty()) {
+            selfRemoveCartItem(itemId);
+        } else {
+            reserve(item);
+        }
         return item;
     }
     
@@ -100,6 +110,7 @@ public class CartServiceImpl implements CartService {
         Cart cart = findByUserIdWithItems(user.getId());
         
         CartItem item = findCartItemByCartIdAndItemId(cart.getId(), itemId);
+        reservationService.release(item);
         cart.removeCartItem(item);
     }
     
@@ -109,6 +120,7 @@ public class CartServiceImpl implements CartService {
         Authentication authentication = currentUserService.getAuthentication();
         User user = currentUserService.getAuthenticatedUser(authentication);
         Cart cart = findByUserIdWithItems(user.getId());
+        reservationService.releaseAll(cart);
         cart.removeAllCartItems();
     }
     
@@ -120,6 +132,12 @@ public class CartServiceImpl implements CartService {
         return cartRepository.existsByUserProfile_User_Id(user.getId());
     }
     
+    // A hold only counts when checkout takes stock the reservation way; other stock modes would just lock it up until
+    // it expires. Releases still run in every mode, so holds left from an earlier mode go back at once
+    private void reserve(CartItem item) {
+        if (stockAllocator.honoursReservations()) reservationService.reserve(item);
+    }
+    
     private CartItem findCartItemByCartIdAndItemId(long cartId, long itemId) {
         return cartItemRepository.findByCartIdAndId(cartId, itemId)
                                  .orElseThrow(() -> new EntityNotFoundException(
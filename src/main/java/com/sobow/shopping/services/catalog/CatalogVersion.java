@@ -0,0 +1,113 @@
+package com.sobow.shopping.services.catalog;
+
+import com.sobow.shopping.domain.category.CategoryChangedEvent;
+import com.sobow.shopping.domain.category.CategoryDeletedEvent;
+import com.sobow.shopping.domain.image.ImageChangedEvent;
+import com.sobow.shopping.domain.image.ImageContentStoredEvent;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.domain.product.ProductDeletedEvent;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Versions of the public catalog, one per {@link Scope}, used for conditional GETs.
+ * <p>
+ * A scope's version is bumped after the commit of any write its responses show: product writes (stock included)
+ * bump {@link Scope#PRODUCTS} only, so checkouts leave category and image validators alone. Controllers read the
+ * version <em>before</em> touching the database: a client whose tag is still current gets {@code 304 Not Modified}
+ * without a query, and a response built after a write can never carry the tag from before it. A random per-process
+ * nonce keeps tags from colliding across restarts.
+ * <p>
+ * Like {@code ProductResponseCache}, invalidation is process-local.
+ */
+@Component
+public class CatalogVersion {
+    
+    public enum Scope {
+        PRODUCTS, CATEGORIES, IMAGES
+    }
+    
+    /**
+     * @param etag         strong, quoted entity tag
+     * @param lastModified epoch millis of the last bump, truncated to whole seconds as sent over HTTP
+     * @param uniqueDate   {@code false} when the previous version carried the same {@code lastModified} (two bumps
+     *                     in one second); the date alone then cannot tell them apart and must not validate
+     */
+    public record Snapshot(String etag, long lastModified, boolean uniqueDate) {
+    
+    }
+    
+    private final String nonce = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+    
+    private long counter;
+    // Replaced, never modified, so reads need no lock
+    private volatile Map<Scope, Snapshot> current;
+    
+    public CatalogVersion() {
+        Map<Scope, Snapshot> initial = new EnumMap<>(Scope.class);
+        for (Scope scope : Scope.values()) {
+            initial.put(scope, snapshot(scope, null));
+        }
+        current = initial;
+    }
+    
+    public Snapshot current(Scope scope) {
+        return current.get(scope);
+    }
+    
+    public synchronized void bump(Scope... scopes) {
+        Map<Scope, Snapshot> next = new EnumMap<>(current);
+        for (Scope scope : scopes) {
+            next.put(scope, snapshot(scope, next.get(scope)));
+        }
+        current = next;
+    }
+    
+    private Snapshot snapshot(Scope scope, Snapshot previous) {
+        long lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS).toEpochMilli();
+        return new Snapshot(
+            "\"catalog-" + scope.name().toLowerCase(Locale.ROOT) + "-" + nonce + "-" + counter++ + "\"",
+            lastModified,
+            previous == null || previous.lastModified() != lastModified
+        );
+    }
+    
+    // Product responses show stock, images and their category
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        bump(Scope.PRODUCTS);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        bump(Scope.PRODUCTS, Scope.IMAGES);
+    }
+    
+    // Uploads and replacements: new entries in a product's image list
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageContentStored(ImageContentStoredEvent event) {
+        bump(Scope.IMAGES);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageChanged(ImageChangedEvent event) {
+        bump(Scope.IMAGES);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        bump(Scope.CATEGORIES, Scope.PRODUCTS);
+    }
+    
+    // Deleting a category cascades to its products and their images
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryDeleted(CategoryDeletedEvent event) {
+        bump(Scope.values());
+    }
+}
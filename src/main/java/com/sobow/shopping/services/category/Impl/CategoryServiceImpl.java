@@ -2,6 +2,8 @@ package com.sobow.shopping.services.category.Impl;
 
 import com.sobow.shopping.controllers.category.dto.CategoryRequest;
 import com.sobow.shopping.domain.category.Category;
+import com.sobow.shopping.domain.category.CategoryChangedEvent;
+import com.sobow.shopping.domain.category.CategoryDeletedEvent;
 import com.sobow.shopping.domain.category.CategoryRepository;
 import com.sobow.shopping.exceptions.CategoryAlreadyExistsException;
 import com.sobow.shopping.services.category.CategoryService;
@@ -9,6 +11,7 @@ import jakarta.annotation.Nullable;
 import jakarta.persistence.EntityNotFoundException;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,6 +20,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class CategoryServiceImpl implements CategoryService {
     
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Override
     public Category findById(long id) {
@@ -40,8 +44,9 @@ public class CategoryServiceImpl implements CategoryService {
     @Override
     public Category create(CategoryRequest request) {
         assertCategoryUnique(request.name(), null);
-        Category category = new Category(request.name());
-        return categoryRepository.save(category);
+        Category category = categoryRepository.save(new Category(request.name()));
+        eventPublisher.publishEvent(new CategoryChangedEvent(category));
+        return category;
     }
     
     @Transactional
@@ -50,12 +55,14 @@ public class CategoryServiceImpl implements CategoryService {
         Category existingCategory = findById(id);
         assertCategoryUnique(request.name(), existingCategory.getId());
         existingCategory.updateFrom(request);
+        eventPublisher.publishEvent(new CategoryChangedEvent(existingCategory));
         return existingCategory;
     }
     
     @Override
     public void deleteById(long id) {
         categoryRepository.deleteById(id);
+        eventPublisher.publishEvent(new CategoryDeletedEvent(id));
     }
     
     
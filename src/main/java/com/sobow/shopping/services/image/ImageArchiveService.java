@@ -0,0 +1,23 @@
+package com.sobow.shopping.services.image;
+
+import com.sobow.shopping.services.image.Impl.ImageArchive;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ImageArchiveService {
+    
+    /**
+     * Lists the images of a product for {@link #write}; throws if the product does not exist.
+     */
+    ImageArchive productArchive(long productId);
+    
+    /**
+     * Lists the images of every product in a category for {@link #write}; throws if the category does not exist.
+     */
+    ImageArchive categoryArchive(long categoryId);
+    
+    /**
+     * Streams {@code archive} to {@code out} as a ZIP, reading one image at a time.
+     */
+    void write(ImageArchive archive, OutputStream out) throws IOException;
+}
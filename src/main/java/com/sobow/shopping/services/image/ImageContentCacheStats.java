@@ -0,0 +1,16 @@
+package com.sobow.shopping.services.image;
+
+/**
+ * Counters of the in-process image payload cache since startup; {@code bytes} and {@code maxBytes} are off-heap.
+ */
+public record ImageContentCacheStats(
+    long hits,
+    long misses,
+    double hitRatio,
+    long evictions,
+    int entries,
+    long bytes,
+    long maxBytes
+) {
+
+}
@@ -1,7 +1,11 @@
 package com.sobow.shopping.services.image;
 
 import com.sobow.shopping.domain.image.Image;
+import com.sobow.shopping.domain.image.ImageMetadata;
 import com.sobow.shopping.services.image.Impl.FileContent;
+import com.sobow.shopping.services.image.Impl.ImageSize;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -9,6 +13,7 @@ public interface ImageService {
     
     Image findByProductIdAndId(long productId, long imageId);
     
+    List<ImageMetadata> findMetadataByProductId(long productId);
     
     List<Image> saveImages(long productId, List<MultipartFile> files);
     
@@ -16,5 +21,12 @@ public interface ImageService {
     
     void deleteByProductIdAndId(long productId, long imageId);
     
-    FileContent getImageContent(long productId, long imageId);
+    FileContent getImageContent(long productId, long imageId, ImageSize size);
+    
+    void writeImageContent(long productId, long imageId, long position, long count, OutputStream out)
+        throws IOException;
+    
+    int moveLegacyContentToStorage(int batchSize);
+    
+    ImageContentCacheStats contentCacheStats();
 }
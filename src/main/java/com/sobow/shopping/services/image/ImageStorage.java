@@ -0,0 +1,28 @@
+package com.sobow.shopping.services.image;
+
+import com.sobow.shopping.services.image.Impl.StoredContent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import org.springframework.core.io.Resource;
+
+/**
+ * Keeps image payloads outside the database, addressed by the SHA-256 of their bytes. Storing the same bytes twice
+ * yields the same key and a single copy.
+ * <p>
+ * Derivatives (resized renditions) are kept next to the original under the same key and are deleted with it.
+ */
+public interface ImageStorage {
+    
+    StoredContent store(InputStream content) throws IOException;
+    
+    Resource load(String contentHash);
+    
+    boolean exists(String contentHash);
+    
+    void delete(String contentHash) throws IOException;
+    
+    void storeDerivative(String contentHash, int maxDimension, String format, InputStream content) throws IOException;
+    
+    Optional<Resource> findDerivative(String contentHash, int maxDimension);
+}
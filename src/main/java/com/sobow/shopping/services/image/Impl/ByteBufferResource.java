@@ -0,0 +1,77 @@
+package com.sobow.shopping.services.image.Impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * Read-only view of image bytes held in a (direct) {@link ByteBuffer}. Every reader works on its own duplicate, so one
+ * cached buffer can serve any number of concurrent downloads.
+ */
+public class ByteBufferResource extends AbstractResource {
+    
+    private static final int CHUNK_SIZE = 8192;
+    
+    private final ByteBuffer buffer;
+    private final String description;
+    
+    public ByteBufferResource(ByteBuffer buffer, String description) {
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.description = description;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Cached image [" + description + "]";
+    }
+    
+    @Override
+    public long contentLength() {
+        return buffer.remaining();
+    }
+    
+    @Override
+    public InputStream getInputStream() {
+        ByteBuffer view = buffer.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xFF : -1;
+            }
+            
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) return 0;
+                if (!view.hasRemaining()) return -1;
+                int n = Math.min(len, view.remaining());
+                view.get(b, off, n);
+                return n;
+            }
+            
+            @Override
+            public long skip(long n) {
+                int skipped = (int) Math.max(0, Math.min(n, view.remaining()));
+                view.position(view.position() + skipped);
+                return skipped;
+            }
+            
+            @Override
+            public int available() {
+                return view.remaining();
+            }
+        };
+    }
+    
+    // Copies the region through one small heap chunk per call, whatever the image size
+    public void copyRange(long position, long count, OutputStream out) throws IOException {
+        ByteBuffer region = buffer.slice(buffer.position() + (int) position, (int) count);
+        byte[] chunk = new byte[(int) Math.min(CHUNK_SIZE, count)];
+        while (region.hasRemaining()) {
+            int n = Math.min(chunk.length, region.remaining());
+            region.get(chunk, 0, n);
+            out.write(chunk, 0, n);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.sobow.shopping.services.image.Impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Copies a region of a stored payload to a response stream without materializing it. File-backed content goes through
+ * {@link FileChannel#transferTo}, which reads only the region and lets the JDK pick the cheapest copy path; cached
+ * content is sliced straight out of its buffer; other resources are skipped to the region and copied through a
+ * fixed-size buffer.
+ */
+public final class ContentTransfer {
+    
+    private ContentTransfer() {
+    }
+    
+    public static void copyRange(Resource content, long position, long count, OutputStream out) throws IOException {
+        if (count <= 0) return;
+        
+        if (content instanceof ByteBufferResource cached) {
+            cached.copyRange(position, count, out);
+            return;
+        }
+        
+        if (content.isFile()) {
+            try (FileChannel file = FileChannel.open(content.getFile().toPath(), StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long done = 0;
+                while (done < count) {
+                    long sent = file.transferTo(position + done, count - done, target);
+                    if (sent <= 0) break;
+                    done += sent;
+                }
+            }
+            return;
+        }
+        
+        try (InputStream in = content.getInputStream()) {
+            StreamUtils.copyRange(in, out, position, position + count - 1);
+        }
+    }
+}
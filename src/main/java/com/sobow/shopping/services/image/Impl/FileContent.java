@@ -1,11 +1,16 @@
 package com.sobow.shopping.services.image.Impl;
 
+import jakarta.annotation.Nullable;
+import org.springframework.core.io.Resource;
+
 public record FileContent(
     String fileName,
     String fileType,
     long length,
-    byte[] bytes
+    // Stored payload; null for legacy rows still holding their bytes in the database
+    @Nullable Resource content,
+    // Rendition actually returned; ORIGINAL when a requested derivative is not available yet
+    ImageSize size
 ) {
 
 }
-
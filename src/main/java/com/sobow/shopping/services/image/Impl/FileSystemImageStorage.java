@@ -0,0 +1,146 @@
+package com.sobow.shopping.services.image.Impl;
+
+import com.sobow.shopping.exceptions.ImageProcessingException;
+import com.sobow.shopping.services.image.ImageStorage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-addressed image store on the local file system.
+ * <p>
+ * A payload with hash {@code ab12...} lives at {@code <root>/ab/ab12...}. Uploads are hashed while being written to a
+ * temporary file in the same directory tree and then moved into place atomically, so a reader never sees a partial
+ * file and concurrent writers of the same bytes converge on one copy. Derivatives sit beside it as
+ * {@code ab12...-<maxDimension>.<format>}.
+ */
+@Component
+public class FileSystemImageStorage implements ImageStorage {
+    
+    private static final Pattern SHA_256_HEX = Pattern.compile("[0-9a-f]{64}");
+    private static final List<String> DERIVATIVE_FORMATS = List.of("jpg", "png");
+    
+    private final Path root;
+    
+    public FileSystemImageStorage(@Value("${image.storage.location:data/images}") Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+    
+    @Override
+    public StoredContent store(InputStream content) throws IOException {
+        Files.createDirectories(root);
+        Path tmp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+                size = content.transferTo(out);
+            }
+            
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            Path target = pathOf(contentHash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Same bytes stored concurrently; the existing copy is identical
+                }
+            }
+            return new StoredContent(contentHash, size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+    
+    @Override
+    public Resource load(String contentHash) {
+        Path path = pathOf(contentHash);
+        if (!Files.isReadable(path)) {
+            throw new ImageProcessingException("Stored image content missing: " + contentHash, null);
+        }
+        return new FileSystemResource(path);
+    }
+    
+    @Override
+    public boolean exists(String contentHash) {
+        return Files.isReadable(pathOf(contentHash));
+    }
+    
+    @Override
+    public void delete(String contentHash) throws IOException {
+        Path original = pathOf(contentHash);
+        if (Files.isDirectory(original.getParent())) {
+            try (DirectoryStream<Path> derivatives = Files.newDirectoryStream(original.getParent(), contentHash + "-*")) {
+                for (Path derivative : derivatives) {
+                    Files.deleteIfExists(derivative);
+                }
+            }
+        }
+        Files.deleteIfExists(original);
+    }
+    
+    @Override
+    public void storeDerivative(String contentHash, int maxDimension, String format, InputStream content)
+        throws IOException {
+        if (!DERIVATIVE_FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Unsupported derivative format: " + format);
+        }
+        Path target = derivativePathOf(contentHash, maxDimension, format);
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), "derivative-", ".tmp");
+        try {
+            Files.copy(content, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+    
+    @Override
+    public Optional<Resource> findDerivative(String contentHash, int maxDimension) {
+        for (String format : DERIVATIVE_FORMATS) {
+            Path path = derivativePathOf(contentHash, maxDimension, format);
+            if (Files.isReadable(path)) {
+                return Optional.of(new FileSystemResource(path));
+            }
+        }
+        return Optional.empty();
+    }
+    
+    private Path derivativePathOf(String contentHash, int maxDimension, String format) {
+        Path original = pathOf(contentHash);
+        return original.resolveSibling(contentHash + "-" + maxDimension + "." + format);
+    }
+    
+    private Path pathOf(String contentHash) {
+        if (contentHash == null || !SHA_256_HEX.matcher(contentHash).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256 content hash: " + contentHash);
+        }
+        return root.resolve(contentHash.substring(0, 2)).resolve(contentHash);
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
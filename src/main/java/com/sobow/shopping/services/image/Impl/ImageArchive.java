@@ -0,0 +1,13 @@
+package com.sobow.shopping.services.image.Impl;
+
+import com.sobow.shopping.domain.image.ImageArchiveEntry;
+import java.util.List;
+
+public record ImageArchive(
+    String fileName,
+    // Category archives put each product's images in a folder named after the product id
+    boolean folderPerProduct,
+    List<ImageArchiveEntry> entries
+) {
+
+}
@@ -0,0 +1,110 @@
+package com.sobow.shopping.services.image.Impl;
+
+import com.sobow.shopping.domain.image.ImageArchiveEntry;
+import com.sobow.shopping.domain.image.ImageRepository;
+import com.sobow.shopping.services.category.CategoryService;
+import com.sobow.shopping.services.image.ImageArchiveService;
+import com.sobow.shopping.services.image.ImageService;
+import com.sobow.shopping.services.image.ImageStorage;
+import com.sobow.shopping.services.product.ProductService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Streams product images as a ZIP straight to the response: entries are written one image at a time and flushed,
+ * so neither the archive nor a whole image is ever held in memory or spooled to disk.
+ * <p>
+ * Formats that are already compressed (JPEG, PNG, ...) go in as STORED entries; deflating them again costs CPU and
+ * saves nothing. STORED entries must declare their CRC-32 up front, so those images are read twice: once to checksum,
+ * once to copy. Anything else is DEFLATED in a single pass.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImageArchiveServiceImpl implements ImageArchiveService {
+    
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+        "image/jpeg", "image/png", "image/gif", "image/webp", "image/avif", "image/heic"
+    );
+    
+    private final ProductService productService;
+    private final CategoryService categoryService;
+    private final ImageService imageService;
+    private final ImageRepository imageRepository;
+    private final ImageStorage imageStorage;
+    
+    @Transactional(readOnly = true)
+    @Override
+    public ImageArchive productArchive(long productId) {
+        productService.findById(productId);
+        return new ImageArchive(
+            "product-" + productId + "-images.zip",
+            false,
+            imageRepository.findArchiveEntriesByProductId(productId)
+        );
+    }
+    
+    @Transactional(readOnly = true)
+    @Override
+    public ImageArchive categoryArchive(long categoryId) {
+        categoryService.findById(categoryId);
+        return new ImageArchive(
+            "category-" + categoryId + "-images.zip",
+            true,
+            imageRepository.findArchiveEntriesByCategoryId(categoryId)
+        );
+    }
+    
+    @Override
+    public void write(ImageArchive archive, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        for (ImageArchiveEntry image : archive.entries()) {
+            ZipEntry entry = new ZipEntry(entryName(image, archive.folderPerProduct()));
+            if (COMPRESSED_TYPES.contains(image.fileType())) {
+                CRC32 crc = new CRC32();
+                copyContent(image, new CheckedOutputStream(OutputStream.nullOutputStream(), crc));
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(image.fileSize());
+                entry.setCompressedSize(image.fileSize());
+                entry.setCrc(crc.getValue());
+            } else {
+                entry.setMethod(ZipEntry.DEFLATED);
+            }
+            zip.putNextEntry(entry);
+            copyContent(image, zip);
+            zip.closeEntry();
+            // Push each image to the client as soon as it is written
+            zip.flush();
+        }
+        // finish(), not close(): the response stream belongs to the container
+        zip.finish();
+        zip.flush();
+    }
+    
+    private void copyContent(ImageArchiveEntry image, OutputStream out) throws IOException {
+        if (image.contentHash() == null) {
+            // Legacy row: read from the database BLOB in its own short transaction
+            imageService.writeImageContent(image.productId(), image.imageId(), 0, image.fileSize(), out);
+            return;
+        }
+        try (InputStream in = imageStorage.load(image.contentHash()).getInputStream()) {
+            in.transferTo(out);
+        }
+    }
+    
+    // The id prefix keeps names unique (file names repeat across images); path characters are neutralized so an
+    // uploaded name cannot escape its folder when the archive is extracted
+    private static String entryName(ImageArchiveEntry image, boolean folderPerProduct) {
+        String safeName = image.fileName().replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_");
+        String name = image.imageId() + "-" + safeName;
+        return folderPerProduct ? image.productId() + "/" + name : name;
+    }
+}
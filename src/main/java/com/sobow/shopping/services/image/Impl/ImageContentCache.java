@@ -0,0 +1,197 @@
+package com.sobow.shopping.services.image.Impl;
+
+import com.sobow.shopping.domain.category.CategoryDeletedEvent;
+import com.sobow.shopping.domain.image.ImageChangedEvent;
+import com.sobow.shopping.domain.product.ProductDeletedEvent;
+import com.sobow.shopping.services.image.ImageContentCacheStats;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Bounded, in-process read-through cache of image payloads and the metadata needed to serve them, so a hot image is
+ * answered without a database query or a file read.
+ * <p>
+ * Payloads live in direct {@link ByteBuffer}s outside the GC heap; {@code image.cache.max-bytes} caps their total size
+ * and images above {@code image.cache.max-entry-bytes} are never cached. Entries are evicted in least-recently-used
+ * order.
+ * <p>
+ * Entries are keyed by what the request knows, {@code (productId, imageId, size)}: the content version is only known
+ * after a query, and avoiding that query is the point. So an entry is invalidated, after the commit, only when its
+ * image is replaced or deleted ({@link ImageChangedEvent}) or its product goes; stock and other product changes leave
+ * cached images alone. A load that started before its key was invalidated does not store its result; loads of other
+ * keys are unaffected.
+ */
+@Component
+public class ImageContentCache {
+    
+    public record Key(long productId, long imageId, ImageSize size) {
+    
+    }
+    
+    private record Entry(String fileName, String fileType, String description, ByteBuffer payload) {
+    
+    }
+    
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Loads in progress; invalidating a key drops its load, which then does not store what it read
+    private final Map<Key, Object> loading = new HashMap<>();
+    
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    public ImageContentCache(
+        @Value("${image.cache.max-bytes:64MB}") DataSize maxBytes,
+        @Value("${image.cache.max-entry-bytes:2MB}") DataSize maxEntryBytes
+    ) {
+        this.maxBytes = maxBytes.toBytes();
+        this.maxEntryBytes = Math.min(maxEntryBytes.toBytes(), this.maxBytes);
+    }
+    
+    /**
+     * Returns the cached content for the image, loading it on a miss. Loaded content is copied off-heap (outside the
+     * cache lock) when it is the requested rendition and small enough; a provisional fallback or a legacy row is
+     * returned as loaded and not cached.
+     */
+    public FileContent getOrLoad(long productId, long imageId, ImageSize size, Supplier<FileContent> loader) {
+        Key key = new Key(productId, imageId, size);
+        Object load = new Object();
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return toFileContent(cached, size);
+            }
+            misses++;
+            loading.put(key, load);
+        }
+        
+        try {
+            FileContent loaded = loader.get();
+            if (!isCacheable(loaded, size)) {
+                return loaded;
+            }
+            ByteBuffer payload = copyOffHeap(loaded.content(), loaded.length());
+            if (payload == null) {
+                return loaded;
+            }
+            Entry entry = new Entry(loaded.fileName(), loaded.fileType(), loaded.content().getDescription(), payload);
+            
+            synchronized (this) {
+                if (loading.get(key) == load && !entries.containsKey(key)) {
+                    entries.put(key, entry);
+                    bytes += payload.capacity();
+                    evictOverflow();
+                }
+            }
+            return toFileContent(entry, size);
+        } finally {
+            synchronized (this) {
+                loading.remove(key, load);
+            }
+        }
+    }
+    
+    public void evictImage(long productId, long imageId) {
+        evict(key -> key.productId() == productId && key.imageId() == imageId);
+    }
+    
+    public void evictProduct(long productId) {
+        evict(key -> key.productId() == productId);
+    }
+    
+    public synchronized void clear() {
+        loading.clear();
+        entries.clear();
+        bytes = 0;
+    }
+    
+    public synchronized ImageContentCacheStats stats() {
+        long lookups = hits + misses;
+        double hitRatio = lookups == 0 ? 0.0 : (double) hits / lookups;
+        return new ImageContentCacheStats(hits, misses, hitRatio, evictions, entries.size(), bytes, maxBytes);
+    }
+    
+    // fallbackExecution: writes that run outside a transaction (e.g. deleteById) still invalidate immediately
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageChanged(ImageChangedEvent event) {
+        evictImage(event.productId(), event.imageId());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        evictProduct(event.productId());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryDeleted(CategoryDeletedEvent event) {
+        clear();
+    }
+    
+    private synchronized void evict(Predicate<Key> matches) {
+        loading.keySet().removeIf(matches);
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> next = it.next();
+            if (matches.test(next.getKey())) {
+                bytes -= next.getValue().payload().capacity();
+                it.remove();
+            }
+        }
+    }
+    
+    private boolean isCacheable(FileContent loaded, ImageSize requested) {
+        return loaded.content() != null
+            && loaded.size() == requested
+            && loaded.length() <= maxEntryBytes;
+    }
+    
+    // Evicted buffers are released by the GC's cleaner, not here: a download may still be reading one
+    private void evictOverflow() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().payload().capacity();
+            eldest.remove();
+            evictions++;
+        }
+    }
+    
+    // Reads through the resource's channel, so a file lands in the direct buffer without a heap copy
+    @Nullable
+    private static ByteBuffer copyOffHeap(Resource content, long length) {
+        ByteBuffer payload = ByteBuffer.allocateDirect((int) length);
+        try (ReadableByteChannel in = content.readableChannel()) {
+            while (payload.hasRemaining()) {
+                if (in.read(payload) < 0) break;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        // Shorter than its recorded length: serve what the loader returned and cache nothing
+        if (payload.hasRemaining()) {
+            return null;
+        }
+        return payload.flip();
+    }
+    
+    private static FileContent toFileContent(Entry entry, ImageSize size) {
+        ByteBufferResource content = new ByteBufferResource(entry.payload(), entry.description());
+        return new FileContent(entry.fileName(), entry.fileType(), entry.payload().capacity(), content, size);
+    }
+}
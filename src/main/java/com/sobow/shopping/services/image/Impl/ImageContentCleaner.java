@@ -0,0 +1,46 @@
+package com.sobow.shopping.services.image.Impl;
+
+import com.sobow.shopping.domain.image.ImageContentReleasedEvent;
+import com.sobow.shopping.domain.image.ImageContentRepository;
+import com.sobow.shopping.services.image.ImageStorage;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps {@code image_contents.ref_count} in step with the images referencing a payload and deletes the payload once
+ * the count reaches zero.
+ * <p>
+ * The decrement runs inside the releasing transaction, so a rollback restores it. Deletion runs after commit, in its
+ * own transaction, holding the row lock while the file goes: an upload of the same bytes either commits its reference
+ * first (and the row no longer matches) or waits, finds the row gone and stores the bytes again.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImageContentCleaner {
+    
+    private final ImageContentRepository imageContentRepository;
+    private final ImageStorage imageStorage;
+    
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onContentReleased(ImageContentReleasedEvent event) {
+        imageContentRepository.release(event.contentHash());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void deleteIfUnreferenced(ImageContentReleasedEvent event) {
+        imageContentRepository.findUnreferencedForUpdate(event.contentHash()).ifPresent(content -> {
+            imageContentRepository.delete(content);
+            try {
+                imageStorage.delete(content.getContentHash());
+            } catch (IOException e) {
+                // An orphaned file wastes space but breaks nothing; the next upload of the same bytes reuses it
+            }
+        });
+    }
+}
@@ -0,0 +1,207 @@
+package com.sobow.shopping.services.image.Impl;
+
+import com.sobow.shopping.domain.image.ImageContentStoredEvent;
+import com.sobow.shopping.services.image.ImageStorage;
+import jakarta.annotation.PreDestroy;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Generates the {@link ImageSize} derivatives of stored images in the background.
+ * <p>
+ * Work is queued after the upload commits and runs on a small fixed pool with a bounded queue, so resizing never adds
+ * latency to the upload request and a burst of uploads cannot exhaust memory. When the queue is full the job is
+ * dropped: downloads fall back to the original and re-queue the missing derivative on first request.
+ * <p>
+ * A payload that fails {@code image.derivatives.max-attempts} times (corrupt or truncated files fail on every decode)
+ * is not queued again, and one ImageIO cannot read at all is given up on at once. Failure counts are kept for the
+ * {@code image.derivatives.failures.max-entries} most recently failed payloads.
+ */
+@Slf4j
+@Component
+public class ImageDerivativeGenerator {
+    
+    private static final int LARGEST_DIMENSION = Arrays.stream(ImageSize.values())
+                                                       .mapToInt(ImageSize::maxDimension)
+                                                       .max()
+                                                       .orElseThrow();
+    
+    private final ImageStorage imageStorage;
+    private final ThreadPoolExecutor executor;
+    
+    // Hashes queued or in progress, so repeated requests for a missing derivative queue it only once
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    
+    // Failed attempts per hash, least recently failed evicted first
+    private final LinkedHashMap<String, Integer> failures;
+    private final int maxAttempts;
+    
+    public ImageDerivativeGenerator(
+        ImageStorage imageStorage,
+        @Value("${image.derivatives.threads:2}") int threads,
+        @Value("${image.derivatives.queue-capacity:200}") int queueCapacity,
+        @Value("${image.derivatives.max-attempts:3}") int maxAttempts,
+        @Value("${image.derivatives.failures.max-entries:10000}") int maxFailureEntries
+    ) {
+        this.imageStorage = imageStorage;
+        this.maxAttempts = maxAttempts;
+        this.failures = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > maxFailureEntries;
+            }
+        };
+        this.executor = new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new CustomizableThreadFactory("image-derivatives-"),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentStored(ImageContentStoredEvent event) {
+        enqueue(event.contentHash());
+    }
+    
+    public void enqueue(String contentHash) {
+        if (givenUp(contentHash) || !pending.add(contentHash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(contentHash);
+                } finally {
+                    pending.remove(contentHash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Saturated: left for the next download of a missing derivative to re-queue
+            pending.remove(contentHash);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    void generate(String contentHash) {
+        try {
+            List<ImageSize> missing = Arrays.stream(ImageSize.values())
+                                            .filter(ImageSize::isDerivative)
+                                            .filter(size -> imageStorage.findDerivative(contentHash, size.maxDimension())
+                                                                        .isEmpty())
+                                            .toList();
+            // Duplicate uploads share their derivatives; only the first one pays for decoding
+            if (missing.isEmpty()) {
+                return;
+            }
+            
+            BufferedImage source;
+            try (InputStream in = imageStorage.load(contentHash).getInputStream()) {
+                source = decodeSubsampled(in);
+            }
+            if (source == null) {
+                // No reader for the format: every attempt would end the same way
+                failed(contentHash, maxAttempts);
+                return;
+            }
+            
+            for (ImageSize size : missing) {
+                writeDerivative(contentHash, source, size.maxDimension());
+            }
+            succeeded(contentHash);
+        } catch (IOException | RuntimeException e) {
+            // Best effort: the original is still served and the derivative is retried on the next request, up to
+            // maxAttempts times
+            log.debug("Derivatives of {} failed", contentHash, e);
+            failed(contentHash, 1);
+        }
+    }
+    
+    private synchronized boolean givenUp(String contentHash) {
+        Integer attempts = failures.get(contentHash);
+        return attempts != null && attempts >= maxAttempts;
+    }
+    
+    private synchronized void failed(String contentHash, int attempts) {
+        failures.merge(contentHash, attempts, Integer::sum);
+    }
+    
+    private synchronized void succeeded(String contentHash) {
+        failures.remove(contentHash);
+    }
+    
+    // Decodes at most about twice the largest derivative size instead of the full-resolution bitmap, which for a
+    // multi-megapixel photo would take tens of megabytes of heap
+    private static BufferedImage decodeSubsampled(InputStream content) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, longestSide / (2 * LARGEST_DIMENSION));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    private void writeDerivative(String contentHash, BufferedImage source, int maxDimension) throws IOException {
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        boolean alpha = source.getColorModel().hasAlpha();
+        
+        BufferedImage target = new BufferedImage(
+            width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        
+        // At most 512 px a side, so buffering the encoded derivative is cheap
+        String format = alpha ? "png" : "jpg";
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(target, format, encoded);
+        imageStorage.storeDerivative(contentHash, maxDimension, format, new ByteArrayInputStream(encoded.toByteArray()));
+    }
+}
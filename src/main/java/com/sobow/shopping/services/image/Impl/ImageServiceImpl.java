@@ -1,26 +1,56 @@
 package com.sobow.shopping.services.image.Impl;
 
 import com.sobow.shopping.domain.image.Image;
+import com.sobow.shopping.domain.image.ImageChangedEvent;
+import com.sobow.shopping.domain.image.ImageContentReleasedEvent;
+import com.sobow.shopping.domain.image.ImageContentRepository;
+import com.sobow.shopping.domain.image.ImageContentStoredEvent;
+import com.sobow.shopping.domain.image.ImageMetadata;
 import com.sobow.shopping.domain.image.ImageRepository;
 import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
 import com.sobow.shopping.exceptions.ImageProcessingException;
+import com.sobow.shopping.services.image.ImageContentCacheStats;
 import com.sobow.shopping.services.image.ImageService;
+import com.sobow.shopping.services.image.ImageStorage;
 import com.sobow.shopping.services.product.ProductService;
 import jakarta.persistence.EntityNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Blob;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 @RequiredArgsConstructor
 @Service
 public class ImageServiceImpl implements ImageService {
     
+    private static final int MAX_ACQUIRE_ATTEMPTS = 3;
+    
     private final ProductService productService;
     private final ImageRepository imageRepository;
+    private final ImageContentRepository imageContentRepository;
+    private final ImageStorage imageStorage;
+    private final ImageDerivativeGenerator derivativeGenerator;
+    private final ImageContentCache imageContentCache;
+    private final ImageUploadStager uploadStager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Override
     public Image findByProductIdAndId(long productId, long imageId) {
@@ -28,48 +58,182 @@ public class ImageServiceImpl implements ImageService {
                               .orElseThrow(() -> new EntityNotFoundException("Image with id " + imageId + " not found"));
     }
     
+    @Transactional(readOnly = true)
+    @Override
+    public List<ImageMetadata> findMetadataByProductId(long productId) {
+        productService.findById(productId); // 404 for an unknown product rather than an empty list
+        return imageRepository.findMetadataByProductId(productId);
+    }
     
-    @Transactional
+    // Not @Transactional: the files are written in parallel first, and only the reference counts and image rows go
+    // into the (short) transaction. A failed insert leaves unreferenced files behind, which cost space, not correctness
     @Override
     public List<Image> saveImages(long productId, List<MultipartFile> files) {
-        Product product = productService.findById(productId);
-        List<Image> result = new ArrayList<>();
-        for (MultipartFile file : files) {
-            Image image = new Image();
-            image.updateFrom(file);
-            product.addImageAndLink(image);
-            result.add(image);
-        }
-        return result;
+        List<StoredContent> stored = uploadStager.storeAll(files);
+        
+        return transactionTemplate.execute(status -> {
+            Product product = productService.findById(productId);
+            List<Image> result = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                MultipartFile file = files.get(i);
+                StoredContent content = reference(stored.get(i), file, file.getOriginalFilename());
+                Image image = new Image();
+                image.updateFrom(file);
+                image.attachContent(content.contentHash(), content.size());
+                product.addImageAndLink(image);
+                result.add(image);
+                eventPublisher.publishEvent(new ImageContentStoredEvent(content.contentHash()));
+            }
+            eventPublisher.publishEvent(new ProductChangedEvent(product));
+            return result;
+        });
     }
     
     @Transactional
     @Override
     public Image updateByProductIdAndId(long productId, long imageId, MultipartFile patch) {
         Image image = findByProductIdAndId(productId, imageId);
+        StoredContent content = store(patch, patch.getOriginalFilename());
+        String previousHash = image.getContentHash();
+        
         image.updateFrom(patch);
+        image.attachContent(content.contentHash(), content.size());
+        
+        // Also when the bytes are unchanged: the reference just acquired replaces the previous one
+        if (previousHash != null) {
+            eventPublisher.publishEvent(new ImageContentReleasedEvent(previousHash));
+        }
+        eventPublisher.publishEvent(new ImageContentStoredEvent(content.contentHash()));
+        eventPublisher.publishEvent(new ImageChangedEvent(productId, imageId));
+        eventPublisher.publishEvent(new ProductChangedEvent(image.getProduct()));
         return image;
     }
     
     @Override
     public void deleteByProductIdAndId(long productId, long imageId) {
-        imageRepository.findByProductIdAndId(productId, imageId).ifPresent(imageRepository::delete);
+        imageRepository.findByProductIdAndId(productId, imageId).ifPresent(image -> {
+            imageRepository.delete(image);
+            eventPublisher.publishEvent(new ImageChangedEvent(productId, imageId));
+            eventPublisher.publishEvent(new ProductChangedEvent(image.getProduct()));
+        });
+    }
+    
+    @Override
+    public FileContent getImageContent(long productId, long imageId, ImageSize size) {
+        return imageContentCache.getOrLoad(productId, imageId, size, () -> loadImageContent(productId, imageId, size));
     }
     
+    @Override
+    public ImageContentCacheStats contentCacheStats() {
+        return imageContentCache.stats();
+    }
+    
+    // Legacy rows only: copies a region of the LOB through a fixed-size buffer using a positioned stream, so only the
+    // requested bytes are read; the transaction (and its connection) lives only for the copy
     @Transactional(readOnly = true)
     @Override
-    public FileContent getImageContent(long productId, long imageId) {
+    public void writeImageContent(long productId, long imageId, long position, long count, OutputStream out)
+        throws IOException {
+        if (count <= 0) return;
         Image img = findByProductIdAndId(productId, imageId);
-        try {
-            return new FileContent(
-                img.getFileName(),
-                img.getFileType(),
-                img.getFile().length(),
-                img.getFile().getBytes(1, (int) img.getFile().length())
-            );
+        try (InputStream in = img.getFile().getBinaryStream(position + 1, count)) {
+            StreamUtils.copy(in, out);
         } catch (SQLException e) {
             throw new ImageProcessingException(
                 "Failed to process image file: " + img.getFileName(), e);
         }
     }
+    
+    @Transactional
+    @Override
+    public int moveLegacyContentToStorage(int batchSize) {
+        List<Image> batch = imageRepository.findLegacyBlobBatch(PageRequest.ofSize(batchSize));
+        for (Image img : batch) {
+            StoredContent content = store(binaryStreamOf(img.getFile()), img.getFileName());
+            img.attachContent(content.contentHash(), content.size());
+            eventPublisher.publishEvent(new ImageContentStoredEvent(content.contentHash()));
+        }
+        return batch.size();
+    }
+    
+    private FileContent loadImageContent(long productId, long imageId, ImageSize size) {
+        ImageMetadata metadata = imageRepository.findMetadataByProductIdAndId(productId, imageId)
+                                                .orElseThrow(() -> new EntityNotFoundException(
+                                                    "Image with id " + imageId + " not found"));
+        String contentHash = metadata.contentHash();
+        if (contentHash == null) {
+            return new FileContent(metadata.fileName(), metadata.fileType(), metadata.fileSize(), null, ImageSize.ORIGINAL);
+        }
+        
+        if (size.isDerivative()) {
+            Optional<Resource> derivative = imageStorage.findDerivative(contentHash, size.maxDimension());
+            if (derivative.isPresent()) {
+                return derivativeContent(metadata, derivative.get(), size);
+            }
+            // Not generated yet (or dropped under load): serve the original meanwhile
+            derivativeGenerator.enqueue(contentHash);
+        }
+        
+        Resource original = imageStorage.load(contentHash);
+        return new FileContent(metadata.fileName(), metadata.fileType(), metadata.fileSize(), original, ImageSize.ORIGINAL);
+    }
+    
+    private static FileContent derivativeContent(ImageMetadata metadata, Resource derivative, ImageSize size) {
+        try {
+            String fileType = MediaTypeFactory.getMediaType(derivative)
+                                              .map(MediaType::toString)
+                                              .orElse(metadata.fileType());
+            return new FileContent(metadata.fileName(), fileType, derivative.contentLength(), derivative, size);
+        } catch (IOException e) {
+            throw new ImageProcessingException("Failed to process image file: " + metadata.fileName(), e);
+        }
+    }
+    
+    // Streams the upload into storage once (hashing on the way), then counts this image as one more reference to the
+    // payload. Identical bytes end up as one file and one image_contents row however many images use them.
+    private StoredContent store(InputStreamSource source, String fileName) {
+        StoredContent content;
+        try (InputStream in = source.getInputStream()) {
+            content = imageStorage.store(in);
+        } catch (IOException e) {
+            throw new ImageProcessingException("Failed to process image file: " + fileName, e);
+        }
+        return reference(content, source, fileName);
+    }
+    
+    private StoredContent reference(StoredContent content, InputStreamSource source, String fileName) {
+        acquire(content);
+        
+        // A cleaner that held the last reference may have deleted the file between our write and our acquire;
+        // with our reference held no cleaner can match the row any more, so the restored file stays
+        if (!imageStorage.exists(content.contentHash())) {
+            try (InputStream in = source.getInputStream()) {
+                imageStorage.store(in);
+            } catch (IOException e) {
+                throw new ImageProcessingException("Failed to process image file: " + fileName, e);
+            }
+        }
+        return content;
+    }
+    
+    private void acquire(StoredContent content) {
+        for (int attempt = 0; attempt < MAX_ACQUIRE_ATTEMPTS; attempt++) {
+            imageContentRepository.insertIfAbsent(content.contentHash(), content.size());
+            // 0 only if a cleaner deleted the row between the two statements
+            if (imageContentRepository.acquire(content.contentHash()) == 1) {
+                return;
+            }
+        }
+        throw new ImageProcessingException("Failed to reference stored image content: " + content.contentHash(), null);
+    }
+    
+    private static InputStreamSource binaryStreamOf(Blob blob) {
+        return () -> {
+            try {
+                return blob.getBinaryStream();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        };
+    }
 }
@@ -0,0 +1,25 @@
+package com.sobow.shopping.services.image.Impl;
+
+/**
+ * Renditions an image can be downloaded in. Derivatives are scaled to fit a square of {@link #maxDimension()} pixels,
+ * keeping the aspect ratio, and re-encoded (JPEG, or PNG when the source has transparency).
+ */
+public enum ImageSize {
+    ORIGINAL(0),
+    SMALL(128),
+    MEDIUM(512);
+    
+    private final int maxDimension;
+    
+    ImageSize(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+    
+    public int maxDimension() {
+        return maxDimension;
+    }
+    
+    public boolean isDerivative() {
+        return this != ORIGINAL;
+    }
+}
@@ -0,0 +1,91 @@
+package com.sobow.shopping.services.image.Impl;
+
+import com.sobow.shopping.exceptions.ImageProcessingException;
+import com.sobow.shopping.services.image.ImageStorage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Writes the files of an upload batch to {@link ImageStorage} in parallel, before any transaction is opened.
+ * <p>
+ * Each file is streamed, hashed and written on its own virtual thread, so a batch takes about as long as its slowest
+ * file. {@code image.upload.max-concurrency} caps the writes in flight across all requests, keeping a burst of large
+ * batches from saturating the disk. The first failure cancels the rest of the batch.
+ */
+@Component
+public class ImageUploadStager {
+    
+    private final ImageStorage imageStorage;
+    private final Semaphore permits;
+    
+    public ImageUploadStager(
+        ImageStorage imageStorage,
+        @Value("${image.upload.max-concurrency:4}") int maxConcurrency
+    ) {
+        this.imageStorage = imageStorage;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+    
+    /**
+     * @return the stored content of each file, in the order of {@code files}
+     */
+    public List<StoredContent> storeAll(List<MultipartFile> files) {
+        if (files.size() == 1) {
+            return List.of(store(files.getFirst()));
+        }
+        
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<StoredContent>> futures = files.stream()
+                                                       .map(file -> executor.submit(() -> store(file)))
+                                                       .toList();
+            List<StoredContent> result = new ArrayList<>(files.size());
+            try {
+                for (Future<StoredContent> future : futures) {
+                    result.add(join(future));
+                }
+            } catch (RuntimeException e) {
+                futures.forEach(future -> future.cancel(true));
+                throw e;
+            }
+            return result;
+        }
+    }
+    
+    private StoredContent store(MultipartFile file) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImageProcessingException("Interrupted before storing image file: " + file.getOriginalFilename(), e);
+        }
+        try (InputStream in = file.getInputStream()) {
+            return imageStorage.store(in);
+        } catch (IOException e) {
+            throw new ImageProcessingException("Failed to process image file: " + file.getOriginalFilename(), e);
+        } finally {
+            permits.release();
+        }
+    }
+    
+    private static StoredContent join(Future<StoredContent> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new ImageProcessingException("Failed to process image file", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImageProcessingException("Interrupted while storing image files", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.sobow.shopping.services.image.Impl;
+
+import com.sobow.shopping.services.image.ImageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off migration that moves payloads still stored in {@code images.file} into {@link FileSystemImageStorage}.
+ * Enabled with {@code image.storage.migrate-legacy-blobs=true}; each batch commits on its own, so an interrupted run
+ * simply resumes where it stopped.
+ */
+@Component
+@ConditionalOnProperty(name = "image.storage.migrate-legacy-blobs", havingValue = "true")
+@RequiredArgsConstructor
+public class LegacyImageContentMigration implements ApplicationRunner {
+    
+    private static final int BATCH_SIZE = 50;
+    
+    private final ImageService imageService;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        int moved;
+        do {
+            moved = imageService.moveLegacyContentToStorage(BATCH_SIZE);
+        } while (moved == BATCH_SIZE);
+    }
+}
@@ -0,0 +1,8 @@
+package com.sobow.shopping.services.image.Impl;
+
+public record StoredContent(
+    String contentHash,
+    long size
+) {
+
+}
@@ -0,0 +1,35 @@
+package com.sobow.shopping.services.order;
+
+import com.sobow.shopping.exceptions.CheckoutQueueFullException;
+import jakarta.persistence.EntityNotFoundException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Checkout that only queues an {@link OrderAttempt} for a worker to place, switched on with
+ * {@code order.checkout.async.enabled}. Clients poll the attempt until it finished.
+ */
+public interface AsyncOrderCheckout {
+    
+    boolean isEnabled();
+    
+    /**
+     * Queues a checkout of the authenticated user's cart, with an optional {@code Idempotency-Key}, and returns the
+     * pending attempt.
+     *
+     * @throws CheckoutQueueFullException when the queue stayed full for the enqueue timeout
+     */
+    OrderAttempt selfSubmit(String idempotencyKey);
+    
+    /**
+     * @throws EntityNotFoundException when the authenticated user has no attempt with this id (or it was forgotten)
+     */
+    OrderAttempt selfFind(UUID attemptId);
+    
+    /**
+     * As {@link #selfFind}, but completes only once the attempt finished or {@code wait} passed, whichever comes first;
+     * no thread is held meanwhile.
+     */
+    CompletableFuture<OrderAttempt> selfAwait(UUID attemptId, Duration wait);
+}
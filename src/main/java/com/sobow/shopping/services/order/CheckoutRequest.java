@@ -0,0 +1,12 @@
+package com.sobow.shopping.services.order;
+
+/**
+ * One checkout to place: the user whose cart becomes the order and, for a checkout behind an {@code Idempotency-Key},
+ * the id of the claimed key row, which records the order in the order's own transaction.
+ */
+public record CheckoutRequest(long userId, Long idempotencyKeyId) {
+    
+    public static CheckoutRequest of(long userId) {
+        return new CheckoutRequest(userId, null);
+    }
+}
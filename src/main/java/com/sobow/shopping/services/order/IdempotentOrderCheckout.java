@@ -0,0 +1,25 @@
+package com.sobow.shopping.services.order;
+
+import com.sobow.shopping.domain.order.Order;
+
+/**
+ * Checkout behind an {@code Idempotency-Key}: the first request with a key places the order, later requests with the
+ * same key (per user) get that order back without placing another one.
+ */
+public interface IdempotentOrderCheckout {
+    
+    /**
+     * @param order    the order placed for the key
+     * @param replayed {@code true} when an earlier request with the same key placed it
+     */
+    record Result(Order order, boolean replayed) {
+    
+    }
+    
+    Result selfCheckout(String idempotencyKey);
+    
+    /**
+     * As {@link #selfCheckout} for a user resolved by the caller, e.g. a checkout worker without a security context.
+     */
+    Result checkout(long userId, String idempotencyKey);
+}
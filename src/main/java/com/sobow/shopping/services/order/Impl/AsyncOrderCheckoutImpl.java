@@ -0,0 +1,194 @@
+package com.sobow.shopping.services.order.Impl;
+
+import com.sobow.shopping.domain.order.Order;
+import com.sobow.shopping.domain.user.User;
+import com.sobow.shopping.exceptions.CheckoutQueueFullException;
+import com.sobow.shopping.services.order.AsyncOrderCheckout;
+import com.sobow.shopping.services.order.CheckoutRequest;
+import com.sobow.shopping.services.order.IdempotentOrderCheckout;
+import com.sobow.shopping.services.order.OrderAttempt;
+import com.sobow.shopping.services.order.OrderCheckout;
+import com.sobow.shopping.services.user.CurrentUserService;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Asynchronous checkout, switched on with {@code order.checkout.async.enabled}: {@code POST /users/me/orders} only
+ * queues an {@link OrderAttempt} and answers 202, and {@code order.checkout.async.workers} worker threads place the
+ * queued orders through the configured {@link OrderCheckout} pipeline. At most that many checkouts hold a database
+ * connection at a time, however many requests arrive.
+ * <p>
+ * The queue holds {@code order.checkout.async.queue-capacity} attempts; a request that finds it full waits up to
+ * {@code order.checkout.async.enqueue-timeout}, then gets {@link CheckoutQueueFullException}. Clients poll the attempt,
+ * optionally waiting for it to finish; finished attempts are kept for {@code order.checkout.async.result-ttl}.
+ * Submitting an {@code Idempotency-Key} again returns the attempt already known for it, unless that one failed.
+ * Attempts live in this instance's memory, so polls must reach the instance that accepted the checkout.
+ */
+@Slf4j
+@Component
+public class AsyncOrderCheckoutImpl implements AsyncOrderCheckout {
+    
+    private final OrderCheckout orderCheckout;
+    private final IdempotentOrderCheckout idempotentOrderCheckout;
+    private final CurrentUserService currentUserService;
+    private final boolean enabled;
+    private final int queueCapacity;
+    private final Duration enqueueTimeout;
+    private final Duration resultTtl;
+    private final BlockingQueue<QueuedOrderAttempt> queue;
+    private final Map<UUID, QueuedOrderAttempt> attempts = new ConcurrentHashMap<>();
+    private final Map<AttemptKey, QueuedOrderAttempt> attemptsByKey = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    
+    private record AttemptKey(long userId, String idempotencyKey) {
+    
+    }
+    
+    public AsyncOrderCheckoutImpl(
+        OrderCheckout orderCheckout,
+        IdempotentOrderCheckout idempotentOrderCheckout,
+        CurrentUserService currentUserService,
+        @Value("${order.checkout.async.enabled:false}") boolean enabled,
+        @Value("${order.checkout.async.workers:8}") int workerCount,
+        @Value("${order.checkout.async.queue-capacity:1000}") int queueCapacity,
+        @Value("${order.checkout.async.enqueue-timeout:100ms}") Duration enqueueTimeout,
+        @Value("${order.checkout.async.result-ttl:10m}") Duration resultTtl
+    ) {
+        this.orderCheckout = orderCheckout;
+        this.idempotentOrderCheckout = idempotentOrderCheckout;
+        this.currentUserService = currentUserService;
+        this.enabled = enabled;
+        this.queueCapacity = queueCapacity;
+        this.enqueueTimeout = enqueueTimeout;
+        this.resultTtl = resultTtl;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (enabled) {
+            this.workers = Executors.newFixedThreadPool(
+                workerCount, new CustomizableThreadFactory("order-checkout-worker-"));
+            for (int i = 0; i < workerCount; i++) {
+                workers.execute(this::work);
+            }
+        } else {
+            this.workers = null;
+        }
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    @Override
+    public OrderAttempt selfSubmit(String idempotencyKey) {
+        if (!enabled) throw new IllegalStateException("Asynchronous checkout is disabled");
+        // The security context belongs to the request thread: resolve the user before handing over
+        User user = currentUserService.getAuthenticatedUser(currentUserService.getAuthentication());
+        QueuedOrderAttempt attempt = new QueuedOrderAttempt(user.getId(), idempotencyKey);
+        AttemptKey key = idempotencyKey == null ? null : new AttemptKey(user.getId(), idempotencyKey);
+        if (key != null) {
+            QueuedOrderAttempt current = attemptsByKey.compute(
+                key, (k, known) -> known != null && known.getStatus() != OrderAttempt.Status.FAILED ? known : attempt);
+            if (current != attempt) return current;
+        }
+        attempts.put(attempt.getId(), attempt);
+        boolean queued;
+        try {
+            queued = queue.offer(attempt, enqueueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            attempts.remove(attempt.getId());
+            if (key != null) attemptsByKey.remove(key, attempt);
+            throw new CheckoutQueueFullException(queueCapacity);
+        }
+        return attempt;
+    }
+    
+    @Override
+    public OrderAttempt selfFind(UUID attemptId) {
+        return find(attemptId);
+    }
+    
+    @Override
+    public CompletableFuture<OrderAttempt> selfAwait(UUID attemptId, Duration wait) {
+        QueuedOrderAttempt attempt = find(attemptId);
+        if (wait.isZero() || attempt.getStatus() != OrderAttempt.Status.PENDING) {
+            return CompletableFuture.completedFuture(attempt);
+        }
+        return attempt.finished().completeOnTimeout(attempt, wait.toNanos(), TimeUnit.NANOSECONDS);
+    }
+    
+    @Scheduled(fixedDelayString = "${order.checkout.async.result-ttl:10m}")
+    public void forgetFinished() {
+        Instant cutoff = Instant.now().minus(resultTtl);
+        attempts.values().removeIf(attempt -> attempt.finishedBefore(cutoff));
+        attemptsByKey.values().removeIf(attempt -> attempt.finishedBefore(cutoff));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (workers == null) return;
+        workers.shutdownNow();
+        // Shutting down: nobody will place what is left
+        List<QueuedOrderAttempt> left = new ArrayList<>();
+        queue.drainTo(left);
+        IllegalStateException stopped = new IllegalStateException("Checkout is shutting down");
+        left.forEach(attempt -> attempt.failed(stopped));
+    }
+    
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            QueuedOrderAttempt attempt;
+            try {
+                attempt = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                attempt.placed(place(attempt));
+            } catch (RuntimeException e) {
+                log.debug("Order attempt {} failed", attempt.getId(), e);
+                attempt.failed(e);
+            } catch (Throwable e) {
+                // Fail the attempt rather than leave it pending forever, and keep the worker for the next one
+                log.error("Order attempt {} failed", attempt.getId(), e);
+                attempt.failed(e);
+            }
+        }
+    }
+    
+    private QueuedOrderAttempt find(UUID attemptId) {
+        User user = currentUserService.getAuthenticatedUser(currentUserService.getAuthentication());
+        QueuedOrderAttempt attempt = attempts.get(attemptId);
+        if (attempt == null || attempt.getUserId() != user.getId()) {
+            throw new EntityNotFoundException("Order attempt with id " + attemptId + " for user " + user.getId()
+                                                  + " not found");
+        }
+        return attempt;
+    }
+    
+    private Order place(QueuedOrderAttempt attempt) {
+        if (attempt.getIdempotencyKey() == null) return orderCheckout.checkout(CheckoutRequest.of(attempt.getUserId()));
+        return idempotentOrderCheckout.checkout(attempt.getUserId(), attempt.getIdempotencyKey()).order();
+    }
+}
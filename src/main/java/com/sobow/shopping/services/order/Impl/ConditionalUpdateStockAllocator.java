@@ -0,0 +1,92 @@
+package com.sobow.shopping.services.order.Impl;
+
+import com.sobow.shopping.domain.cart.CartItem;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.exceptions.InsufficientStockException;
+import com.sobow.shopping.services.order.StockAllocator;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Takes stock with one batch of conditional {@code UPDATE}s, without reading or locking the rows first. Each statement
+ * decrements a product only if enough stock is left, and a row count of 0 means it was short; any count other than 1
+ * fails the checkout. The database checks and decrements atomically, so no {@code SELECT ... FOR UPDATE} and no lock
+ * timeout are involved, and a row is locked only from its update to the commit. Like {@link LockingStockAllocator}, it
+ * ignores stock other carts have reserved.
+ * <p>
+ * Each update also increments {@code version}, so a concurrent admin edit of the product still fails its optimistic
+ * lock. Products already loaded in the persistence context keep their old quantity and version; checkout never
+ * modifies them, so Hibernate never writes them back.
+ */
+@Component
+@ConditionalOnProperty(name = "order.checkout.stock-mode", havingValue = "conditional-update")
+@RequiredArgsConstructor
+public class ConditionalUpdateStockAllocator implements StockAllocator {
+    
+    private static final String DECREMENT = """
+        UPDATE products
+        SET available_qty = available_qty - :qty, version = version + 1
+        WHERE id = :id AND available_qty >= :qty
+        """;
+    
+    private static final String AVAILABLE_QTY = "SELECT available_qty FROM products WHERE id = :id";
+    
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @Transactional(propagation = Propagation.MANDATORY) // the decrements must roll back with a failed checkout
+    @Override
+    public void allocate(Collection<CartItem> items) {
+        // One statement per product, in id order: concurrent checkouts lock rows in the same order and cannot deadlock
+        Map<Long, Integer> requested = new TreeMap<>();
+        Map<Long, Product> products = new LinkedHashMap<>();
+        for (CartItem item : items) {
+            Product product = item.getProduct();
+            requested.merge(product.getId(), item.getRequestedQty(), Integer::sum);
+            products.put(product.getId(), product);
+        }
+        
+        SqlParameterSource[] batch = requested.entrySet()
+                                              .stream()
+                                              .map(line -> new MapSqlParameterSource()
+                                                  .addValue("id", line.getKey())
+                                                  .addValue("qty", line.getValue()))
+                                              .toArray(SqlParameterSource[]::new);
+        int[] updated = jdbc.batchUpdate(DECREMENT, batch);
+        
+        int i = 0;
+        for (Map.Entry<Long, Integer> line : requested.entrySet()) {
+            int count = updated[i++];
+            if (count == 0) {
+                throw new InsufficientStockException(line.getKey(), availableQty(line.getKey()), line.getValue());
+            }
+            // Anything but 1 (e.g. Statement.SUCCESS_NO_INFO) cannot prove the decrement happened: roll back rather
+            // than sell stock that may not have been taken
+            if (count != 1) {
+                throw new IllegalStateException("Stock decrement of product " + line.getKey()
+                                                    + " reported row count " + count + " instead of 1");
+            }
+        }
+        
+        products.values().forEach(product -> eventPublisher.publishEvent(new ProductChangedEvent(product)));
+    }
+    
+    // Only for the error message: a missing row (product deleted meanwhile) reads as no stock
+    private int availableQty(long productId) {
+        List<Integer> qty = jdbc.queryForList(AVAILABLE_QTY, Map.of("id", productId), Integer.class);
+        return qty.isEmpty() ? 0 : qty.getFirst();
+    }
+}
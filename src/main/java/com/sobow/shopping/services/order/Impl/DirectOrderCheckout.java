@@ -0,0 +1,27 @@
+package com.sobow.shopping.services.order.Impl;
+
+import com.sobow.shopping.domain.order.Order;
+import com.sobow.shopping.services.order.CheckoutRequest;
+import com.sobow.shopping.services.order.OrderCheckout;
+import com.sobow.shopping.services.order.OrderService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "order.checkout.pipeline", havingValue = "direct", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DirectOrderCheckout implements OrderCheckout {
+    
+    private final OrderService orderService;
+    
+    @Override
+    public Order selfCheckout() {
+        return orderService.selfCreateOrder();
+    }
+    
+    @Override
+    public Order checkout(CheckoutRequest request) {
+        return orderService.createOrder(request);
+    }
+}
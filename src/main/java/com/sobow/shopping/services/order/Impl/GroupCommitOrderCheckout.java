@@ -0,0 +1,196 @@
+package com.sobow.shopping.services.order.Impl;
+
+import com.sobow.shopping.domain.order.Order;
+import com.sobow.shopping.domain.user.User;
+import com.sobow.shopping.exceptions.CheckoutQueueFullException;
+import com.sobow.shopping.exceptions.CheckoutTimeoutException;
+import com.sobow.shopping.services.order.CheckoutRequest;
+import com.sobow.shopping.services.order.OrderCheckout;
+import com.sobow.shopping.services.order.OrderOutcome;
+import com.sobow.shopping.services.order.OrderService;
+import com.sobow.shopping.services.order.StockAllocator;
+import com.sobow.shopping.services.user.CurrentUserService;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Group commit for checkouts: concurrent requests are queued and a single committer thread places them in batches,
+ * one transaction per batch (see {@link OrderService#createOrders}). A batch closes when it reaches
+ * {@code order.checkout.group-commit.max-batch-size} or {@code order.checkout.group-commit.window} after its first
+ * request, so under load one commit and one round of product locks serve many orders, and a lone request waits at
+ * most one window.
+ * <p>
+ * Each caller waits up to {@code order.checkout.group-commit.result-timeout} for its own order or exception, then
+ * gets {@link CheckoutTimeoutException}. If a batch fails as a whole (deadlock, lost update), its requests are placed
+ * again one by one, each in its own transaction; anything else that escapes a batch fails only that batch's callers,
+ * and the committer moves on. A caller that finds the queue full waits up to
+ * {@code order.checkout.group-commit.enqueue-timeout}, then gets {@link CheckoutQueueFullException}.
+ * <p>
+ * Batches take stock the way the reservation allocator does, so this pipeline refuses to start unless
+ * {@code order.checkout.stock-mode} is {@code reservation}.
+ */
+@Component
+@ConditionalOnProperty(name = "order.checkout.pipeline", havingValue = "group-commit")
+public class GroupCommitOrderCheckout implements OrderCheckout {
+    
+    private final OrderService orderService;
+    private final CurrentUserService currentUserService;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final int queueCapacity;
+    private final Duration enqueueTimeout;
+    private final Duration resultTimeout;
+    private final BlockingQueue<PendingCheckout> queue;
+    private final ExecutorService committer;
+    
+    private record PendingCheckout(CheckoutRequest request, CompletableFuture<Order> result) {
+    
+    }
+    
+    public GroupCommitOrderCheckout(
+        OrderService orderService,
+        CurrentUserService currentUserService,
+        StockAllocator stockAllocator,
+        @Value("${order.checkout.group-commit.max-batch-size:50}") int maxBatchSize,
+        @Value("${order.checkout.group-commit.window:5ms}") Duration window,
+        @Value("${order.checkout.group-commit.queue-capacity:1000}") int queueCapacity,
+        @Value("${order.checkout.group-commit.enqueue-timeout:100ms}") Duration enqueueTimeout,
+        @Value("${order.checkout.group-commit.result-timeout:30s}") Duration resultTimeout
+    ) {
+        if (!stockAllocator.honoursReservations()) {
+            throw new IllegalStateException(
+                "order.checkout.pipeline=group-commit requires order.checkout.stock-mode=reservation");
+        }
+        this.orderService = orderService;
+        this.currentUserService = currentUserService;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = window.toNanos();
+        this.queueCapacity = queueCapacity;
+        this.enqueueTimeout = enqueueTimeout;
+        this.resultTimeout = resultTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.committer = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("order-group-commit-"));
+        this.committer.execute(this::run);
+    }
+    
+    @Override
+    public Order selfCheckout() {
+        // The security context belongs to the request thread: resolve the user before handing over
+        User user = currentUserService.getAuthenticatedUser(currentUserService.getAuthentication());
+        return checkout(CheckoutRequest.of(user.getId()));
+    }
+    
+    @Override
+    public Order checkout(CheckoutRequest request) {
+        PendingCheckout pending = new PendingCheckout(request, new CompletableFuture<>());
+        boolean queued;
+        try {
+            queued = queue.offer(pending, enqueueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) throw new CheckoutQueueFullException(queueCapacity);
+        
+        try {
+            return pending.result().get(resultTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("Checkout failed", e.getCause());
+        } catch (TimeoutException e) {
+            // Still queued: the committer skips it. Already in a batch: the order may yet commit
+            pending.result().cancel(false);
+            throw new CheckoutTimeoutException(resultTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.result().cancel(false);
+            throw new CheckoutTimeoutException(resultTimeout);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        committer.shutdownNow();
+    }
+    
+    private void run() {
+        List<PendingCheckout> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                collect(batch);
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Shutting down: nobody will place what is left
+            queue.drainTo(batch);
+            IllegalStateException stopped = new IllegalStateException("Checkout is shutting down");
+            batch.forEach(pending -> pending.result().completeExceptionally(stopped));
+        }
+    }
+    
+    private void collect(List<PendingCheckout> batch) throws InterruptedException {
+        addUnlessAbandoned(batch, queue.take());
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatchSize) {
+            PendingCheckout next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            addUnlessAbandoned(batch, next);
+        }
+    }
+    
+    // A caller that timed out cancelled its future: nobody waits for that order any more
+    private static void addUnlessAbandoned(List<PendingCheckout> batch, PendingCheckout pending) {
+        if (!pending.result().isDone()) batch.add(pending);
+    }
+    
+    private void commit(List<PendingCheckout> batch) {
+        if (batch.isEmpty()) return;
+        try {
+            List<OrderOutcome> outcomes;
+            try {
+                outcomes = orderService.createOrders(batch.stream().map(PendingCheckout::request).toList());
+            } catch (RuntimeException e) {
+                commitOneByOne(batch);
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                OrderOutcome outcome = outcomes.get(i);
+                if (outcome.failure() != null) {
+                    batch.get(i).result().completeExceptionally(outcome.failure());
+                } else {
+                    batch.get(i).result().complete(outcome.order());
+                }
+            }
+        } catch (Throwable e) {
+            // Whatever escaped fails this batch only; the committer must live on for the next one
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+    
+    private void commitOneByOne(List<PendingCheckout> batch) {
+        for (PendingCheckout pending : batch) {
+            try {
+                pending.result().complete(orderService.createOrder(pending.request()));
+            } catch (RuntimeException e) {
+                pending.result().completeExceptionally(e);
+            }
+        }
+    }
+}
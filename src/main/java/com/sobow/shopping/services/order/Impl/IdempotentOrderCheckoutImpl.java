@@ -0,0 +1,204 @@
+package com.sobow.shopping.services.order.Impl;
+
+import com.sobow.shopping.domain.order.Order;
+import com.sobow.shopping.domain.order.OrderIdempotencyKey;
+import com.sobow.shopping.domain.order.OrderIdempotencyKeyRepository;
+import com.sobow.shopping.domain.user.User;
+import com.sobow.shopping.exceptions.IdempotencyKeyInFlightException;
+import com.sobow.shopping.services.order.CheckoutRequest;
+import com.sobow.shopping.services.order.IdempotentOrderCheckout;
+import com.sobow.shopping.services.order.OrderCheckout;
+import com.sobow.shopping.services.order.OrderService;
+import com.sobow.shopping.services.user.CurrentUserService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Checkout behind an {@code Idempotency-Key}: the first request with a key places the order, later requests with the
+ * same key (per user) get that order back without placing another one.
+ * <p>
+ * A replay is served from a bounded in-memory cache of recent results ({@code order.idempotency.cache.max-entries},
+ * least recently used evicted first), else from the {@code order_idempotency_keys} row and the order it points to;
+ * either way without locks or writes. A duplicate of a checkout still running on this instance waits up to
+ * {@code order.idempotency.in-flight-wait} for its result; one running elsewhere gets
+ * {@link IdempotencyKeyInFlightException}. A failed checkout frees its key, so the client can fix the cart and retry.
+ * <p>
+ * The order id is written to the claimed row inside the order's own transaction, under a row lock, so a committed
+ * order always closes its key. A claim still open after {@code order.idempotency.claim-timeout} therefore belongs to a
+ * checkout that never committed (the instance died mid-checkout) and may be taken over by the next request with the
+ * key. Keys are forgotten after {@code order.idempotency.retention}.
+ */
+@Component
+public class IdempotentOrderCheckoutImpl implements IdempotentOrderCheckout {
+    
+    private record Key(long userId, String idempotencyKey) {
+    
+    }
+    
+    private record Completed(Order order, Instant createdAt) {
+    
+    }
+    
+    private final OrderCheckout orderCheckout;
+    private final OrderService orderService;
+    private final CurrentUserService currentUserService;
+    private final OrderIdempotencyKeyRepository keyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration inFlightWait;
+    private final Duration claimTimeout;
+    private final Duration retention;
+    private final LinkedHashMap<Key, Completed> completed;
+    private final Map<Key, CompletableFuture<Order>> inFlight = new ConcurrentHashMap<>();
+    
+    public IdempotentOrderCheckoutImpl(
+        OrderCheckout orderCheckout,
+        OrderService orderService,
+        CurrentUserService currentUserService,
+        OrderIdempotencyKeyRepository keyRepository,
+        TransactionTemplate transactionTemplate,
+        @Value("${order.idempotency.cache.max-entries:10000}") int maxEntries,
+        @Value("${order.idempotency.in-flight-wait:2s}") Duration inFlightWait,
+        @Value("${order.idempotency.claim-timeout:1m}") Duration claimTimeout,
+        @Value("${order.idempotency.retention:24h}") Duration retention
+    ) {
+        this.orderCheckout = orderCheckout;
+        this.orderService = orderService;
+        this.currentUserService = currentUserService;
+        this.keyRepository = keyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.inFlightWait = inFlightWait;
+        this.claimTimeout = claimTimeout;
+        this.retention = retention;
+        this.completed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Completed> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+    
+    @Override
+    public Result selfCheckout(String idempotencyKey) {
+        User user = currentUserService.getAuthenticatedUser(currentUserService.getAuthentication());
+        return checkout(user.getId(), idempotencyKey);
+    }
+    
+    @Override
+    public Result checkout(long userId, String idempotencyKey) {
+        Key key = new Key(userId, idempotencyKey);
+        
+        Order cached = cached(key);
+        if (cached != null) return new Result(cached, true);
+        
+        CompletableFuture<Order> own = new CompletableFuture<>();
+        CompletableFuture<Order> running = inFlight.putIfAbsent(key, own);
+        if (running != null) return new Result(await(running, key), true);
+        try {
+            Result result = claimAndCheckout(key);
+            own.complete(result.order());
+            return result;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${order.idempotency.purge-interval:1h}")
+    public void purgeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        transactionTemplate.execute(status -> keyRepository.deleteCreatedBefore(cutoff));
+    }
+    
+    private Result claimAndCheckout(Key key) {
+        long claimId;
+        Optional<OrderIdempotencyKey> existing =
+            keyRepository.findByUserIdAndIdempotencyKey(key.userId(), key.idempotencyKey());
+        if (existing.isPresent()) {
+            OrderIdempotencyKey row = existing.get();
+            if (row.getOrderId() != null) {
+                Order order = orderService.findByUserIdAndIdWithItems(key.userId(), row.getOrderId());
+                remember(key, order, row.getCreatedAt());
+                return new Result(order, true);
+            }
+            if (!takeOver(row)) throw new IdempotencyKeyInFlightException(key.idempotencyKey());
+            claimId = row.getId();
+        } else {
+            claimId = claim(key);
+        }
+        
+        Order order;
+        try {
+            // The order's transaction records it on the claim, so a committed order is never left behind an open key
+            order = orderCheckout.checkout(new CheckoutRequest(key.userId(), claimId));
+        } catch (RuntimeException e) {
+            // Frees the key for a retry, unless the order committed after all: the claim then points at it
+            transactionTemplate.execute(status -> keyRepository.release(claimId));
+            throw e;
+        }
+        remember(key, order, Instant.now());
+        return new Result(order, false);
+    }
+    
+    // Committed before the checkout starts, so a duplicate on another instance already sees the key as taken
+    private long claim(Key key) {
+        try {
+            return transactionTemplate.execute(status -> keyRepository.saveAndFlush(
+                new OrderIdempotencyKey(key.userId(), key.idempotencyKey(), Instant.now())
+            ).getId());
+        } catch (DataIntegrityViolationException e) {
+            throw new IdempotencyKeyInFlightException(key.idempotencyKey());
+        }
+    }
+    
+    private boolean takeOver(OrderIdempotencyKey row) {
+        Instant now = Instant.now();
+        if (row.getCreatedAt().isAfter(now.minus(claimTimeout))) return false;
+        Integer updated = transactionTemplate.execute(
+            status -> keyRepository.takeOver(row.getId(), row.getCreatedAt(), now));
+        return updated != null && updated == 1;
+    }
+    
+    private Order await(CompletableFuture<Order> running, Key key) {
+        try {
+            return running.get(inFlightWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInFlightException(key.idempotencyKey());
+        } catch (ExecutionException e) {
+            // The same request failed: answer the duplicate the same way
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInFlightException(key.idempotencyKey());
+        }
+    }
+    
+    private synchronized Order cached(Key key) {
+        Completed entry = completed.get(key);
+        if (entry == null) return null;
+        if (entry.createdAt().isBefore(Instant.now().minus(retention))) {
+            completed.remove(key);
+            return null;
+        }
+        return entry.order();
+    }
+    
+    private synchronized void remember(Key key, Order order, Instant createdAt) {
+        completed.put(key, new Completed(order, createdAt));
+    }
+}
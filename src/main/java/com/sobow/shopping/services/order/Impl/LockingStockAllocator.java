@@ -0,0 +1,59 @@
+package com.sobow.shopping.services.order.Impl;
+
+import com.sobow.shopping.domain.cart.CartItem;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.exceptions.InsufficientStockException;
+import com.sobow.shopping.services.order.StockAllocator;
+import com.sobow.shopping.services.product.ProductService;
+import jakarta.persistence.EntityNotFoundException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Locks the ordered products ({@code SELECT ... FOR UPDATE}), checks and decrements their stock in Java. The row locks
+ * are held until the checkout commits, so concurrent checkouts of the same product run one after another. Checks the
+ * total stock, ignoring stock other carts have reserved.
+ */
+@Component
+@ConditionalOnProperty(name = "order.checkout.stock-mode", havingValue = "locking", matchIfMissing = true)
+@RequiredArgsConstructor
+public class LockingStockAllocator implements StockAllocator {
+    
+    private final ProductService productService;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @Override
+    public void allocate(Collection<CartItem> items) {
+        // Check and decrement the rows as locked, not as they were loaded with the cart
+        Map<Long, Product> locked = productService.lockForOrder(items.stream()
+                                                                     .map(item -> item.getProduct().getId())
+                                                                     .toList())
+                                                  .stream()
+                                                  .collect(Collectors.toMap(Product::getId, Function.identity()));
+        
+        for (CartItem item : items) {
+            // Assert products still available
+            Product product = locked.get(item.getProduct().getId());
+            if (product == null) {
+                throw new EntityNotFoundException("Product with id " + item.getProduct().getId() + " not found");
+            }
+            int availableQty = product.getAvailableQty();
+            int requestedQty = item.getRequestedQty();
+            if (requestedQty > availableQty) {
+                throw new InsufficientStockException(product.getId(), availableQty, requestedQty);
+            }
+            
+            // Decrement stock
+            int newQty = availableQty - requestedQty;
+            product.setAvailableQty(newQty);
+            eventPublisher.publishEvent(new ProductChangedEvent(product));
+        }
+    }
+}
@@ -3,25 +3,44 @@ package com.sobow.shopping.services.order.Impl;
 import com.sobow.shopping.domain.cart.Cart;
 import com.sobow.shopping.domain.cart.CartItem;
 import com.sobow.shopping.domain.order.Order;
+import com.sobow.shopping.domain.order.OrderIdempotencyKey;
+import com.sobow.shopping.domain.order.OrderIdempotencyKeyRepository;
 import com.sobow.shopping.domain.order.OrderItem;
 import com.sobow.shopping.domain.order.OrderRepository;
 import com.sobow.shopping.domain.order.OrderStatus;
 import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
 import com.sobow.shopping.domain.user.User;
 import com.sobow.shopping.domain.user.UserProfile;
 import com.sobow.shopping.exceptions.CartEmptyException;
+import com.sobow.shopping.exceptions.IdempotencyKeyInFlightException;
 import com.sobow.shopping.exceptions.InsufficientStockException;
 import com.sobow.shopping.services.cart.CartService;
+import com.sobow.shopping.services.order.CheckoutRequest;
+import com.sobow.shopping.services.order.OrderOutcome;
 import com.sobow.shopping.services.order.OrderService;
+import com.sobow.shopping.services.order.StockAllocator;
+import com.sobow.shopping.services.product.Impl.HotStock;
 import com.sobow.shopping.services.product.ProductService;
+import com.sobow.shopping.services.reservation.StockReservationService;
 import com.sobow.shopping.services.user.CurrentUserService;
 import com.sobow.shopping.services.user.UserProfileService;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,42 +53,146 @@ public class OrderServiceImpl implements OrderService {
     private final EntityManager entityManager;
     
     private final OrderRepository orderRepository;
+    private final OrderIdempotencyKeyRepository keyRepository;
     private final UserProfileService userProfileService;
     private final ProductService productService;
+    private final HotStock hotStock;
+    private final StockAllocator stockAllocator;
+    private final StockReservationService reservationService;
     private final CartService cartService;
     private final CurrentUserService currentUserService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional
     @Override
     public Order selfCreateOrder() {
         Authentication authentication = currentUserService.getAuthentication();
         User user = currentUserService.getAuthenticatedUser(authentication);
+        return createOrder(CheckoutRequest.of(user.getId()));
+    }
+    
+    @Transactional
+    @Override
+    public Order createOrder(CheckoutRequest request) {
+        long userId = request.userId();
+        // Lock the idempotency key claim (if any) first, so nobody takes it over while the order is placed
+        if (request.idempotencyKeyId() != null) {
+            List<OrderIdempotencyKey> keys = keyRepository.findAllForUpdate(List.of(request.idempotencyKeyId()));
+            assertClaimed(request, keys.isEmpty() ? null : keys.getFirst());
+        }
         
         // Load UserProfile and Cart with items
-        UserProfile userProfile = userProfileService.findByUserId(user.getId());
-        Cart cart = cartService.findByUserIdWithItems(user.getId());
+        UserProfile userProfile = userProfileService.findByUserId(userId);
+        Cart cart = cartService.findByUserIdWithItems(userId);
         
         // Assert cart is not empty
         if (cart.getCartItems().isEmpty()) {
             throw new CartEmptyException(cart.getId());
         }
         
-        // Lock + assert stock available + decrement
-        productService.lockForOrder(cart.getProductsId());
-        assertStockAvailableAndDecrement(cart.getCartItems());
+        // Assert stock available + decrement: hot products from their in-memory counters, the rest through the
+        // configured allocator. Then drop any holds the allocator did not convert
+        List<CartItem> regularItems = hotStock.allocate(cart.getCartItems());
+        if (!regularItems.isEmpty()) {
+            stockAllocator.allocate(regularItems);
+        }
+        reservationService.releaseAll(cart);
         
-        // Build order from cart
-        Order order = orderFrom(cart);
+        Order order = place(userProfile, cart);
+        complete(request, order);
+        return order;
+    }
+    
+    /**
+     * Every cart's holds are claimed first, then all product rows the batch may write are locked in id order and
+     * re-read as of the lock. Each order is then checked in memory against the stock the orders
+     * before it left, so a short order is dropped (its holds put back) without a savepoint or a rollback. Stock is
+     * taken the way the reservation allocator takes it: a line may use the free stock plus its own cart's hold.
+     * Idempotency key claims are locked before anything else and closed with their orders.
+     */
+    @Transactional
+    @Override
+    public List<OrderOutcome> createOrders(List<CheckoutRequest> requests) {
+        // Hot mode switches wait for this transaction, so a product stays hot or regular for the whole batch
+        hotStock.holdModes();
         
-        // Link to user
-        userProfile.addOrderAndLink(order);
+        Set<Long> keyIds = requests.stream()
+                                   .map(CheckoutRequest::idempotencyKeyId)
+                                   .filter(Objects::nonNull)
+                                   .collect(Collectors.toCollection(TreeSet::new));
+        Map<Long, OrderIdempotencyKey> keys = keyIds.isEmpty()
+            ? Map.of()
+            : keyRepository.findAllForUpdate(keyIds)
+                           .stream()
+                           .collect(Collectors.toMap(OrderIdempotencyKey::getId, Function.identity()));
         
-        // Remove cart after successful order creation
-        cart.removeAllCartItems();
-        entityManager.flush();
-        userProfile.removeCart();
+        OrderOutcome[] outcomes = new OrderOutcome[requests.size()];
+        List<BatchedOrder> batch = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CheckoutRequest request = requests.get(i);
+            try {
+                if (request.idempotencyKeyId() != null) {
+                    assertClaimed(request, keys.get(request.idempotencyKeyId()));
+                }
+                UserProfile userProfile = userProfileService.findByUserId(request.userId());
+                Cart cart = cartService.findByUserIdWithItems(request.userId());
+                if (cart.getCartItems().isEmpty()) {
+                    throw new CartEmptyException(cart.getId());
+                }
+                batch.add(new BatchedOrder(i, request, userProfile, cart, reservationService.claimAll(cart)));
+            } catch (EntityNotFoundException | CartEmptyException | IdempotencyKeyInFlightException e) {
+                outcomes[i] = OrderOutcome.failed(e);
+            }
+        }
         
-        return order;
+        // One sorted lock over the union: regular lines, plus claimed holds that will be released
+        Set<Long> productIds = new TreeSet<>();
+        for (BatchedOrder order : batch) {
+            regularItems(order.cart()).forEach(item -> productIds.add(item.getProduct().getId()));
+            productIds.addAll(order.held().keySet());
+        }
+        Map<Long, Product> locked = new HashMap<>();
+        Map<Long, Integer> free = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (Product product : productService.lockForOrder(List.copyOf(productIds))) {
+                locked.put(product.getId(), product);
+                free.put(product.getId(), product.getAvailableToSell());
+            }
+        }
+        
+        Map<Long, Integer> released = new TreeMap<>();
+        Map<Long, Product> changed = new TreeMap<>();
+        for (BatchedOrder order : batch) {
+            try {
+                // The same user twice in one batch: the first order already emptied the cart
+                if (order.cart().getCartItems().isEmpty()) {
+                    throw new CartEmptyException(order.cart().getId());
+                }
+                List<CartItem> regularItems = regularItems(order.cart());
+                assertCovered(regularItems, order.held(), free);
+                // Takes nothing when short, so the batch carries on
+                hotStock.allocate(order.cart().getCartItems());
+                
+                for (CartItem item : regularItems) {
+                    Product product = locked.get(item.getProduct().getId());
+                    int qty = item.getRequestedQty();
+                    free.merge(product.getId(), order.held().getOrDefault(product.getId(), 0) - qty, Integer::sum);
+                    product.setAvailableQty(product.getAvailableQty() - qty);
+                    changed.put(product.getId(), product);
+                }
+                order.held().forEach((productId, qty) -> released.merge(productId, qty, Integer::sum));
+                Order placed = place(order.userProfile(), order.cart());
+                complete(order.request(), placed);
+                outcomes[order.index()] = OrderOutcome.placed(placed);
+            } catch (EntityNotFoundException | CartEmptyException | InsufficientStockException e) {
+                reservationService.restore(order.cart(), order.held());
+                outcomes[order.index()] = OrderOutcome.failed(e);
+            }
+        }
+        
+        reservationService.releaseClaimed(released);
+        changed.values().forEach(product -> eventPublisher.publishEvent(new ProductChangedEvent(product)));
+        return Arrays.asList(outcomes);
     }
     
     @Override
@@ -106,22 +229,62 @@ public class OrderServiceImpl implements OrderService {
         return orderRepository.findAllByUserIdWithOrderItems(userId);
     }
     
-    private void assertStockAvailableAndDecrement(Set<CartItem> items) {
+    private Order place(UserProfile userProfile, Cart cart) {
+        // Build order from cart
+        Order order = orderFrom(cart);
+        
+        // Link to user
+        userProfile.addOrderAndLink(order);
+        
+        // Remove cart after successful order creation
+        cart.removeAllCartItems();
+        entityManager.flush();
+        userProfile.removeCart();
+        
+        return order;
+    }
+    
+    // A claim that is gone or already points at an order was taken over: placing another order would duplicate it
+    private static void assertClaimed(CheckoutRequest request, OrderIdempotencyKey key) {
+        if (key == null || key.getOrderId() != null) {
+            throw new IdempotencyKeyInFlightException(request.idempotencyKeyId());
+        }
+    }
+    
+    // Same transaction as the order: the key points at it exactly when the order committed
+    private void complete(CheckoutRequest request, Order order) {
+        if (request.idempotencyKeyId() != null) {
+            keyRepository.complete(request.idempotencyKeyId(), order.getId());
+        }
+    }
+    
+    private List<CartItem> regularItems(Cart cart) {
+        return cart.getCartItems()
+                   .stream()
+                   .filter(item -> !hotStock.isHot(item.getProduct().getId()))
+                   .toList();
+    }
+    
+    private static void assertCovered(List<CartItem> items, Map<Long, Integer> held, Map<Long, Integer> free) {
         for (CartItem item : items) {
-            // Assert products still available
-            Product product = item.getProduct();
-            int availableQty = product.getAvailableQty();
-            int requestedQty = item.getRequestedQty();
-            if (requestedQty > availableQty) {
-                throw new InsufficientStockException(product.getId(), availableQty, requestedQty);
+            long productId = item.getProduct().getId();
+            Integer productFree = free.get(productId);
+            if (productFree == null) {
+                throw new EntityNotFoundException("Product with id " + productId + " not found");
+            }
+            int available = productFree + held.getOrDefault(productId, 0);
+            if (item.getRequestedQty() > available) {
+                throw new InsufficientStockException(productId, available, item.getRequestedQty());
             }
-            
-            // Decrement stock
-            int newQty = availableQty - requestedQty;
-            product.setAvailableQty(newQty);
         }
     }
     
+    private record BatchedOrder(
+        int index, CheckoutRequest request, UserProfile userProfile, Cart cart, Map<Long, Integer> held
+    ) {
+    
+    }
+    
     private Order orderFrom(Cart cart) {
         Order order = new Order(OrderStatus.NEW);
         for (CartItem cartItem : cart.getCartItems()) {
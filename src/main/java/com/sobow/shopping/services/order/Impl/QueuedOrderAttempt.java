@@ -0,0 +1,71 @@
+package com.sobow.shopping.services.order.Impl;
+
+import com.sobow.shopping.domain.order.Order;
+import com.sobow.shopping.services.order.OrderAttempt;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import lombok.Getter;
+
+/**
+ * An {@link OrderAttempt} of {@link AsyncOrderCheckoutImpl}, completed by the worker that took it off the queue.
+ */
+class QueuedOrderAttempt implements OrderAttempt {
+    
+    @Getter
+    private final UUID id = UUID.randomUUID();
+    
+    @Getter
+    private final long userId;
+    
+    @Getter
+    private final String idempotencyKey;
+    
+    private final CompletableFuture<Order> result = new CompletableFuture<>();
+    
+    private volatile Instant finishedAt;
+    
+    QueuedOrderAttempt(long userId, String idempotencyKey) {
+        this.userId = userId;
+        this.idempotencyKey = idempotencyKey;
+    }
+    
+    @Override
+    public Status getStatus() {
+        if (!result.isDone()) return Status.PENDING;
+        return result.isCompletedExceptionally() ? Status.FAILED : Status.PLACED;
+    }
+    
+    @Override
+    public Order getOrder() {
+        return getStatus() == Status.PLACED ? result.join() : null;
+    }
+    
+    @Override
+    public RuntimeException getFailure() {
+        if (getStatus() != Status.FAILED) return null;
+        return result.handle((order, e) -> e instanceof RuntimeException failure
+                                           ? failure
+                                           : new IllegalStateException(e)).join();
+    }
+    
+    // Completes when the attempt finishes, with the attempt itself; never exceptionally
+    CompletableFuture<OrderAttempt> finished() {
+        return result.handle((order, e) -> this);
+    }
+    
+    boolean finishedBefore(Instant cutoff) {
+        Instant at = finishedAt;
+        return at != null && at.isBefore(cutoff);
+    }
+    
+    void placed(Order order) {
+        finishedAt = Instant.now();
+        result.complete(order);
+    }
+    
+    void failed(Throwable failure) {
+        finishedAt = Instant.now();
+        result.completeExceptionally(failure);
+    }
+}
@@ -0,0 +1,31 @@
+package com.sobow.shopping.services.order.Impl;
+
+import com.sobow.shopping.domain.cart.CartItem;
+import com.sobow.shopping.services.order.StockAllocator;
+import com.sobow.shopping.services.reservation.StockReservationService;
+import java.util.Collection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts the cart's stock reservations into the order. Lines still held were already checked when they were added,
+ * so nothing is re-validated under row locks; see {@link StockReservationService#convert}.
+ */
+@Component
+@ConditionalOnProperty(name = "order.checkout.stock-mode", havingValue = "reservation")
+@RequiredArgsConstructor
+public class ReservationStockAllocator implements StockAllocator {
+    
+    private final StockReservationService reservationService;
+    
+    @Override
+    public void allocate(Collection<CartItem> items) {
+        reservationService.convert(items);
+    }
+    
+    @Override
+    public boolean honoursReservations() {
+        return true;
+    }
+}
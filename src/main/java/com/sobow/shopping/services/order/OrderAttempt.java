@@ -0,0 +1,28 @@
+package com.sobow.shopping.services.order;
+
+import com.sobow.shopping.domain.order.Order;
+import java.util.UUID;
+
+/**
+ * One checkout accepted by {@link AsyncOrderCheckout}: pending until a worker placed the order or gave up on it.
+ */
+public interface OrderAttempt {
+    
+    enum Status {
+        PENDING, PLACED, FAILED
+    }
+    
+    UUID getId();
+    
+    Status getStatus();
+    
+    /**
+     * @return the placed order; {@code null} unless the status is {@link Status#PLACED}
+     */
+    Order getOrder();
+    
+    /**
+     * @return why the checkout failed; {@code null} unless the status is {@link Status#FAILED}
+     */
+    RuntimeException getFailure();
+}
@@ -0,0 +1,22 @@
+package com.sobow.shopping.services.order;
+
+import com.sobow.shopping.domain.order.Order;
+
+/**
+ * How {@code POST /users/me/orders} reaches {@link OrderService}. The active implementation is selected with the
+ * {@code order.checkout.pipeline} property: {@code direct} places the order on the request thread in its own
+ * transaction, {@code group-commit} batches concurrent checkouts into shared transactions.
+ */
+public interface OrderCheckout {
+    
+    /**
+     * Places an order from the authenticated user's cart and returns it once committed.
+     */
+    Order selfCheckout();
+    
+    /**
+     * Places an order from the request's user cart and returns it once committed; for callers that resolved the user
+     * themselves.
+     */
+    Order checkout(CheckoutRequest request);
+}
@@ -0,0 +1,17 @@
+package com.sobow.shopping.services.order;
+
+import com.sobow.shopping.domain.order.Order;
+
+/**
+ * Result of one order in a group-commit batch: the placed order, or the failure that dropped it from the batch.
+ */
+public record OrderOutcome(Order order, RuntimeException failure) {
+    
+    public static OrderOutcome placed(Order order) {
+        return new OrderOutcome(order, null);
+    }
+    
+    public static OrderOutcome failed(RuntimeException failure) {
+        return new OrderOutcome(null, failure);
+    }
+}
@@ -7,6 +7,21 @@ public interface OrderService {
     
     Order selfCreateOrder();
     
+    /**
+     * Places an order from the request's user cart. A claimed {@code Idempotency-Key} row is locked first and records
+     * the order in the same transaction, so the key never outlives a committed order without pointing at it.
+     */
+    Order createOrder(CheckoutRequest request);
+    
+    /**
+     * Group commit: places the orders of several users in one transaction. An order that cannot be placed (missing
+     * or empty cart, insufficient stock, idempotency key no longer claimed) is dropped from the batch with its
+     * failure; the others commit together.
+     *
+     * @return one outcome per request, in the order of {@code requests}
+     */
+    List<OrderOutcome> createOrders(List<CheckoutRequest> requests);
+    
     Order selfFindByIdWithItems(long orderId);
     
     List<Order> selfFindAllWithItems();
@@ -0,0 +1,29 @@
+package com.sobow.shopping.services.order;
+
+import com.sobow.shopping.domain.cart.CartItem;
+import com.sobow.shopping.exceptions.InsufficientStockException;
+import java.util.Collection;
+
+/**
+ * Takes the stock for an order at checkout. The active implementation is selected with the
+ * {@code order.checkout.stock-mode} property.
+ */
+public interface StockAllocator {
+    
+    /**
+     * Decrements the available quantity of every item's product by its requested quantity, inside the caller's
+     * transaction.
+     *
+     * @throws InsufficientStockException when any product is short; the caller's rollback undoes the decrements
+     *                                    already made
+     */
+    void allocate(Collection<CartItem> items);
+    
+    /**
+     * Whether the stock carts hold ({@code reserved_qty}) counts at checkout. Only then are cart lines worth
+     * reserving, and only then may checkouts be group-committed, which always take stock the reservation way.
+     */
+    default boolean honoursReservations() {
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.sobow.shopping.services.product;
+
+import jakarta.persistence.EntityNotFoundException;
+import java.util.List;
+
+/**
+ * Switches products in and out of flash-sale mode, where checkouts take their stock from in-memory counters instead of
+ * the product row. The mode is per instance and off again after a restart.
+ */
+public interface HotStockService {
+    
+    /**
+     * @param productId product in hot stock mode
+     * @param remaining units left in its counter
+     */
+    record Status(long productId, int remaining) {
+    
+    }
+    
+    /**
+     * Seeds the product's counter from its stock; a no-op when the product is already hot.
+     *
+     * @throws EntityNotFoundException when the product does not exist
+     */
+    Status enable(long productId);
+    
+    /**
+     * Flushes the pending ledger and sends checkouts back to the product row.
+     */
+    void disable(long productId);
+    
+    /**
+     * @return hot products ordered by id
+     */
+    List<Status> status();
+}
@@ -0,0 +1,197 @@
+package com.sobow.shopping.services.product.Impl;
+
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse;
+import com.sobow.shopping.services.product.PriceBucket;
+import com.sobow.shopping.services.product.ProductCursor;
+import com.sobow.shopping.services.product.ProductSearchCriteria;
+import com.sobow.shopping.services.product.ProductSearcher;
+import com.sobow.shopping.services.product.ProductSort;
+import jakarta.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Searches products with PostgreSQL full-text search.
+ * <p>
+ * On startup it adds a stored, generated {@code search_vector} column (name weighted above brand above description)
+ * with a GIN index, plus a {@code pg_trgm} GIN index over {@code lower(name)}, so name queries are answered from
+ * indexes instead of a sequential scan. A product matches when the query matches its search vector or is a substring
+ * of its name. With {@link ProductSort#RELEVANCE} results are ordered by {@code ts_rank}, best first.
+ * <p>
+ * Databases other than PostgreSQL (e.g. H2 in tests), and searches without a name query, are delegated to
+ * {@link SpecificationProductSearcher}.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "product.search.mode", havingValue = "fulltext")
+@RequiredArgsConstructor
+public class FullTextProductSearcher implements ProductSearcher {
+    
+    private static final String TEXT_SEARCH_CONFIG = "'simple'";
+    
+    private static final List<String> SCHEMA = List.of(
+        "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+        """
+            ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector
+            GENERATED ALWAYS AS (
+                setweight(to_tsvector(%1$s, name), 'A') ||
+                setweight(to_tsvector(%1$s, brand_name), 'B') ||
+                setweight(to_tsvector(%1$s, description), 'C')
+            ) STORED
+            """.formatted(TEXT_SEARCH_CONFIG),
+        "CREATE INDEX IF NOT EXISTS idx_products_search_vector ON products USING GIN (search_vector)",
+        "CREATE INDEX IF NOT EXISTS idx_products_name_trgm ON products USING GIN (lower(name) gin_trgm_ops)"
+    );
+    
+    private static final String WITH_QUERY =
+        "WITH q AS (SELECT websearch_to_tsquery(%s, :text) AS query)".formatted(TEXT_SEARCH_CONFIG);
+    
+    private static final String FROM = """
+        FROM products p
+        JOIN categories c ON c.id = p.category_id
+        CROSS JOIN q""";
+    
+    private static final String RANK = "ts_rank(p.search_vector, q.query)";
+    
+    private final NamedParameterJdbcTemplate jdbc;
+    private final SpecificationProductSearcher fallback;
+    
+    private volatile boolean enabled;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareSchema() {
+        String database = jdbc.getJdbcTemplate().execute(
+            (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()
+        );
+        if (!"PostgreSQL".equalsIgnoreCase(database)) return;
+        
+        SCHEMA.forEach(jdbc.getJdbcTemplate()::execute);
+        enabled = true;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    @Override
+    public List<Long> search(
+        ProductSearchCriteria criteria,
+        ProductSort sort,
+        @Nullable ProductCursor after,
+        int limit
+    ) {
+        if (!enabled || criteria.nameLike() == null) {
+            return fallback.search(criteria, sort, after, limit);
+        }
+        
+        var params = new MapSqlParameterSource("limit", limit);
+        List<String> where = filter(criteria, params);
+        if (after != null) {
+            where.add(seekAfter(after, params));
+        }
+        
+        String sql = """
+            %s
+            SELECT p.id
+            %s
+            WHERE %s
+            ORDER BY %s
+            LIMIT :limit
+            """.formatted(WITH_QUERY, FROM, String.join(" AND ", where), orderBy(sort));
+        
+        return jdbc.queryForList(sql, params, Long.class);
+    }
+    
+    /**
+     * One {@code GROUP BY brand, category, price bucket} query over the same match predicate as {@link #search}.
+     */
+    @Override
+    public ProductFacetsResponse facets(ProductSearchCriteria criteria) {
+        if (!enabled || criteria.nameLike() == null) {
+            return fallback.facets(criteria);
+        }
+        
+        var params = new MapSqlParameterSource();
+        String sql = """
+            %s
+            SELECT p.brand_name, c.name, %s AS bucket, count(*) AS product_count
+            %s
+            WHERE %s
+            GROUP BY 1, 2, 3
+            """.formatted(WITH_QUERY, priceBucketOrdinal(), FROM, String.join(" AND ", filter(criteria, params)));
+        
+        ProductFacetCounter counter = new ProductFacetCounter();
+        jdbc.query(sql, params, (RowCallbackHandler) row -> {
+            counter.add(
+                row.getString(1),
+                row.getString(2),
+                PriceBucket.values()[row.getInt(3)],
+                row.getLong(4)
+            );
+        });
+        return counter.toResponse();
+    }
+    
+    private static List<String> filter(ProductSearchCriteria criteria, MapSqlParameterSource params) {
+        List<String> where = new ArrayList<>();
+        where.add("(p.search_vector @@ q.query OR lower(p.name) LIKE :namePattern)");
+        params.addValue("text", criteria.nameLike())
+              .addValue("namePattern", "%" + criteria.nameLike().toLowerCase() + "%");
+        
+        if (criteria.categoryName() != null) {
+            where.add("c.name = :categoryName");
+            params.addValue("categoryName", criteria.categoryName());
+        }
+        if (criteria.brandName() != null) {
+            where.add("p.brand_name = :brandName");
+            params.addValue("brandName", criteria.brandName());
+        }
+        return where;
+    }
+    
+    private static String priceBucketOrdinal() {
+        StringBuilder sql = new StringBuilder("CASE");
+        PriceBucket[] buckets = PriceBucket.values();
+        for (int i = 0; i < buckets.length - 1; i++) {
+            sql.append(" WHEN p.price < ").append(buckets[i].upperBound().toPlainString()).append(" THEN ").append(i);
+        }
+        return sql.append(" ELSE ").append(buckets.length - 1).append(" END").toString();
+    }
+    
+    private static String orderBy(ProductSort sort) {
+        return switch (sort) {
+            case ID -> "p.id";
+            case PRICE -> "p.price, p.id";
+            case RELEVANCE -> RANK + " DESC, p.id";
+        };
+    }
+    
+    private static String seekAfter(ProductCursor after, MapSqlParameterSource params) {
+        params.addValue("afterId", after.id());
+        return switch (after.sort()) {
+            case ID -> "p.id > :afterId";
+            case PRICE -> {
+                params.addValue("afterPrice", after.price());
+                yield "(p.price > :afterPrice OR (p.price = :afterPrice AND p.id > :afterId))";
+            }
+            // The cursor only carries the id: the rank of that row is recomputed for the same query. If the row
+            // has been deleted in the meantime, the listing ends.
+            case RELEVANCE -> """
+                (%1$s, -p.id) < (
+                    SELECT ts_rank(a.search_vector, q.query), -a.id
+                    FROM products a
+                    WHERE a.id = :afterId
+                )""".formatted(RANK);
+        };
+    }
+}
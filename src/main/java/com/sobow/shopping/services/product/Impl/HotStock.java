@@ -0,0 +1,224 @@
+package com.sobow.shopping.services.product.Impl;
+
+import com.sobow.shopping.domain.cart.CartItem;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductDeletedEvent;
+import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.domain.product.StockLedgerEntry;
+import com.sobow.shopping.domain.product.StockLedgerRepository;
+import com.sobow.shopping.exceptions.HotStockActiveException;
+import com.sobow.shopping.exceptions.InsufficientStockException;
+import com.sobow.shopping.services.product.HotStockService;
+import jakarta.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Opt-in flash-sale mode for single products. While a product is hot, checkouts take its stock from a
+ * {@link StripedStockCounter} in memory instead of the product row, so a rush of orders does not queue on one row
+ * lock. Each take is recorded as a {@code stock_ledger} insert in the order's transaction and {@link StockLedgerFlusher}
+ * folds the ledger into {@code products.available_qty} a few milliseconds later; a checkout that rolls back gives its
+ * units back to the counter.
+ * <p>
+ * Overselling stays impossible: the counter is seeded from the locked row minus the unflushed ledger, and switching a
+ * product on or off waits for every checkout and stock edit in flight (a read-write lock held until their transaction
+ * completes), so the same unit can never be taken from both the row and the counter. Turning the mode off flushes the
+ * ledger first. Stock edits and cart holds do not apply to hot products: it is first come, first served at checkout.
+ * <p>
+ * Counters live in this process: the mode assumes a single application instance and is off again after a restart.
+ */
+@Component
+public class HotStock implements HotStockService {
+    
+    private final ProductRepository productRepository;
+    private final StockLedgerRepository ledgerRepository;
+    private final StockLedgerFlusher flusher;
+    private final TransactionTemplate transactionTemplate;
+    private final int stripes;
+    
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    
+    // Read: a transaction that takes or edits stock. Write: switching a product on or off
+    private final ReentrantReadWriteLock modeLock = new ReentrantReadWriteLock();
+    
+    public HotStock(
+        ProductRepository productRepository,
+        StockLedgerRepository ledgerRepository,
+        StockLedgerFlusher flusher,
+        TransactionTemplate transactionTemplate,
+        @Value("${product.hot-stock.stripes:0}") int stripes
+    ) {
+        this.productRepository = productRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.flusher = flusher;
+        this.transactionTemplate = transactionTemplate;
+        // 0: one stripe per core, the most threads that can be updating a counter at the same moment
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+    }
+    
+    @Override
+    public Status enable(long productId) {
+        modeLock.writeLock().lock();
+        try {
+            StripedStockCounter counter = counters.get(productId);
+            if (counter == null) {
+                counter = transactionTemplate.execute(status -> seed(productId));
+                counters.put(productId, counter);
+            }
+            return new Status(productId, counter.remaining());
+        } finally {
+            modeLock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void disable(long productId) {
+        modeLock.writeLock().lock();
+        try {
+            if (counters.remove(productId) != null) {
+                // The row must be exact again before checkouts go back to it
+                flusher.flush();
+            }
+        } finally {
+            modeLock.writeLock().unlock();
+        }
+    }
+    
+    public boolean isHot(long productId) {
+        return counters.containsKey(productId);
+    }
+    
+    @Override
+    public List<Status> status() {
+        return counters.entrySet()
+                       .stream()
+                       .map(entry -> new Status(entry.getKey(), entry.getValue().remaining()))
+                       .sorted(Comparator.comparingLong(Status::productId))
+                       .toList();
+    }
+    
+    /**
+     * Takes the hot items of a checkout from their counters and returns the items left for the regular
+     * {@code StockAllocator}. Must run in the order's transaction: the ledger rows commit or roll back with it, and
+     * hot mode switches wait until it completes. When a line is short nothing stays taken, so a group-commit batch can
+     * drop the order and carry on.
+     */
+    public List<CartItem> allocate(Collection<CartItem> items) {
+        CheckoutHold hold = holdModeUntilCompletion();
+        
+        List<CartItem> regular = new ArrayList<>();
+        List<StockLedgerEntry> entries = new ArrayList<>();
+        for (CartItem item : items) {
+            long productId = item.getProduct().getId();
+            int qty = item.getRequestedQty();
+            StripedStockCounter counter = counters.get(productId);
+            if (counter == null) {
+                regular.add(item);
+                continue;
+            }
+            if (!counter.tryTake(qty)) {
+                hold.giveBack();
+                throw new InsufficientStockException(productId, counter.remaining(), qty);
+            }
+            hold.taken(counter, qty);
+            entries.add(new StockLedgerEntry(productId, qty));
+        }
+        // Product change events follow from the flush, once the row actually changed
+        if (!entries.isEmpty()) ledgerRepository.saveAll(entries);
+        return regular;
+    }
+    
+    /**
+     * Rejects a stock edit of a hot product; otherwise keeps hot mode switches waiting until the edit's transaction
+     * completes, so the product cannot be seeded from a row that is about to change.
+     */
+    public void assertNotHot(long productId) {
+        holdModeUntilCompletion();
+        if (isHot(productId)) throw new HotStockActiveException(productId);
+    }
+    
+    /**
+     * Keeps hot mode switches waiting until the current transaction completes, so {@link #isHot} gives the same answer
+     * for the rest of it.
+     */
+    public void holdModes() {
+        holdModeUntilCompletion();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        counters.remove(event.productId());
+    }
+    
+    private StripedStockCounter seed(long productId) {
+        // The row lock orders this read against a running flush: both values come from the same side of it
+        Product product = productRepository.findAllForUpdate(List.of(productId))
+                                           .stream()
+                                           .findFirst()
+                                           .orElseThrow(() -> new EntityNotFoundException(
+                                               "Product with id " + productId + " not found"));
+        long pending = ledgerRepository.sumPendingByProductId(productId);
+        return new StripedStockCounter((int) Math.max(product.getAvailableQty() - pending, 0), stripes);
+    }
+    
+    private CheckoutHold holdModeUntilCompletion() {
+        // Not @Transactional(MANDATORY): a proxy would mark the whole transaction rollback-only on a shortage
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Hot stock must be used inside a transaction");
+        }
+        CheckoutHold hold = new CheckoutHold();
+        modeLock.readLock().lock();
+        try {
+            TransactionSynchronizationManager.registerSynchronization(hold);
+        } catch (RuntimeException e) {
+            modeLock.readLock().unlock();
+            throw e;
+        }
+        return hold;
+    }
+    
+    // Releases the mode lock when the transaction completes and gives the taken units back if it rolled back. An
+    // unknown outcome keeps them taken: a unit lost until the next enable is better than one sold twice.
+    private class CheckoutHold implements TransactionSynchronization {
+        
+        private final List<StripedStockCounter> takenFrom = new ArrayList<>();
+        private final List<Integer> quantities = new ArrayList<>();
+        
+        void taken(StripedStockCounter counter, int qty) {
+            takenFrom.add(counter);
+            quantities.add(qty);
+        }
+        
+        void giveBack() {
+            for (int i = 0; i < takenFrom.size(); i++) {
+                takenFrom.get(i).giveBack(quantities.get(i));
+            }
+            takenFrom.clear();
+            quantities.clear();
+        }
+        
+        @Override
+        public void afterCompletion(int status) {
+            try {
+                if (status == STATUS_COMMITTED && !takenFrom.isEmpty()) {
+                    flusher.requestFlush();
+                } else if (status == STATUS_ROLLED_BACK) {
+                    giveBack();
+                }
+            } finally {
+                modeLock.readLock().unlock();
+            }
+        }
+    }
+}
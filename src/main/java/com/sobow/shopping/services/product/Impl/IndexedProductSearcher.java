@@ -0,0 +1,166 @@
+package com.sobow.shopping.services.product.Impl;
+
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse;
+import com.sobow.shopping.domain.category.Category;
+import com.sobow.shopping.domain.category.CategoryDeletedEvent;
+import com.sobow.shopping.domain.category.CategoryRepository;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.domain.product.ProductDeletedEvent;
+import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.services.product.Impl.ProductSearchIndex.FacetKey;
+import com.sobow.shopping.services.product.ProductCursor;
+import com.sobow.shopping.services.product.ProductSearchCriteria;
+import com.sobow.shopping.services.product.ProductSearcher;
+import com.sobow.shopping.services.product.ProductSort;
+import jakarta.annotation.Nullable;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Searches products through the in-memory {@link ProductSearchIndex}, without touching the database.
+ * <p>
+ * The index is built once the application is ready and kept current by product and category events. Until the build
+ * completes, and for requests without any filter, searches fall back to {@link SpecificationProductSearcher}.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "product.search.mode", havingValue = "index", matchIfMissing = true)
+@RequiredArgsConstructor
+public class IndexedProductSearcher implements ProductSearcher {
+    
+    private static final int BUILD_BATCH_SIZE = 500;
+    
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final SpecificationProductSearcher fallback;
+    private final ProductSearchIndex index = new ProductSearchIndex();
+    
+    private volatile boolean ready;
+    
+    // Products changed by events while the index is being built; the build must not overwrite them with stale rows
+    private final Set<Long> changedDuringBuild = new HashSet<>();
+    
+    // Categories deleted while the index is being built (guarded by changedDuringBuild); rows read before the delete
+    // committed must not bring their products back
+    private final Set<Long> categoriesDeletedDuringBuild = new HashSet<>();
+    
+    @Override
+    public List<Long> search(
+        ProductSearchCriteria criteria,
+        ProductSort sort,
+        @Nullable ProductCursor after,
+        int limit
+    ) {
+        if (!ready || criteria.isEmpty()) {
+            return fallback.search(criteria, sort, after, limit);
+        }
+        
+        Long categoryId = null;
+        if (criteria.categoryName() != null) {
+            Optional<Category> category = categoryRepository.findByName(criteria.categoryName());
+            if (category.isEmpty()) return List.of();
+            categoryId = category.get().getId();
+        }
+        
+        return index.search(criteria.nameLike(), criteria.brandName(), categoryId, sort, after, limit);
+    }
+    
+    @Override
+    public ProductFacetsResponse facets(ProductSearchCriteria criteria) {
+        if (!ready || criteria.isEmpty()) {
+            return fallback.facets(criteria);
+        }
+        
+        Long categoryId = null;
+        if (criteria.categoryName() != null) {
+            Optional<Category> category = categoryRepository.findByName(criteria.categoryName());
+            if (category.isEmpty()) return new ProductFacetCounter().toResponse();
+            categoryId = category.get().getId();
+        }
+        
+        Map<FacetKey, Long> counts = index.countFacets(criteria.nameLike(), criteria.brandName(), categoryId);
+        
+        // Resolve the names of the few categories involved with one query, outside the index lock
+        Set<Long> categoryIds = counts.keySet().stream().map(FacetKey::categoryId).collect(Collectors.toSet());
+        Map<Long, String> categoryNames = categoryRepository.findAllById(categoryIds)
+                                                            .stream()
+                                                            .collect(Collectors.toMap(Category::getId, Category::getName));
+        
+        ProductFacetCounter counter = new ProductFacetCounter();
+        counts.forEach((key, count) -> {
+            String categoryName = categoryNames.get(key.categoryId());
+            if (categoryName != null) counter.add(key.brandName(), categoryName, key.priceBucket(), count);
+        });
+        return counter.toResponse();
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public int size() {
+        return index.size();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long afterId = 0L;
+        List<Product> batch;
+        do {
+            batch = productRepository.findPageOrderedById(afterId, PageRequest.ofSize(BUILD_BATCH_SIZE));
+            for (Product product : batch) {
+                synchronized (changedDuringBuild) {
+                    if (!changedDuringBuild.contains(product.getId())
+                        && !categoriesDeletedDuringBuild.contains(product.getCategory().getId())) {
+                        index.put(ProductSearchIndex.Doc.of(product));
+                    }
+                }
+            }
+            if (!batch.isEmpty()) afterId = batch.getLast().getId();
+        } while (batch.size() == BUILD_BATCH_SIZE);
+        
+        synchronized (changedDuringBuild) {
+            ready = true;
+            changedDuringBuild.clear();
+            categoriesDeletedDuringBuild.clear();
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Product product = event.product();
+        synchronized (changedDuringBuild) {
+            if (!ready) changedDuringBuild.add(product.getId());
+            index.put(ProductSearchIndex.Doc.of(product));
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        synchronized (changedDuringBuild) {
+            if (!ready) changedDuringBuild.add(event.productId());
+            index.remove(event.productId());
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryDeleted(CategoryDeletedEvent event) {
+        synchronized (changedDuringBuild) {
+            if (!ready) categoriesDeletedDuringBuild.add(event.categoryId());
+            index.removeCategory(event.categoryId());
+        }
+    }
+}
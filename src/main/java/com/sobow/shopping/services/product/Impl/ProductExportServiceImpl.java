@@ -0,0 +1,117 @@
+package com.sobow.shopping.services.product.Impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sobow.shopping.controllers.product.dto.ProductResponse;
+import com.sobow.shopping.domain.image.ImageRepository;
+import com.sobow.shopping.domain.image.ProductIdImageId;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.mappers.product.ProductResponseMapper;
+import com.sobow.shopping.services.product.ProductExportFormat;
+import com.sobow.shopping.services.product.ProductExportService;
+import jakarta.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Streams the catalog without materializing it: products are read through a forward-only scroll, image ids are
+ * joined one chunk at a time, and the persistence context is cleared after every chunk, so memory use does not grow
+ * with the catalog size.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductExportServiceImpl implements ProductExportService {
+    
+    static final int CHUNK_SIZE = 500;
+    
+    private static final String CSV_HEADER = "id,name,brandName,price,availableQty,description,categoryId,imageIds";
+    
+    private final ProductRepository productRepository;
+    private final ImageRepository imageRepository;
+    private final ProductResponseMapper productResponseMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    
+    @Transactional(readOnly = true)
+    @Override
+    public void export(ProductExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ProductExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        
+        try (Stream<Product> products = productRepository.streamAllWithCategory()) {
+            Iterator<Product> iterator = products.iterator();
+            List<Product> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE || !iterator.hasNext()) {
+                    writeChunk(chunk, format, writer);
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+        }
+        writer.flush();
+    }
+    
+    private void writeChunk(List<Product> chunk, ProductExportFormat format, Writer writer) throws IOException {
+        List<Long> productIds = chunk.stream().map(Product::getId).toList();
+        Map<Long, List<Long>> imageIdsByProduct =
+            imageRepository.findImageIdsByProductIds(productIds)
+                           .stream()
+                           .collect(Collectors.groupingBy(
+                               ProductIdImageId::getProductId,
+                               Collectors.mapping(ProductIdImageId::getImageId, Collectors.toList()))
+                           );
+        
+        for (Product product : chunk) {
+            ProductResponse response = productResponseMapper.mapToDto(
+                product, imageIdsByProduct.getOrDefault(product.getId(), List.of())
+            );
+            switch (format) {
+                case NDJSON -> writer.write(objectMapper.writeValueAsString(response));
+                case CSV -> writer.write(toCsvRow(response));
+            }
+            writer.write('\n');
+        }
+        // Push the chunk to the client instead of buffering the whole export
+        writer.flush();
+    }
+    
+    private static String toCsvRow(ProductResponse response) {
+        return String.join(",",
+                           String.valueOf(response.id()),
+                           csvField(response.name()),
+                           csvField(response.brandName()),
+                           response.price().toPlainString(),
+                           String.valueOf(response.availableQty()),
+                           csvField(response.description()),
+                           String.valueOf(response.categoryId()),
+                           response.imageIds() == null ? "" : response.imageIds()
+                                                                      .stream()
+                                                                      .map(String::valueOf)
+                                                                      .collect(Collectors.joining(";"))
+        );
+    }
+    
+    private static String csvField(String value) {
+        if (value == null) return "";
+        boolean quote = value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r");
+        return quote ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+}
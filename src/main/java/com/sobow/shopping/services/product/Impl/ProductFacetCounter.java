@@ -0,0 +1,48 @@
+package com.sobow.shopping.services.product.Impl;
+
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse;
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse.FacetCount;
+import com.sobow.shopping.services.product.PriceBucket;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolls grouped {@code (brand, category, price bucket) -> count} rows up into the three independent facets.
+ */
+public class ProductFacetCounter {
+    
+    private static final Comparator<FacetCount> BY_COUNT_DESC =
+        Comparator.comparingLong(FacetCount::count).reversed().thenComparing(FacetCount::value);
+    
+    private final Map<String, Long> brands = new HashMap<>();
+    private final Map<String, Long> categories = new HashMap<>();
+    private final Map<PriceBucket, Long> priceBuckets = new EnumMap<>(PriceBucket.class);
+    
+    public void add(String brand, String category, PriceBucket bucket, long count) {
+        brands.merge(brand, count, Long::sum);
+        categories.merge(category, count, Long::sum);
+        priceBuckets.merge(bucket, count, Long::sum);
+    }
+    
+    public ProductFacetsResponse toResponse() {
+        return new ProductFacetsResponse(
+            sortedByCount(brands),
+            sortedByCount(categories),
+            priceBuckets.entrySet()
+                        .stream()
+                        .map(e -> new FacetCount(e.getKey().label(), e.getValue()))
+                        .toList()
+        );
+    }
+    
+    private static List<FacetCount> sortedByCount(Map<String, Long> counts) {
+        return counts.entrySet()
+                     .stream()
+                     .map(e -> new FacetCount(e.getKey(), e.getValue()))
+                     .sorted(BY_COUNT_DESC)
+                     .toList();
+    }
+}
@@ -0,0 +1,152 @@
+package com.sobow.shopping.services.product.Impl;
+
+import com.sobow.shopping.controllers.product.dto.ProductResponse;
+import com.sobow.shopping.domain.category.CategoryDeletedEvent;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.domain.product.ProductDeletedEvent;
+import com.sobow.shopping.services.product.ProductResponseCacheStats;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Bounded, in-process read-through cache of ready-made {@link ProductResponse}s keyed by product id.
+ * <p>
+ * Entries are evicted in least-recently-used order once {@code product.cache.max-entries} is exceeded, and
+ * invalidated after the commit of any transaction that changes a product. Invalidating a product drops its loads in
+ * progress: a loader that started before the invalidation does not store its (possibly stale) result, while loads of
+ * other products still do.
+ */
+@Component
+public class ProductResponseCache {
+    
+    private final int maxEntries;
+    private final LinkedHashMap<Long, ProductResponse> entries;
+    // Loads in progress by product id; invalidating a product drops its load, which then does not store what it read
+    private final Map<Long, Object> loading = new HashMap<>();
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    public ProductResponseCache(@Value("${product.cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ProductResponse> eldest) {
+                boolean evict = size() > ProductResponseCache.this.maxEntries;
+                if (evict) evictions++;
+                return evict;
+            }
+        };
+    }
+    
+    /**
+     * Returns the cached response for {@code productId}, loading and caching it on a miss.
+     * The loader runs outside the cache lock, so a slow load never blocks hits on other products.
+     */
+    public ProductResponse getOrLoad(long productId, LongFunction<ProductResponse> loader) {
+        Object load = new Object();
+        synchronized (this) {
+            ProductResponse cached = entries.get(productId);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            loading.put(productId, load);
+        }
+        
+        try {
+            ProductResponse loaded = loader.apply(productId);
+            synchronized (this) {
+                if (loading.get(productId) == load) entries.put(productId, loaded);
+            }
+            return loaded;
+        } finally {
+            synchronized (this) {
+                loading.remove(productId, load);
+            }
+        }
+    }
+    
+    /**
+     * Batch variant of {@link #getOrLoad}: returns cached responses for {@code productIds} and loads all misses with
+     * one call to {@code loader}. Ids the loader does not return are absent from the result.
+     */
+    public Map<Long, ProductResponse> getAllOrLoad(
+        Collection<Long> productIds,
+        Function<List<Long>, Map<Long, ProductResponse>> loader
+    ) {
+        Map<Long, ProductResponse> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        Object load = new Object();
+        synchronized (this) {
+            for (Long productId : productIds) {
+                ProductResponse cached = entries.get(productId);
+                if (cached != null) {
+                    hits++;
+                    result.put(productId, cached);
+                } else {
+                    misses++;
+                    missing.add(productId);
+                    loading.put(productId, load);
+                }
+            }
+        }
+        if (missing.isEmpty()) return result;
+        
+        try {
+            Map<Long, ProductResponse> loaded = loader.apply(missing);
+            synchronized (this) {
+                loaded.forEach((productId, response) -> {
+                    if (loading.get(productId) == load) entries.put(productId, response);
+                });
+            }
+            result.putAll(loaded);
+            return result;
+        } finally {
+            synchronized (this) {
+                missing.forEach(productId -> loading.remove(productId, load));
+            }
+        }
+    }
+    
+    public synchronized void evict(long productId) {
+        loading.remove(productId);
+        entries.remove(productId);
+    }
+    
+    public synchronized void clear() {
+        loading.clear();
+        entries.clear();
+    }
+    
+    public synchronized ProductResponseCacheStats stats() {
+        return new ProductResponseCacheStats(hits, misses, evictions, entries.size(), maxEntries);
+    }
+    
+    // fallbackExecution: writes that run outside a transaction (e.g. deleteById) still invalidate immediately
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        evict(event.product().getId());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        evict(event.productId());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryDeleted(CategoryDeletedEvent event) {
+        clear();
+    }
+}
@@ -0,0 +1,241 @@
+package com.sobow.shopping.services.product.Impl;
+
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.services.product.PriceBucket;
+import com.sobow.shopping.services.product.ProductCursor;
+import com.sobow.shopping.services.product.ProductSort;
+import jakarta.annotation.Nullable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the product catalog.
+ * <p>
+ * Holds trigram posting lists over lower-cased product names plus exact-match maps for brand and category. A search
+ * intersects the smallest applicable posting lists, verifies the candidates against the stored documents and sorts
+ * only the matches. Its cost therefore follows the size of the result set, not the catalog.
+ * <p>
+ * Thread-safe: searches share a read lock, updates take the write lock.
+ */
+public class ProductSearchIndex {
+    
+    static final int GRAM = 3;
+    
+    /**
+     * Searchable projection of a {@link Product}. Also holds the sort keys, so ordering needs no database access.
+     */
+    public record Doc(long id, String lowerName, String brandName, long categoryId, BigDecimal price) {
+        
+        public static Doc of(Product product) {
+            return new Doc(
+                product.getId(),
+                product.getName().toLowerCase(Locale.ROOT),
+                product.getBrandName(),
+                product.getCategory().getId(),
+                product.getPrice()
+            );
+        }
+    }
+    
+    /**
+     * Facet group of {@link #countFacets}, the in-memory equivalent of {@code GROUP BY brand, category, bucket}.
+     */
+    public record FacetKey(String brandName, long categoryId, PriceBucket priceBucket) {
+    
+    }
+    
+    private static final Comparator<Doc> BY_ID = Comparator.comparingLong(Doc::id);
+    private static final Comparator<Doc> BY_PRICE = Comparator.comparing(Doc::price).thenComparingLong(Doc::id);
+    
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final Map<String, Set<Long>> nameTrigrams = new HashMap<>();
+    private final Map<String, Set<Long>> byBrand = new HashMap<>();
+    private final Map<Long, Set<Long>> byCategory = new HashMap<>();
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    public void put(Doc doc) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(doc.id());
+            docs.put(doc.id(), doc);
+            for (String gram : trigrams(doc.lowerName())) {
+                nameTrigrams.computeIfAbsent(gram, k -> new HashSet<>()).add(doc.id());
+            }
+            byBrand.computeIfAbsent(doc.brandName(), k -> new HashSet<>()).add(doc.id());
+            byCategory.computeIfAbsent(doc.categoryId(), k -> new HashSet<>()).add(doc.id());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void removeCategory(long categoryId) {
+        lock.writeLock().lock();
+        try {
+            Set<Long> ids = byCategory.get(categoryId);
+            if (ids == null) return;
+            for (Long id : List.copyOf(ids)) {
+                removeUnlocked(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * @param nameLike   case-insensitive name substring; {@code null} when not filtered
+     * @param brandName  exact brand; {@code null} when not filtered
+     * @param categoryId exact category id; {@code null} when not filtered
+     * @param sort       result ordering
+     * @param after      keyset position to continue from; {@code null} for the first page
+     * @param limit      maximum number of ids to return
+     * @return ids of matching products in {@code sort} order
+     */
+    public List<Long> search(
+        @Nullable String nameLike,
+        @Nullable String brandName,
+        @Nullable Long categoryId,
+        ProductSort sort,
+        @Nullable ProductCursor after,
+        int limit
+    ) {
+        String lowerName = nameLike == null ? null : nameLike.toLowerCase(Locale.ROOT);
+        
+        lock.readLock().lock();
+        try {
+            Iterable<Long> candidates = candidates(lowerName, brandName, categoryId);
+            
+            List<Doc> matches = new ArrayList<>();
+            for (Long id : candidates) {
+                Doc doc = docs.get(id);
+                if (matches(doc, lowerName, brandName, categoryId) && isAfter(doc, after)) {
+                    matches.add(doc);
+                }
+            }
+            
+            matches.sort(sort == ProductSort.PRICE ? BY_PRICE : BY_ID);
+            return matches.stream()
+                          .limit(limit)
+                          .map(Doc::id)
+                          .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Counts all documents matching the filters per {@link FacetKey} in one pass over the candidates.
+     */
+    public Map<FacetKey, Long> countFacets(
+        @Nullable String nameLike,
+        @Nullable String brandName,
+        @Nullable Long categoryId
+    ) {
+        String lowerName = nameLike == null ? null : nameLike.toLowerCase(Locale.ROOT);
+        
+        lock.readLock().lock();
+        try {
+            Map<FacetKey, Long> counts = new HashMap<>();
+            for (Long id : candidates(lowerName, brandName, categoryId)) {
+                Doc doc = docs.get(id);
+                if (matches(doc, lowerName, brandName, categoryId)) {
+                    counts.merge(new FacetKey(doc.brandName(), doc.categoryId(), PriceBucket.of(doc.price())), 1L, Long::sum);
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Picks the smallest posting list among the active filters; the rest are verified per document
+    private Iterable<Long> candidates(@Nullable String lowerName, @Nullable String brandName, @Nullable Long categoryId) {
+        List<Set<Long>> lists = new ArrayList<>();
+        if (lowerName != null && lowerName.length() >= GRAM) {
+            for (String gram : trigrams(lowerName)) {
+                Set<Long> posting = nameTrigrams.get(gram);
+                if (posting == null) return Set.of();
+                lists.add(posting);
+            }
+        }
+        if (brandName != null) lists.add(byBrand.getOrDefault(brandName, Set.of()));
+        if (categoryId != null) lists.add(byCategory.getOrDefault(categoryId, Set.of()));
+        
+        // Names shorter than a trigram with no other filter: scan the in-memory documents
+        if (lists.isEmpty()) return docs.keySet();
+        
+        return lists.stream()
+                    .min(Comparator.comparingInt(Set::size))
+                    .orElseThrow();
+    }
+    
+    private static boolean matches(Doc doc, @Nullable String lowerName, @Nullable String brandName, @Nullable Long categoryId) {
+        return (lowerName == null || doc.lowerName().contains(lowerName))
+            && (brandName == null || doc.brandName().equals(brandName))
+            && (categoryId == null || doc.categoryId() == categoryId);
+    }
+    
+    private static boolean isAfter(Doc doc, @Nullable ProductCursor after) {
+        if (after == null) return true;
+        return switch (after.sort()) {
+            case ID, RELEVANCE -> doc.id() > after.id();
+            case PRICE -> {
+                int byPrice = doc.price().compareTo(after.price());
+                yield byPrice > 0 || (byPrice == 0 && doc.id() > after.id());
+            }
+        };
+    }
+    
+    private void removeUnlocked(long productId) {
+        Doc old = docs.remove(productId);
+        if (old == null) return;
+        for (String gram : trigrams(old.lowerName())) {
+            removePosting(nameTrigrams, gram, productId);
+        }
+        removePosting(byBrand, old.brandName(), productId);
+        removePosting(byCategory, old.categoryId(), productId);
+    }
+    
+    private static <K> void removePosting(Map<K, Set<Long>> index, K key, long productId) {
+        Set<Long> posting = index.get(key);
+        if (posting == null) return;
+        posting.remove(productId);
+        if (posting.isEmpty()) index.remove(key);
+    }
+    
+    static Set<String> trigrams(String s) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= s.length(); i++) {
+            grams.add(s.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
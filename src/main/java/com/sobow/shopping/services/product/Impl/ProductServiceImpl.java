@@ -1,27 +1,41 @@
 package com.sobow.shopping.services.product.Impl;
 
+import com.sobow.shopping.controllers.product.dto.ProductBatchResponse;
 import com.sobow.shopping.controllers.product.dto.ProductCreateRequest;
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse;
+import com.sobow.shopping.controllers.product.dto.ProductPageResponse;
 import com.sobow.shopping.controllers.product.dto.ProductResponse;
 import com.sobow.shopping.controllers.product.dto.ProductUpdateRequest;
 import com.sobow.shopping.domain.cart.CartItemRepository;
 import com.sobow.shopping.domain.category.Category;
-import com.sobow.shopping.domain.image.ImageRepository;
-import com.sobow.shopping.domain.image.ProductIdImageId;
 import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.domain.product.ProductDeletedEvent;
+import com.sobow.shopping.domain.product.ProductListingRow;
 import com.sobow.shopping.domain.product.ProductRepository;
 import com.sobow.shopping.exceptions.ProductAlreadyExistsException;
 import com.sobow.shopping.mappers.product.ProductCreateRequestMapper;
 import com.sobow.shopping.mappers.product.ProductResponseMapper;
 import com.sobow.shopping.services.category.CategoryService;
+import com.sobow.shopping.services.product.ProductCursor;
+import com.sobow.shopping.services.product.ProductResponseCacheStats;
+import com.sobow.shopping.services.product.ProductSearchCriteria;
+import com.sobow.shopping.services.product.ProductSearcher;
 import com.sobow.shopping.services.product.ProductService;
+import com.sobow.shopping.services.product.ProductSort;
 import jakarta.annotation.Nullable;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.LockModeType;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.jpa.domain.Specification;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,54 +44,78 @@ import org.springframework.transaction.annotation.Transactional;
 @RequiredArgsConstructor
 public class ProductServiceImpl implements ProductService {
     
+    private static final Map<String, Object> LOCK_TIMEOUT = Map.of(SpecHints.HINT_SPEC_LOCK_TIMEOUT, 5000); // in ms
+    
     private final ProductRepository productRepository;
     private final CartItemRepository cartItemRepository;
-    private final ImageRepository imageRepository;
     private final CategoryService categoryService;
     private final ProductResponseMapper productResponseMapper;
+    private final ProductSearcher productSearcher;
     
     private final ProductCreateRequestMapper productCreateRequestMapper;
     
+    private final ProductResponseCache productResponseCache;
+    private final HotStock hotStock;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    
+    @Transactional(readOnly = true)
     @Override
-    public List<ProductResponse> mapProductsToResponsesWithImageIds(List<Product> products) {
-        if (products == null || products.isEmpty()) {
-            return List.of();
-        }
+    public ProductPageResponse findPage(ProductSort sort, @Nullable String cursor, int size) {
+        int pageSize = clampPageSize(size);
+        ProductCursor after = ProductCursor.decode(cursor, sort);
         
-        List<Long> productIds = products.stream().map(Product::getId).toList();
-        Map<Long, List<Long>> imageIdsByProduct = groupImageIdsByProductId(productIds);
-        List<ProductResponse> responseList =
-            products.stream()
-                    .map(p -> productResponseMapper.mapToDto(
-                        p, imageIdsByProduct.getOrDefault(p.getId(), List.of()))
-                    )
-                    .toList();
-        
-        return responseList;
+        // Fetch one extra row to learn whether a next page exists without issuing a COUNT query
+        Pageable limit = PageRequest.ofSize(pageSize + 1);
+        List<ProductListingRow> rows = switch (sort) {
+            case ID, RELEVANCE -> productRepository.findListingPageOrderedById(after == null ? 0L : after.id(), limit);
+            case PRICE -> after == null
+                          ? productRepository.findListingPageOrderedByPrice(limit)
+                          : productRepository.findListingPageOrderedByPriceAfter(after.price(), after.id(), limit);
+        };
+        boolean hasNext = rows.size() > pageSize;
+        return toPage(hasNext ? rows.subList(0, pageSize) : rows, hasNext, sort);
     }
     
-    private Map<Long, List<Long>> groupImageIdsByProductId(List<Long> productIds) {
-        if (productIds == null || productIds.isEmpty()) {
-            return Map.of();
-        }
-        
-        return imageRepository.findImageIdsByProductIds(productIds)
-                              .stream()
-                              .collect(Collectors.groupingBy(
-                                  ProductIdImageId::getProductId,
-                                  Collectors.mapping(ProductIdImageId::getImageId, Collectors.toList()))
-                              );
+    @Override
+    public Product findById(long id) {
+        return productRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(
+            "Product with id " + id + " not found"));
     }
     
     @Override
-    public List<Product> findAll() {
-        return productRepository.findAll();
+    public ProductResponse findResponseById(long id) {
+        return productResponseCache.getOrLoad(id, productId -> {
+            ProductResponse response = loadResponses(List.of(productId)).get(productId);
+            if (response == null) throw new EntityNotFoundException("Product with id " + productId + " not found");
+            return response;
+        });
     }
     
     @Override
-    public Product findById(long id) {
-        return productRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(
-            "Product with id " + id + " not found"));
+    public ProductBatchResponse findResponsesByIds(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        
+        // Cache hits first; all misses are loaded with a single projection query
+        Map<Long, ProductResponse> found = productResponseCache.getAllOrLoad(distinctIds, this::loadResponses);
+        
+        List<ProductResponse> items = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            ProductResponse response = found.get(id);
+            if (response != null) {
+                items.add(response);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new ProductBatchResponse(items, missingIds);
+    }
+    
+    private Map<Long, ProductResponse> loadResponses(List<Long> ids) {
+        return productRepository.findListingRowsByIds(ids)
+                                .stream()
+                                .collect(Collectors.toMap(ProductListingRow::id, productResponseMapper::mapToDto));
     }
     
     @Transactional
@@ -87,12 +125,18 @@ public class ProductServiceImpl implements ProductService {
         Product product = productCreateRequestMapper.mapToEntity(createRequest);
         Category category = categoryService.findById(createRequest.categoryId());
         category.addProductAndLink(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(product));
         return product;
     }
     
     @Transactional
     @Override
     public Product partialUpdateById(long id, ProductUpdateRequest updateRequest) {
+        // While hot, the in-memory counter owns the stock; an edit would be overwritten by the next flush
+        if (updateRequest.availableQuantity() != null) {
+            hotStock.assertNotHot(id);
+        }
+        
         Product existingProduct = findById(id);
         existingProduct.updateFrom(updateRequest);
         
@@ -106,6 +150,7 @@ public class ProductServiceImpl implements ProductService {
             existingProduct.linkTo(category);
         }
         
+        eventPublisher.publishEvent(new ProductChangedEvent(existingProduct));
         return existingProduct;
     }
     
@@ -117,50 +162,66 @@ public class ProductServiceImpl implements ProductService {
                                .sorted()
                                .toList();
         
-        return productRepository.findAllForUpdate(sorted);
+        List<Product> locked = new ArrayList<>(sorted.size());
+        for (long id : sorted) {
+            // The caller usually holds the instance loaded with its cart: a locking query would fail its version
+            // check once another checkout committed, so re-read that instance under the lock instead
+            Product product = entityManager.find(Product.class, id);
+            if (product == null) continue;
+            entityManager.refresh(product, LockModeType.PESSIMISTIC_WRITE, LOCK_TIMEOUT);
+            locked.add(product);
+        }
+        return locked;
     }
     
     @Override
     public void deleteById(long id) {
         cartItemRepository.deleteAllByProduct_Id(id);
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductDeletedEvent(id));
     }
     
+    @Transactional(readOnly = true)
     @Override
-    public List<Product> search(
+    public ProductPageResponse searchPage(
         String nameLike,
         String brandName,
-        String categoryName
+        String categoryName,
+        ProductSort sort,
+        @Nullable String cursor,
+        int size
     ) {
-        // normalize blanks to nulls
-        nameLike = trimToNull(nameLike);
-        brandName = trimToNull(brandName);
-        categoryName = trimToNull(categoryName);
+        int pageSize = clampPageSize(size);
+        ProductCursor after = ProductCursor.decode(cursor, sort);
         
-        var spec = Specification.allOf(
-            Optional.ofNullable(nameLike).map(ProductServiceImpl::nameLike).orElse(null),
-            Optional.ofNullable(brandName).map(ProductServiceImpl::brandNameEquals).orElse(null),
-            Optional.ofNullable(categoryName).map(ProductServiceImpl::categoryNameEquals).orElse(null)
+        // Fetch one extra id to learn whether a next page exists without issuing a COUNT query
+        List<Long> ids = productSearcher.search(
+            new ProductSearchCriteria(nameLike, brandName, categoryName), sort, after, pageSize + 1
         );
-        return productRepository.findAll(spec);
+        boolean hasNext = ids.size() > pageSize;
+        List<ProductListingRow> rows = productRepository.findListingRowsInOrder(hasNext ? ids.subList(0, pageSize) : ids);
+        return toPage(rows, hasNext, sort);
     }
     
-    private static String trimToNull(String s) {
-        return (s == null || s.trim().isEmpty()) ? null : s.trim();
+    @Transactional(readOnly = true)
+    @Override
+    public ProductFacetsResponse searchFacets(String nameLike, String brandName, String categoryName) {
+        return productSearcher.facets(new ProductSearchCriteria(nameLike, brandName, categoryName));
     }
     
-    private static Specification<Product> nameLike(String name) {
-        return (root, query, criteriaBuilder) -> criteriaBuilder.like(
-            criteriaBuilder.lower(root.get("name")), "%" + name.toLowerCase() + "%"
-        );
+    @Override
+    public ProductResponseCacheStats responseCacheStats() {
+        return productResponseCache.stats();
     }
     
-    private static Specification<Product> brandNameEquals(String brandName) {
-        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("brandName"), brandName);
+    private ProductPageResponse toPage(List<ProductListingRow> rows, boolean hasNext, ProductSort sort) {
+        List<ProductResponse> items = rows.stream().map(productResponseMapper::mapToDto).toList();
+        String nextCursor = hasNext && !items.isEmpty() ? ProductCursor.after(sort, items.getLast()).encode() : null;
+        return new ProductPageResponse(items, nextCursor);
     }
     
-    private static Specification<Product> categoryNameEquals(String categoryName) {
-        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.join("category").get("name"), categoryName);
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
     }
     
     private void assertProductUnique(String name, String brand, @Nullable Long existingProductId) {
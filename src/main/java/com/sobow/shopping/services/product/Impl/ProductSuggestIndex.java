@@ -0,0 +1,191 @@
+package com.sobow.shopping.services.product.Impl;
+
+import com.sobow.shopping.controllers.product.dto.ProductSuggestionsResponse;
+import com.sobow.shopping.domain.category.CategoryDeletedEvent;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.domain.product.ProductDeletedEvent;
+import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.services.product.ProductSuggestService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory prefix index of product names and brands for autocomplete.
+ * <p>
+ * Terms are kept in sorted maps keyed by their lower-cased form, so a prefix lookup is a range scan over the first
+ * {@code limit} keys that start with the prefix. Every term is reference-counted by the products using it and
+ * disappears with its last product. Built once the application is ready and kept current by product and category
+ * events; suggestions never query the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSuggestIndex implements ProductSuggestService {
+    
+    private static final int BUILD_BATCH_SIZE = 500;
+    
+    private record Term(String display, int refCount) {
+    
+    }
+    
+    private record Contribution(String name, String brand, long categoryId) {
+        
+        static Contribution of(Product product) {
+            return new Contribution(product.getName(), product.getBrandName(), product.getCategory().getId());
+        }
+    }
+    
+    private final ProductRepository productRepository;
+    
+    private final NavigableMap<String, Term> names = new TreeMap<>();
+    private final NavigableMap<String, Term> brands = new TreeMap<>();
+    private final Map<Long, Contribution> byProduct = new HashMap<>();
+    
+    // Products changed by events while the index is being built; the build must not overwrite them with stale rows
+    private final Set<Long> changedDuringBuild = new HashSet<>();
+    
+    // Categories deleted while the index is being built; rows read before the delete committed must not bring their
+    // products back
+    private final Set<Long> categoriesDeletedDuringBuild = new HashSet<>();
+    private boolean ready;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    @Override
+    public ProductSuggestionsResponse suggest(String prefix, int limit) {
+        String key = prefix.strip().toLowerCase(Locale.ROOT);
+        int cappedLimit = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        
+        lock.readLock().lock();
+        try {
+            return new ProductSuggestionsResponse(
+                startingWith(names, key, cappedLimit),
+                startingWith(brands, key, cappedLimit)
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long afterId = 0L;
+        List<Product> batch;
+        do {
+            batch = productRepository.findPageOrderedById(afterId, PageRequest.ofSize(BUILD_BATCH_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (Product product : batch) {
+                    if (!changedDuringBuild.contains(product.getId())
+                        && !categoriesDeletedDuringBuild.contains(product.getCategory().getId())) {
+                        put(product.getId(), Contribution.of(product));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!batch.isEmpty()) afterId = batch.getLast().getId();
+        } while (batch.size() == BUILD_BATCH_SIZE);
+        
+        lock.writeLock().lock();
+        try {
+            ready = true;
+            changedDuringBuild.clear();
+            categoriesDeletedDuringBuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Product product = event.product();
+        lock.writeLock().lock();
+        try {
+            if (!ready) changedDuringBuild.add(product.getId());
+            put(product.getId(), Contribution.of(product));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) changedDuringBuild.add(event.productId());
+            remove(event.productId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryDeleted(CategoryDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) categoriesDeletedDuringBuild.add(event.categoryId());
+            // Deleting a category cascades to its products
+            byProduct.entrySet()
+                     .stream()
+                     .filter(e -> e.getValue().categoryId() == event.categoryId())
+                     .map(Map.Entry::getKey)
+                     .toList()
+                     .forEach(this::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // ---- Unlocked helpers: callers hold the write lock ----
+    
+    private void put(long productId, Contribution contribution) {
+        remove(productId);
+        byProduct.put(productId, contribution);
+        increment(names, contribution.name());
+        increment(brands, contribution.brand());
+    }
+    
+    private void remove(long productId) {
+        Contribution old = byProduct.remove(productId);
+        if (old == null) return;
+        decrement(names, old.name());
+        decrement(brands, old.brand());
+    }
+    
+    private static void increment(NavigableMap<String, Term> terms, String display) {
+        terms.merge(display.toLowerCase(Locale.ROOT), new Term(display, 1),
+                    (existing, added) -> new Term(existing.display(), existing.refCount() + 1));
+    }
+    
+    private static void decrement(NavigableMap<String, Term> terms, String display) {
+        terms.computeIfPresent(display.toLowerCase(Locale.ROOT),
+                               (key, existing) -> existing.refCount() == 1
+                                                  ? null
+                                                  : new Term(existing.display(), existing.refCount() - 1));
+    }
+    
+    private static List<String> startingWith(NavigableMap<String, Term> terms, String prefix, int limit) {
+        List<String> result = new ArrayList<>(limit);
+        for (Map.Entry<String, Term> entry : terms.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix) || result.size() == limit) break;
+            result.add(entry.getValue().display());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,143 @@
+package com.sobow.shopping.services.product.Impl;
+
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.services.product.PriceBucket;
+import com.sobow.shopping.services.product.ProductCursor;
+import com.sobow.shopping.services.product.ProductSearchCriteria;
+import com.sobow.shopping.services.product.ProductSearcher;
+import com.sobow.shopping.services.product.ProductSort;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Searches products with a dynamically composed JPA {@link Specification}. Only provided filters are applied.
+ * <p>
+ * Always available: it is the backend for {@code product.search.mode=specification} and the fallback of the other
+ * modes.
+ */
+@Component
+@RequiredArgsConstructor
+public class SpecificationProductSearcher implements ProductSearcher {
+    
+    private final EntityManager entityManager;
+    
+    @Override
+    public List<Long> search(
+        ProductSearchCriteria criteria,
+        ProductSort sort,
+        @Nullable ProductCursor after,
+        int limit
+    ) {
+        var spec = Specification.allOf(
+            toSpecification(criteria),
+            Optional.ofNullable(after).map(SpecificationProductSearcher::seekAfter).orElse(null)
+        );
+        
+        // Select ids only; the caller loads the page through the listing projection
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        Predicate filter = spec.toPredicate(root, query, criteriaBuilder);
+        
+        query.select(root.get("id"))
+             .where(filter == null ? criteriaBuilder.conjunction() : filter)
+             .orderBy(QueryUtils.toOrders(sort.toSort(), root, criteriaBuilder));
+        return entityManager.createQuery(query)
+                            .setMaxResults(limit)
+                            .getResultList();
+    }
+    
+    /**
+     * One {@code GROUP BY brand, category, price bucket} query over the same specification; the grouped rows are
+     * rolled up into the three facets in memory.
+     */
+    @Override
+    public ProductFacetsResponse facets(ProductSearchCriteria criteria) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        
+        Path<String> brand = root.get("brandName");
+        Path<String> category = root.join("category").get("name");
+        Expression<Integer> bucket = priceBucketOrdinal(criteriaBuilder, root.get("price"));
+        Predicate filter = toSpecification(criteria).toPredicate(root, query, criteriaBuilder);
+        
+        query.multiselect(brand, category, bucket, criteriaBuilder.count(root))
+             .where(filter == null ? criteriaBuilder.conjunction() : filter)
+             .groupBy(brand, category, bucket);
+        
+        ProductFacetCounter counter = new ProductFacetCounter();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            counter.add(
+                row.get(0, String.class),
+                row.get(1, String.class),
+                PriceBucket.values()[row.get(2, Integer.class)],
+                row.get(3, Long.class)
+            );
+        }
+        return counter.toResponse();
+    }
+    
+    public static Specification<Product> toSpecification(ProductSearchCriteria criteria) {
+        return Specification.allOf(
+            Optional.ofNullable(criteria.nameLike()).map(SpecificationProductSearcher::nameLike).orElse(null),
+            Optional.ofNullable(criteria.brandName()).map(SpecificationProductSearcher::brandNameEquals).orElse(null),
+            Optional.ofNullable(criteria.categoryName()).map(SpecificationProductSearcher::categoryNameEquals).orElse(null)
+        );
+    }
+    
+    // Literals (not bind parameters), so the CASE in SELECT and GROUP BY renders to the identical SQL expression
+    private static Expression<Integer> priceBucketOrdinal(CriteriaBuilder criteriaBuilder, Path<BigDecimal> price) {
+        CriteriaBuilder.Case<Integer> bucket = criteriaBuilder.selectCase();
+        PriceBucket[] buckets = PriceBucket.values();
+        for (int i = 0; i < buckets.length - 1; i++) {
+            bucket = bucket.when(
+                criteriaBuilder.lessThan(price, criteriaBuilder.literal(buckets[i].upperBound())),
+                criteriaBuilder.literal(i)
+            );
+        }
+        return bucket.otherwise(criteriaBuilder.literal(buckets.length - 1));
+    }
+    
+    private static Specification<Product> nameLike(String name) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.like(
+            criteriaBuilder.lower(root.get("name")), "%" + name.toLowerCase() + "%"
+        );
+    }
+    
+    private static Specification<Product> brandNameEquals(String brandName) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("brandName"), brandName);
+    }
+    
+    private static Specification<Product> categoryNameEquals(String categoryName) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.join("category").get("name"), categoryName);
+    }
+    
+    private static Specification<Product> seekAfter(ProductCursor cursor) {
+        return (root, query, criteriaBuilder) -> switch (cursor.sort()) {
+            case ID, RELEVANCE -> criteriaBuilder.greaterThan(root.<Long>get("id"), cursor.id());
+            case PRICE -> criteriaBuilder.or(
+                criteriaBuilder.greaterThan(root.<BigDecimal>get("price"), cursor.price()),
+                criteriaBuilder.and(
+                    criteriaBuilder.equal(root.get("price"), cursor.price()),
+                    criteriaBuilder.greaterThan(root.<Long>get("id"), cursor.id())
+                )
+            );
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package com.sobow.shopping.services.product.Impl;
+
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.domain.product.StockLedgerEntry;
+import com.sobow.shopping.domain.product.StockLedgerRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write-behind for hot stock: folds {@code stock_ledger} rows into {@code products.available_qty} every
+ * {@code product.hot-stock.flush-interval}. A flush sums the pending rows per product, applies one {@code UPDATE} per
+ * product (in id order) and deletes exactly the rows it applied, all in one transaction, so every row is applied once.
+ * Product change events are published from here rather than from the checkout, so caches never reload a row that
+ * does not show the sale yet.
+ * <p>
+ * It only touches the database after a checkout committed ledger rows. The first run after startup always flushes, so
+ * rows left behind by a shutdown or crash are applied even when no checkout follows.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StockLedgerFlusher {
+    
+    private static final int BATCH_SIZE = 1000;
+    
+    private final StockLedgerRepository ledgerRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    private final AtomicBoolean requested = new AtomicBoolean(true);
+    
+    public void requestFlush() {
+        requested.set(true);
+    }
+    
+    @Scheduled(fixedDelayString = "${product.hot-stock.flush-interval:5ms}")
+    public void flushIfRequested() {
+        if (!requested.getAndSet(false)) return;
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Rows stay in the ledger; the next run retries them
+            requested.set(true);
+            log.warn("Stock ledger flush failed", e);
+        }
+    }
+    
+    /**
+     * Applies every pending ledger row. Synchronized: a flush must not apply rows another flush has read but not yet
+     * deleted.
+     */
+    public synchronized void flush() {
+        int found;
+        do {
+            found = transactionTemplate.execute(status -> flushBatch());
+        } while (found == BATCH_SIZE); // a full batch: more rows may be waiting
+    }
+    
+    private int flushBatch() {
+        List<StockLedgerEntry> entries = ledgerRepository.findBatch(PageRequest.ofSize(BATCH_SIZE));
+        if (entries.isEmpty()) return 0;
+        
+        // Product id order, like every other multi-product stock change
+        Map<Long, Integer> qtyByProduct = new TreeMap<>();
+        for (StockLedgerEntry entry : entries) {
+            qtyByProduct.merge(entry.getProductId(), entry.getQty(), Integer::sum);
+        }
+        qtyByProduct.forEach(productRepository::applyLedger);
+        ledgerRepository.deleteByIds(entries.stream().map(StockLedgerEntry::getId).toList());
+        
+        // Caches and indexes refresh after commit, from the row as flushed
+        productRepository.findAllById(qtyByProduct.keySet())
+                         .forEach(product -> eventPublisher.publishEvent(new ProductChangedEvent(product)));
+        return entries.size();
+    }
+}
@@ -0,0 +1,95 @@
+package com.sobow.shopping.services.product.Impl;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Stock of one product split over independent stripes, so concurrent buyers mostly compare-and-set different memory
+ * words instead of all retrying on one. A stripe is never taken below zero, so the stripes together can never hand
+ * out more units than they were seeded with.
+ * <p>
+ * A buyer starts at a random stripe and moves on while the stripe is short. A quantity no single stripe covers is
+ * gathered from several stripes and put back if the total falls short, so near the end of the stock a take can fail
+ * while another buyer briefly holds the last units; it never succeeds on units that are not there.
+ */
+public class StripedStockCounter {
+    
+    // 16 ints = 64 bytes between stripes, so two stripes never share a cache line
+    private static final int PADDING = 16;
+    
+    private final int stripes;
+    private final AtomicIntegerArray cells;
+    
+    public StripedStockCounter(int stock, int stripes) {
+        if (stock < 0) throw new IllegalArgumentException("Stock must not be negative: " + stock);
+        if (stripes < 1) throw new IllegalArgumentException("At least one stripe is required: " + stripes);
+        this.stripes = stripes;
+        this.cells = new AtomicIntegerArray(stripes * PADDING);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            cells.set(cell(stripe), stock / stripes + (stripe < stock % stripes ? 1 : 0));
+        }
+    }
+    
+    /**
+     * @return true when {@code qty} units were taken; false, with nothing taken, when the stock does not cover it
+     */
+    public boolean tryTake(int qty) {
+        if (qty < 1) throw new IllegalArgumentException("Quantity must be positive: " + qty);
+        int home = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            if (takeExactly(cell((home + i) % stripes), qty)) return true;
+        }
+        
+        // No single stripe covers it: gather across stripes, all or nothing
+        int[] gathered = new int[stripes];
+        int total = 0;
+        for (int i = 0; i < stripes && total < qty; i++) {
+            int stripe = (home + i) % stripes;
+            gathered[stripe] = takeUpTo(cell(stripe), qty - total);
+            total += gathered[stripe];
+        }
+        if (total == qty) return true;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (gathered[stripe] > 0) cells.addAndGet(cell(stripe), gathered[stripe]);
+        }
+        return false;
+    }
+    
+    public void giveBack(int qty) {
+        if (qty < 1) throw new IllegalArgumentException("Quantity must be positive: " + qty);
+        cells.addAndGet(cell(ThreadLocalRandom.current().nextInt(stripes)), qty);
+    }
+    
+    // Exact only while no take is in flight; a snapshot for status and error messages
+    public int remaining() {
+        int sum = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            sum += cells.get(cell(stripe));
+        }
+        return sum;
+    }
+    
+    private boolean takeExactly(int cell, int qty) {
+        int current;
+        do {
+            current = cells.get(cell);
+            if (current < qty) return false;
+        } while (!cells.compareAndSet(cell, current, current - qty));
+        return true;
+    }
+    
+    private int takeUpTo(int cell, int max) {
+        int current;
+        int taken;
+        do {
+            current = cells.get(cell);
+            taken = Math.min(current, max);
+            if (taken == 0) return 0;
+        } while (!cells.compareAndSet(cell, current, current - taken));
+        return taken;
+    }
+    
+    private static int cell(int stripe) {
+        return stripe * PADDING;
+    }
+}
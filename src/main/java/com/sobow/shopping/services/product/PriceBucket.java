@@ -0,0 +1,41 @@
+package com.sobow.shopping.services.product;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed price ranges used for the price facet. Lower bounds are inclusive, upper bounds exclusive.
+ */
+public enum PriceBucket {
+    UNDER_50("0-50", new BigDecimal("50")),
+    FROM_50_TO_100("50-100", new BigDecimal("100")),
+    FROM_100_TO_250("100-250", new BigDecimal("250")),
+    FROM_250_TO_500("250-500", new BigDecimal("500")),
+    FROM_500_TO_1000("500-1000", new BigDecimal("1000")),
+    FROM_1000("1000+", null);
+    
+    private final String label;
+    private final BigDecimal upperBound;
+    
+    PriceBucket(String label, BigDecimal upperBound) {
+        this.label = label;
+        this.upperBound = upperBound;
+    }
+    
+    public String label() {
+        return label;
+    }
+    
+    /**
+     * @return exclusive upper bound; {@code null} for the last, open-ended bucket
+     */
+    public BigDecimal upperBound() {
+        return upperBound;
+    }
+    
+    public static PriceBucket of(BigDecimal price) {
+        for (PriceBucket bucket : values()) {
+            if (bucket.upperBound == null || price.compareTo(bucket.upperBound) < 0) return bucket;
+        }
+        throw new IllegalStateException("Unreachable: last bucket is open-ended");
+    }
+}
@@ -0,0 +1,69 @@
+package com.sobow.shopping.services.product;
+
+import com.sobow.shopping.controllers.product.dto.ProductResponse;
+import com.sobow.shopping.exceptions.InvalidCursorException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last row returned in a page of products.
+ * <p>
+ * Clients receive it as an opaque, URL-safe token and send it back unchanged to fetch the next page.
+ * The token carries the sort it was issued for, so it cannot be replayed against a different ordering.
+ *
+ * @param sort  ordering the cursor belongs to
+ * @param price price of the last row; {@code null} unless the sort is {@link ProductSort#PRICE}
+ * @param id    id of the last row
+ */
+public record ProductCursor(
+    ProductSort sort,
+    BigDecimal price,
+    long id
+) {
+    
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "|";
+    
+    public static ProductCursor after(ProductSort sort, ProductResponse last) {
+        return new ProductCursor(sort, sort == ProductSort.PRICE ? last.price() : null, last.id());
+    }
+    
+    public String encode() {
+        String raw = sort == ProductSort.PRICE
+                     ? String.join(SEPARATOR, VERSION, sort.name(), price.toPlainString(), Long.toString(id))
+                     : String.join(SEPARATOR, VERSION, sort.name(), Long.toString(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decodes a token previously produced by {@link #encode()}.
+     *
+     * @param token        token sent by the client; may be {@code null} or blank for the first page
+     * @param expectedSort ordering requested together with the token
+     * @return decoded cursor, or {@code null} when {@code token} is {@code null} or blank
+     * @throws InvalidCursorException when the token is malformed or was issued for another ordering
+     */
+    public static ProductCursor decode(String token, ProductSort expectedSort) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.strip()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (!VERSION.equals(parts[0]) || ProductSort.valueOf(parts[1]) != expectedSort) {
+                throw new InvalidCursorException(token);
+            }
+            return switch (expectedSort) {
+                case ID, RELEVANCE -> {
+                    if (parts.length != 3) throw new InvalidCursorException(token);
+                    yield new ProductCursor(expectedSort, null, Long.parseLong(parts[2]));
+                }
+                case PRICE -> {
+                    if (parts.length != 4) throw new InvalidCursorException(token);
+                    yield new ProductCursor(expectedSort, new BigDecimal(parts[2]), Long.parseLong(parts[3]));
+                }
+            };
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new InvalidCursorException(token, e);
+        }
+    }
+}
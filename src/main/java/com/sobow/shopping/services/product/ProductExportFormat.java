@@ -0,0 +1,25 @@
+package com.sobow.shopping.services.product;
+
+/**
+ * Output formats of the catalog export.
+ */
+public enum ProductExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+    
+    private final String mediaType;
+    private final String fileExtension;
+    
+    ProductExportFormat(String mediaType, String fileExtension) {
+        this.mediaType = mediaType;
+        this.fileExtension = fileExtension;
+    }
+    
+    public String mediaType() {
+        return mediaType;
+    }
+    
+    public String fileExtension() {
+        return fileExtension;
+    }
+}
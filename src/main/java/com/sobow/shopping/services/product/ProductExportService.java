@@ -0,0 +1,12 @@
+package com.sobow.shopping.services.product;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ProductExportService {
+    
+    /**
+     * Writes the whole catalog to {@code out}, one product per line/record, ordered by id.
+     */
+    void export(ProductExportFormat format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,8 @@
+package com.sobow.shopping.services.product;
+
+/**
+ * Counters of the in-process product response cache since startup.
+ */
+public record ProductResponseCacheStats(long hits, long misses, long evictions, int size, int maxEntries) {
+
+}
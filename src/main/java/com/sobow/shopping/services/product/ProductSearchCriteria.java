@@ -0,0 +1,29 @@
+package com.sobow.shopping.services.product;
+
+/**
+ * Optional product search filters. Blank values are normalized to {@code null}, meaning "not filtered".
+ *
+ * @param nameLike     case-insensitive substring of the product name
+ * @param brandName    exact brand name
+ * @param categoryName exact category name
+ */
+public record ProductSearchCriteria(
+    String nameLike,
+    String brandName,
+    String categoryName
+) {
+    
+    public ProductSearchCriteria {
+        nameLike = trimToNull(nameLike);
+        brandName = trimToNull(brandName);
+        categoryName = trimToNull(categoryName);
+    }
+    
+    public boolean isEmpty() {
+        return nameLike == null && brandName == null && categoryName == null;
+    }
+    
+    private static String trimToNull(String s) {
+        return (s == null || s.trim().isEmpty()) ? null : s.trim();
+    }
+}
@@ -0,0 +1,26 @@
+package com.sobow.shopping.services.product;
+
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse;
+import java.util.List;
+
+/**
+ * Search backend behind {@link ProductService#searchPage}. The active implementation is selected with the
+ * {@code product.search.mode} property.
+ */
+public interface ProductSearcher {
+    
+    /**
+     * @param criteria filters to apply
+     * @param sort     result ordering
+     * @param after    keyset position to continue from; {@code null} for the first page
+     * @param limit    maximum number of products to return
+     * @return ids of matching products in {@code sort} order, strictly after {@code after}; the caller loads the
+     * rows it needs with a listing projection
+     */
+    List<Long> search(ProductSearchCriteria criteria, ProductSort sort, ProductCursor after, int limit);
+    
+    /**
+     * Counts all products matching {@code criteria} per brand, category and {@link PriceBucket} in a single pass.
+     */
+    ProductFacetsResponse facets(ProductSearchCriteria criteria);
+}
@@ -1,6 +1,9 @@
 package com.sobow.shopping.services.product;
 
+import com.sobow.shopping.controllers.product.dto.ProductBatchResponse;
 import com.sobow.shopping.controllers.product.dto.ProductCreateRequest;
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse;
+import com.sobow.shopping.controllers.product.dto.ProductPageResponse;
 import com.sobow.shopping.controllers.product.dto.ProductResponse;
 import com.sobow.shopping.controllers.product.dto.ProductUpdateRequest;
 import com.sobow.shopping.domain.product.Product;
@@ -8,11 +11,16 @@ import java.util.List;
 
 public interface ProductService {
     
-    List<ProductResponse> mapProductsToResponsesWithImageIds(List<Product> products);
+    int MAX_PAGE_SIZE = 100;
+    int MAX_BATCH_SIZE = 100;
     
     Product findById(long id);
     
-    List<Product> findAll();
+    ProductResponse findResponseById(long id);
+    
+    ProductBatchResponse findResponsesByIds(List<Long> ids);
+    
+    ProductPageResponse findPage(ProductSort sort, String cursor, int size);
     
     Product create(ProductCreateRequest createRequest);
     
@@ -20,9 +28,22 @@ public interface ProductService {
     
     Product partialUpdateById(long id, ProductUpdateRequest updateRequest);
     
+    /**
+     * Locks the products' rows ({@code SELECT ... FOR UPDATE}) in id order and returns them as locked: instances
+     * already loaded in this transaction are re-read. Unknown ids are skipped.
+     */
     List<Product> lockForOrder(List<Long> ids);
     
-    List<Product> search(String nameLike,
-                         String brandName,
-                         String categoryName);
+    ProductPageResponse searchPage(String nameLike,
+                                   String brandName,
+                                   String categoryName,
+                                   ProductSort sort,
+                                   String cursor,
+                                   int size);
+    
+    ProductFacetsResponse searchFacets(String nameLike,
+                                       String brandName,
+                                       String categoryName);
+    
+    ProductResponseCacheStats responseCacheStats();
 }
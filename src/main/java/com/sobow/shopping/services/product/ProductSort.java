@@ -0,0 +1,28 @@
+package com.sobow.shopping.services.product;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Orderings supported by keyset (cursor) pagination of products.
+ * <p>
+ * Every ordering ends with {@code id}, so the sort key is unique and a page boundary can always be
+ * expressed as a simple "greater than" seek predicate.
+ * <p>
+ * {@link #RELEVANCE} orders search results by full-text rank (best first) when the {@code fulltext} search backend
+ * is active. Backends without a relevance score, and the plain listing, treat it as {@link #ID}.
+ */
+public enum ProductSort {
+    ID(Sort.by("id")),
+    PRICE(Sort.by("price", "id")),
+    RELEVANCE(Sort.by("id"));
+    
+    private final Sort sort;
+    
+    ProductSort(Sort sort) {
+        this.sort = sort;
+    }
+    
+    public Sort toSort() {
+        return sort;
+    }
+}
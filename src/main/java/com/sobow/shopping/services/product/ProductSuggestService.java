@@ -0,0 +1,14 @@
+package com.sobow.shopping.services.product;
+
+import com.sobow.shopping.controllers.product.dto.ProductSuggestionsResponse;
+
+public interface ProductSuggestService {
+    
+    int MAX_SUGGESTIONS = 20;
+    
+    /**
+     * Names and brands starting with {@code prefix} (case-insensitive), at most {@code limit} of each, capped at
+     * {@link #MAX_SUGGESTIONS}.
+     */
+    ProductSuggestionsResponse suggest(String prefix, int limit);
+}
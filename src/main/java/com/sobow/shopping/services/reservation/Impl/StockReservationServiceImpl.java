@@ -0,0 +1,171 @@
+package com.sobow.shopping.services.reservation.Impl;
+
+import com.sobow.shopping.domain.cart.Cart;
+import com.sobow.shopping.domain.cart.CartItem;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.domain.reservation.StockReservation;
+import com.sobow.shopping.domain.reservation.StockReservationRepository;
+import com.sobow.shopping.exceptions.InsufficientStockException;
+import com.sobow.shopping.services.product.Impl.HotStock;
+import com.sobow.shopping.services.reservation.StockReservationService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Every change to a hold first claims (deletes) the existing row, so the cart, checkout and the sweeper can race on
+ * the same hold and exactly one of them gives its quantity back. Within a transaction reservation rows are touched
+ * before product rows, and both in id order, so these paths do not deadlock each other.
+ */
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+    
+    private final StockReservationRepository reservationRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HotStock hotStock;
+    private final Duration ttl;
+    
+    public StockReservationServiceImpl(
+        StockReservationRepository reservationRepository,
+        ProductRepository productRepository,
+        ApplicationEventPublisher eventPublisher,
+        HotStock hotStock,
+        @Value("${cart.reservation.ttl:15m}") Duration ttl
+    ) {
+        this.reservationRepository = reservationRepository;
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.hotStock = hotStock;
+        this.ttl = ttl;
+    }
+    
+    @Transactional
+    @Override
+    public void reserve(CartItem item) {
+        long cartId = item.getCart().getId();
+        long productId = item.getProduct().getId();
+        int qty = item.getRequestedQty();
+        
+        int held = claim(cartId, productId);
+        // Hot products are first come, first served at checkout; a hold would write their row on every cart change
+        if (qty == 0 || hotStock.isHot(productId)) {
+            if (held > 0) productRepository.releaseReserved(productId, held);
+            return;
+        }
+        if (productRepository.reserve(productId, held, qty) == 0) {
+            throw new InsufficientStockException(productId, availableToSell(productId) + held, qty);
+        }
+        reservationRepository.save(new StockReservation(cartId, productId, qty, Instant.now().plus(ttl)));
+    }
+    
+    @Transactional
+    @Override
+    public void release(CartItem item) {
+        long productId = item.getProduct().getId();
+        int held = claim(item.getCart().getId(), productId);
+        if (held > 0) productRepository.releaseReserved(productId, held);
+    }
+    
+    @Transactional
+    @Override
+    public void releaseAll(Cart cart) {
+        claimAll(cart.getId()).forEach(productRepository::releaseReserved);
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY) // the stock must be taken in the order's transaction
+    @Override
+    public void convert(Collection<CartItem> items) {
+        if (items.isEmpty()) return;
+        long cartId = items.iterator().next().getCart().getId();
+        Map<Long, Integer> held = claimAll(cartId);
+        
+        List<CartItem> byProductId = items.stream()
+                                          .sorted(Comparator.comparing(item -> item.getProduct().getId()))
+                                          .toList();
+        for (CartItem item : byProductId) {
+            long productId = item.getProduct().getId();
+            int itemHeld = held.getOrDefault(productId, 0);
+            int qty = item.getRequestedQty();
+            if (productRepository.convertReserved(productId, itemHeld, qty) == 0) {
+                throw new InsufficientStockException(productId, availableToSell(productId) + itemHeld, qty);
+            }
+            held.remove(productId);
+            eventPublisher.publishEvent(new ProductChangedEvent(item.getProduct()));
+        }
+        // Holds for products no longer in the cart
+        held.forEach(productRepository::releaseReserved);
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public Map<Long, Integer> claimAll(Cart cart) {
+        return claimAll(cart.getId());
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void releaseClaimed(Map<Long, Integer> held) {
+        new TreeMap<>(held).forEach(productRepository::releaseReserved);
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void restore(Cart cart, Map<Long, Integer> held) {
+        Instant expiresAt = Instant.now().plus(ttl);
+        held.forEach((productId, qty) -> reservationRepository.save(
+            new StockReservation(cart.getId(), productId, qty, expiresAt)
+        ));
+    }
+    
+    @Transactional
+    @Override
+    public int releaseExpired(int limit) {
+        Instant now = Instant.now();
+        List<StockReservation> expired = reservationRepository.findExpired(now, PageRequest.ofSize(limit));
+        
+        // One update per product, in id order
+        Map<Long, Integer> released = new TreeMap<>();
+        for (StockReservation reservation : expired) {
+            if (reservationRepository.claimExpired(reservation.getId(), now) == 1) {
+                released.merge(reservation.getProductId(), reservation.getQty(), Integer::sum);
+            }
+        }
+        released.forEach(productRepository::releaseReserved);
+        return expired.size();
+    }
+    
+    private int claim(long cartId, long productId) {
+        return reservationRepository.findByCartIdAndProductId(cartId, productId)
+                                    .filter(reservation -> reservationRepository.claim(reservation.getId()) == 1)
+                                    .map(StockReservation::getQty)
+                                    .orElse(0);
+    }
+    
+    // Claims every hold of the cart; returns the claimed quantity per product, in product id order
+    private Map<Long, Integer> claimAll(long cartId) {
+        Map<Long, Integer> held = new TreeMap<>();
+        for (StockReservation reservation : reservationRepository.findAllByCartIdOrderByIdAsc(cartId)) {
+            if (reservationRepository.claim(reservation.getId()) == 1) {
+                held.merge(reservation.getProductId(), reservation.getQty(), Integer::sum);
+            }
+        }
+        return held;
+    }
+    
+    // Only for the error message: a deleted product reads as no stock
+    private int availableToSell(long productId) {
+        return productRepository.findAvailableToSell(productId).orElse(0);
+    }
+}
@@ -0,0 +1,34 @@
+package com.sobow.shopping.services.reservation.Impl;
+
+import com.sobow.shopping.services.reservation.StockReservationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives expired holds back to stock every {@code cart.reservation.sweep-interval}. Each batch of
+ * {@code cart.reservation.sweep-batch-size} holds commits on its own, so a long backlog never keeps product rows locked
+ * for the whole sweep.
+ */
+@Component
+public class StockReservationSweeper {
+    
+    private final StockReservationService reservationService;
+    private final int batchSize;
+    
+    public StockReservationSweeper(
+        StockReservationService reservationService,
+        @Value("${cart.reservation.sweep-batch-size:500}") int batchSize
+    ) {
+        this.reservationService = reservationService;
+        this.batchSize = batchSize;
+    }
+    
+    @Scheduled(fixedDelayString = "${cart.reservation.sweep-interval:30s}")
+    public void sweep() {
+        int found;
+        do {
+            found = reservationService.releaseExpired(batchSize);
+        } while (found == batchSize); // a full batch: more expired holds may be waiting
+    }
+}
@@ -0,0 +1,56 @@
+package com.sobow.shopping.services.reservation;
+
+import com.sobow.shopping.domain.cart.Cart;
+import com.sobow.shopping.domain.cart.CartItem;
+import com.sobow.shopping.exceptions.InsufficientStockException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Holds stock for cart lines from the moment they are added until checkout, or until the hold expires after
+ * {@code cart.reservation.ttl}. Holds are counted in the product row, so the stock still available to sell is
+ * {@code available_qty - reserved_qty}, read without aggregating reservations.
+ */
+public interface StockReservationService {
+    
+    /**
+     * Holds the item's requested quantity for its cart, replacing any earlier hold and restarting the TTL.
+     *
+     * @throws InsufficientStockException when the stock not held by other carts does not cover it
+     */
+    void reserve(CartItem item);
+    
+    void release(CartItem item);
+    
+    void releaseAll(Cart cart);
+    
+    /**
+     * Checkout: takes each item's requested quantity from stock and drops the cart's holds, one atomic statement per
+     * product. A line whose hold expired gets the stock only if it is still free.
+     *
+     * @throws InsufficientStockException when a line cannot be covered; the caller's rollback restores the holds
+     */
+    void convert(Collection<CartItem> items);
+    
+    /**
+     * Group commit: claims every hold of the cart without releasing it, so the caller decides per order. The caller
+     * must pass the result to {@link #releaseClaimed} (order placed) or {@link #restore} (order dropped).
+     *
+     * @return the claimed quantity per product, in product id order
+     */
+    Map<Long, Integer> claimAll(Cart cart);
+    
+    void releaseClaimed(Map<Long, Integer> held);
+    
+    /**
+     * Puts claimed holds back for the cart with a fresh TTL. The quantities never left {@code reserved_qty}.
+     */
+    void restore(Cart cart, Map<Long, Integer> held);
+    
+    /**
+     * Releases up to {@code limit} expired holds, oldest first, in one transaction.
+     *
+     * @return the number of expired holds found; equal to {@code limit} when more may be waiting
+     */
+    int releaseExpired(int limit);
+}
@@ -1,11 +1,18 @@
 package com.sobow.shopping.controllers.category;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,8 +22,13 @@ import com.sobow.shopping.domain.category.Category;
 import com.sobow.shopping.exceptions.CategoryAlreadyExistsException;
 import com.sobow.shopping.mappers.category.CategoryResponseMapper;
 import com.sobow.shopping.services.category.CategoryService;
+import com.sobow.shopping.services.image.ImageArchiveService;
+import com.sobow.shopping.services.image.Impl.ImageArchive;
 import com.sobow.shopping.utils.TestFixtures;
 import jakarta.persistence.EntityNotFoundException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -27,6 +39,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(CategoryManagementController.class)
 @AutoConfigureMockMvc(addFilters = false)
@@ -41,8 +54,12 @@ public class CategoryManagementControllerTests {
     @MockitoBean
     private CategoryResponseMapper categoryResponseMapper;
     
+    @MockitoBean
+    private ImageArchiveService imageArchiveService;
+    
     private static final String CATEGORIES_PATH = "/api/admin/categories";
     private static final String CATEGORIES_BY_ID_PATH = "/api/admin/categories/{id}";
+    private static final String CATEGORY_IMAGES_ARCHIVE_PATH = CATEGORIES_BY_ID_PATH + "/images/archive";
     private static final ObjectMapper objectMapper = new ObjectMapper();
     
     private final TestFixtures fixtures = new TestFixtures();
@@ -211,4 +228,44 @@ public class CategoryManagementControllerTests {
                    .andExpect(status().isBadRequest());
         }
     }
+    
+    @Nested
+    @DisplayName("downloadImageArchive")
+    class downloadImageArchive {
+        
+        @Test
+        public void downloadImageArchive_should_StreamZipAttachment_when_CategoryExists() throws Exception {
+            // Given
+            ImageArchive archive = new ImageArchive("category-1-images.zip", true, List.of());
+            when(imageArchiveService.categoryArchive(fixtures.categoryId())).thenReturn(archive);
+            doAnswer(invocation -> {
+                OutputStream out = invocation.getArgument(1);
+                out.write("zip".getBytes(StandardCharsets.UTF_8));
+                return null;
+            }).when(imageArchiveService).write(eq(archive), any(OutputStream.class));
+            
+            // When
+            MvcResult started = mockMvc.perform(get(CATEGORY_IMAGES_ARCHIVE_PATH, fixtures.categoryId()))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            mockMvc.perform(asyncDispatch(started))
+                   .andExpect(status().isOk())
+                   .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/zip"))
+                   .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                                              "attachment; filename=\"category-1-images.zip\""))
+                   .andExpect(content().string("zip"));
+        }
+        
+        @Test
+        public void downloadImageArchive_should_Return404_when_CategoryDoesNotExist() throws Exception {
+            // Given
+            when(imageArchiveService.categoryArchive(fixtures.nonExistingId())).thenThrow(new EntityNotFoundException());
+            
+            // When & Then
+            mockMvc.perform(get(CATEGORY_IMAGES_ARCHIVE_PATH, fixtures.nonExistingId()))
+                   .andExpect(status().isNotFound());
+        }
+    }
 }
@@ -1,28 +1,49 @@
 package com.sobow.shopping.controllers.image;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.sobow.shopping.controllers.image.dto.ImageResponse;
+import com.sobow.shopping.domain.image.ImageMetadata;
+import com.sobow.shopping.mappers.image.ImageResponseMapper;
+import com.sobow.shopping.services.catalog.CatalogVersion;
 import com.sobow.shopping.services.image.ImageService;
 import com.sobow.shopping.services.image.Impl.FileContent;
+import com.sobow.shopping.services.image.Impl.ImageSize;
 import com.sobow.shopping.utils.TestFixtures;
 import jakarta.persistence.EntityNotFoundException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(ImageController.class)
+@Import(CatalogVersion.class)
 @AutoConfigureMockMvc(addFilters = false)
 public class ImageControllerTests {
     
@@ -32,10 +53,55 @@ public class ImageControllerTests {
     @MockitoBean
     private ImageService imageService;
     
+    @MockitoBean
+    private ImageResponseMapper imageResponseMapper;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    private final static String IMAGES_PATH = "/api/products/{productId}/images";
     private final static String IMAGE_PATH = "/api/products/{productId}/images/{imageId}";
     
     private final TestFixtures fixtures = new TestFixtures();
     
+    @Nested
+    @DisplayName("getImages")
+    class getImages {
+        
+        @Test
+        public void getImages_should_Return200WithMetadataDtos_when_ProductExists() throws Exception {
+            // Given
+            ImageMetadata metadata = new ImageMetadata(fixtures.imageId(), "image.png", "image/png", 9L, "a".repeat(64));
+            ImageResponse response = new ImageResponse(fixtures.imageId(), "image.png", "image/png",
+                                                       "/api/products/20/images/30");
+            
+            when(imageService.findMetadataByProductId(fixtures.productId())).thenReturn(List.of(metadata));
+            when(imageResponseMapper.mapToDto(fixtures.productId(), metadata)).thenReturn(response);
+            
+            // When & Then
+            mockMvc.perform(get(IMAGES_PATH, fixtures.productId()))
+                   .andExpect(status().isOk())
+                   .andExpect(header().string(HttpHeaders.ETAG, catalogVersion.current(CatalogVersion.Scope.IMAGES).etag()))
+                   .andExpect(jsonPath("$.data[0].id").value(fixtures.imageId()))
+                   .andExpect(jsonPath("$.data[0].fileName").value("image.png"))
+                   .andExpect(jsonPath("$.data[0].downloadUrl").value("/api/products/20/images/30"));
+            
+            // Assert: listing goes through the metadata projection, never the entities
+            verify(imageService, never()).findByProductIdAndId(anyLong(), anyLong());
+        }
+        
+        @Test
+        public void getImages_should_Return404_when_ProductDoesNotExist() throws Exception {
+            // Given
+            when(imageService.findMetadataByProductId(fixtures.nonExistingId()))
+                .thenThrow(new EntityNotFoundException("Product not found"));
+            
+            // When & Then
+            mockMvc.perform(get(IMAGES_PATH, fixtures.nonExistingId()))
+                   .andExpect(status().isNotFound());
+        }
+    }
+    
     @Nested
     @DisplayName("downloadImage")
     class downloadImage {
@@ -45,16 +111,110 @@ public class ImageControllerTests {
             // Given
             FileContent fileContent = fixtures.fileContent();
             
-            when(imageService.getImageContent(fixtures.productId(), fixtures.imageId())).thenReturn(fileContent);
+            when(imageService.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.ORIGINAL)).thenReturn(fileContent);
             
-            // When & Then
-            mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.imageId()))
+            // When
+            MvcResult started = mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.imageId()))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            mockMvc.perform(asyncDispatch(started))
                    .andExpect(status().isOk())
                    .andExpect(header().string("Content-Type", fileContent.fileType()))
                    .andExpect(header().string("Content-Length", String.valueOf(fileContent.length())))
                    .andExpect(header().string("Content-Disposition", String.format(
                        "attachment; filename=\"%s\"", fileContent.fileName())))
-                   .andExpect(content().bytes(fileContent.bytes()));
+                   .andExpect(content().bytes(fixtures.byteArray()));
+            
+            verify(imageService, never()).writeImageContent(anyLong(), anyLong(), anyLong(), anyLong(), any());
+        }
+        
+        @Test
+        public void downloadImage_should_StreamFromDatabase_when_ImageNotYetMigrated() throws Exception {
+            // Given
+            FileContent legacy = new FileContent("image.png", "image/png", fixtures.byteArray().length, null,
+                                                 ImageSize.ORIGINAL);
+            
+            when(imageService.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.ORIGINAL)).thenReturn(legacy);
+            doAnswer(invocation -> {
+                OutputStream out = invocation.getArgument(4);
+                out.write(fixtures.byteArray());
+                return null;
+            }).when(imageService).writeImageContent(eq(fixtures.productId()), eq(fixtures.imageId()), eq(0L),
+                                                    eq((long) fixtures.byteArray().length), any(OutputStream.class));
+            
+            // When
+            MvcResult started = mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.imageId()))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            mockMvc.perform(asyncDispatch(started))
+                   .andExpect(status().isOk())
+                   .andExpect(content().bytes(fixtures.byteArray()));
+        }
+        
+        @Test
+        public void downloadImage_should_ServeDerivativeWithCatalogValidators_when_SizeAvailable() throws Exception {
+            // Given
+            FileContent small = new FileContent("image.png", "image/jpeg", 3, new ByteArrayResource(new byte[]{7, 7, 7}),
+                                                ImageSize.SMALL);
+            when(imageService.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.SMALL)).thenReturn(small);
+            
+            // When
+            MvcResult started = mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.imageId())
+                                                    .param("size", "SMALL"))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            mockMvc.perform(asyncDispatch(started))
+                   .andExpect(status().isOk())
+                   .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+                   .andExpect(header().string(HttpHeaders.ETAG, catalogVersion.current(CatalogVersion.Scope.IMAGES).etag()))
+                   .andExpect(content().bytes(new byte[]{7, 7, 7}));
+        }
+        
+        @Test
+        public void downloadImage_should_ServeOriginalAsNoStore_when_DerivativeNotGeneratedYet() throws Exception {
+            // Given
+            when(imageService.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.MEDIUM))
+                .thenReturn(fixtures.fileContent());
+            
+            // When
+            MvcResult started = mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.imageId())
+                                                    .param("size", "MEDIUM"))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            mockMvc.perform(asyncDispatch(started))
+                   .andExpect(status().isOk())
+                   .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                   .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+                   .andExpect(content().bytes(fixtures.byteArray()));
+        }
+        
+        @Test
+        public void downloadImage_should_NotAnswer304_when_ResponseIsProvisional() throws Exception {
+            // Given
+            when(imageService.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.MEDIUM))
+                .thenReturn(fixtures.fileContent());
+            
+            // When
+            MvcResult started = mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.imageId())
+                                                    .param("size", "MEDIUM")
+                                                    .header(HttpHeaders.IF_NONE_MATCH, catalogVersion.current(CatalogVersion.Scope.IMAGES).etag()))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            mockMvc.perform(asyncDispatch(started))
+                   .andExpect(status().isOk())
+                   .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                   .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                   .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"));
         }
         
         @Test
@@ -66,13 +226,14 @@ public class ImageControllerTests {
             mockMvc.perform(get(IMAGE_PATH, fixtures.invalidId(), fixtures.imageId()))
                    .andExpect(status().isBadRequest());
             
-            verify(imageService, never()).getImageContent(anyLong(), anyLong());
+            verify(imageService, never()).getImageContent(anyLong(), anyLong(), any());
+            verify(imageService, never()).writeImageContent(anyLong(), anyLong(), anyLong(), anyLong(), any());
         }
         
         @Test
         public void downloadImage_should_Return404_when_ImageIdDoesNotExist() throws Exception {
             // Given
-            when(imageService.getImageContent(fixtures.productId(), fixtures.nonExistingId())).thenThrow(new EntityNotFoundException());
+            when(imageService.getImageContent(fixtures.productId(), fixtures.nonExistingId(), ImageSize.ORIGINAL)).thenThrow(new EntityNotFoundException());
             
             // When & Then
             mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.nonExistingId()))
@@ -82,11 +243,108 @@ public class ImageControllerTests {
         @Test
         public void downloadImage_should_Return404_when_ProductIdDoesNotExist() throws Exception {
             // Given
-            when(imageService.getImageContent(fixtures.nonExistingId(), fixtures.imageId())).thenThrow(new EntityNotFoundException());
+            when(imageService.getImageContent(fixtures.nonExistingId(), fixtures.imageId(), ImageSize.ORIGINAL)).thenThrow(new EntityNotFoundException());
             
             // When & Then
             mockMvc.perform(get(IMAGE_PATH, fixtures.nonExistingId(), fixtures.imageId()))
                    .andExpect(status().isNotFound());
         }
     }
+    
+    @Nested
+    @DisplayName("downloadImage with Range")
+    class downloadImageRange {
+        
+        // fixtures.byteArray() is {1, 2, 3, 4, 5, 6, 7, 8, 9}
+        
+        @Test
+        public void downloadImage_should_Return206WithRegion_when_SingleRangeRequested() throws Exception {
+            // Given
+            when(imageService.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.ORIGINAL)).thenReturn(fixtures.fileContent());
+            
+            // When
+            MvcResult started = mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.imageId())
+                                                    .header(HttpHeaders.RANGE, "bytes=2-4"))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            mockMvc.perform(asyncDispatch(started))
+                   .andExpect(status().isPartialContent())
+                   .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-4/9"))
+                   .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, "3"))
+                   .andExpect(content().bytes(new byte[]{3, 4, 5}));
+        }
+        
+        @Test
+        public void downloadImage_should_Return206Multipart_when_SeveralRangesRequested() throws Exception {
+            // Given
+            when(imageService.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.ORIGINAL)).thenReturn(fixtures.fileContent());
+            
+            // When
+            MvcResult started = mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.imageId())
+                                                    .header(HttpHeaders.RANGE, "bytes=0-1,-2"))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            MvcResult result = mockMvc.perform(asyncDispatch(started))
+                                      .andExpect(status().isPartialContent())
+                                      .andExpect(header().string(HttpHeaders.CONTENT_TYPE, startsWith("multipart/byteranges")))
+                                      .andReturn();
+            
+            String body = result.getResponse().getContentAsString(StandardCharsets.ISO_8859_1);
+            assertThat(body).contains("Content-Range: bytes 0-1/9", "Content-Range: bytes 7-8/9");
+            assertThat(result.getResponse().getContentAsByteArray()).hasSize(
+                Integer.parseInt(result.getResponse().getHeader(HttpHeaders.CONTENT_LENGTH)));
+        }
+        
+        @Test
+        public void downloadImage_should_Return416_when_RangeStartsPastEnd() throws Exception {
+            // Given
+            when(imageService.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.ORIGINAL)).thenReturn(fixtures.fileContent());
+            
+            // When & Then
+            mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.imageId())
+                                .header(HttpHeaders.RANGE, "bytes=100-"))
+                   .andExpect(status().isRequestedRangeNotSatisfiable())
+                   .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */9"));
+        }
+        
+        @Test
+        public void downloadImage_should_Return200Full_when_IfRangeIsStale() throws Exception {
+            // Given
+            when(imageService.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.ORIGINAL)).thenReturn(fixtures.fileContent());
+            
+            // When
+            MvcResult started = mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.imageId())
+                                                    .header(HttpHeaders.RANGE, "bytes=2-4")
+                                                    .header(HttpHeaders.IF_RANGE, "\"stale\""))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            mockMvc.perform(asyncDispatch(started))
+                   .andExpect(status().isOk())
+                   .andExpect(content().bytes(fixtures.byteArray()));
+        }
+        
+        @Test
+        public void downloadImage_should_Return206_when_IfRangeMatchesCurrentETag() throws Exception {
+            // Given
+            when(imageService.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.ORIGINAL)).thenReturn(fixtures.fileContent());
+            
+            // When
+            MvcResult started = mockMvc.perform(get(IMAGE_PATH, fixtures.productId(), fixtures.imageId())
+                                                    .header(HttpHeaders.RANGE, "bytes=-1")
+                                                    .header(HttpHeaders.IF_RANGE, catalogVersion.current(CatalogVersion.Scope.IMAGES).etag()))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            mockMvc.perform(asyncDispatch(started))
+                   .andExpect(status().isPartialContent())
+                   .andExpect(content().bytes(new byte[]{9}));
+        }
+    }
 }
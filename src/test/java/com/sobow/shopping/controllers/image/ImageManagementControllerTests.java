@@ -3,22 +3,32 @@ package com.sobow.shopping.controllers.image;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.sobow.shopping.controllers.image.dto.ImageResponse;
 import com.sobow.shopping.domain.image.Image;
 import com.sobow.shopping.mappers.image.ImageResponseMapper;
+import com.sobow.shopping.services.image.ImageArchiveService;
 import com.sobow.shopping.services.image.ImageService;
+import com.sobow.shopping.services.image.Impl.ImageArchive;
 import com.sobow.shopping.utils.TestFixtures;
 import jakarta.persistence.EntityNotFoundException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -26,11 +36,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
@@ -44,11 +56,15 @@ public class ImageManagementControllerTests {
     @MockitoBean
     private ImageService imageService;
     
+    @MockitoBean
+    private ImageArchiveService imageArchiveService;
+    
     @MockitoBean
     private ImageResponseMapper imageResponseMapper;
     
     private final static String PRODUCT_IMAGES_BY_PRODUCT_ID_PATH = "/api/admin/products/{productId}/images";
     private final static String PRODUCT_IMAGES_BY_PRODUCT_AND_IMAGE_ID_PATH = PRODUCT_IMAGES_BY_PRODUCT_ID_PATH + "/{imageId}";
+    private final static String PRODUCT_IMAGES_ARCHIVE_PATH = PRODUCT_IMAGES_BY_PRODUCT_ID_PATH + "/archive";
     
     private final TestFixtures fixtures = new TestFixtures();
     
@@ -266,4 +282,44 @@ public class ImageManagementControllerTests {
             verify(imageService, never()).deleteByProductIdAndId(fixtures.productId(), fixtures.invalidId());
         }
     }
+    
+    @Nested
+    @DisplayName("downloadArchive")
+    class downloadArchive {
+        
+        @Test
+        public void downloadArchive_should_StreamZipAttachment_when_ProductExists() throws Exception {
+            // Given
+            ImageArchive archive = new ImageArchive("product-1-images.zip", false, List.of());
+            when(imageArchiveService.productArchive(fixtures.productId())).thenReturn(archive);
+            doAnswer(invocation -> {
+                OutputStream out = invocation.getArgument(1);
+                out.write("zip".getBytes(StandardCharsets.UTF_8));
+                return null;
+            }).when(imageArchiveService).write(eq(archive), any(OutputStream.class));
+            
+            // When
+            MvcResult started = mockMvc.perform(get(PRODUCT_IMAGES_ARCHIVE_PATH, fixtures.productId()))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            mockMvc.perform(asyncDispatch(started))
+                   .andExpect(status().isOk())
+                   .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/zip"))
+                   .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                                              "attachment; filename=\"product-1-images.zip\""))
+                   .andExpect(content().string("zip"));
+        }
+        
+        @Test
+        public void downloadArchive_should_Return404_when_ProductDoesNotExist() throws Exception {
+            // Given
+            when(imageArchiveService.productArchive(fixtures.nonExistingId())).thenThrow(new EntityNotFoundException());
+            
+            // When & Then
+            mockMvc.perform(get(PRODUCT_IMAGES_ARCHIVE_PATH, fixtures.nonExistingId()))
+                   .andExpect(status().isNotFound());
+        }
+    }
 }
@@ -1,21 +1,35 @@
 package com.sobow.shopping.controllers.order;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.sobow.shopping.controllers.order.dto.OrderResponse;
 import com.sobow.shopping.domain.order.Order;
 import com.sobow.shopping.exceptions.CartEmptyException;
+import com.sobow.shopping.exceptions.CheckoutQueueFullException;
+import com.sobow.shopping.exceptions.CheckoutTimeoutException;
+import com.sobow.shopping.exceptions.IdempotencyKeyInFlightException;
 import com.sobow.shopping.mappers.order.OrderResponseMapper;
+import com.sobow.shopping.services.order.AsyncOrderCheckout;
+import com.sobow.shopping.services.order.IdempotentOrderCheckout;
+import com.sobow.shopping.services.order.OrderAttempt;
+import com.sobow.shopping.services.order.OrderCheckout;
 import com.sobow.shopping.services.order.OrderService;
 import com.sobow.shopping.utils.TestFixtures;
 import jakarta.persistence.EntityNotFoundException;
+import java.time.Duration;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -24,6 +38,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(OrderController.class)
 @AutoConfigureMockMvc(addFilters = false)
@@ -31,10 +46,20 @@ class OrderControllerTests {
     
     public static final String ORDER_PATH = "/api/users/me/orders";
     public static final String ORDER_PATH_BY_ID = "/api/users/me/orders/{orderId}";
+    public static final String ATTEMPT_PATH = "/api/users/me/orders/attempts/{attemptId}";
     
     @MockitoBean
     private OrderService orderService;
     
+    @MockitoBean
+    private OrderCheckout orderCheckout;
+    
+    @MockitoBean
+    private IdempotentOrderCheckout idempotentOrderCheckout;
+    
+    @MockitoBean
+    private AsyncOrderCheckout asyncOrderCheckout;
+    
     @MockitoBean
     private OrderResponseMapper orderResponseMapper;
     
@@ -49,13 +74,14 @@ class OrderControllerTests {
         Order order = fixtures.orderEntity();
         OrderResponse orderResponse = fixtures.orderResponse();
         
-        when(orderService.selfCreateOrder()).thenReturn(order);
+        when(orderCheckout.selfCheckout()).thenReturn(order);
         when(orderResponseMapper.mapToDto(order)).thenReturn(orderResponse);
         
         // When & Then
         mockMvc.perform(post(ORDER_PATH))
                .andExpect(status().isCreated())
                .andExpect(header().exists(HttpHeaders.LOCATION))
+               .andExpect(header().doesNotExist("Idempotent-Replayed"))
                .andExpect(jsonPath("$.message").value("Created"))
                .andExpect(jsonPath("$.data").exists());
     }
@@ -63,13 +89,157 @@ class OrderControllerTests {
     @Test
     public void selfCreateOrder_should_Return422_when_CartEmpty() throws Exception {
         // Given
-        when(orderService.selfCreateOrder()).thenThrow(new CartEmptyException(fixtures.cartId()));
+        when(orderCheckout.selfCheckout()).thenThrow(new CartEmptyException(fixtures.cartId()));
         
         // When & Then
         mockMvc.perform(post(ORDER_PATH))
                .andExpect(status().isUnprocessableEntity());
     }
     
+    @Test
+    public void selfCreateOrder_should_Return503_when_CheckoutTimesOut() throws Exception {
+        // Given
+        when(orderCheckout.selfCheckout()).thenThrow(new CheckoutTimeoutException(Duration.ofSeconds(30)));
+        
+        // When & Then
+        mockMvc.perform(post(ORDER_PATH))
+               .andExpect(status().isServiceUnavailable())
+               .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+    }
+    
+    @Test
+    public void selfCreateOrder_should_MarkReplay_when_IdempotencyKeyWasUsedBefore() throws Exception {
+        // Given
+        Order order = fixtures.orderEntity();
+        OrderResponse orderResponse = fixtures.orderResponse();
+        
+        when(idempotentOrderCheckout.selfCheckout("key-1")).thenReturn(new IdempotentOrderCheckout.Result(order, true));
+        when(orderResponseMapper.mapToDto(order)).thenReturn(orderResponse);
+        
+        // When & Then
+        mockMvc.perform(post(ORDER_PATH).header("Idempotency-Key", "key-1"))
+               .andExpect(status().isCreated())
+               .andExpect(header().string("Idempotent-Replayed", "true"))
+               .andExpect(jsonPath("$.data").exists());
+        verifyNoInteractions(orderCheckout);
+    }
+    
+    @Test
+    public void selfCreateOrder_should_Return409_when_IdempotencyKeyInFlight() throws Exception {
+        // Given
+        when(idempotentOrderCheckout.selfCheckout("key-1")).thenThrow(new IdempotencyKeyInFlightException("key-1"));
+        
+        // When & Then
+        mockMvc.perform(post(ORDER_PATH).header("Idempotency-Key", "key-1"))
+               .andExpect(status().isConflict());
+    }
+    
+    @Test
+    public void selfCreateOrder_should_Return400_when_IdempotencyKeyTooLong() throws Exception {
+        // When & Then
+        mockMvc.perform(post(ORDER_PATH).header("Idempotency-Key", "k".repeat(256)))
+               .andExpect(status().isBadRequest());
+        verifyNoInteractions(idempotentOrderCheckout);
+    }
+    
+    @Test
+    public void selfCreateOrder_should_Return202_when_AsyncCheckoutEnabled() throws Exception {
+        // Given
+        OrderAttempt attempt = mock(OrderAttempt.class);
+        when(attempt.getId()).thenReturn(UUID.randomUUID());
+        when(attempt.getStatus()).thenReturn(OrderAttempt.Status.PENDING);
+        when(asyncOrderCheckout.isEnabled()).thenReturn(true);
+        when(asyncOrderCheckout.selfSubmit(null)).thenReturn(attempt);
+        
+        // When & Then
+        mockMvc.perform(post(ORDER_PATH))
+               .andExpect(status().isAccepted())
+               .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/api/users/me/orders/attempts/"
+                   + attempt.getId()))
+               .andExpect(jsonPath("$.data.status").value("PENDING"));
+        verifyNoInteractions(orderCheckout);
+    }
+    
+    @Test
+    public void selfCreateOrder_should_Return503_when_CheckoutQueueFull() throws Exception {
+        // Given
+        when(asyncOrderCheckout.isEnabled()).thenReturn(true);
+        when(asyncOrderCheckout.selfSubmit(null)).thenThrow(new CheckoutQueueFullException(1000));
+        
+        // When & Then
+        mockMvc.perform(post(ORDER_PATH))
+               .andExpect(status().isServiceUnavailable())
+               .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+    }
+    
+    @Test
+    public void selfGetOrderAttempt_should_Return200WithOrder_when_AttemptPlaced() throws Exception {
+        // Given
+        UUID attemptId = UUID.randomUUID();
+        Order order = fixtures.orderEntity();
+        OrderAttempt attempt = mock(OrderAttempt.class);
+        when(attempt.getId()).thenReturn(attemptId);
+        when(attempt.getStatus()).thenReturn(OrderAttempt.Status.PLACED);
+        when(attempt.getOrder()).thenReturn(order);
+        when(orderResponseMapper.mapToDto(order)).thenReturn(fixtures.orderResponse());
+        when(asyncOrderCheckout.selfAwait(attemptId, Duration.ofSeconds(10)))
+            .thenReturn(CompletableFuture.completedFuture(attempt));
+        
+        // When
+        MvcResult pending = mockMvc.perform(get(ATTEMPT_PATH, attemptId).param("waitSeconds", "10"))
+                                   .andExpect(request().asyncStarted())
+                                   .andReturn();
+        
+        // Then
+        mockMvc.perform(asyncDispatch(pending))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.data.status").value("PLACED"))
+               .andExpect(jsonPath("$.data.order").exists());
+    }
+    
+    @Test
+    public void selfGetOrderAttempt_should_ShowDomainMessage_when_AttemptFailedOnCheckoutRule() throws Exception {
+        // Given
+        CartEmptyException failure = new CartEmptyException(fixtures.cartId());
+        UUID attemptId = failedAttempt(failure);
+        
+        // When
+        MvcResult pending = mockMvc.perform(get(ATTEMPT_PATH, attemptId))
+                                   .andExpect(request().asyncStarted())
+                                   .andReturn();
+        
+        // Then
+        mockMvc.perform(asyncDispatch(pending))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.data.status").value("FAILED"))
+               .andExpect(jsonPath("$.data.error").value(failure.getMessage()));
+    }
+    
+    @Test
+    public void selfGetOrderAttempt_should_HideInternalMessage_when_AttemptFailedUnexpectedly() throws Exception {
+        // Given
+        UUID attemptId = failedAttempt(new IllegalStateException("could not execute statement [order_items]"));
+        
+        // When
+        MvcResult pending = mockMvc.perform(get(ATTEMPT_PATH, attemptId))
+                                   .andExpect(request().asyncStarted())
+                                   .andReturn();
+        
+        // Then
+        mockMvc.perform(asyncDispatch(pending))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.data.status").value("FAILED"))
+               .andExpect(jsonPath("$.data.error").value("Checkout failed; please retry later."));
+    }
+    
+    @Test
+    public void selfGetOrderAttempt_should_Return400_when_WaitTooLong() throws Exception {
+        // When & Then
+        mockMvc.perform(get(ATTEMPT_PATH, UUID.randomUUID()).param("waitSeconds", "31"))
+               .andExpect(status().isBadRequest());
+        verifyNoInteractions(asyncOrderCheckout);
+    }
+    
     @Test
     void getAllOrders_should_Return200_when_OrdersExist() throws Exception {
         // Given
@@ -96,7 +266,7 @@ class OrderControllerTests {
     
     @Test
     void getOrder_should_Returns200_when_OrderExists() throws Exception {
-
+        
         long orderId = fixtures.orderId();
         
         Order order = fixtures.orderEntity();
@@ -129,4 +299,14 @@ class OrderControllerTests {
         mockMvc.perform(get(ORDER_PATH_BY_ID, orderId))
                .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+    
+    private UUID failedAttempt(RuntimeException failure) {
+        UUID attemptId = UUID.randomUUID();
+        OrderAttempt attempt = mock(OrderAttempt.class);
+        when(attempt.getId()).thenReturn(attemptId);
+        when(attempt.getStatus()).thenReturn(OrderAttempt.Status.FAILED);
+        when(attempt.getFailure()).thenReturn(failure);
+        when(asyncOrderCheckout.selfAwait(attemptId, Duration.ZERO)).thenReturn(CompletableFuture.completedFuture(attempt));
+        return attemptId;
+    }
+}
@@ -1,29 +1,49 @@
 package com.sobow.shopping.controllers.product;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.sobow.shopping.controllers.product.dto.ProductBatchResponse;
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse;
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse.FacetCount;
+import com.sobow.shopping.controllers.product.dto.ProductPageResponse;
 import com.sobow.shopping.controllers.product.dto.ProductResponse;
+import com.sobow.shopping.controllers.product.dto.ProductSuggestionsResponse;
 import com.sobow.shopping.domain.category.Category;
 import com.sobow.shopping.domain.image.Image;
 import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.exceptions.InvalidCursorException;
+import com.sobow.shopping.services.catalog.CatalogVersion;
 import com.sobow.shopping.services.product.ProductService;
+import com.sobow.shopping.services.product.ProductSort;
+import com.sobow.shopping.services.product.ProductSuggestService;
 import com.sobow.shopping.utils.TestFixtures;
 import jakarta.persistence.EntityNotFoundException;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 @WebMvcTest(ProductController.class)
+@Import(CatalogVersion.class)
 @AutoConfigureMockMvc(addFilters = false)
 public class ProductControllerTests {
     
@@ -33,10 +53,19 @@ public class ProductControllerTests {
     @MockitoBean
     private ProductService productService;
     
+    @MockitoBean
+    private ProductSuggestService productSuggestService;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
     
     private static final String PRODUCTS_PATH = "/api/products";
     private static final String PRODUCTS_BY_ID_PATH = "/api/products/{id}";
     private static final String PRODUCTS_SEARCH_PATH = "/api/products/search";
+    private static final String PRODUCTS_SUGGEST_PATH = "/api/products/suggest";
+    
+    private static final int DEFAULT_PAGE_SIZE = 20;
     
     private final TestFixtures fixtures = new TestFixtures();
     
@@ -45,52 +74,130 @@ public class ProductControllerTests {
     class getProducts {
         
         @Test
-        public void getAllProducts_should_Return200WithList_when_ProductsExists() throws Exception {
+        public void getAllProducts_should_Return200WithPage_when_ProductsExists() throws Exception {
             // Given
-            Category category = fixtures.categoryEntity();
-            Product product = fixtures.productEntity();
-            Image image = fixtures.imageEntity();
-            category.addProductAndLink(product);
-            product.addImageAndLink(image);
+            ProductPageResponse page = new ProductPageResponse(List.of(fixtures.productResponse()), "next-cursor");
             
-            when(productService.findAll()).thenReturn(List.of(product));
-            when(productService.mapProductsToResponsesWithImageIds(List.of(product))).thenReturn(List.of(fixtures.productResponse()));
+            when(productService.findPage(ProductSort.ID, null, DEFAULT_PAGE_SIZE)).thenReturn(page);
             
             // When & Then
             mockMvc.perform(get(PRODUCTS_PATH))
                    .andExpect(status().isOk())
                    .andExpect(jsonPath("$.message").value("Found"))
-                   .andExpect(jsonPath("$.data").isArray());
+                   .andExpect(jsonPath("$.data.items").isArray())
+                   .andExpect(jsonPath("$.data.items", hasSize(1)))
+                   .andExpect(jsonPath("$.data.nextCursor").value("next-cursor"));
         }
         
         @Test
-        public void getAllProducts_should_Return200WithEmptyList_when_ProductsDoesNotExist() throws Exception {
+        public void getAllProducts_should_Return304WithoutQuery_when_ETagIsCurrent() throws Exception {
             // Given
-            when(productService.findAll()).thenReturn(List.of());
-            when(productService.mapProductsToResponsesWithImageIds(List.of())).thenReturn(List.of());
+            when(productService.findPage(ProductSort.ID, null, DEFAULT_PAGE_SIZE))
+                .thenReturn(new ProductPageResponse(List.of(fixtures.productResponse()), null));
+            
+            String etag = mockMvc.perform(get(PRODUCTS_PATH))
+                                 .andExpect(status().isOk())
+                                 .andExpect(header().exists(HttpHeaders.ETAG))
+                                 .andReturn()
+                                 .getResponse()
+                                 .getHeader(HttpHeaders.ETAG);
+            
+            // When & Then
+            mockMvc.perform(get(PRODUCTS_PATH).header(HttpHeaders.IF_NONE_MATCH, etag))
+                   .andExpect(status().isNotModified());
+            
+            verify(productService, times(1)).findPage(ProductSort.ID, null, DEFAULT_PAGE_SIZE);
+        }
+        
+        @Test
+        public void getAllProducts_should_Return200_when_CatalogChangedSinceETag() throws Exception {
+            // Given
+            when(productService.findPage(ProductSort.ID, null, DEFAULT_PAGE_SIZE))
+                .thenReturn(new ProductPageResponse(List.of(fixtures.productResponse()), null));
+            
+            String etag = mockMvc.perform(get(PRODUCTS_PATH))
+                                 .andReturn()
+                                 .getResponse()
+                                 .getHeader(HttpHeaders.ETAG);
+            catalogVersion.bump(CatalogVersion.Scope.PRODUCTS);
+            
+            // When & Then
+            mockMvc.perform(get(PRODUCTS_PATH).header(HttpHeaders.IF_NONE_MATCH, etag))
+                   .andExpect(status().isOk())
+                   .andExpect(header().string(HttpHeaders.ETAG, catalogVersion.current(CatalogVersion.Scope.PRODUCTS).etag()));
+        }
+        
+        @Test
+        public void getAllProducts_should_Return200_when_OnlyDateSentAndCatalogChangedWithinSameSecond() throws Exception {
+            // Given
+            when(productService.findPage(ProductSort.ID, null, DEFAULT_PAGE_SIZE))
+                .thenReturn(new ProductPageResponse(List.of(fixtures.productResponse()), null));
+            
+            // The date a client got with the current version
+            HttpHeaders conditional = new HttpHeaders();
+            conditional.setIfModifiedSince(catalogVersion.current(CatalogVersion.Scope.PRODUCTS).lastModified());
+            catalogVersion.bump(CatalogVersion.Scope.PRODUCTS);
+            
+            // When & Then
+            // Assert: the date is the same (or later) after the bump, yet the client must not keep its stale copy
+            mockMvc.perform(get(PRODUCTS_PATH).headers(conditional))
+                   .andExpect(status().isOk());
+        }
+        
+        @Test
+        public void getAllProducts_should_Return200WithEmptyPage_when_ProductsDoesNotExist() throws Exception {
+            // Given
+            when(productService.findPage(ProductSort.ID, null, DEFAULT_PAGE_SIZE))
+                .thenReturn(new ProductPageResponse(List.of(), null));
             
             // When & Then
             mockMvc.perform(get(PRODUCTS_PATH))
                    .andExpect(status().isOk())
                    .andExpect(jsonPath("$.message").value("Found"))
-                   .andExpect(jsonPath("$.data").isArray())
-                   .andExpect(jsonPath("$.data", hasSize(0)));
+                   .andExpect(jsonPath("$.data.items").isArray())
+                   .andExpect(jsonPath("$.data.items", hasSize(0)))
+                   .andExpect(jsonPath("$.data.nextCursor").doesNotExist());
         }
         
         @Test
-        public void getProduct_should_Return200WithDto_when_ProductIdValid() throws Exception {
+        public void getAllProducts_should_PassCursorSizeAndSort_when_Provided() throws Exception {
             // Given
-            Category category = fixtures.categoryEntity();
-            Product product = fixtures.productEntity();
-            Image image = fixtures.imageEntity();
+            when(productService.findPage(ProductSort.PRICE, "abc", 5))
+                .thenReturn(new ProductPageResponse(List.of(fixtures.productResponse()), null));
             
-            category.addProductAndLink(product);
-            product.addImageAndLink(image);
+            // When & Then
+            mockMvc.perform(get(PRODUCTS_PATH)
+                                .param("cursor", "abc")
+                                .param("size", "5")
+                                .param("sort", "PRICE"))
+                   .andExpect(status().isOk())
+                   .andExpect(jsonPath("$.data.items", hasSize(1)));
+        }
+        
+        @Test
+        public void getAllProducts_should_Return400_when_SizeLessThanOne() throws Exception {
+            // When & Then
+            mockMvc.perform(get(PRODUCTS_PATH).param("size", "0"))
+                   .andExpect(status().isBadRequest());
+        }
+        
+        @Test
+        public void getAllProducts_should_Return400_when_CursorInvalid() throws Exception {
+            // Given
+            when(productService.findPage(ProductSort.ID, "bad", DEFAULT_PAGE_SIZE))
+                .thenThrow(new InvalidCursorException("bad"));
             
+            // When & Then
+            mockMvc.perform(get(PRODUCTS_PATH).param("cursor", "bad"))
+                   .andExpect(status().isBadRequest());
+        }
+        
+        @Test
+        public void getProduct_should_Return200WithDto_when_ProductIdValid() throws Exception {
+            // Given
             ProductResponse response = fixtures.productResponse();
             
-            when(productService.findById(fixtures.productId())).thenReturn(product);
-            when(productService.mapProductsToResponsesWithImageIds(List.of(product))).thenReturn(List.of(response));
+            when(productService.findResponseById(fixtures.productId())).thenReturn(response);
             
             // When & Then
             mockMvc.perform(get(PRODUCTS_BY_ID_PATH, fixtures.productId()))
@@ -109,7 +216,7 @@ public class ProductControllerTests {
         @Test
         public void getProduct_should_Return404_when_ProductIdDoesNotExist() throws Exception {
             // Given
-            when(productService.findById(fixtures.nonExistingId())).thenThrow(new EntityNotFoundException());
+            when(productService.findResponseById(fixtures.nonExistingId())).thenThrow(new EntityNotFoundException());
             
             // When & Then
             mockMvc.perform(get(PRODUCTS_BY_ID_PATH, fixtures.nonExistingId()))
@@ -117,6 +224,69 @@ public class ProductControllerTests {
         }
     }
     
+    @Nested
+    @DisplayName("getProductsByIds")
+    class getProductsByIds {
+        
+        @Test
+        public void getProductsByIds_should_Return200WithItemsAndMissingIds() throws Exception {
+            // Given
+            ProductResponse response = fixtures.productResponse();
+            when(productService.findResponsesByIds(List.of(response.id(), 999L)))
+                .thenReturn(new ProductBatchResponse(List.of(response), List.of(999L)));
+            
+            // When & Then
+            mockMvc.perform(get(PRODUCTS_PATH).param("ids", response.id() + ",999"))
+                   .andExpect(status().isOk())
+                   .andExpect(jsonPath("$.message").value("Found"))
+                   .andExpect(jsonPath("$.data.items", hasSize(1)))
+                   .andExpect(jsonPath("$.data.items[0].id").value(response.id()))
+                   .andExpect(jsonPath("$.data.missingIds[0]").value(999));
+        }
+        
+        @Test
+        public void getProductsByIds_should_Return400_when_TooManyIds() throws Exception {
+            // Given
+            String ids = LongStream.rangeClosed(1, ProductService.MAX_BATCH_SIZE + 1)
+                                   .mapToObj(String::valueOf)
+                                   .collect(Collectors.joining(","));
+            
+            // When & Then
+            mockMvc.perform(get(PRODUCTS_PATH).param("ids", ids))
+                   .andExpect(status().isBadRequest());
+            
+            verify(productService, never()).findResponsesByIds(any());
+        }
+    }
+    
+    @Nested
+    @DisplayName("suggestProducts")
+    class suggestProducts {
+        
+        @Test
+        public void suggestProducts_should_Return200WithNamesAndBrands() throws Exception {
+            // Given
+            when(productSuggestService.suggest("ap", 10))
+                .thenReturn(new ProductSuggestionsResponse(List.of("Apple Watch"), List.of("Apple")));
+            
+            // When & Then
+            mockMvc.perform(get(PRODUCTS_SUGGEST_PATH).param("q", "ap"))
+                   .andExpect(status().isOk())
+                   .andExpect(jsonPath("$.message").value("Found"))
+                   .andExpect(jsonPath("$.data.names[0]").value("Apple Watch"))
+                   .andExpect(jsonPath("$.data.brands[0]").value("Apple"));
+        }
+        
+        @Test
+        public void suggestProducts_should_Return400_when_PrefixBlank() throws Exception {
+            // When & Then
+            mockMvc.perform(get(PRODUCTS_SUGGEST_PATH).param("q", " "))
+                   .andExpect(status().isBadRequest());
+            
+            verify(productSuggestService, never()).suggest(any(), anyInt());
+        }
+    }
+    
     @Nested
     @DisplayName("getWithFilters")
     class getWithFilters {
@@ -133,15 +303,15 @@ public class ProductControllerTests {
             
             ProductResponse response = fixtures.productResponse();
             
-            when(productService.search(product.getName(), null, null)).thenReturn(List.of(product));
-            when(productService.mapProductsToResponsesWithImageIds(List.of(product))).thenReturn(List.of(response));
+            when(productService.searchPage(product.getName(), null, null, ProductSort.ID, null, DEFAULT_PAGE_SIZE))
+                .thenReturn(new ProductPageResponse(List.of(response), null));
             
             // When & Then
             mockMvc.perform(get(PRODUCTS_SEARCH_PATH)
                                 .param("name", product.getName()))
                    .andExpect(status().isOk())
                    .andExpect(jsonPath("$.message").value("Found"))
-                   .andExpect(jsonPath("$.data").isArray());
+                   .andExpect(jsonPath("$.data.items").isArray());
         }
         
         @Test
@@ -156,15 +326,15 @@ public class ProductControllerTests {
             
             ProductResponse response = fixtures.productResponse();
             
-            when(productService.search(null, product.getBrandName(), null)).thenReturn(List.of(product));
-            when(productService.mapProductsToResponsesWithImageIds(List.of(product))).thenReturn(List.of(response));
+            when(productService.searchPage(null, product.getBrandName(), null, ProductSort.ID, null, DEFAULT_PAGE_SIZE))
+                .thenReturn(new ProductPageResponse(List.of(response), null));
             
             // When & Then
             mockMvc.perform(get(PRODUCTS_SEARCH_PATH)
                                 .param("brandName", product.getBrandName()))
                    .andExpect(status().isOk())
                    .andExpect(jsonPath("$.message").value("Found"))
-                   .andExpect(jsonPath("$.data").isArray());
+                   .andExpect(jsonPath("$.data.items").isArray());
         }
         
         @Test
@@ -179,25 +349,53 @@ public class ProductControllerTests {
             
             ProductResponse response = fixtures.productResponse();
             
-            when(productService.search(null, null, product.getCategory().getName())).thenReturn(List.of(product));
-            when(productService.mapProductsToResponsesWithImageIds(List.of(product))).thenReturn(List.of(response));
+            when(productService.searchPage(null, null, product.getCategory().getName(), ProductSort.ID, null, DEFAULT_PAGE_SIZE))
+                .thenReturn(new ProductPageResponse(List.of(response), null));
             
             // When & Then
             mockMvc.perform(get(PRODUCTS_SEARCH_PATH)
                                 .param("categoryName", product.getCategory().getName()))
                    .andExpect(status().isOk())
                    .andExpect(jsonPath("$.message").value("Found"))
-                   .andExpect(jsonPath("$.data").isArray());
+                   .andExpect(jsonPath("$.data.items").isArray());
+        }
+        
+        @Test
+        public void searchProducts_should_IncludeFacets_when_Requested() throws Exception {
+            // Given
+            ProductResponse response = fixtures.productResponse();
+            ProductFacetsResponse facets = new ProductFacetsResponse(
+                List.of(new FacetCount(response.brandName(), 1)),
+                List.of(new FacetCount("Electronics", 1)),
+                List.of(new FacetCount("0-50", 1))
+            );
+            
+            when(productService.searchPage(response.name(), null, null, ProductSort.ID, null, DEFAULT_PAGE_SIZE))
+                .thenReturn(new ProductPageResponse(List.of(response), null));
+            when(productService.searchFacets(response.name(), null, null)).thenReturn(facets);
+            
+            // When & Then
+            mockMvc.perform(get(PRODUCTS_SEARCH_PATH)
+                                .param("name", response.name())
+                                .param("facets", "true"))
+                   .andExpect(status().isOk())
+                   .andExpect(jsonPath("$.data.facets.brands[0].value").value(response.brandName()))
+                   .andExpect(jsonPath("$.data.facets.brands[0].count").value(1))
+                   .andExpect(jsonPath("$.data.facets.priceRanges[0].value").value("0-50"));
         }
         
         @Test
         public void searchProducts_should_Return404WithEmptyList_when_NoProductsFound() throws Exception {
+            // Given
+            when(productService.searchPage(null, null, null, ProductSort.ID, null, DEFAULT_PAGE_SIZE))
+                .thenReturn(new ProductPageResponse(List.of(), null));
+            
             // When & Then
             mockMvc.perform(get(PRODUCTS_SEARCH_PATH))
                    .andExpect(status().isNotFound())
                    .andExpect(jsonPath("$.message").value("Not found"))
-                   .andExpect(jsonPath("$.data").isArray())
-                   .andExpect(jsonPath("$.data", hasSize(0)));
+                   .andExpect(jsonPath("$.data.items").isArray())
+                   .andExpect(jsonPath("$.data.items", hasSize(0)));
         }
     }
 }
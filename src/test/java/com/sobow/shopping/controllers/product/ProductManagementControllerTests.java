@@ -1,11 +1,19 @@
 package com.sobow.shopping.controllers.product;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -14,11 +22,21 @@ import com.sobow.shopping.controllers.product.dto.ProductResponse;
 import com.sobow.shopping.controllers.product.dto.ProductUpdateRequest;
 import com.sobow.shopping.domain.category.Category;
 import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.exceptions.HotStockActiveException;
 import com.sobow.shopping.mappers.product.ProductResponseMapper;
+import com.sobow.shopping.services.image.ImageContentCacheStats;
+import com.sobow.shopping.services.image.ImageService;
+import com.sobow.shopping.services.product.HotStockService;
+import com.sobow.shopping.services.product.ProductExportFormat;
+import com.sobow.shopping.services.product.ProductExportService;
+import com.sobow.shopping.services.product.ProductResponseCacheStats;
 import com.sobow.shopping.services.product.ProductService;
 import com.sobow.shopping.utils.TestFixtures;
 import jakarta.persistence.EntityNotFoundException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -27,8 +45,10 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(ProductManagementController.class)
 @AutoConfigureMockMvc(addFilters = false)
@@ -43,8 +63,22 @@ public class ProductManagementControllerTests {
     @MockitoBean
     private ProductResponseMapper productResponseMapper;
     
+    @MockitoBean
+    private ProductExportService productExportService;
+    
+    @MockitoBean
+    private ImageService imageService;
+    
+    @MockitoBean
+    private HotStockService hotStockService;
+    
     private static final String PRODUCTS_PATH = "/api/admin/products";
     private static final String PRODUCTS_BY_ID_PATH = "/api/admin/products/{id}";
+    private static final String CACHE_STATS_PATH = "/api/admin/products/cache/stats";
+    private static final String IMAGE_CACHE_STATS_PATH = "/api/admin/products/images/cache/stats";
+    private static final String EXPORT_PATH = "/api/admin/products/export";
+    private static final String HOT_STOCK_BY_ID_PATH = "/api/admin/products/{id}/hot-stock";
+    private static final String HOT_STOCK_PATH = "/api/admin/products/hot-stock";
     
     private final TestFixtures fixtures = new TestFixtures();
     
@@ -171,6 +205,21 @@ public class ProductManagementControllerTests {
                                 .content(json))
                    .andExpect(status().isNotFound());
         }
+        
+        @Test
+        public void updateProduct_should_Return409_when_ProductChangedConcurrently() throws Exception {
+            // Given
+            ProductUpdateRequest request = fixtures.productUpdateRequest();
+            when(productService.partialUpdateById(eq(fixtures.productId()), any(ProductUpdateRequest.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, fixtures.productId()));
+            
+            // When & Then
+            mockMvc.perform(put(PRODUCTS_BY_ID_PATH, fixtures.productId())
+                                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                                .content(objectMapper.writeValueAsString(request)))
+                   .andExpect(status().isConflict())
+                   .andExpect(jsonPath("$.title").value("Concurrent modification"));
+        }
     }
     
     @Nested
@@ -191,4 +240,136 @@ public class ProductManagementControllerTests {
                    .andExpect(status().isBadRequest());
         }
     }
+    
+    @Nested
+    @DisplayName("hotStock")
+    class hotStockMode {
+        
+        @Test
+        public void enableHotStock_should_Return200WithRemainingStock() throws Exception {
+            // Given
+            long productId = fixtures.productId();
+            when(hotStockService.enable(productId)).thenReturn(new HotStockService.Status(productId, 40));
+            
+            // When & Then
+            mockMvc.perform(put(HOT_STOCK_BY_ID_PATH, productId))
+                   .andExpect(status().isOk())
+                   .andExpect(jsonPath("$.data.productId").value(productId))
+                   .andExpect(jsonPath("$.data.remaining").value(40));
+        }
+        
+        @Test
+        public void enableHotStock_should_Return404_when_ProductDoesNotExist() throws Exception {
+            // Given
+            when(hotStockService.enable(fixtures.nonExistingId())).thenThrow(new EntityNotFoundException());
+            
+            // When & Then
+            mockMvc.perform(put(HOT_STOCK_BY_ID_PATH, fixtures.nonExistingId()))
+                   .andExpect(status().isNotFound());
+        }
+        
+        @Test
+        public void disableHotStock_should_Return204() throws Exception {
+            // When & Then
+            mockMvc.perform(delete(HOT_STOCK_BY_ID_PATH, fixtures.productId()))
+                   .andExpect(status().isNoContent());
+            verify(hotStockService).disable(fixtures.productId());
+        }
+        
+        @Test
+        public void getHotStock_should_Return200WithHotProducts() throws Exception {
+            // Given
+            when(hotStockService.status()).thenReturn(List.of(new HotStockService.Status(3L, 12)));
+            
+            // When & Then
+            mockMvc.perform(get(HOT_STOCK_PATH))
+                   .andExpect(status().isOk())
+                   .andExpect(jsonPath("$.data[0].productId").value(3))
+                   .andExpect(jsonPath("$.data[0].remaining").value(12));
+        }
+        
+        @Test
+        public void updateProduct_should_Return409_when_StockEditedWhileHot() throws Exception {
+            // Given
+            ProductUpdateRequest request = fixtures.productUpdateRequest();
+            when(productService.partialUpdateById(eq(fixtures.productId()), any(ProductUpdateRequest.class)))
+                .thenThrow(new HotStockActiveException(fixtures.productId()));
+            
+            // When & Then
+            mockMvc.perform(put(PRODUCTS_BY_ID_PATH, fixtures.productId())
+                                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                                .content(objectMapper.writeValueAsString(request)))
+                   .andExpect(status().isConflict());
+        }
+    }
+    
+    @Nested
+    @DisplayName("getCacheStats")
+    class getCacheStats {
+        
+        @Test
+        public void getCacheStats_should_Return200WithCounters() throws Exception {
+            // Given
+            when(productService.responseCacheStats()).thenReturn(new ProductResponseCacheStats(7, 3, 1, 2, 100));
+            
+            // When & Then
+            mockMvc.perform(get(CACHE_STATS_PATH))
+                   .andExpect(status().isOk())
+                   .andExpect(jsonPath("$.data.hits").value(7))
+                   .andExpect(jsonPath("$.data.misses").value(3))
+                   .andExpect(jsonPath("$.data.evictions").value(1));
+        }
+    }
+    
+    @Nested
+    @DisplayName("getImageCacheStats")
+    class getImageCacheStats {
+        
+        @Test
+        public void getImageCacheStats_should_Return200WithCountersAndHitRatio() throws Exception {
+            // Given
+            when(imageService.contentCacheStats())
+                .thenReturn(new ImageContentCacheStats(3, 1, 0.75, 0, 2, 2048, 1 << 20));
+            
+            // When & Then
+            mockMvc.perform(get(IMAGE_CACHE_STATS_PATH))
+                   .andExpect(status().isOk())
+                   .andExpect(jsonPath("$.data.hits").value(3))
+                   .andExpect(jsonPath("$.data.hitRatio").value(0.75))
+                   .andExpect(jsonPath("$.data.bytes").value(2048));
+        }
+    }
+    
+    @Nested
+    @DisplayName("exportProducts")
+    class exportProducts {
+        
+        @Test
+        public void exportProducts_should_StreamCsvAttachment_when_FormatIsCsv() throws Exception {
+            // Given
+            doAnswer(invocation -> {
+                OutputStream out = invocation.getArgument(1);
+                out.write("id,name\n1,product\n".getBytes(StandardCharsets.UTF_8));
+                return null;
+            }).when(productExportService).export(eq(ProductExportFormat.CSV), any(OutputStream.class));
+            
+            // When
+            MvcResult started = mockMvc.perform(get(EXPORT_PATH).param("format", "CSV"))
+                                       .andExpect(request().asyncStarted())
+                                       .andReturn();
+            
+            // Then
+            mockMvc.perform(asyncDispatch(started))
+                   .andExpect(status().isOk())
+                   .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv"))
+                   .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.csv\""))
+                   .andExpect(content().string("id,name\n1,product\n"));
+        }
+        
+        @Test
+        public void exportProducts_should_Return400_when_FormatUnknown() throws Exception {
+            mockMvc.perform(get(EXPORT_PATH).param("format", "XML"))
+                   .andExpect(status().isBadRequest());
+        }
+    }
 }
@@ -0,0 +1,193 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.domain.order.Order;
+import com.sobow.shopping.domain.order.OrderStatus;
+import com.sobow.shopping.domain.user.User;
+import com.sobow.shopping.exceptions.CartEmptyException;
+import com.sobow.shopping.exceptions.CheckoutQueueFullException;
+import com.sobow.shopping.services.order.CheckoutRequest;
+import com.sobow.shopping.services.order.IdempotentOrderCheckout;
+import com.sobow.shopping.services.order.Impl.AsyncOrderCheckoutImpl;
+import com.sobow.shopping.services.order.OrderAttempt;
+import com.sobow.shopping.services.order.OrderCheckout;
+import com.sobow.shopping.services.user.CurrentUserService;
+import com.sobow.shopping.utils.TestFixtures;
+import jakarta.persistence.EntityNotFoundException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class AsyncOrderCheckoutImplTests {
+    
+    @Mock
+    private OrderCheckout orderCheckout;
+    
+    @Mock
+    private IdempotentOrderCheckout idempotentOrderCheckout;
+    
+    @Mock
+    private CurrentUserService currentUserService;
+    
+    private AsyncOrderCheckoutImpl underTest;
+    
+    private final TestFixtures fixtures = new TestFixtures();
+    
+    @AfterEach
+    public void tearDown() {
+        underTest.shutdown();
+    }
+    
+    @Test
+    public void selfSubmit_should_QueueAttempt_and_WorkerPlacesOrder() throws Exception {
+        // Given
+        underTest = enabled(2, 10);
+        authenticate(fixtures.userId());
+        Order order = new Order(OrderStatus.NEW);
+        when(orderCheckout.checkout(CheckoutRequest.of(fixtures.userId()))).thenReturn(order);
+        
+        // When
+        OrderAttempt attempt = underTest.selfSubmit(null);
+        OrderAttempt finished = underTest.selfAwait(attempt.getId(), Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+        
+        // Then
+        assertThat(finished.getStatus()).isEqualTo(OrderAttempt.Status.PLACED);
+        assertThat(finished.getOrder()).isSameAs(order);
+    }
+    
+    @Test
+    public void selfSubmit_should_RecordFailure_when_CheckoutFails() throws Exception {
+        // Given
+        underTest = enabled(1, 10);
+        authenticate(fixtures.userId());
+        CartEmptyException failure = new CartEmptyException(fixtures.cartId());
+        when(orderCheckout.checkout(CheckoutRequest.of(fixtures.userId()))).thenThrow(failure);
+        
+        // When
+        OrderAttempt attempt = underTest.selfSubmit(null);
+        OrderAttempt finished = underTest.selfAwait(attempt.getId(), Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+        
+        // Then
+        assertThat(finished.getStatus()).isEqualTo(OrderAttempt.Status.FAILED);
+        assertThat(finished.getFailure()).isSameAs(failure);
+        assertThat(finished.getOrder()).isNull();
+    }
+    
+    @Test
+    public void selfSubmit_should_Throw_when_QueueStaysFull() throws Exception {
+        // Given
+        // One worker stuck in a checkout and one attempt waiting behind it
+        underTest = enabled(1, 1);
+        authenticate(fixtures.userId());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderCheckout.checkout(CheckoutRequest.of(fixtures.userId()))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new Order(OrderStatus.NEW);
+        });
+        underTest.selfSubmit(null);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        underTest.selfSubmit(null);
+        
+        // When & Then
+        try {
+            assertThrows(CheckoutQueueFullException.class, () -> underTest.selfSubmit(null));
+        } finally {
+            release.countDown();
+        }
+    }
+    
+    @Test
+    public void selfSubmit_should_KeepWorking_when_CheckoutThrowsError() throws Exception {
+        // Given
+        underTest = enabled(1, 10);
+        authenticate(fixtures.userId());
+        Order order = new Order(OrderStatus.NEW);
+        when(orderCheckout.checkout(CheckoutRequest.of(fixtures.userId())))
+            .thenThrow(new StackOverflowError())
+            .thenReturn(order);
+        
+        // When
+        OrderAttempt first = underTest.selfSubmit(null);
+        OrderAttempt second = underTest.selfSubmit(null);
+        underTest.selfAwait(second.getId(), Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+        
+        // Then
+        // Assert: the error failed its own attempt, the worker went on to place the next one
+        assertThat(first.getStatus()).isEqualTo(OrderAttempt.Status.FAILED);
+        assertThat(second.getStatus()).isEqualTo(OrderAttempt.Status.PLACED);
+    }
+    
+    @Test
+    public void selfSubmit_should_ReturnKnownAttempt_when_IdempotencyKeyRepeats() throws Exception {
+        // Given
+        underTest = enabled(1, 10);
+        authenticate(fixtures.userId());
+        Order order = new Order(OrderStatus.NEW);
+        when(idempotentOrderCheckout.checkout(fixtures.userId(), "key-1"))
+            .thenReturn(new IdempotentOrderCheckout.Result(order, false));
+        
+        // When
+        OrderAttempt first = underTest.selfSubmit("key-1");
+        OrderAttempt retry = underTest.selfSubmit("key-1");
+        underTest.selfAwait(first.getId(), Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+        
+        // Then
+        assertThat(retry).isSameAs(first);
+        verify(idempotentOrderCheckout, times(1)).checkout(fixtures.userId(), "key-1");
+    }
+    
+    @Test
+    public void selfFind_should_Throw_when_AttemptBelongsToAnotherUser() {
+        // Given
+        underTest = enabled(1, 10);
+        User owner = user(fixtures.userId());
+        User other = user(fixtures.userId() + 1);
+        when(currentUserService.getAuthenticatedUser(any())).thenReturn(owner, other);
+        OrderAttempt attempt = underTest.selfSubmit(null);
+        
+        // When & Then
+        assertThrows(EntityNotFoundException.class, () -> underTest.selfFind(attempt.getId()));
+    }
+    
+    @Test
+    public void selfSubmit_should_Throw_when_AsyncCheckoutDisabled() {
+        // Given
+        underTest = new AsyncOrderCheckoutImpl(orderCheckout, idempotentOrderCheckout, currentUserService,
+                                           false, 1, 10, Duration.ofMillis(10), Duration.ofMinutes(10));
+        
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> underTest.selfSubmit(null));
+        verifyNoInteractions(orderCheckout);
+    }
+    
+    private AsyncOrderCheckoutImpl enabled(int workers, int queueCapacity) {
+        return new AsyncOrderCheckoutImpl(orderCheckout, idempotentOrderCheckout, currentUserService,
+                                      true, workers, queueCapacity, Duration.ofMillis(10), Duration.ofMinutes(10));
+    }
+    
+    private void authenticate(long userId) {
+        when(currentUserService.getAuthenticatedUser(any())).thenReturn(user(userId));
+    }
+    
+    private User user(long userId) {
+        User user = fixtures.userEntity();
+        ReflectionTestUtils.setField(user, "id", userId);
+        return user;
+    }
+}
@@ -3,6 +3,7 @@ package com.sobow.shopping.services;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -19,7 +20,9 @@ import com.sobow.shopping.domain.user.User;
 import com.sobow.shopping.domain.user.UserProfile;
 import com.sobow.shopping.exceptions.CartItemAlreadyExistsException;
 import com.sobow.shopping.services.cart.Impl.CartServiceImpl;
+import com.sobow.shopping.services.order.StockAllocator;
 import com.sobow.shopping.services.product.ProductService;
+import com.sobow.shopping.services.reservation.StockReservationService;
 import com.sobow.shopping.services.user.CurrentUserService;
 import com.sobow.shopping.services.user.UserProfileService;
 import com.sobow.shopping.utils.TestFixtures;
@@ -50,6 +53,10 @@ public class CartServiceImplTests {
     private CurrentUserService currentUserService;
     @Mock
     private UserProfileService userProfileService;
+    @Mock
+    private StockReservationService reservationService;
+    @Mock
+    private StockAllocator stockAllocator;
     
     @InjectMocks
     private CartServiceImpl underTest;
@@ -144,7 +151,8 @@ public class CartServiceImplTests {
             underTest.selfRemoveCart();
             
             // Then
-            // Assert: cart was removed
+            // Assert: cart's stock holds were released and cart was removed
+            verify(reservationService).releaseAll(cart);
             assertThat(userProfile.getCart()).isNull();
         }
         
@@ -181,6 +189,7 @@ public class CartServiceImplTests {
             when(cartRepository.findByUserIdWithItems(fixtures.userId())).thenReturn(Optional.of(cart));
             when(productService.findById(fixtures.productId())).thenReturn(product);
             when(cartItemRepository.existsByCartIdAndProductId(fixtures.cartId(), fixtures.productId())).thenReturn(false);
+            when(stockAllocator.honoursReservations()).thenReturn(true);
             
             // When
             CartItem result = underTest.selfCreateCartItem(request);
@@ -202,6 +211,34 @@ public class CartServiceImplTests {
             
             // Assert: cart now contains exactly this new item
             assertThat(cart.getCartItems()).hasSize(1).contains(result);
+            
+            // Assert: stock was reserved for the new item
+            verify(reservationService).reserve(result);
+        }
+        
+        @Test
+        public void createCartItem_should_NotReserve_when_StockModeIgnoresReservations() {
+            // Given
+            User user = fixtures.userEntity();
+            ReflectionTestUtils.setField(user, "id", fixtures.userId());
+            
+            Cart cart = fixtures.cartEntity();
+            ReflectionTestUtils.setField(cart, "id", fixtures.cartId());
+            CartItemCreateRequest request = fixtures.cartItemCreateRequest();
+            
+            when(currentUserService.getAuthenticatedUser(any())).thenReturn(user);
+            when(cartRepository.findByUserIdWithItems(fixtures.userId())).thenReturn(Optional.of(cart));
+            when(productService.findById(fixtures.productId())).thenReturn(fixtures.productEntity());
+            when(cartItemRepository.existsByCartIdAndProductId(fixtures.cartId(), fixtures.productId())).thenReturn(false);
+            when(stockAllocator.honoursReservations()).thenReturn(false);
+            
+            // When
+            CartItem result = underTest.selfCreateCartItem(request);
+            
+            // Then
+            // Assert: the item was added, but no stock was held for a checkout that would not count it
+            assertThat(cart.getCartItems()).containsExactly(result);
+            verify(reservationService, never()).reserve(any());
         }
         
         @Test
@@ -292,6 +329,7 @@ public class CartServiceImplTests {
             when(currentUserService.getAuthenticatedUser(any())).thenReturn(user);
             when(cartRepository.findByUserIdWithItems(fixtures.userId())).thenReturn(Optional.of(cart));
             when(cartItemRepository.findByCartIdAndId(fixtures.cartId(), fixtures.cartItemId())).thenReturn(Optional.of(item));
+            when(stockAllocator.honoursReservations()).thenReturn(true);
             
             // When
             CartItem result = underTest.selfUpdateCartItemQty(fixtures.cartItemId(), request);
@@ -308,6 +346,9 @@ public class CartServiceImplTests {
             
             // Assert: item remains linked to the cart
             assertThat(cart.getCartItems()).contains(item);
+            
+            // Assert: the hold was adjusted to the new quantity
+            verify(reservationService).reserve(item);
         }
         
         @Test
@@ -343,8 +384,9 @@ public class CartServiceImplTests {
             assertThat(result.getRequestedQty()).isZero();
             assertThat(result.isEmpty()).isTrue();
             
-            // Assert: item was removed from the cart collection
+            // Assert: item was removed from the cart collection and its hold released
             assertThat(cart.getCartItems()).doesNotContain(result);
+            verify(reservationService).release(item);
         }
         
         @Test
@@ -400,8 +442,9 @@ public class CartServiceImplTests {
             // Assert: item was looked up via (cartId, itemId)
             verify(cartItemRepository).findByCartIdAndId(fixtures.cartId(), fixtures.cartItemId());
             
-            // Assert: item no longer present in the cart
+            // Assert: item no longer present in the cart and its hold released
             assertThat(cart.getCartItems()).doesNotContain(item);
+            verify(reservationService).release(item);
         }
         
         @Test
@@ -477,8 +520,9 @@ public class CartServiceImplTests {
             underTest.selfRemoveAllCartItems();
             
             // Then
-            // Assert: item no longer present in the cart
+            // Assert: item no longer present in the cart and the cart's holds released
             assertThat(cart.getCartItems()).doesNotContain(item);
+            verify(reservationService).releaseAll(cart);
         }
         
         @Test
@@ -0,0 +1,49 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.services.catalog.CatalogVersion;
+import com.sobow.shopping.services.catalog.CatalogVersion.Scope;
+import com.sobow.shopping.utils.TestFixtures;
+import org.junit.jupiter.api.Test;
+
+public class CatalogVersionTests {
+    
+    private final CatalogVersion underTest = new CatalogVersion();
+    
+    private final TestFixtures fixtures = new TestFixtures();
+    
+    @Test
+    public void onProductChanged_should_BumpOnlyProductScope() {
+        // Given
+        CatalogVersion.Snapshot products = underTest.current(Scope.PRODUCTS);
+        CatalogVersion.Snapshot categories = underTest.current(Scope.CATEGORIES);
+        CatalogVersion.Snapshot images = underTest.current(Scope.IMAGES);
+        
+        // When
+        underTest.onProductChanged(new ProductChangedEvent(fixtures.productEntity()));
+        
+        // Then
+        // Assert: a checkout's stock change leaves category and image validators current
+        assertThat(underTest.current(Scope.PRODUCTS).etag()).isNotEqualTo(products.etag());
+        assertThat(underTest.current(Scope.CATEGORIES)).isSameAs(categories);
+        assertThat(underTest.current(Scope.IMAGES)).isSameAs(images);
+    }
+    
+    @Test
+    public void bump_should_MarkDateAmbiguous_when_PreviousVersionHasSameSecond() {
+        // Given
+        underTest.bump(Scope.PRODUCTS);
+        CatalogVersion.Snapshot before = underTest.current(Scope.PRODUCTS);
+        
+        // When
+        underTest.bump(Scope.PRODUCTS);
+        CatalogVersion.Snapshot after = underTest.current(Scope.PRODUCTS);
+        
+        // Then
+        // Assert: only a Last-Modified no earlier version carried may validate on its own
+        assertThat(after.uniqueDate()).isEqualTo(after.lastModified() != before.lastModified());
+        assertThat(after.lastModified()).isGreaterThanOrEqualTo(before.lastModified());
+    }
+}
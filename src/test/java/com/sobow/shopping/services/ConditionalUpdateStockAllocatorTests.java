@@ -0,0 +1,104 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.domain.cart.CartItem;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.exceptions.InsufficientStockException;
+import com.sobow.shopping.services.order.Impl.ConditionalUpdateStockAllocator;
+import com.sobow.shopping.utils.TestFixtures;
+import java.sql.Statement;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class ConditionalUpdateStockAllocatorTests {
+    
+    @Mock
+    private NamedParameterJdbcTemplate jdbc;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @InjectMocks
+    private ConditionalUpdateStockAllocator underTest;
+    
+    private final TestFixtures fixtures = new TestFixtures();
+    
+    @Test
+    public void allocate_should_BatchOneDecrementPerProductInIdOrder() {
+        // Given
+        CartItem second = cartItem(7L, 2);
+        CartItem first = cartItem(3L, 1);
+        when(jdbc.batchUpdate(anyString(), any(SqlParameterSource[].class))).thenReturn(new int[]{1, 1});
+        
+        // When
+        underTest.allocate(List.of(second, first));
+        
+        // Then
+        ArgumentCaptor<SqlParameterSource[]> batch = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbc).batchUpdate(anyString(), batch.capture());
+        assertThat(batch.getValue()).extracting(params -> params.getValue("id")).containsExactly(3L, 7L);
+        assertThat(batch.getValue()).extracting(params -> params.getValue("qty")).containsExactly(1, 2);
+        verify(eventPublisher).publishEvent(new ProductChangedEvent(first.getProduct()));
+        verify(eventPublisher).publishEvent(new ProductChangedEvent(second.getProduct()));
+    }
+    
+    @Test
+    public void allocate_should_ThrowInsufficientStock_when_AnyRowNotUpdated() {
+        // Given
+        CartItem enough = cartItem(3L, 1);
+        CartItem shortItem = cartItem(7L, 5);
+        when(jdbc.batchUpdate(anyString(), any(SqlParameterSource[].class))).thenReturn(new int[]{1, 0});
+        when(jdbc.queryForList(anyString(), anyMap(), eq(Integer.class))).thenReturn(List.of(2));
+        
+        // When
+        InsufficientStockException ex = assertThrows(InsufficientStockException.class,
+                                                     () -> underTest.allocate(List.of(enough, shortItem)));
+        
+        // Then
+        assertThat(ex.getProductId()).isEqualTo(7L);
+        assertThat(ex.getAvailable()).isEqualTo(2);
+        assertThat(ex.getRequested()).isEqualTo(5);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+    
+    @Test
+    public void allocate_should_Throw_when_DriverReportsNoRowCount() {
+        // Given
+        CartItem item = cartItem(3L, 1);
+        when(jdbc.batchUpdate(anyString(), any(SqlParameterSource[].class)))
+            .thenReturn(new int[]{Statement.SUCCESS_NO_INFO});
+        
+        // When & Then
+        // Assert: an unproven decrement fails the checkout instead of passing as taken
+        assertThrows(IllegalStateException.class, () -> underTest.allocate(List.of(item)));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+    
+    private CartItem cartItem(long productId, int requestedQty) {
+        CartItem cartItem = fixtures.cartItemEntity();
+        Product product = cartItem.getProduct();
+        ReflectionTestUtils.setField(product, "id", productId);
+        ReflectionTestUtils.setField(cartItem, "requestedQty", requestedQty);
+        return cartItem;
+    }
+}
@@ -0,0 +1,85 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.sobow.shopping.exceptions.ImageProcessingException;
+import com.sobow.shopping.services.image.Impl.FileSystemImageStorage;
+import com.sobow.shopping.services.image.Impl.StoredContent;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+
+public class FileSystemImageStorageTests {
+    
+    // SHA-256 of "hello"
+    private static final String HELLO_SHA_256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+    
+    @TempDir
+    Path root;
+    
+    private FileSystemImageStorage underTest;
+    
+    @BeforeEach
+    void setUp() {
+        underTest = new FileSystemImageStorage(root);
+    }
+    
+    @Test
+    public void store_should_KeyContentBySha256_and_ShardByHashPrefix() throws IOException {
+        // When
+        StoredContent result = underTest.store(stream("hello"));
+        
+        // Then
+        assertThat(result).isEqualTo(new StoredContent(HELLO_SHA_256, 5L));
+        assertThat(root.resolve("2c").resolve(HELLO_SHA_256)).hasContent("hello");
+    }
+    
+    @Test
+    public void store_should_KeepSingleCopy_and_NoTempFiles_when_SameBytesStoredTwice() throws IOException {
+        // When
+        underTest.store(stream("hello"));
+        underTest.store(stream("hello"));
+        
+        // Then
+        try (Stream<Path> files = Files.walk(root)) {
+            assertThat(files.filter(Files::isRegularFile)).containsExactly(root.resolve("2c").resolve(HELLO_SHA_256));
+        }
+    }
+    
+    @Test
+    public void load_should_ReturnStoredBytes() throws IOException {
+        // Given
+        StoredContent stored = underTest.store(stream("hello"));
+        
+        // When
+        Resource result = underTest.load(stored.contentHash());
+        
+        // Then
+        assertThat(result.contentLength()).isEqualTo(5L);
+        assertThat(result.getContentAsString(StandardCharsets.UTF_8)).isEqualTo("hello");
+    }
+    
+    @Test
+    public void load_should_Throw_when_ContentDeleted_or_HashMalformed() throws IOException {
+        // Given
+        StoredContent stored = underTest.store(stream("hello"));
+        underTest.delete(stored.contentHash());
+        
+        // When & Then
+        assertThrows(ImageProcessingException.class, () -> underTest.load(stored.contentHash()));
+        assertThrows(IllegalArgumentException.class, () -> underTest.load("../../etc/passwd"));
+    }
+    
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,125 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse;
+import com.sobow.shopping.controllers.product.dto.ProductFacetsResponse.FacetCount;
+import com.sobow.shopping.domain.category.Category;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.services.product.Impl.FullTextProductSearcher;
+import com.sobow.shopping.services.product.Impl.SpecificationProductSearcher;
+import com.sobow.shopping.services.product.ProductCursor;
+import com.sobow.shopping.services.product.ProductSearchCriteria;
+import com.sobow.shopping.services.product.ProductSort;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the full-text SQL (schema, match predicate, ranking, cursor seek, facets) against a real PostgreSQL. Skipped
+ * where no Docker daemon is available.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JdbcTemplateAutoConfiguration.class)
+@Import(FullTextProductSearcher.class)
+@Testcontainers(disabledWithoutDocker = true)
+public class FullTextProductSearcherPostgresTests {
+    
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+    
+    @MockitoBean
+    private SpecificationProductSearcher fallback;
+    
+    @Autowired
+    private FullTextProductSearcher underTest;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    private Product phone;
+    private Product charger;
+    
+    @BeforeEach
+    void setUp() {
+        underTest.prepareSchema();
+        
+        Category phones = new Category("Phones");
+        Category accessories = new Category("Accessories");
+        // "phone" in the name ranks above "phone" in the description
+        phone = new Product("Galaxy Phone", "Samsung", "android", new BigDecimal("799.00"), 5);
+        charger = new Product("Charger", "Anker", "fast phone charger", new BigDecimal("30.00"), 5);
+        Product laptop = new Product("Laptop", "Apple", "thin and light", new BigDecimal("1299.00"), 5);
+        phones.addProductAndLink(phone);
+        accessories.addProductAndLink(charger);
+        accessories.addProductAndLink(laptop);
+        entityManager.persist(phones);
+        entityManager.persist(accessories);
+        entityManager.flush();
+    }
+    
+    @Test
+    public void prepareSchema_should_Enable_when_DatabaseIsPostgres() {
+        assertThat(underTest.isEnabled()).isTrue();
+    }
+    
+    @Test
+    public void search_should_MatchSearchVector_or_NameSubstring() {
+        // When
+        List<Long> byWord = underTest.search(criteria("phone"), ProductSort.ID, null, 10);
+        List<Long> bySubstring = underTest.search(criteria("alax"), ProductSort.ID, null, 10);
+        
+        // Then
+        assertThat(byWord).containsExactly(phone.getId(), charger.getId());
+        assertThat(bySubstring).containsExactly(phone.getId());
+    }
+    
+    @Test
+    public void search_should_PageByRelevance_when_SeekingAfterCursor() {
+        // When
+        List<Long> first = underTest.search(criteria("phone"), ProductSort.RELEVANCE, null, 1);
+        List<Long> second = underTest.search(criteria("phone"), ProductSort.RELEVANCE, relevanceAfter(first), 1);
+        List<Long> third = underTest.search(criteria("phone"), ProductSort.RELEVANCE, relevanceAfter(second), 1);
+        
+        // Then
+        // Assert: best rank first, and the row-comparison seek continues right after the previous page
+        assertThat(first).containsExactly(phone.getId());
+        assertThat(second).containsExactly(charger.getId());
+        assertThat(third).isEmpty();
+    }
+    
+    @Test
+    public void facets_should_CountMatchesPerBrandCategoryAndPriceBucket() {
+        // When
+        ProductFacetsResponse result = underTest.facets(criteria("phone"));
+        
+        // Then
+        assertThat(result.brands()).containsExactlyInAnyOrder(new FacetCount("Samsung", 1), new FacetCount("Anker", 1));
+        assertThat(result.categories())
+            .containsExactlyInAnyOrder(new FacetCount("Phones", 1), new FacetCount("Accessories", 1));
+        assertThat(result.priceRanges()).containsExactly(new FacetCount("0-50", 1), new FacetCount("500-1000", 1));
+    }
+    
+    private static ProductSearchCriteria criteria(String nameLike) {
+        return new ProductSearchCriteria(nameLike, null, null);
+    }
+    
+    private static ProductCursor relevanceAfter(List<Long> page) {
+        return new ProductCursor(ProductSort.RELEVANCE, null, page.getLast());
+    }
+}
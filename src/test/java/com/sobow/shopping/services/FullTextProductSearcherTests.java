@@ -0,0 +1,107 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.services.product.Impl.FullTextProductSearcher;
+import com.sobow.shopping.services.product.Impl.SpecificationProductSearcher;
+import com.sobow.shopping.services.product.ProductCursor;
+import com.sobow.shopping.services.product.ProductSearchCriteria;
+import com.sobow.shopping.services.product.ProductSort;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+@ExtendWith(MockitoExtension.class)
+public class FullTextProductSearcherTests {
+    
+    @Mock
+    private NamedParameterJdbcTemplate jdbc;
+    
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    
+    @Mock
+    private SpecificationProductSearcher fallback;
+    
+    @InjectMocks
+    private FullTextProductSearcher underTest;
+    
+    @Test
+    public void prepareSchema_should_StayDisabled_when_DatabaseIsNotPostgres() {
+        // Given
+        when(jdbc.getJdbcTemplate()).thenReturn(jdbcTemplate);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+        
+        // When
+        underTest.prepareSchema();
+        
+        // Then
+        assertThat(underTest.isEnabled()).isFalse();
+        verify(jdbcTemplate, never()).execute(any(String.class));
+    }
+    
+    @Test
+    public void search_should_DelegateToFallback_when_NotEnabled() {
+        // Given
+        ProductSearchCriteria criteria = new ProductSearchCriteria("phone", null, null);
+        List<Long> ids = List.of(1L, 2L);
+        when(fallback.search(criteria, ProductSort.RELEVANCE, null, 10)).thenReturn(ids);
+        
+        // When
+        List<Long> result = underTest.search(criteria, ProductSort.RELEVANCE, null, 10);
+        
+        // Then
+        assertThat(result).isSameAs(ids);
+        verifyNoInteractions(jdbc);
+    }
+    
+    @Test
+    public void search_should_RankAndSeekByRankThenId_when_PagingByRelevance() {
+        // Given
+        enable();
+        ProductSearchCriteria criteria = new ProductSearchCriteria("phone", null, null);
+        ProductCursor after = new ProductCursor(ProductSort.RELEVANCE, null, 7L);
+        when(jdbc.queryForList(anyString(), any(SqlParameterSource.class), eq(Long.class))).thenReturn(List.of(3L));
+        
+        // When
+        List<Long> result = underTest.search(criteria, ProductSort.RELEVANCE, after, 10);
+        
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbc).queryForList(sql.capture(), params.capture(), eq(Long.class));
+        assertThat(result).containsExactly(3L);
+        
+        // Assert: best rank first, ties by id; the next page starts strictly below the cursor row's (rank, -id)
+        assertThat(sql.getValue())
+            .contains("ORDER BY ts_rank(p.search_vector, q.query) DESC, p.id")
+            .contains("(ts_rank(p.search_vector, q.query), -p.id) < (")
+            .contains("WHERE a.id = :afterId");
+        assertThat(params.getValue().getValue("afterId")).isEqualTo(7L);
+        assertThat(params.getValue().getValue("text")).isEqualTo("phone");
+        assertThat(params.getValue().getValue("namePattern")).isEqualTo("%phone%");
+        verifyNoInteractions(fallback);
+    }
+    
+    // Starts the searcher as on PostgreSQL; the schema statements go to the mock
+    private void enable() {
+        when(jdbc.getJdbcTemplate()).thenReturn(jdbcTemplate);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        underTest.prepareSchema();
+    }
+}
@@ -0,0 +1,166 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.domain.order.Order;
+import com.sobow.shopping.domain.order.OrderStatus;
+import com.sobow.shopping.domain.user.User;
+import com.sobow.shopping.exceptions.CartEmptyException;
+import com.sobow.shopping.exceptions.CheckoutTimeoutException;
+import com.sobow.shopping.services.order.CheckoutRequest;
+import com.sobow.shopping.services.order.Impl.GroupCommitOrderCheckout;
+import com.sobow.shopping.services.order.OrderOutcome;
+import com.sobow.shopping.services.order.OrderService;
+import com.sobow.shopping.services.order.StockAllocator;
+import com.sobow.shopping.services.user.CurrentUserService;
+import com.sobow.shopping.utils.TestFixtures;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class GroupCommitOrderCheckoutTests {
+    
+    @Mock
+    private OrderService orderService;
+    
+    @Mock
+    private CurrentUserService currentUserService;
+    
+    @Mock
+    private StockAllocator stockAllocator;
+    
+    private GroupCommitOrderCheckout underTest;
+    
+    private final TestFixtures fixtures = new TestFixtures();
+    
+    @AfterEach
+    public void tearDown() {
+        if (underTest != null) underTest.shutdown();
+    }
+    
+    @Test
+    public void selfCheckout_should_PlaceConcurrentCheckoutsInOneBatch() throws Exception {
+        // Given
+        // The batch closes on size long before the window runs out
+        underTest = start(2, Duration.ofSeconds(10), Duration.ofSeconds(30));
+        Order order = new Order(OrderStatus.NEW);
+        CartEmptyException emptied = new CartEmptyException(fixtures.cartId());
+        CheckoutRequest request = CheckoutRequest.of(fixtures.userId());
+        when(orderService.createOrders(List.of(request, request)))
+            .thenReturn(List.of(OrderOutcome.placed(order), OrderOutcome.failed(emptied)));
+        
+        // When
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(this::checkoutOrFailure);
+        CompletableFuture<Object> second = CompletableFuture.supplyAsync(this::checkoutOrFailure);
+        
+        // Then
+        // Assert: one transaction served both callers, each got its own outcome
+        assertThat(List.of(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS)))
+            .containsExactlyInAnyOrder(order, emptied);
+    }
+    
+    @Test
+    public void selfCheckout_should_RethrowOwnFailure_when_OrderDroppedFromBatch() {
+        // Given
+        underTest = start(1, Duration.ofMillis(5), Duration.ofSeconds(30));
+        when(orderService.createOrders(List.of(CheckoutRequest.of(fixtures.userId()))))
+            .thenReturn(List.of(OrderOutcome.failed(new CartEmptyException(fixtures.cartId()))));
+        
+        // When & Then
+        assertThrows(CartEmptyException.class, () -> underTest.selfCheckout());
+    }
+    
+    @Test
+    public void selfCheckout_should_PlaceOneByOne_when_BatchFailsAsAWhole() {
+        // Given
+        underTest = start(1, Duration.ofMillis(5), Duration.ofSeconds(30));
+        Order order = new Order(OrderStatus.NEW);
+        CheckoutRequest request = CheckoutRequest.of(fixtures.userId());
+        when(orderService.createOrders(List.of(request))).thenThrow(new IllegalStateException("deadlock"));
+        when(orderService.createOrder(request)).thenReturn(order);
+        
+        // When
+        Order result = underTest.selfCheckout();
+        
+        // Then
+        assertThat(result).isSameAs(order);
+        verify(orderService).createOrder(request);
+    }
+    
+    @Test
+    public void selfCheckout_should_KeepCommitting_when_BatchThrowsError() {
+        // Given
+        underTest = start(1, Duration.ofMillis(5), Duration.ofSeconds(30));
+        Order order = new Order(OrderStatus.NEW);
+        CheckoutRequest request = CheckoutRequest.of(fixtures.userId());
+        when(orderService.createOrders(List.of(request)))
+            .thenThrow(new StackOverflowError())
+            .thenReturn(List.of(OrderOutcome.placed(order)));
+        
+        // When & Then
+        // Assert: the error failed its own batch, the committer survived it and placed the next one
+        assertThrows(IllegalStateException.class, () -> underTest.selfCheckout());
+        assertThat(underTest.selfCheckout()).isSameAs(order);
+    }
+    
+    @Test
+    public void selfCheckout_should_ThrowTimeout_when_BatchOutlastsResultTimeout() throws Exception {
+        // Given
+        underTest = start(1, Duration.ofMillis(5), Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrders(any())).thenAnswer(invocation -> {
+            release.await();
+            return List.of(OrderOutcome.placed(new Order(OrderStatus.NEW)));
+        });
+        
+        // When & Then
+        try {
+            assertThrows(CheckoutTimeoutException.class, () -> underTest.selfCheckout());
+        } finally {
+            release.countDown();
+        }
+    }
+    
+    @Test
+    public void constructor_should_Throw_when_StockModeIgnoresReservations() {
+        // Given
+        when(stockAllocator.honoursReservations()).thenReturn(false);
+        
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> new GroupCommitOrderCheckout(
+            orderService, currentUserService, stockAllocator, 1, Duration.ofMillis(5), 10,
+            Duration.ofMillis(100), Duration.ofSeconds(30)
+        ));
+    }
+    
+    // Every test that starts the pipeline checks out as the fixture user
+    private GroupCommitOrderCheckout start(int maxBatchSize, Duration window, Duration resultTimeout) {
+        User user = fixtures.userEntity();
+        ReflectionTestUtils.setField(user, "id", fixtures.userId());
+        when(currentUserService.getAuthenticatedUser(any())).thenReturn(user);
+        when(stockAllocator.honoursReservations()).thenReturn(true);
+        return new GroupCommitOrderCheckout(orderService, currentUserService, stockAllocator, maxBatchSize, window, 10,
+                                            Duration.ofMillis(100), resultTimeout);
+    }
+    
+    private Object checkoutOrFailure() {
+        try {
+            return underTest.selfCheckout();
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.domain.cart.CartItem;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.domain.product.StockLedgerEntry;
+import com.sobow.shopping.domain.product.StockLedgerRepository;
+import com.sobow.shopping.exceptions.HotStockActiveException;
+import com.sobow.shopping.exceptions.InsufficientStockException;
+import com.sobow.shopping.services.product.HotStockService;
+import com.sobow.shopping.services.product.Impl.HotStock;
+import com.sobow.shopping.services.product.Impl.StockLedgerFlusher;
+import com.sobow.shopping.utils.TestFixtures;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class HotStockTests {
+    
+    @Mock
+    private ProductRepository productRepository;
+    
+    @Mock
+    private StockLedgerRepository ledgerRepository;
+    
+    @Mock
+    private StockLedgerFlusher flusher;
+    
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    
+    private HotStock underTest;
+    
+    private final TestFixtures fixtures = new TestFixtures();
+    
+    private static final long PRODUCT_ID = 10L;
+    
+    @BeforeEach
+    public void setUp() {
+        underTest = new HotStock(productRepository, ledgerRepository, flusher, transactionTemplate, 4);
+        // Stands in for the checkout transaction
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+    
+    @Nested
+    @DisplayName("enable")
+    class enable {
+        
+        @Test
+        public void enable_should_SeedCounterFromRowMinusPendingLedger() {
+            // Given
+            enableWithStock(20, 5);
+            
+            // When & Then
+            assertThat(underTest.isHot(PRODUCT_ID)).isTrue();
+            assertThat(underTest.status()).containsExactly(new HotStockService.Status(PRODUCT_ID, 15));
+        }
+    }
+    
+    @Nested
+    @DisplayName("allocate")
+    class allocate {
+        
+        @Test
+        public void allocate_should_TakeHotItems_and_ReturnTheRest() {
+            // Given
+            enableWithStock(10, 0);
+            CartItem hot = cartItem(PRODUCT_ID, 4);
+            CartItem regular = cartItem(20L, 1);
+            
+            // When
+            List<CartItem> result = underTest.allocate(List.of(hot, regular));
+            
+            // Then
+            assertThat(result).containsExactly(regular);
+            assertThat(underTest.status()).containsExactly(new HotStockService.Status(PRODUCT_ID, 6));
+            ArgumentCaptor<List<StockLedgerEntry>> entries = ArgumentCaptor.forClass(List.class);
+            verify(ledgerRepository).saveAll(entries.capture());
+            assertThat(entries.getValue()).singleElement()
+                                          .satisfies(entry -> {
+                                              assertThat(entry.getProductId()).isEqualTo(PRODUCT_ID);
+                                              assertThat(entry.getQty()).isEqualTo(4);
+                                          });
+            
+            // Assert: the commit wakes the flusher
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+            verify(flusher).requestFlush();
+        }
+        
+        @Test
+        public void allocate_should_TakeNothing_when_AnyHotLineIsShort() {
+            // Given
+            enableWithStock(5, 0);
+            CartItem first = cartItem(PRODUCT_ID, 3);
+            CartItem second = cartItem(PRODUCT_ID, 3);
+            
+            // When & Then
+            // Assert: the second line finds the stock short and the first line's units come back right away, so a
+            // group-commit batch can drop the order without rolling back
+            assertThrows(InsufficientStockException.class, () -> underTest.allocate(List.of(first, second)));
+            assertThat(underTest.status()).containsExactly(new HotStockService.Status(PRODUCT_ID, 5));
+            verify(ledgerRepository, never()).saveAll(any());
+            
+            // Assert: a rollback afterwards does not give them back twice
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+            assertThat(underTest.status()).containsExactly(new HotStockService.Status(PRODUCT_ID, 5));
+        }
+        
+        @Test
+        public void allocate_should_GiveUnitsBack_when_TransactionRollsBack() {
+            // Given
+            enableWithStock(5, 0);
+            underTest.allocate(List.of(cartItem(PRODUCT_ID, 2)));
+            
+            // When
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+            
+            // Then
+            assertThat(underTest.status()).containsExactly(new HotStockService.Status(PRODUCT_ID, 5));
+        }
+        
+        @Test
+        public void allocate_should_Throw_when_NoTransactionIsActive() {
+            // Given
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            
+            // When & Then
+            assertThrows(IllegalStateException.class, () -> underTest.allocate(List.of(cartItem(PRODUCT_ID, 1))));
+        }
+    }
+    
+    @Nested
+    @DisplayName("assertNotHot")
+    class assertNotHot {
+        
+        @Test
+        public void assertNotHot_should_Throw_when_ProductIsHot() {
+            // Given
+            enableWithStock(5, 0);
+            
+            // When & Then
+            assertThrows(HotStockActiveException.class, () -> underTest.assertNotHot(PRODUCT_ID));
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+    }
+    
+    @Nested
+    @DisplayName("disable")
+    class disable {
+        
+        @Test
+        public void disable_should_FlushLedger_and_ReturnProductToRow() {
+            // Given
+            enableWithStock(5, 0);
+            
+            // When
+            underTest.disable(PRODUCT_ID);
+            
+            // Then
+            verify(flusher).flush();
+            assertThat(underTest.isHot(PRODUCT_ID)).isFalse();
+            assertThat(underTest.allocate(List.of(cartItem(PRODUCT_ID, 1)))).hasSize(1);
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+    
+    private void enableWithStock(int availableQty, long pending) {
+        when(transactionTemplate.execute(any())).thenAnswer(
+            invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        Product product = fixtures.productEntity();
+        ReflectionTestUtils.setField(product, "availableQty", availableQty);
+        when(productRepository.findAllForUpdate(List.of(PRODUCT_ID))).thenReturn(List.of(product));
+        when(ledgerRepository.sumPendingByProductId(PRODUCT_ID)).thenReturn(pending);
+        underTest.enable(PRODUCT_ID);
+    }
+    
+    private CartItem cartItem(long productId, int requestedQty) {
+        CartItem item = fixtures.cartItemEntity();
+        ReflectionTestUtils.setField(item.getProduct(), "id", productId);
+        ReflectionTestUtils.setField(item, "requestedQty", requestedQty);
+        return item;
+    }
+    
+    // Completes the stand-in transaction; also releases the mode lock the allocation held
+    private static void complete(int status) {
+        TransactionSynchronizationManager.getSynchronizations()
+                                         .forEach(synchronization -> synchronization.afterCompletion(status));
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+    }
+}
@@ -0,0 +1,206 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.domain.order.Order;
+import com.sobow.shopping.domain.order.OrderIdempotencyKey;
+import com.sobow.shopping.domain.order.OrderIdempotencyKeyRepository;
+import com.sobow.shopping.domain.user.User;
+import com.sobow.shopping.exceptions.CartEmptyException;
+import com.sobow.shopping.exceptions.IdempotencyKeyInFlightException;
+import com.sobow.shopping.services.order.CheckoutRequest;
+import com.sobow.shopping.services.order.IdempotentOrderCheckout;
+import com.sobow.shopping.services.order.Impl.IdempotentOrderCheckoutImpl;
+import com.sobow.shopping.services.order.OrderCheckout;
+import com.sobow.shopping.services.order.OrderService;
+import com.sobow.shopping.services.user.CurrentUserService;
+import com.sobow.shopping.utils.TestFixtures;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotentOrderCheckoutImplTests {
+    
+    @Mock
+    private OrderCheckout orderCheckout;
+    
+    @Mock
+    private OrderService orderService;
+    
+    @Mock
+    private CurrentUserService currentUserService;
+    
+    @Mock
+    private OrderIdempotencyKeyRepository keyRepository;
+    
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    
+    private IdempotentOrderCheckoutImpl underTest;
+    
+    private final TestFixtures fixtures = new TestFixtures();
+    
+    private static final String KEY = "key-1";
+    private static final long CLAIM_ID = 7L;
+    
+    @BeforeEach
+    public void setUp() {
+        underTest = new IdempotentOrderCheckoutImpl(
+            orderCheckout, orderService, currentUserService, keyRepository, transactionTemplate,
+            100, Duration.ofSeconds(2), Duration.ofMinutes(1), Duration.ofHours(24)
+        );
+        User user = fixtures.userEntity();
+        ReflectionTestUtils.setField(user, "id", fixtures.userId());
+        when(currentUserService.getAuthenticatedUser(any())).thenReturn(user);
+    }
+    
+    @Test
+    public void selfCheckout_should_PlaceOnce_and_ReplayFromCache() {
+        // Given
+        runTransactionCallbacks();
+        Order order = placedOrder();
+        when(keyRepository.findByUserIdAndIdempotencyKey(fixtures.userId(), KEY)).thenReturn(Optional.empty());
+        when(keyRepository.saveAndFlush(any())).thenAnswer(invocation -> withId(invocation.getArgument(0), CLAIM_ID));
+        when(orderCheckout.checkout(claimed())).thenReturn(order);
+        
+        // When
+        IdempotentOrderCheckout.Result first = underTest.selfCheckout(KEY);
+        IdempotentOrderCheckout.Result retry = underTest.selfCheckout(KEY);
+        
+        // Then
+        assertThat(first).isEqualTo(new IdempotentOrderCheckout.Result(order, false));
+        assertThat(retry).isEqualTo(new IdempotentOrderCheckout.Result(order, true));
+        
+        // Assert: the retry touched neither the checkout nor the database
+        verify(orderCheckout, times(1)).checkout(claimed());
+        verify(keyRepository, times(1)).findByUserIdAndIdempotencyKey(fixtures.userId(), KEY);
+    }
+    
+    @Test
+    public void selfCheckout_should_ReplayStoredOrder_when_KeyCompletedBeforeRestart() {
+        // Given
+        Order order = placedOrder();
+        OrderIdempotencyKey row = claimRow(Instant.now().minusSeconds(600));
+        ReflectionTestUtils.setField(row, "orderId", fixtures.orderId());
+        when(keyRepository.findByUserIdAndIdempotencyKey(fixtures.userId(), KEY)).thenReturn(Optional.of(row));
+        when(orderService.findByUserIdAndIdWithItems(fixtures.userId(), fixtures.orderId())).thenReturn(order);
+        
+        // When
+        IdempotentOrderCheckout.Result result = underTest.selfCheckout(KEY);
+        
+        // Then
+        assertThat(result).isEqualTo(new IdempotentOrderCheckout.Result(order, true));
+        verifyNoInteractions(orderCheckout, transactionTemplate);
+    }
+    
+    @Test
+    public void selfCheckout_should_Throw_when_KeyInFlightElsewhere() {
+        // Given
+        OrderIdempotencyKey row = claimRow(Instant.now());
+        when(keyRepository.findByUserIdAndIdempotencyKey(fixtures.userId(), KEY)).thenReturn(Optional.of(row));
+        
+        // When & Then
+        assertThrows(IdempotencyKeyInFlightException.class, () -> underTest.selfCheckout(KEY));
+        verifyNoInteractions(orderCheckout);
+    }
+    
+    @Test
+    public void selfCheckout_should_TakeOverClaim_when_ClaimWasAbandoned() {
+        // Given
+        runTransactionCallbacks();
+        Order order = placedOrder();
+        Instant claimedAt = Instant.now().minus(Duration.ofMinutes(5));
+        OrderIdempotencyKey row = claimRow(claimedAt);
+        when(keyRepository.findByUserIdAndIdempotencyKey(fixtures.userId(), KEY)).thenReturn(Optional.of(row));
+        when(keyRepository.takeOver(anyLong(), any(Instant.class), any(Instant.class))).thenReturn(1);
+        when(orderCheckout.checkout(claimed())).thenReturn(order);
+        
+        // When
+        IdempotentOrderCheckout.Result result = underTest.selfCheckout(KEY);
+        
+        // Then
+        assertThat(result.replayed()).isFalse();
+        verify(orderCheckout).checkout(claimed());
+    }
+    
+    @Test
+    public void selfCheckout_should_ReleaseKey_when_CheckoutFails() {
+        // Given
+        runTransactionCallbacks();
+        when(keyRepository.findByUserIdAndIdempotencyKey(fixtures.userId(), KEY)).thenReturn(Optional.empty());
+        when(keyRepository.saveAndFlush(any())).thenAnswer(invocation -> withId(invocation.getArgument(0), CLAIM_ID));
+        when(orderCheckout.checkout(claimed())).thenThrow(new CartEmptyException(fixtures.cartId()));
+        
+        // When & Then
+        assertThrows(CartEmptyException.class, () -> underTest.selfCheckout(KEY));
+        verify(keyRepository).release(CLAIM_ID);
+    }
+    
+    @Test
+    public void selfCheckout_should_ReplayOrder_when_ResponseLostAfterOrderCommitted() {
+        // Given
+        runTransactionCallbacks();
+        Order order = placedOrder();
+        OrderIdempotencyKey row = claimRow(Instant.now().minus(Duration.ofMinutes(5)));
+        when(keyRepository.findByUserIdAndIdempotencyKey(fixtures.userId(), KEY))
+            .thenReturn(Optional.empty(), Optional.of(row));
+        when(keyRepository.saveAndFlush(any())).thenReturn(row);
+        // The order's transaction recorded it on the key and committed; the result never made it back
+        when(orderCheckout.checkout(claimed())).thenAnswer(invocation -> {
+            ReflectionTestUtils.setField(row, "orderId", fixtures.orderId());
+            throw new IllegalStateException("connection lost");
+        });
+        when(orderService.findByUserIdAndIdWithItems(fixtures.userId(), fixtures.orderId())).thenReturn(order);
+        
+        // When
+        assertThrows(IllegalStateException.class, () -> underTest.selfCheckout(KEY));
+        IdempotentOrderCheckout.Result retry = underTest.selfCheckout(KEY);
+        
+        // Then
+        // Assert: the retry, even past the claim timeout, got the committed order instead of placing a second one
+        assertThat(retry).isEqualTo(new IdempotentOrderCheckout.Result(order, true));
+        verify(orderCheckout, times(1)).checkout(any());
+        verify(keyRepository, never()).takeOver(anyLong(), any(Instant.class), any(Instant.class));
+    }
+    
+    private void runTransactionCallbacks() {
+        when(transactionTemplate.execute(any())).thenAnswer(
+            invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+    
+    private CheckoutRequest claimed() {
+        return new CheckoutRequest(fixtures.userId(), CLAIM_ID);
+    }
+    
+    private Order placedOrder() {
+        Order order = fixtures.orderEntity();
+        ReflectionTestUtils.setField(order, "id", fixtures.orderId());
+        return order;
+    }
+    
+    private OrderIdempotencyKey claimRow(Instant createdAt) {
+        return withId(new OrderIdempotencyKey(fixtures.userId(), KEY, createdAt), CLAIM_ID);
+    }
+    
+    private static OrderIdempotencyKey withId(OrderIdempotencyKey row, long id) {
+        ReflectionTestUtils.setField(row, "id", id);
+        return row;
+    }
+}
@@ -0,0 +1,200 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.domain.image.ImageArchiveEntry;
+import com.sobow.shopping.domain.image.ImageRepository;
+import com.sobow.shopping.services.category.CategoryService;
+import com.sobow.shopping.services.image.ImageService;
+import com.sobow.shopping.services.image.ImageStorage;
+import com.sobow.shopping.services.image.Impl.ImageArchive;
+import com.sobow.shopping.services.image.Impl.ImageArchiveServiceImpl;
+import com.sobow.shopping.services.product.ProductService;
+import jakarta.persistence.EntityNotFoundException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+
+@ExtendWith(MockitoExtension.class)
+public class ImageArchiveServiceImplTests {
+    
+    @Mock
+    private ProductService productService;
+    
+    @Mock
+    private CategoryService categoryService;
+    
+    @Mock
+    private ImageService imageService;
+    
+    @Mock
+    private ImageRepository imageRepository;
+    
+    @Mock
+    private ImageStorage imageStorage;
+    
+    @InjectMocks
+    private ImageArchiveServiceImpl underTest;
+    
+    private static final String PNG_HASH = "a".repeat(64);
+    private static final String SVG_HASH = "b".repeat(64);
+    
+    @Nested
+    @DisplayName("productArchive")
+    class productArchive {
+        
+        @Test
+        public void productArchive_should_ListProductImages_when_ProductExists() {
+            // Given
+            List<ImageArchiveEntry> entries = List.of(pngEntry());
+            when(imageRepository.findArchiveEntriesByProductId(1L)).thenReturn(entries);
+            
+            // When
+            ImageArchive result = underTest.productArchive(1L);
+            
+            // Then
+            verify(productService).findById(1L);
+            assertThat(result.fileName()).isEqualTo("product-1-images.zip");
+            assertThat(result.folderPerProduct()).isFalse();
+            assertThat(result.entries()).isEqualTo(entries);
+        }
+        
+        @Test
+        public void productArchive_should_ThrowEntityNotFound_when_ProductDoesNotExist() {
+            // Given
+            when(productService.findById(99L)).thenThrow(new EntityNotFoundException());
+            
+            // When & Then
+            assertThrows(EntityNotFoundException.class, () -> underTest.productArchive(99L));
+            verify(imageRepository, never()).findArchiveEntriesByProductId(anyLong());
+        }
+    }
+    
+    @Nested
+    @DisplayName("categoryArchive")
+    class categoryArchive {
+        
+        @Test
+        public void categoryArchive_should_ListImagesInFolderPerProduct_when_CategoryExists() {
+            // Given
+            when(imageRepository.findArchiveEntriesByCategoryId(3L)).thenReturn(List.of());
+            
+            // When
+            ImageArchive result = underTest.categoryArchive(3L);
+            
+            // Then
+            verify(categoryService).findById(3L);
+            assertThat(result.fileName()).isEqualTo("category-3-images.zip");
+            assertThat(result.folderPerProduct()).isTrue();
+        }
+    }
+    
+    @Nested
+    @DisplayName("write")
+    class write {
+        
+        @Test
+        public void write_should_StoreCompressedFormats_and_DeflateOthers() throws IOException {
+            // Given
+            byte[] png = {1, 2, 3, 4};
+            byte[] svg = "<svg></svg>".getBytes();
+            when(imageStorage.load(PNG_HASH)).thenReturn(new ByteArrayResource(png));
+            when(imageStorage.load(SVG_HASH)).thenReturn(new ByteArrayResource(svg));
+            ImageArchive archive = new ImageArchive("product-1-images.zip", false, List.of(
+                pngEntry(),
+                new ImageArchiveEntry(1L, 11L, "logo.svg", "image/svg+xml", svg.length, SVG_HASH)
+            ));
+            
+            // When
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            underTest.write(archive, out);
+            
+            // Then
+            List<ZipEntry> entries = new ArrayList<>();
+            List<byte[]> contents = new ArrayList<>();
+            readZip(out.toByteArray(), entries, contents);
+            
+            assertThat(entries).extracting(ZipEntry::getName).containsExactly("10-photo.png", "11-logo.svg");
+            assertThat(entries).extracting(ZipEntry::getMethod).containsExactly(ZipEntry.STORED, ZipEntry.DEFLATED);
+            assertThat(contents.get(0)).containsExactly(png);
+            assertThat(contents.get(1)).containsExactly(svg);
+        }
+        
+        @Test
+        public void write_should_PutEachProductInFolder_and_NeutralizePathCharacters() throws IOException {
+            // Given
+            byte[] bytes = {7};
+            when(imageStorage.load(PNG_HASH)).thenReturn(new ByteArrayResource(bytes));
+            ImageArchive archive = new ImageArchive("category-3-images.zip", true, List.of(
+                new ImageArchiveEntry(2L, 20L, "../../evil.png", "image/png", bytes.length, PNG_HASH)
+            ));
+            
+            // When
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            underTest.write(archive, out);
+            
+            // Then
+            List<ZipEntry> entries = new ArrayList<>();
+            readZip(out.toByteArray(), entries, new ArrayList<>());
+            assertThat(entries).extracting(ZipEntry::getName).containsExactly("2/20-.._.._evil.png");
+        }
+        
+        @Test
+        public void write_should_ReadLegacyRowsThroughImageService_when_NoContentHash() throws IOException {
+            // Given
+            byte[] bytes = {5, 6};
+            doAnswer(invocation -> {
+                OutputStream target = invocation.getArgument(4);
+                target.write(bytes);
+                return null;
+            }).when(imageService).writeImageContent(anyLong(), anyLong(), anyLong(), anyLong(), any());
+            ImageArchive archive = new ImageArchive("product-1-images.zip", false, List.of(
+                new ImageArchiveEntry(1L, 12L, "old.jpg", "image/jpeg", bytes.length, null)
+            ));
+            
+            // When
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            underTest.write(archive, out);
+            
+            // Then
+            List<byte[]> contents = new ArrayList<>();
+            readZip(out.toByteArray(), new ArrayList<>(), contents);
+            assertThat(contents.getFirst()).containsExactly(bytes);
+            verify(imageStorage, never()).load(any());
+        }
+    }
+    
+    private static ImageArchiveEntry pngEntry() {
+        return new ImageArchiveEntry(1L, 10L, "photo.png", "image/png", 4L, PNG_HASH);
+    }
+    
+    private static void readZip(byte[] zip, List<ZipEntry> entries, List<byte[]> contents) throws IOException {
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.add(entry);
+                contents.add(in.readAllBytes());
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sobow.shopping.domain.image.ImageChangedEvent;
+import com.sobow.shopping.domain.product.ProductDeletedEvent;
+import com.sobow.shopping.services.image.Impl.ByteBufferResource;
+import com.sobow.shopping.services.image.Impl.FileContent;
+import com.sobow.shopping.services.image.Impl.ImageContentCache;
+import com.sobow.shopping.services.image.Impl.ImageSize;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.unit.DataSize;
+
+public class ImageContentCacheTests {
+    
+    private final ImageContentCache underTest = new ImageContentCache(DataSize.ofBytes(10), DataSize.ofBytes(6));
+    
+    private final AtomicInteger loads = new AtomicInteger();
+    
+    @Test
+    public void getOrLoad_should_ServeFromOffHeapCopy_when_LoadedBefore() throws IOException {
+        // Given
+        underTest.getOrLoad(1L, 1L, ImageSize.ORIGINAL, loader(new byte[]{1, 2, 3, 4}, ImageSize.ORIGINAL));
+        
+        // When
+        FileContent result = underTest.getOrLoad(1L, 1L, ImageSize.ORIGINAL, loader(new byte[]{9}, ImageSize.ORIGINAL));
+        
+        // Then
+        assertThat(loads).hasValue(1);
+        assertThat(result.content()).isInstanceOf(ByteBufferResource.class);
+        assertThat(result.length()).isEqualTo(4L);
+        assertThat(result.fileName()).isEqualTo("image.png");
+        assertThat(result.content().getInputStream().readAllBytes()).containsExactly(1, 2, 3, 4);
+        
+        ByteArrayOutputStream region = new ByteArrayOutputStream();
+        ((ByteBufferResource) result.content()).copyRange(1, 2, region);
+        assertThat(region.toByteArray()).containsExactly(2, 3);
+        
+        assertThat(underTest.stats().hits()).isEqualTo(1);
+        assertThat(underTest.stats().misses()).isEqualTo(1);
+        assertThat(underTest.stats().hitRatio()).isEqualTo(0.5);
+    }
+    
+    @Test
+    public void getOrLoad_should_EvictLeastRecentlyUsed_when_ByteBudgetExceeded() {
+        // Given
+        underTest.getOrLoad(1L, 1L, ImageSize.ORIGINAL, loader(new byte[4], ImageSize.ORIGINAL));
+        underTest.getOrLoad(1L, 2L, ImageSize.ORIGINAL, loader(new byte[4], ImageSize.ORIGINAL));
+        underTest.getOrLoad(1L, 1L, ImageSize.ORIGINAL, loader(new byte[4], ImageSize.ORIGINAL)); // touch image 1
+        
+        // When
+        underTest.getOrLoad(1L, 3L, ImageSize.ORIGINAL, loader(new byte[4], ImageSize.ORIGINAL));
+        
+        // Then
+        assertThat(underTest.stats().evictions()).isEqualTo(1);
+        assertThat(underTest.stats().bytes()).isEqualTo(8L);
+        underTest.getOrLoad(1L, 1L, ImageSize.ORIGINAL, loader(new byte[4], ImageSize.ORIGINAL));
+        assertThat(loads).hasValue(3);
+        underTest.getOrLoad(1L, 2L, ImageSize.ORIGINAL, loader(new byte[4], ImageSize.ORIGINAL));
+        assertThat(loads).hasValue(4);
+    }
+    
+    @Test
+    public void getOrLoad_should_NotCache_when_ImageTooLarge() {
+        // When
+        underTest.getOrLoad(1L, 1L, ImageSize.ORIGINAL, loader(new byte[7], ImageSize.ORIGINAL));
+        FileContent result = underTest.getOrLoad(1L, 1L, ImageSize.ORIGINAL, loader(new byte[7], ImageSize.ORIGINAL));
+        
+        // Then
+        assertThat(loads).hasValue(2);
+        assertThat(result.content()).isInstanceOf(ByteArrayResource.class);
+    }
+    
+    @Test
+    public void getOrLoad_should_NotCache_when_DerivativeFellBackToOriginal() {
+        // When
+        underTest.getOrLoad(1L, 1L, ImageSize.SMALL, loader(new byte[2], ImageSize.ORIGINAL));
+        underTest.getOrLoad(1L, 1L, ImageSize.SMALL, loader(new byte[2], ImageSize.ORIGINAL));
+        
+        // Then
+        assertThat(loads).hasValue(2);
+        assertThat(underTest.stats().entries()).isZero();
+    }
+    
+    @Test
+    public void onProductDeleted_should_EvictOnlyThatProductsImages() {
+        // Given
+        underTest.getOrLoad(1L, 1L, ImageSize.ORIGINAL, loader(new byte[2], ImageSize.ORIGINAL));
+        underTest.getOrLoad(2L, 5L, ImageSize.ORIGINAL, loader(new byte[2], ImageSize.ORIGINAL));
+        
+        // When
+        underTest.onProductDeleted(new ProductDeletedEvent(1L));
+        
+        // Then
+        assertThat(underTest.stats().entries()).isEqualTo(1);
+        assertThat(underTest.stats().bytes()).isEqualTo(2L);
+        underTest.getOrLoad(2L, 5L, ImageSize.ORIGINAL, loader(new byte[2], ImageSize.ORIGINAL));
+        assertThat(loads).hasValue(2);
+    }
+    
+    @Test
+    public void onImageChanged_should_EvictOnlyThatImage() {
+        // Given
+        underTest.getOrLoad(1L, 1L, ImageSize.ORIGINAL, loader(new byte[2], ImageSize.ORIGINAL));
+        underTest.getOrLoad(1L, 2L, ImageSize.ORIGINAL, loader(new byte[2], ImageSize.ORIGINAL));
+        
+        // When
+        underTest.onImageChanged(new ImageChangedEvent(1L, 1L));
+        
+        // Then
+        assertThat(underTest.stats().entries()).isEqualTo(1);
+        underTest.getOrLoad(1L, 2L, ImageSize.ORIGINAL, loader(new byte[2], ImageSize.ORIGINAL));
+        assertThat(loads).hasValue(2);
+    }
+    
+    @Test
+    public void getOrLoad_should_StoreLoad_when_OtherImageInvalidatedWhileLoading() {
+        // When
+        underTest.getOrLoad(1L, 1L, ImageSize.ORIGINAL, () -> {
+            underTest.evictImage(1L, 2L);
+            return loader(new byte[2], ImageSize.ORIGINAL).get();
+        });
+        
+        // Then
+        assertThat(underTest.stats().entries()).isEqualTo(1);
+    }
+    
+    @Test
+    public void getOrLoad_should_NotStoreLoad_when_InvalidatedWhileLoading() {
+        // When
+        underTest.getOrLoad(1L, 1L, ImageSize.ORIGINAL, () -> {
+            underTest.evictProduct(1L);
+            return loader(new byte[2], ImageSize.ORIGINAL).get();
+        });
+        
+        // Then
+        assertThat(underTest.stats().entries()).isZero();
+    }
+    
+    private Supplier<FileContent> loader(byte[] bytes, ImageSize size) {
+        return () -> {
+            loads.incrementAndGet();
+            return new FileContent("image.png", "image/png", bytes.length, new ByteArrayResource(bytes), size);
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.sobow.shopping.services;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.domain.image.ImageContent;
+import com.sobow.shopping.domain.image.ImageContentReleasedEvent;
+import com.sobow.shopping.domain.image.ImageContentRepository;
+import com.sobow.shopping.services.image.ImageStorage;
+import com.sobow.shopping.services.image.Impl.ImageContentCleaner;
+import java.io.IOException;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class ImageContentCleanerTests {
+    
+    @Mock
+    private ImageContentRepository imageContentRepository;
+    
+    @Mock
+    private ImageStorage imageStorage;
+    
+    @InjectMocks
+    private ImageContentCleaner underTest;
+    
+    private static final String CONTENT_HASH = "a".repeat(64);
+    
+    @Test
+    public void onContentReleased_should_DecrementReferenceCount() {
+        // When
+        underTest.onContentReleased(new ImageContentReleasedEvent(CONTENT_HASH));
+        
+        // Then
+        verify(imageContentRepository).release(CONTENT_HASH);
+    }
+    
+    @Test
+    public void deleteIfUnreferenced_should_DeleteRowAndFile_when_LastReferenceReleased() throws IOException {
+        // Given
+        ImageContent content = new ImageContent();
+        ReflectionTestUtils.setField(content, "contentHash", CONTENT_HASH);
+        when(imageContentRepository.findUnreferencedForUpdate(CONTENT_HASH)).thenReturn(Optional.of(content));
+        
+        // When
+        underTest.deleteIfUnreferenced(new ImageContentReleasedEvent(CONTENT_HASH));
+        
+        // Then
+        verify(imageContentRepository).delete(content);
+        verify(imageStorage).delete(CONTENT_HASH);
+    }
+    
+    @Test
+    public void deleteIfUnreferenced_should_KeepFile_when_StillReferenced() throws IOException {
+        // Given
+        when(imageContentRepository.findUnreferencedForUpdate(CONTENT_HASH)).thenReturn(Optional.empty());
+        
+        // When
+        underTest.deleteIfUnreferenced(new ImageContentReleasedEvent(CONTENT_HASH));
+        
+        // Then
+        verify(imageContentRepository, never()).delete(any());
+        verify(imageStorage, never()).delete(any());
+    }
+}
@@ -0,0 +1,135 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.sobow.shopping.services.image.Impl.FileSystemImageStorage;
+import com.sobow.shopping.services.image.Impl.ImageDerivativeGenerator;
+import com.sobow.shopping.services.image.Impl.ImageSize;
+import com.sobow.shopping.services.image.Impl.StoredContent;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+
+public class ImageDerivativeGeneratorTests {
+    
+    private static final int MAX_ATTEMPTS = 2;
+    
+    @TempDir
+    Path root;
+    
+    private FileSystemImageStorage storage;
+    private ImageDerivativeGenerator underTest;
+    
+    @BeforeEach
+    void setUp() {
+        storage = spy(new FileSystemImageStorage(root));
+        underTest = new ImageDerivativeGenerator(storage, 1, 10, MAX_ATTEMPTS, 100);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+    }
+    
+    @Test
+    public void enqueue_should_WriteScaledDerivativesNextToOriginal() throws Exception {
+        // Given
+        StoredContent original = storage.store(png(1000, 500));
+        
+        // When
+        underTest.enqueue(original.contentHash());
+        
+        // Then
+        BufferedImage small = ImageIO.read(awaitDerivative(original.contentHash(), ImageSize.SMALL).getInputStream());
+        BufferedImage medium = ImageIO.read(awaitDerivative(original.contentHash(), ImageSize.MEDIUM).getInputStream());
+        assertThat(small.getWidth()).isEqualTo(128);
+        assertThat(small.getHeight()).isEqualTo(64);
+        assertThat(medium.getWidth()).isEqualTo(512);
+        assertThat(medium.getHeight()).isEqualTo(256);
+    }
+    
+    @Test
+    public void delete_should_RemoveDerivativesWithOriginal() throws Exception {
+        // Given
+        StoredContent original = storage.store(png(300, 300));
+        underTest.enqueue(original.contentHash());
+        awaitDerivative(original.contentHash(), ImageSize.MEDIUM);
+        
+        // When
+        storage.delete(original.contentHash());
+        
+        // Then
+        assertThat(storage.findDerivative(original.contentHash(), ImageSize.SMALL.maxDimension())).isEmpty();
+        assertThat(storage.findDerivative(original.contentHash(), ImageSize.MEDIUM.maxDimension())).isEmpty();
+    }
+    
+    @Test
+    public void enqueue_should_StopRetrying_when_DecodingFailsMaxAttemptsTimes() throws Exception {
+        // Given
+        byte[] valid = png(300, 300).readAllBytes();
+        StoredContent truncated = storage.store(new ByteArrayInputStream(Arrays.copyOf(valid, 60)));
+        
+        // When
+        for (int i = 0; i < MAX_ATTEMPTS + 2; i++) {
+            underTest.enqueue(truncated.contentHash());
+            // One worker: once the next job's derivative exists, the truncated one has finished
+            StoredContent marker = storage.store(png(10 + i, 10));
+            underTest.enqueue(marker.contentHash());
+            awaitDerivative(marker.contentHash(), ImageSize.MEDIUM);
+        }
+        
+        // Then
+        verify(storage, times(MAX_ATTEMPTS)).load(truncated.contentHash());
+        assertThat(storage.findDerivative(truncated.contentHash(), ImageSize.SMALL.maxDimension())).isEmpty();
+    }
+    
+    @Test
+    public void enqueue_should_GiveUpAtOnce_when_NoReaderForFormat() throws Exception {
+        // Given
+        StoredContent garbage = storage.store(new ByteArrayInputStream("not an image".getBytes()));
+        
+        // When
+        for (int i = 0; i < 2; i++) {
+            underTest.enqueue(garbage.contentHash());
+            StoredContent marker = storage.store(png(10 + i, 10));
+            underTest.enqueue(marker.contentHash());
+            awaitDerivative(marker.contentHash(), ImageSize.MEDIUM);
+        }
+        
+        // Then
+        verify(storage, times(1)).load(garbage.contentHash());
+    }
+    
+    private Resource awaitDerivative(String contentHash, ImageSize size) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            Optional<Resource> derivative = storage.findDerivative(contentHash, size.maxDimension());
+            if (derivative.isPresent()) {
+                return derivative.get();
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Derivative " + size + " not generated in time");
+    }
+    
+    private static InputStream png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+}
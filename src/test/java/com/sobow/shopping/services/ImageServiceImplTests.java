@@ -2,23 +2,43 @@ package com.sobow.shopping.services;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.sobow.shopping.domain.image.Image;
+import com.sobow.shopping.domain.image.ImageChangedEvent;
+import com.sobow.shopping.domain.image.ImageContentReleasedEvent;
+import com.sobow.shopping.domain.image.ImageContentRepository;
+import com.sobow.shopping.domain.image.ImageMetadata;
 import com.sobow.shopping.domain.image.ImageRepository;
 import com.sobow.shopping.domain.product.Product;
 import com.sobow.shopping.exceptions.ImageProcessingException;
+import com.sobow.shopping.services.image.ImageStorage;
 import com.sobow.shopping.services.image.Impl.FileContent;
+import com.sobow.shopping.services.image.Impl.ImageContentCache;
+import com.sobow.shopping.services.image.Impl.ImageDerivativeGenerator;
 import com.sobow.shopping.services.image.Impl.ImageServiceImpl;
+import com.sobow.shopping.services.image.Impl.ImageSize;
+import com.sobow.shopping.services.image.Impl.ImageUploadStager;
+import com.sobow.shopping.services.image.Impl.StoredContent;
 import com.sobow.shopping.services.product.ProductService;
 import com.sobow.shopping.utils.TestFixtures;
+import jakarta.persistence.EntityNotFoundException;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Blob;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -26,7 +46,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Pageable;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,9 +64,33 @@ public class ImageServiceImplTests {
     @Mock
     private ImageRepository imageRepository;
     
+    @Mock
+    private ImageContentRepository imageContentRepository;
+    
+    @Mock
+    private ImageStorage imageStorage;
+    
+    @Mock
+    private ImageDerivativeGenerator derivativeGenerator;
+    
+    @Mock
+    private ImageContentCache imageContentCache;
+    
+    @Mock
+    private ImageUploadStager uploadStager;
+    
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
     @InjectMocks
     private ImageServiceImpl underTest;
     
+    private static final String CONTENT_HASH = "a".repeat(64);
+    private static final String OTHER_CONTENT_HASH = "b".repeat(64);
+    
     private final TestFixtures fixtures = new TestFixtures();
     
     @Nested
@@ -53,7 +103,11 @@ public class ImageServiceImplTests {
             Product product = fixtures.productEntity();
             MockMultipartFile file = fixtures.multipartFile();
             
+            runTransactionCallbacks();
+            when(uploadStager.storeAll(List.of(file))).thenReturn(List.of(new StoredContent(CONTENT_HASH, file.getSize())));
             when(productService.findById(fixtures.productId())).thenReturn(product);
+            when(imageContentRepository.acquire(CONTENT_HASH)).thenReturn(1);
+            when(imageStorage.exists(CONTENT_HASH)).thenReturn(true);
             
             // When
             List<Image> resultList = underTest.saveImages(fixtures.productId(), List.of(file));
@@ -66,12 +120,15 @@ public class ImageServiceImplTests {
             Image resultImage = resultList.get(0);
             assertThat(resultImage.getProduct()).isSameAs(product);
             
-            // Assert: bytes were copied from MultipartFile
-            byte[] fileBytes = file.getBytes();
-            int resultLength = (int) resultImage.getFile().length();
-            byte[] resultBytes = resultImage.getFile().getBytes(1, resultLength);
-            assertThat(resultLength).isEqualTo(fileBytes.length);
-            assertThat(resultBytes).isEqualTo(fileBytes);
+            // Assert: bytes were written by the stager (outside the transaction), the image holds one reference
+            verify(imageStorage, never()).store(any(InputStream.class));
+            verify(imageContentRepository).insertIfAbsent(CONTENT_HASH, file.getSize());
+            verify(imageContentRepository).acquire(CONTENT_HASH);
+            
+            // Assert: only the content key and size stay on the entity
+            assertThat(resultImage.getContentHash()).isEqualTo(CONTENT_HASH);
+            assertThat(resultImage.getFileSize()).isEqualTo(file.getSize());
+            assertThat(resultImage.getFile()).isNull();
             
             // Assert: filename was copied from MultipartFile
             assertThat(resultImage.getFileName()).isEqualTo(file.getOriginalFilename());
@@ -81,25 +138,80 @@ public class ImageServiceImplTests {
         }
         
         @Test
-        public void saveImages_should_ThrowImageProcessingException_when_GetBytesFails() throws Exception {
+        public void saveImages_should_KeepFileOrder_when_BatchStoredInParallel() {
             // Given
             Product product = fixtures.productEntity();
+            MockMultipartFile first = new MockMultipartFile("file", "first.png", "image/png", new byte[]{1});
+            MockMultipartFile second = new MockMultipartFile("file", "second.png", "image/png", new byte[]{2, 2});
             
+            runTransactionCallbacks();
+            when(uploadStager.storeAll(List.of(first, second)))
+                .thenReturn(List.of(new StoredContent(CONTENT_HASH, 1), new StoredContent(OTHER_CONTENT_HASH, 2)));
             when(productService.findById(fixtures.productId())).thenReturn(product);
+            when(imageContentRepository.acquire(any())).thenReturn(1);
+            when(imageStorage.exists(any())).thenReturn(true);
             
+            // When
+            List<Image> resultList = underTest.saveImages(fixtures.productId(), List.of(first, second));
+            
+            // Then
+            assertThat(resultList).extracting(Image::getFileName).containsExactly("first.png", "second.png");
+            assertThat(resultList).extracting(Image::getContentHash).containsExactly(CONTENT_HASH, OTHER_CONTENT_HASH);
+        }
+        
+        @Test
+        public void saveImages_should_StoreBytesAgain_when_CleanerDeletedThemBeforeAcquire() throws Exception {
+            // Given
+            Product product = fixtures.productEntity();
+            MockMultipartFile file = fixtures.multipartFile();
+            
+            runTransactionCallbacks();
+            when(uploadStager.storeAll(List.of(file))).thenReturn(List.of(new StoredContent(CONTENT_HASH, file.getSize())));
+            when(productService.findById(fixtures.productId())).thenReturn(product);
+            when(imageContentRepository.acquire(CONTENT_HASH)).thenReturn(1);
+            when(imageStorage.exists(CONTENT_HASH)).thenReturn(false);
+            
+            // When
+            underTest.saveImages(fixtures.productId(), List.of(file));
+            
+            // Then
+            // Assert: the upload was re-read from the multipart part and written again
+            verify(imageStorage).store(any(InputStream.class));
+        }
+        
+        @Test
+        public void saveImages_should_RecreateContentRow_when_DeletedBetweenInsertAndAcquire() throws Exception {
+            // Given
+            Product product = fixtures.productEntity();
+            MockMultipartFile file = fixtures.multipartFile();
+            
+            runTransactionCallbacks();
+            when(uploadStager.storeAll(List.of(file))).thenReturn(List.of(new StoredContent(CONTENT_HASH, file.getSize())));
+            when(productService.findById(fixtures.productId())).thenReturn(product);
+            when(imageContentRepository.acquire(CONTENT_HASH)).thenReturn(0, 1);
+            when(imageStorage.exists(CONTENT_HASH)).thenReturn(true);
+            
+            // When
+            underTest.saveImages(fixtures.productId(), List.of(file));
+            
+            // Then
+            verify(imageContentRepository, times(2)).insertIfAbsent(CONTENT_HASH, file.getSize());
+            verify(imageContentRepository, times(2)).acquire(CONTENT_HASH);
+        }
+        
+        @Test
+        public void saveImages_should_NotOpenTransaction_when_StoringFails() {
+            // Given
             MultipartFile bad = mock(MultipartFile.class);
-            when(bad.getBytes()).thenThrow(new IOException("Boom!"));
+            when(uploadStager.storeAll(List.of(bad))).thenThrow(new ImageProcessingException("Boom!", null));
             
             // When & Then
-            // Assert: throws when MultipartFile#getBytes() fails
             assertThrows(ImageProcessingException.class,
                          () -> underTest.saveImages(fixtures.productId(), List.of(bad)));
             
-            // Assert: repository looked up the product
-            verify(productService).findById(fixtures.productId());
-            
-            // Assert: product remains unchanged (no images linked)
-            assertThat(product.getImages()).isEmpty();
+            // Assert: nothing was looked up or inserted
+            verify(transactionTemplate, never()).execute(any());
+            verify(productService, never()).findById(anyLong());
         }
     }
     
@@ -116,6 +228,9 @@ public class ImageServiceImplTests {
                                               .multipartFile();
             
             when(imageRepository.findByProductIdAndId(fixtures.productId(), fixtures.imageId())).thenReturn(Optional.of(image));
+            when(imageStorage.store(any(InputStream.class))).thenReturn(new StoredContent(CONTENT_HASH, patch.getSize()));
+            when(imageContentRepository.acquire(CONTENT_HASH)).thenReturn(1);
+            when(imageStorage.exists(CONTENT_HASH)).thenReturn(true);
             
             // When
             Image result = underTest.updateByProductIdAndId(fixtures.productId(), fixtures.imageId(), patch);
@@ -127,10 +242,10 @@ public class ImageServiceImplTests {
             // Assert: service returns the same managed instance (updated in place)
             assertThat(result).isSameAs(image);
             
-            // Assert: bytes were replaced from MultipartFile
-            int resultLength = (int) result.getFile().length();
-            byte[] resultBytes = result.getFile().getBytes(1, resultLength);
-            assertThat(resultBytes).isEqualTo(patch.getBytes());
+            // Assert: payload replaced by the stored content
+            assertThat(result.getContentHash()).isEqualTo(CONTENT_HASH);
+            assertThat(result.getFileSize()).isEqualTo(patch.getSize());
+            assertThat(result.getFile()).isNull();
             
             // Assert: filename was copied from MultipartFile
             assertThat(result.getFileName()).isEqualTo(patch.getOriginalFilename());
@@ -140,7 +255,49 @@ public class ImageServiceImplTests {
         }
         
         @Test
-        public void updateById_should_ThrowImageProcessingException_when_GetBytesFails() throws Exception {
+        public void updateById_should_ReleasePreviousContent_when_ContentChanges() throws Exception {
+            // Given
+            Image image = fixtures.imageEntity();
+            image.attachContent(OTHER_CONTENT_HASH, 3L);
+            MockMultipartFile patch = fixtures.multipartFile();
+            
+            when(imageRepository.findByProductIdAndId(fixtures.productId(), fixtures.imageId())).thenReturn(Optional.of(image));
+            when(imageStorage.store(any(InputStream.class))).thenReturn(new StoredContent(CONTENT_HASH, patch.getSize()));
+            when(imageContentRepository.acquire(CONTENT_HASH)).thenReturn(1);
+            when(imageStorage.exists(CONTENT_HASH)).thenReturn(true);
+            
+            // When
+            underTest.updateByProductIdAndId(fixtures.productId(), fixtures.imageId(), patch);
+            
+            // Then
+            verify(eventPublisher).publishEvent(new ImageContentReleasedEvent(OTHER_CONTENT_HASH));
+            // Assert: cached renditions of this image (and only this image) are dropped after the commit
+            verify(eventPublisher).publishEvent(new ImageChangedEvent(fixtures.productId(), fixtures.imageId()));
+        }
+        
+        @Test
+        public void updateById_should_ReleasePreviousReference_when_ContentUnchanged() throws Exception {
+            // Given
+            Image image = fixtures.imageEntity();
+            image.attachContent(CONTENT_HASH, 3L);
+            MockMultipartFile patch = fixtures.multipartFile();
+            
+            when(imageRepository.findByProductIdAndId(fixtures.productId(), fixtures.imageId())).thenReturn(Optional.of(image));
+            when(imageStorage.store(any(InputStream.class))).thenReturn(new StoredContent(CONTENT_HASH, patch.getSize()));
+            when(imageContentRepository.acquire(CONTENT_HASH)).thenReturn(1);
+            when(imageStorage.exists(CONTENT_HASH)).thenReturn(true);
+            
+            // When
+            underTest.updateByProductIdAndId(fixtures.productId(), fixtures.imageId(), patch);
+            
+            // Then
+            // Assert: one reference acquired, one released, so the count is unchanged
+            verify(imageContentRepository).acquire(CONTENT_HASH);
+            verify(eventPublisher).publishEvent(new ImageContentReleasedEvent(CONTENT_HASH));
+        }
+        
+        @Test
+        public void updateById_should_ThrowImageProcessingException_when_ReadingUploadFails() throws Exception {
             // Given
             Image image = fixtures.imageEntity();
             
@@ -152,10 +309,10 @@ public class ImageServiceImplTests {
             when(imageRepository.findByProductIdAndId(fixtures.productId(), fixtures.imageId())).thenReturn(Optional.of(image));
             
             MultipartFile badPatch = mock(MultipartFile.class);
-            when(badPatch.getBytes()).thenThrow(new IOException("Boom!"));
+            when(badPatch.getInputStream()).thenThrow(new IOException("Boom!"));
             
             // When & Then
-            // Assert: throws when MultipartFile#getBytes() fails
+            // Assert: throws when MultipartFile#getInputStream() fails
             assertThrows(ImageProcessingException.class,
                          () -> underTest.updateByProductIdAndId(fixtures.productId(), fixtures.imageId(), badPatch));
             
@@ -166,41 +323,177 @@ public class ImageServiceImplTests {
         }
     }
     
+    @Nested
+    @DisplayName("findMetadataByProductId")
+    class findMetadataByProductId {
+        
+        @Test
+        void findMetadataByProductId_should_ReturnProjection_when_ProductExists() {
+            // Given
+            ImageMetadata metadata = new ImageMetadata(fixtures.imageId(), "image.png", "image/png", 9L, CONTENT_HASH);
+            
+            when(productService.findById(fixtures.productId())).thenReturn(fixtures.productEntity());
+            when(imageRepository.findMetadataByProductId(fixtures.productId())).thenReturn(List.of(metadata));
+            
+            // When
+            List<ImageMetadata> result = underTest.findMetadataByProductId(fixtures.productId());
+            
+            // Then
+            assertThat(result).containsExactly(metadata);
+            verify(imageRepository, never()).findByProductIdAndId(anyLong(), anyLong());
+        }
+        
+        @Test
+        void findMetadataByProductId_should_ThrowEntityNotFoundException_when_ProductDoesNotExist() {
+            // Given
+            when(productService.findById(fixtures.nonExistingId())).thenThrow(new EntityNotFoundException());
+            
+            // When & Then
+            assertThrows(EntityNotFoundException.class,
+                         () -> underTest.findMetadataByProductId(fixtures.nonExistingId()));
+            verify(imageRepository, never()).findMetadataByProductId(anyLong());
+        }
+    }
+    
     @Nested
     @DisplayName("getImageContent")
     class getImageContent {
         
+        @BeforeEach
+        void passThroughCache() {
+            when(imageContentCache.getOrLoad(anyLong(), anyLong(), any(ImageSize.class), any())).thenAnswer(
+                invocation -> invocation.<Supplier<FileContent>>getArgument(3).get());
+        }
+        
         @Test
-        void getImageContent_should_ReturnFileContent_when_ImageIdValid() throws SQLException {
+        void getImageContent_should_ReturnMetadataWithoutPayload_when_ImageIdValid() {
+            // Given
+            ImageMetadata metadata = new ImageMetadata(fixtures.imageId(), "image.png", "image/png", 9L, CONTENT_HASH);
+            Resource stored = new ByteArrayResource(fixtures.byteArray());
+            
+            when(imageRepository.findMetadataByProductIdAndId(fixtures.productId(), fixtures.imageId()))
+                .thenReturn(Optional.of(metadata));
+            when(imageStorage.load(CONTENT_HASH)).thenReturn(stored);
+            
+            // When
+            FileContent result = underTest.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.ORIGINAL);
+            
+            // Then
+            assertThat(result).isEqualTo(new FileContent("image.png", "image/png", 9L, stored, ImageSize.ORIGINAL));
+            verify(imageRepository, never()).findByProductIdAndId(anyLong(), anyLong());
+        }
+        
+        @Test
+        void getImageContent_should_ReturnDerivative_when_Generated() {
+            // Given
+            ImageMetadata metadata = new ImageMetadata(fixtures.imageId(), "image.png", "image/png", 9L, CONTENT_HASH);
+            Resource small = new ByteArrayResource(new byte[]{1, 2, 3}) {
+                @Override
+                public String getFilename() {
+                    return CONTENT_HASH + "-128.jpg";
+                }
+            };
+            
+            when(imageRepository.findMetadataByProductIdAndId(fixtures.productId(), fixtures.imageId()))
+                .thenReturn(Optional.of(metadata));
+            when(imageStorage.findDerivative(CONTENT_HASH, ImageSize.SMALL.maxDimension())).thenReturn(Optional.of(small));
+            
+            // When
+            FileContent result = underTest.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.SMALL);
+            
+            // Then
+            assertThat(result).isEqualTo(new FileContent("image.png", "image/jpeg", 3L, small, ImageSize.SMALL));
+            verify(derivativeGenerator, never()).enqueue(any());
+        }
+        
+        @Test
+        void getImageContent_should_FallBackToOriginal_and_Enqueue_when_DerivativeMissing() {
+            // Given
+            ImageMetadata metadata = new ImageMetadata(fixtures.imageId(), "image.png", "image/png", 9L, CONTENT_HASH);
+            Resource stored = new ByteArrayResource(fixtures.byteArray());
+            
+            when(imageRepository.findMetadataByProductIdAndId(fixtures.productId(), fixtures.imageId()))
+                .thenReturn(Optional.of(metadata));
+            when(imageStorage.findDerivative(CONTENT_HASH, ImageSize.MEDIUM.maxDimension())).thenReturn(Optional.empty());
+            when(imageStorage.load(CONTENT_HASH)).thenReturn(stored);
+            
+            // When
+            FileContent result = underTest.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.MEDIUM);
+            
+            // Then
+            assertThat(result.size()).isEqualTo(ImageSize.ORIGINAL);
+            assertThat(result.content()).isSameAs(stored);
+            verify(derivativeGenerator).enqueue(CONTENT_HASH);
+        }
+        
+        @Test
+        void getImageContent_should_ReturnNoStoredContent_when_RowIsLegacy() {
+            // Given
+            ImageMetadata metadata = new ImageMetadata(fixtures.imageId(), "image.png", "image/png", 9L, null);
+            
+            when(imageRepository.findMetadataByProductIdAndId(fixtures.productId(), fixtures.imageId()))
+                .thenReturn(Optional.of(metadata));
+            
+            // When
+            FileContent result = underTest.getImageContent(fixtures.productId(), fixtures.imageId(), ImageSize.ORIGINAL);
+            
+            // Then
+            assertThat(result.content()).isNull();
+            verify(imageStorage, never()).load(any());
+        }
+        
+        @Test
+        void getImageContent_should_ThrowEntityNotFoundException_when_ImageDoesNotExist() {
+            // Given
+            when(imageRepository.findMetadataByProductIdAndId(fixtures.productId(), fixtures.nonExistingId()))
+                .thenReturn(Optional.empty());
+            
+            // When & Then
+            assertThrows(EntityNotFoundException.class,
+                         () -> underTest.getImageContent(fixtures.productId(), fixtures.nonExistingId(), ImageSize.ORIGINAL));
+        }
+    }
+    
+    @Nested
+    @DisplayName("writeImageContent")
+    class writeImageContent {
+        
+        @Test
+        void writeImageContent_should_CopyBlobToOutputStream_when_ImageIdValid() throws IOException {
             // Given
             Image image = fixtures.imageEntity();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
             
             when(imageRepository.findByProductIdAndId(fixtures.productId(), fixtures.imageId())).thenReturn(Optional.of(image));
             
             // When
-            FileContent result = underTest.getImageContent(fixtures.productId(), fixtures.imageId());
+            underTest.writeImageContent(fixtures.productId(), fixtures.imageId(), 0, fixtures.byteArray().length, out);
             
             // Then
-            // Assert: repository looked up the entity
-            verify(imageRepository).findByProductIdAndId(fixtures.productId(), fixtures.imageId());
+            assertThat(out.toByteArray()).isEqualTo(fixtures.byteArray());
+        }
+        
+        @Test
+        void writeImageContent_should_CopyOnlyRequestedRegion() throws IOException {
+            // Given
+            Image image = fixtures.imageEntity();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
             
-            // Assert: metadata copied from Image
-            assertThat(result.fileName()).isEqualTo(image.getFileName());
-            assertThat(result.fileType()).isEqualTo(image.getFileType());
-            assertThat(result.length()).isEqualTo(image.getFile().length());
+            when(imageRepository.findByProductIdAndId(fixtures.productId(), fixtures.imageId())).thenReturn(Optional.of(image));
             
-            // Assert: bytes copied from Image BLOB
-            byte[] expected = image.getFile().getBytes(1, (int) image.getFile().length());
-            assertThat(result.bytes()).isEqualTo(expected);
+            // When
+            underTest.writeImageContent(fixtures.productId(), fixtures.imageId(), 2, 3, out);
+            
+            // Then
+            assertThat(out.toByteArray()).isEqualTo(Arrays.copyOfRange(fixtures.byteArray(), 2, 5));
         }
         
         @Test
-        void getImageContent_should_ThrowImageProcessingException_when_GetBytesFails() throws Exception {
+        void writeImageContent_should_ThrowImageProcessingException_when_BlobStreamFails() throws Exception {
             // Given
             Blob bad = mock(Blob.class);
-            long bytesArrayLength = 10L;
-            when(bad.length()).thenReturn(bytesArrayLength);
-            when(bad.getBytes(1, (int) bytesArrayLength)).thenThrow(new SQLException());
+            when(bad.length()).thenReturn(10L);
+            when(bad.getBinaryStream(1, 10L)).thenThrow(new SQLException());
             
             Image image = fixtures.withImageFile(bad)
                                   .imageEntity();
@@ -209,7 +502,42 @@ public class ImageServiceImplTests {
             
             // When & Then
             // Assert: throws ImageProcessingException wrapping the SQLException
-            assertThrows(ImageProcessingException.class, () -> underTest.getImageContent(fixtures.productId(), fixtures.imageId()));
+            assertThrows(ImageProcessingException.class,
+                         () -> underTest.writeImageContent(fixtures.productId(), fixtures.imageId(), 0, 10L,
+                                                             new ByteArrayOutputStream()));
+        }
+    }
+    
+    @Nested
+    @DisplayName("moveLegacyContentToStorage")
+    class moveLegacyContentToStorage {
+        
+        @Test
+        void moveLegacyContentToStorage_should_StoreBlobAndClearIt() throws IOException {
+            // Given
+            Image legacy = fixtures.imageEntity();
+            
+            when(imageRepository.findLegacyBlobBatch(any(Pageable.class))).thenReturn(List.of(legacy));
+            when(imageStorage.store(any(InputStream.class))).thenAnswer(invocation -> {
+                InputStream in = invocation.getArgument(0);
+                assertThat(in.readAllBytes()).isEqualTo(fixtures.byteArray());
+                return new StoredContent(CONTENT_HASH, fixtures.byteArray().length);
+            });
+            when(imageContentRepository.acquire(CONTENT_HASH)).thenReturn(1);
+            when(imageStorage.exists(CONTENT_HASH)).thenReturn(true);
+            
+            // When
+            int moved = underTest.moveLegacyContentToStorage(50);
+            
+            // Then
+            assertThat(moved).isEqualTo(1);
+            assertThat(legacy.getContentHash()).isEqualTo(CONTENT_HASH);
+            assertThat(legacy.getFile()).isNull();
         }
     }
+    
+    private void runTransactionCallbacks() {
+        when(transactionTemplate.execute(any())).thenAnswer(
+            invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
 }
@@ -0,0 +1,130 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.sobow.shopping.exceptions.ImageProcessingException;
+import com.sobow.shopping.services.image.ImageStorage;
+import com.sobow.shopping.services.image.Impl.ImageUploadStager;
+import com.sobow.shopping.services.image.Impl.StoredContent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+public class ImageUploadStagerTests {
+    
+    @Test
+    public void storeAll_should_WriteFilesConcurrently_and_KeepOrder() {
+        // Given
+        // Every write waits until all three are in flight: only passes when they run in parallel
+        CountDownLatch allStarted = new CountDownLatch(3);
+        ImageUploadStager underTest = new ImageUploadStager(new RecordingStorage(allStarted), 3);
+        
+        // When
+        List<StoredContent> result = underTest.storeAll(files(3));
+        
+        // Then
+        assertThat(result).extracting(StoredContent::size).containsExactly(1L, 2L, 3L);
+    }
+    
+    @Test
+    public void storeAll_should_NeverExceedMaxConcurrency() {
+        // Given
+        RecordingStorage storage = new RecordingStorage(null);
+        ImageUploadStager underTest = new ImageUploadStager(storage, 2);
+        
+        // When
+        underTest.storeAll(files(8));
+        
+        // Then
+        assertThat(storage.maxInFlight.get()).isLessThanOrEqualTo(2);
+    }
+    
+    @Test
+    public void storeAll_should_ThrowImageProcessingException_when_AnyFileFails() {
+        // Given
+        MultipartFile bad = new MockMultipartFile("file", "bad.png", "image/png", new byte[1]) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                throw new IOException("Boom!");
+            }
+        };
+        ImageUploadStager underTest = new ImageUploadStager(new RecordingStorage(null), 2);
+        
+        // When & Then
+        assertThrows(ImageProcessingException.class,
+                     () -> underTest.storeAll(List.of(files(1).getFirst(), bad)));
+    }
+    
+    private static List<MultipartFile> files(int count) {
+        return IntStream.rangeClosed(1, count)
+                        .mapToObj(i -> (MultipartFile) new MockMultipartFile(
+                            "file", "image" + i + ".png", "image/png", new byte[i]))
+                        .toList();
+    }
+    
+    // Reports the byte count as the size and tracks how many writes overlap
+    private static class RecordingStorage implements ImageStorage {
+        
+        private final CountDownLatch allStarted;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        
+        RecordingStorage(CountDownLatch allStarted) {
+            this.allStarted = allStarted;
+        }
+        
+        @Override
+        public StoredContent store(InputStream content) throws IOException {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                if (allStarted != null) {
+                    allStarted.countDown();
+                    if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                        throw new IOException("Writes did not overlap");
+                    }
+                } else {
+                    Thread.sleep(10);
+                }
+                return new StoredContent("a".repeat(64), content.readAllBytes().length);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+        
+        @Override
+        public Resource load(String contentHash) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public boolean exists(String contentHash) {
+            return true;
+        }
+        
+        @Override
+        public void delete(String contentHash) {
+        }
+        
+        @Override
+        public void storeDerivative(String contentHash, int maxDimension, String format, InputStream content) {
+        }
+        
+        @Override
+        public Optional<Resource> findDerivative(String contentHash, int maxDimension) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.domain.category.Category;
+import com.sobow.shopping.domain.category.CategoryDeletedEvent;
+import com.sobow.shopping.domain.category.CategoryRepository;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.services.product.Impl.IndexedProductSearcher;
+import com.sobow.shopping.services.product.Impl.SpecificationProductSearcher;
+import com.sobow.shopping.utils.TestFixtures;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class IndexedProductSearcherTests {
+    
+    @Mock
+    private ProductRepository productRepository;
+    
+    @Mock
+    private CategoryRepository categoryRepository;
+    
+    @Mock
+    private SpecificationProductSearcher fallback;
+    
+    private IndexedProductSearcher underTest;
+    
+    private final TestFixtures fixtures = new TestFixtures();
+    
+    @BeforeEach
+    public void setUp() {
+        underTest = new IndexedProductSearcher(productRepository, categoryRepository, fallback);
+    }
+    
+    @Test
+    public void build_should_SkipProducts_when_TheirCategoryDeletedDuringBuild() {
+        // Given
+        Category category = fixtures.categoryEntity();
+        ReflectionTestUtils.setField(category, "id", fixtures.categoryId());
+        Product product = fixtures.productEntity();
+        ReflectionTestUtils.setField(product, "id", fixtures.productId());
+        category.addProductAndLink(product);
+        // The build read the product, then the category delete committed before the row was indexed
+        when(productRepository.findPageOrderedById(anyLong(), any())).thenAnswer(invocation -> {
+            underTest.onCategoryDeleted(new CategoryDeletedEvent(fixtures.categoryId()));
+            return List.of(product);
+        });
+        
+        // When
+        underTest.build();
+        
+        // Then
+        assertThat(underTest.isReady()).isTrue();
+        assertThat(underTest.size()).isZero();
+    }
+}
@@ -0,0 +1,88 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.domain.cart.CartItem;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.exceptions.InsufficientStockException;
+import com.sobow.shopping.services.order.Impl.LockingStockAllocator;
+import com.sobow.shopping.services.product.ProductService;
+import com.sobow.shopping.utils.TestFixtures;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class LockingStockAllocatorTests {
+    
+    @Mock
+    private ProductService productService;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @InjectMocks
+    private LockingStockAllocator underTest;
+    
+    private final TestFixtures fixtures = new TestFixtures();
+    
+    @Test
+    public void allocate_should_LockProducts_and_DecrementStock() {
+        // Given
+        CartItem cartItem = fixtures.cartItemEntity();
+        Product product = cartItem.getProduct();
+        ReflectionTestUtils.setField(product, "id", fixtures.productId());
+        int availableBefore = product.getAvailableQty();
+        when(productService.lockForOrder(List.of(fixtures.productId()))).thenReturn(List.of(product));
+        
+        // When
+        underTest.allocate(List.of(cartItem));
+        
+        // Then
+        verify(productService).lockForOrder(List.of(fixtures.productId()));
+        assertThat(product.getAvailableQty()).isEqualTo(availableBefore - cartItem.getRequestedQty());
+        verify(eventPublisher).publishEvent(new ProductChangedEvent(product));
+    }
+    
+    @Test
+    public void allocate_should_CheckLockedRow_when_CartHoldsStaleProduct() {
+        // Given
+        CartItem cartItem = fixtures.cartItemEntity();
+        ReflectionTestUtils.setField(cartItem.getProduct(), "id", fixtures.productId());
+        // Another checkout committed since the cart was loaded: the row as locked has less stock
+        Product locked = fixtures.productEntity();
+        ReflectionTestUtils.setField(locked, "id", fixtures.productId());
+        locked.setAvailableQty(0);
+        when(productService.lockForOrder(List.of(fixtures.productId()))).thenReturn(List.of(locked));
+        
+        // When & Then
+        assertThrows(InsufficientStockException.class, () -> underTest.allocate(List.of(cartItem)));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+    
+    @Test
+    public void allocate_should_ThrowInsufficientStock_when_StockChanged() {
+        // Given
+        CartItem cartItem = fixtures.cartItemEntity();
+        Product product = cartItem.getProduct();
+        ReflectionTestUtils.setField(product, "id", fixtures.productId());
+        product.setAvailableQty(0);
+        when(productService.lockForOrder(List.of(fixtures.productId()))).thenReturn(List.of(product));
+        
+        // When & Then
+        assertThrows(InsufficientStockException.class, () -> underTest.allocate(List.of(cartItem)));
+        assertThat(product.getAvailableQty()).isZero();
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+}
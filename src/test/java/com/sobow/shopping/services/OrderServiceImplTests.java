@@ -3,7 +3,7 @@ package com.sobow.shopping.services;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -11,23 +11,35 @@ import static org.mockito.Mockito.when;
 import com.sobow.shopping.domain.cart.Cart;
 import com.sobow.shopping.domain.cart.CartItem;
 import com.sobow.shopping.domain.order.Order;
+import com.sobow.shopping.domain.order.OrderIdempotencyKey;
+import com.sobow.shopping.domain.order.OrderIdempotencyKeyRepository;
 import com.sobow.shopping.domain.order.OrderRepository;
 import com.sobow.shopping.domain.order.OrderStatus;
 import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
 import com.sobow.shopping.domain.user.User;
 import com.sobow.shopping.domain.user.UserProfile;
 import com.sobow.shopping.exceptions.CartEmptyException;
+import com.sobow.shopping.exceptions.IdempotencyKeyInFlightException;
 import com.sobow.shopping.exceptions.InsufficientStockException;
 import com.sobow.shopping.services.cart.CartService;
+import com.sobow.shopping.services.order.CheckoutRequest;
 import com.sobow.shopping.services.order.Impl.OrderServiceImpl;
+import com.sobow.shopping.services.order.StockAllocator;
+import com.sobow.shopping.services.order.OrderOutcome;
+import com.sobow.shopping.services.product.Impl.HotStock;
 import com.sobow.shopping.services.product.ProductService;
+import com.sobow.shopping.services.reservation.StockReservationService;
 import com.sobow.shopping.services.user.CurrentUserService;
 import com.sobow.shopping.services.user.UserProfileService;
 import com.sobow.shopping.utils.TestFixtures;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -37,6 +49,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,20 +58,32 @@ public class OrderServiceImplTests {
     @Mock
     private OrderRepository orderRepository;
     @Mock
+    private OrderIdempotencyKeyRepository keyRepository;
+    @Mock
     private UserProfileService userProfileService;
     @Mock
     private ProductService productService;
     @Mock
+    private HotStock hotStock;
+    @Mock
+    private StockAllocator stockAllocator;
+    @Mock
+    private StockReservationService reservationService;
+    @Mock
     private CartService cartService;
     @Mock
     private CurrentUserService currentUserService;
     @Mock
     private EntityManager entityManager;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
     @InjectMocks
     private OrderServiceImpl underTest;
     
     private final TestFixtures fixtures = new TestFixtures();
     
+    private static final long KEY_ID = 7L;
+    
     @Nested
     @DisplayName("createOrder")
     class createOrder {
@@ -78,12 +103,13 @@ public class OrderServiceImplTests {
             cart.addCartItemAndLink(cartItem);
             
             // Snapshots
-            List<Long> cartProductsIdsBefore = cart.getProductsId();
             Set<CartItem> cartItemsBefore = new HashSet<>(cart.getCartItems());
+            List<CartItem> regularItems = List.copyOf(cart.getCartItems());
             
             when(currentUserService.getAuthenticatedUser(any())).thenReturn(user);
             when(userProfileService.findByUserId(fixtures.userId())).thenReturn(userProfile);
             when(cartService.findByUserIdWithItems(fixtures.userId())).thenReturn(cart);
+            when(hotStock.allocate(cart.getCartItems())).thenReturn(regularItems);
             
             // When
             Order result = underTest.selfCreateOrder();
@@ -93,10 +119,11 @@ public class OrderServiceImplTests {
             verify(userProfileService).findByUserId(fixtures.userId());
             verify(cartService).findByUserIdWithItems(fixtures.userId());
             
-            // Assert: product stock was locked for EXACT products from cart
-            ArgumentCaptor<List<Long>> idsCaptor = ArgumentCaptor.forClass(List.class);
-            verify(productService, times(1)).lockForOrder(idsCaptor.capture());
-            assertThat(idsCaptor.getValue()).containsExactlyElementsOf(cartProductsIdsBefore);
+            // Assert: stock was taken for EXACT items the hot stock left to the allocator
+            ArgumentCaptor<Collection<CartItem>> itemsCaptor = ArgumentCaptor.forClass(Collection.class);
+            verify(stockAllocator).allocate(itemsCaptor.capture());
+            assertThat(itemsCaptor.getValue()).isSameAs(regularItems);
+            verify(reservationService).releaseAll(cart);
             
             // Assert: order is NEW
             assertThat(result.getStatus()).isEqualTo(OrderStatus.NEW);
@@ -141,7 +168,7 @@ public class OrderServiceImplTests {
             verify(cartService).findByUserIdWithItems(fixtures.userId());
             
             // Assert: no stock ops / no persistence when cart missing
-            verifyNoInteractions(productService, orderRepository);
+            verifyNoInteractions(hotStock, stockAllocator, orderRepository);
         }
         
         @Test
@@ -165,9 +192,9 @@ public class OrderServiceImplTests {
             verify(cartService).findByUserIdWithItems(fixtures.userId());
             
             // Assert: no stock ops / no persistence when cart empty
-            verifyNoInteractions(productService, orderRepository);
-            
-            
+            verifyNoInteractions(hotStock, stockAllocator, orderRepository);
+        
+        
         }
         
         @Test
@@ -183,12 +210,13 @@ public class OrderServiceImplTests {
             userProfile.setCartAndLink(cart);
             cart.addCartItemAndLink(cartItem);
             
-            Product product = cartItem.getProduct();
-            product.setAvailableQty(0);
-            
             when(currentUserService.getAuthenticatedUser(any())).thenReturn(user);
             when(userProfileService.findByUserId(fixtures.userId())).thenReturn(userProfile);
             when(cartService.findByUserIdWithItems(fixtures.userId())).thenReturn(cart);
+            List<CartItem> regularItems = List.copyOf(cart.getCartItems());
+            when(hotStock.allocate(cart.getCartItems())).thenReturn(regularItems);
+            doThrow(new InsufficientStockException(fixtures.productId(), 0, cartItem.getRequestedQty()))
+                .when(stockAllocator).allocate(regularItems);
             
             // When & Then
             assertThrows(InsufficientStockException.class, () -> underTest.selfCreateOrder());
@@ -202,5 +230,188 @@ public class OrderServiceImplTests {
             assertThat(userProfile.getCart()).isSameAs(cart);
             verifyNoInteractions(orderRepository);
         }
+        
+        @Test
+        public void createOrder_should_SkipStockAllocator_when_AllItemsAreHot() {
+            // Given
+            User user = fixtures.userEntity();
+            ReflectionTestUtils.setField(user, "id", fixtures.userId());
+            UserProfile userProfile = fixtures.userProfileEntity();
+            Cart cart = fixtures.cartEntity();
+            CartItem cartItem = fixtures.cartItemEntity();
+            
+            user.setProfileAndLink(userProfile);
+            userProfile.setCartAndLink(cart);
+            cart.addCartItemAndLink(cartItem);
+            
+            when(currentUserService.getAuthenticatedUser(any())).thenReturn(user);
+            when(userProfileService.findByUserId(fixtures.userId())).thenReturn(userProfile);
+            when(cartService.findByUserIdWithItems(fixtures.userId())).thenReturn(cart);
+            when(hotStock.allocate(cart.getCartItems())).thenReturn(List.of());
+            
+            // When
+            Order result = underTest.selfCreateOrder();
+            
+            // Then
+            assertThat(result.getOrderItems()).hasSize(1);
+            verifyNoInteractions(stockAllocator);
+            verify(reservationService).releaseAll(cart);
+        }
+        
+        @Test
+        public void createOrder_should_CompleteIdempotencyKey_inOrderTransaction() {
+            // Given
+            Cart cart = cartWithItem();
+            when(keyRepository.findAllForUpdate(List.of(KEY_ID))).thenReturn(List.of(claim(null)));
+            when(hotStock.allocate(cart.getCartItems())).thenReturn(List.of());
+            
+            // When
+            Order result = underTest.createOrder(new CheckoutRequest(fixtures.userId(), KEY_ID));
+            
+            // Then
+            // Assert: the key points at the order before the transaction ends
+            verify(keyRepository).complete(KEY_ID, result.getId());
+        }
+        
+        @Test
+        public void createOrder_should_Throw_when_KeyCompletionFails() {
+            // Given
+            Cart cart = cartWithItem();
+            when(keyRepository.findAllForUpdate(List.of(KEY_ID))).thenReturn(List.of(claim(null)));
+            when(hotStock.allocate(cart.getCartItems())).thenReturn(List.of());
+            when(keyRepository.complete(any(Long.class), any())).thenThrow(new IllegalStateException("connection lost"));
+            
+            // When & Then
+            // Assert: the failure leaves the transactional method, so the order rolls back with the key
+            assertThrows(IllegalStateException.class,
+                         () -> underTest.createOrder(new CheckoutRequest(fixtures.userId(), KEY_ID)));
+        }
+        
+        @Test
+        public void createOrder_should_ThrowInFlight_when_ClaimAlreadyRecordsOrder() {
+            // Given
+            when(keyRepository.findAllForUpdate(List.of(KEY_ID))).thenReturn(List.of(claim(fixtures.orderId())));
+            
+            // When & Then
+            assertThrows(IdempotencyKeyInFlightException.class,
+                         () -> underTest.createOrder(new CheckoutRequest(fixtures.userId(), KEY_ID)));
+            
+            // Assert: nothing was loaded or taken for a second order
+            verifyNoInteractions(cartService, hotStock, stockAllocator);
+        }
+        
+        private Cart cartWithItem() {
+            UserProfile userProfile = fixtures.userProfileEntity();
+            Cart cart = fixtures.cartEntity();
+            userProfile.setCartAndLink(cart);
+            cart.addCartItemAndLink(fixtures.cartItemEntity());
+            when(userProfileService.findByUserId(fixtures.userId())).thenReturn(userProfile);
+            when(cartService.findByUserIdWithItems(fixtures.userId())).thenReturn(cart);
+            return cart;
+        }
+    }
+    
+    @Nested
+    @DisplayName("createOrders")
+    class createOrders {
+        
+        @Test
+        public void createOrders_should_PlaceCoveredOrders_and_DropShortOnes_inOneBatch() {
+            // Given
+            Product product = lockedProduct(5, 0);
+            UserProfile first = profileWithCart(1L, 3);
+            UserProfile second = profileWithCart(2L, 3);
+            Cart secondCart = second.getCart();
+            
+            // When
+            List<OrderOutcome> result = underTest.createOrders(List.of(CheckoutRequest.of(1L), CheckoutRequest.of(2L)));
+            
+            // Then
+            // Assert: the first order took the stock, the second found it short and was dropped alone
+            assertThat(result.get(0).order()).isNotNull();
+            assertThat(result.get(1).failure()).isInstanceOf(InsufficientStockException.class);
+            assertThat(product.getAvailableQty()).isEqualTo(2);
+            assertThat(first.getOrders()).hasSize(1);
+            assertThat(second.getOrders()).isEmpty();
+            
+            // Assert: the dropped order keeps its holds; products were locked once for the whole batch
+            verify(reservationService).restore(secondCart, Map.of());
+            verify(productService).lockForOrder(List.of(fixtures.productId()));
+            verify(eventPublisher).publishEvent(new ProductChangedEvent(product));
+        }
+        
+        @Test
+        public void createOrders_should_CountOwnHold_when_OtherStockIsHeld() {
+            // Given
+            // 5 units, all held: 3 by this cart, 2 by others
+            Product product = lockedProduct(5, 5);
+            UserProfile profile = profileWithCart(1L, 3);
+            when(reservationService.claimAll(profile.getCart())).thenReturn(Map.of(fixtures.productId(), 3));
+            
+            // When
+            List<OrderOutcome> result = underTest.createOrders(List.of(CheckoutRequest.of(1L)));
+            
+            // Then
+            assertThat(result.getFirst().order()).isNotNull();
+            assertThat(product.getAvailableQty()).isEqualTo(2);
+            verify(reservationService).releaseClaimed(Map.of(fixtures.productId(), 3));
+        }
+        
+        @Test
+        public void createOrders_should_FailOnlyThatOrder_when_UserHasNoCart() {
+            // Given
+            when(userProfileService.findByUserId(1L)).thenReturn(fixtures.userProfileEntity());
+            when(cartService.findByUserIdWithItems(1L)).thenThrow(new EntityNotFoundException());
+            
+            // When
+            List<OrderOutcome> result = underTest.createOrders(List.of(CheckoutRequest.of(1L)));
+            
+            // Then
+            assertThat(result.getFirst().failure()).isInstanceOf(EntityNotFoundException.class);
+            verifyNoInteractions(productService);
+        }
+        
+        @Test
+        public void createOrders_should_FailOnlyThatOrder_when_ClaimWasTakenOver() {
+            // Given
+            // The claim row is gone: another request released or purged it
+            when(keyRepository.findAllForUpdate(Set.of(KEY_ID))).thenReturn(List.of());
+            
+            // When
+            List<OrderOutcome> result = underTest.createOrders(List.of(new CheckoutRequest(1L, KEY_ID)));
+            
+            // Then
+            assertThat(result.getFirst().failure()).isInstanceOf(IdempotencyKeyInFlightException.class);
+            verifyNoInteractions(cartService, productService);
+        }
+        
+        private Product lockedProduct(int availableQty, int reservedQty) {
+            Product product = fixtures.productEntity();
+            ReflectionTestUtils.setField(product, "id", fixtures.productId());
+            ReflectionTestUtils.setField(product, "availableQty", availableQty);
+            ReflectionTestUtils.setField(product, "reservedQty", reservedQty);
+            when(productService.lockForOrder(List.of(fixtures.productId()))).thenReturn(List.of(product));
+            return product;
+        }
+        
+        private UserProfile profileWithCart(long userId, int requestedQty) {
+            UserProfile profile = fixtures.userProfileEntity();
+            Cart cart = fixtures.cartEntity();
+            CartItem item = fixtures.cartItemEntity();
+            ReflectionTestUtils.setField(item.getProduct(), "id", fixtures.productId());
+            ReflectionTestUtils.setField(item, "requestedQty", requestedQty);
+            profile.setCartAndLink(cart);
+            cart.addCartItemAndLink(item);
+            when(userProfileService.findByUserId(userId)).thenReturn(profile);
+            when(cartService.findByUserIdWithItems(userId)).thenReturn(cart);
+            return profile;
+        }
+    }
+    
+    private OrderIdempotencyKey claim(Long orderId) {
+        OrderIdempotencyKey key = new OrderIdempotencyKey(fixtures.userId(), "key-1", Instant.now());
+        ReflectionTestUtils.setField(key, "id", KEY_ID);
+        ReflectionTestUtils.setField(key, "orderId", orderId);
+        return key;
     }
 }
@@ -0,0 +1,136 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sobow.shopping.controllers.product.dto.ProductResponse;
+import com.sobow.shopping.domain.product.ProductDeletedEvent;
+import com.sobow.shopping.services.product.Impl.ProductResponseCache;
+import com.sobow.shopping.utils.TestFixtures;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class ProductResponseCacheTests {
+    
+    private final TestFixtures fixtures = new TestFixtures();
+    
+    @Test
+    public void getOrLoad_should_LoadOnce_when_SameIdRequestedTwice() {
+        // Given
+        ProductResponseCache underTest = new ProductResponseCache(10);
+        ProductResponse response = fixtures.productResponse();
+        AtomicInteger loads = new AtomicInteger();
+        
+        // When
+        underTest.getOrLoad(1L, id -> {
+            loads.incrementAndGet();
+            return response;
+        });
+        ProductResponse result = underTest.getOrLoad(1L, id -> {
+            loads.incrementAndGet();
+            return response;
+        });
+        
+        // Then
+        assertThat(result).isSameAs(response);
+        assertThat(loads).hasValue(1);
+        assertThat(underTest.stats().hits()).isEqualTo(1);
+        assertThat(underTest.stats().misses()).isEqualTo(1);
+    }
+    
+    @Test
+    public void getOrLoad_should_EvictLeastRecentlyUsed_when_Full() {
+        // Given
+        ProductResponseCache underTest = new ProductResponseCache(2);
+        ProductResponse response = fixtures.productResponse();
+        underTest.getOrLoad(1L, id -> response);
+        underTest.getOrLoad(2L, id -> response);
+        underTest.getOrLoad(1L, id -> response); // 1 becomes most recently used
+        
+        // When
+        underTest.getOrLoad(3L, id -> response);
+        
+        // Then
+        AtomicInteger loads = new AtomicInteger();
+        underTest.getOrLoad(1L, id -> {
+            loads.incrementAndGet();
+            return response;
+        });
+        underTest.getOrLoad(2L, id -> {
+            loads.incrementAndGet();
+            return response;
+        });
+        
+        // Assert: 1 survived, 2 was evicted and had to be reloaded
+        assertThat(loads).hasValue(1);
+        assertThat(underTest.stats().size()).isEqualTo(2);
+        assertThat(underTest.stats().evictions()).isEqualTo(2);
+    }
+    
+    @Test
+    public void getAllOrLoad_should_LoadOnlyMisses_inOneCall() {
+        // Given
+        ProductResponseCache underTest = new ProductResponseCache(10);
+        ProductResponse response = fixtures.productResponse();
+        underTest.getOrLoad(1L, id -> response);
+        List<List<Long>> loaderCalls = new ArrayList<>();
+        
+        // When
+        Map<Long, ProductResponse> result = underTest.getAllOrLoad(List.of(1L, 2L, 3L), ids -> {
+            loaderCalls.add(ids);
+            return Map.of(2L, response); // 3 does not exist
+        });
+        
+        // Then
+        assertThat(loaderCalls).containsExactly(List.of(2L, 3L));
+        assertThat(result).containsOnlyKeys(1L, 2L);
+        assertThat(underTest.stats().size()).isEqualTo(2);
+    }
+    
+    @Test
+    public void getOrLoad_should_NotCacheResult_when_InvalidatedDuringLoad() {
+        // Given
+        ProductResponseCache underTest = new ProductResponseCache(10);
+        ProductResponse stale = fixtures.productResponse();
+        
+        // When
+        underTest.getOrLoad(1L, id -> {
+            underTest.onProductDeleted(new ProductDeletedEvent(id));
+            return stale;
+        });
+        
+        // Then
+        AtomicInteger loads = new AtomicInteger();
+        underTest.getOrLoad(1L, id -> {
+            loads.incrementAndGet();
+            return stale;
+        });
+        assertThat(loads).hasValue(1);
+    }
+    
+    @Test
+    public void getAllOrLoad_should_CacheOtherProducts_when_OneInvalidatedDuringLoad() {
+        // Given
+        ProductResponseCache underTest = new ProductResponseCache(10);
+        ProductResponse response = fixtures.productResponse();
+        
+        // When
+        underTest.getAllOrLoad(List.of(1L, 2L), ids -> {
+            // A checkout elsewhere changes product 1 meanwhile
+            underTest.evict(1L);
+            return Map.of(1L, response, 2L, response);
+        });
+        
+        // Then
+        // Assert: only the invalidated product's result was discarded
+        assertThat(underTest.stats().size()).isEqualTo(1);
+        AtomicInteger loads = new AtomicInteger();
+        underTest.getOrLoad(2L, id -> {
+            loads.incrementAndGet();
+            return response;
+        });
+        assertThat(loads).hasValue(0);
+    }
+}
@@ -0,0 +1,102 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import com.sobow.shopping.services.product.Impl.ProductSearchIndex;
+import com.sobow.shopping.services.product.Impl.ProductSearchIndex.Doc;
+import com.sobow.shopping.services.product.Impl.ProductSearchIndex.FacetKey;
+import com.sobow.shopping.services.product.PriceBucket;
+import com.sobow.shopping.services.product.ProductCursor;
+import com.sobow.shopping.services.product.ProductSort;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ProductSearchIndexTests {
+    
+    private ProductSearchIndex underTest;
+    
+    @BeforeEach
+    void setUp() {
+        underTest = new ProductSearchIndex();
+        underTest.put(new Doc(1L, "iphone 15", "Apple", 10L, new BigDecimal("999.00")));
+        underTest.put(new Doc(2L, "galaxy phone", "Samsung", 10L, new BigDecimal("799.00")));
+        underTest.put(new Doc(3L, "macbook air", "Apple", 20L, new BigDecimal("1299.00")));
+    }
+    
+    @Test
+    public void search_should_MatchNameSubstring_when_QueryIsAtLeastTrigram() {
+        // When
+        List<Long> result = underTest.search("PHONE", null, null, ProductSort.ID, null, 10);
+        
+        // Then
+        assertThat(result).containsExactly(1L, 2L);
+    }
+    
+    @Test
+    public void search_should_MatchNameSubstring_when_QueryIsShorterThanTrigram() {
+        // When
+        List<Long> result = underTest.search("ac", null, null, ProductSort.ID, null, 10);
+        
+        // Then
+        assertThat(result).containsExactly(3L);
+    }
+    
+    @Test
+    public void search_should_CombineFilters_and_OrderByPrice() {
+        // When
+        List<Long> byBrand = underTest.search(null, "Apple", null, ProductSort.PRICE, null, 10);
+        List<Long> byBrandAndCategory = underTest.search(null, "Apple", 10L, ProductSort.PRICE, null, 10);
+        
+        // Then
+        assertThat(byBrand).containsExactly(1L, 3L);
+        assertThat(byBrandAndCategory).containsExactly(1L);
+    }
+    
+    @Test
+    public void search_should_ContinueAfterCursor_and_RespectLimit() {
+        // Given
+        ProductCursor after = new ProductCursor(ProductSort.PRICE, new BigDecimal("799.00"), 2L);
+        
+        // When
+        List<Long> result = underTest.search(null, null, null, ProductSort.PRICE, after, 1);
+        
+        // Then
+        assertThat(result).containsExactly(1L);
+    }
+    
+    @Test
+    public void put_should_ReplacePostings_when_ProductRenamed() {
+        // When
+        underTest.put(new Doc(1L, "watch", "Apple", 10L, new BigDecimal("399.00")));
+        
+        // Then
+        assertThat(underTest.search("phone", null, null, ProductSort.ID, null, 10)).containsExactly(2L);
+        assertThat(underTest.search("watch", null, null, ProductSort.ID, null, 10)).containsExactly(1L);
+    }
+    
+    @Test
+    public void countFacets_should_GroupMatchesByBrandCategoryAndPriceBucket() {
+        // When
+        Map<FacetKey, Long> result = underTest.countFacets(null, "Apple", null);
+        
+        // Then
+        assertThat(result).containsOnly(
+            entry(new FacetKey("Apple", 10L, PriceBucket.FROM_500_TO_1000), 1L),
+            entry(new FacetKey("Apple", 20L, PriceBucket.FROM_1000), 1L)
+        );
+    }
+    
+    @Test
+    public void removeCategory_should_DropAllProductsOfCategory() {
+        // When
+        underTest.removeCategory(10L);
+        
+        // Then
+        assertThat(underTest.size()).isEqualTo(1);
+        assertThat(underTest.search(null, "Apple", null, ProductSort.ID, null, 10)).containsExactly(3L);
+    }
+}
@@ -3,28 +3,55 @@ package com.sobow.shopping.services;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.sobow.shopping.controllers.product.dto.ProductBatchResponse;
 import com.sobow.shopping.controllers.product.dto.ProductCreateRequest;
+import com.sobow.shopping.controllers.product.dto.ProductPageResponse;
+import com.sobow.shopping.controllers.product.dto.ProductResponse;
 import com.sobow.shopping.controllers.product.dto.ProductUpdateRequest;
 import com.sobow.shopping.domain.category.Category;
 import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.domain.product.ProductListingRow;
 import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.exceptions.HotStockActiveException;
+import com.sobow.shopping.exceptions.InvalidCursorException;
 import com.sobow.shopping.exceptions.ProductAlreadyExistsException;
 import com.sobow.shopping.mappers.product.ProductCreateRequestMapper;
+import com.sobow.shopping.mappers.product.ProductResponseMapper;
 import com.sobow.shopping.services.category.CategoryService;
+import com.sobow.shopping.services.product.Impl.HotStock;
+import com.sobow.shopping.services.product.Impl.ProductResponseCache;
 import com.sobow.shopping.services.product.Impl.ProductServiceImpl;
+import com.sobow.shopping.services.product.ProductCursor;
+import com.sobow.shopping.services.product.ProductSearcher;
+import com.sobow.shopping.services.product.ProductService;
+import com.sobow.shopping.services.product.ProductSort;
 import com.sobow.shopping.utils.TestFixtures;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.util.ReflectionTestUtils;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,6 +66,24 @@ public class ProductServiceImplTests {
     @Mock
     private ProductCreateRequestMapper productCreateRequestMapper;
     
+    @Mock
+    private ProductResponseMapper productResponseMapper;
+    
+    @Mock
+    private ProductSearcher productSearcher;
+    
+    @Mock
+    private ProductResponseCache productResponseCache;
+    
+    @Mock
+    private HotStock hotStock;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Mock
+    private EntityManager entityManager;
+    
     @InjectMocks
     private ProductServiceImpl underTest;
     
@@ -78,6 +123,9 @@ public class ProductServiceImplTests {
             // Assert: product linked to the loaded category
             assertThat(result.getCategory()).isSameAs(category);
             assertThat(category.getProducts()).containsExactly(result);
+            
+            // Assert: readers are notified about the new product
+            verify(eventPublisher).publishEvent(new ProductChangedEvent(result));
         }
         
         @Test
@@ -160,6 +208,9 @@ public class ProductServiceImplTests {
             
             // Assert: the patched field changed
             assertThat(product.getName()).isEqualTo(newProductName);
+            
+            // Assert: readers are notified about the change
+            verify(eventPublisher).publishEvent(new ProductChangedEvent(product));
         }
         
         @Test
@@ -183,7 +234,7 @@ public class ProductServiceImplTests {
             // Assert: uniqueness check performed with patch name, brand and excluded id
             verify(productRepository)
                 .existsByNameAndBrandNameAndIdNot(patch.name(), patch.brandName(), fixtures.productId());
-            
+        
         }
         
         @Test
@@ -206,7 +257,166 @@ public class ProductServiceImplTests {
             
             // Assert: category lookup was attempted with the provided id
             verify(categoryService).findById(fixtures.nonExistingId());
+        
+        }
+        
+        @Test
+        public void partialUpdateById_should_ThrowHotStockActive_when_QuantityChangedWhileHot() {
+            // Given
+            ProductUpdateRequest patch = fixtures.productUpdateRequest();
+            doThrow(new HotStockActiveException(fixtures.productId())).when(hotStock).assertNotHot(fixtures.productId());
+            
+            // When & Then
+            assertThrows(HotStockActiveException.class,
+                         () -> underTest.partialUpdateById(fixtures.productId(), patch));
+            
+            // Assert: nothing was loaded or changed
+            verify(productRepository, never()).findById(anyLong());
+        }
+    }
+    
+    @Nested
+    @DisplayName("findResponsesByIds")
+    class findResponsesByIds {
+        
+        @Test
+        public void findResponsesByIds_should_KeepRequestOrder_and_ReportMissingIds() {
+            // Given
+            ProductResponse first = ProductResponse.builder().id(3L).build();
+            ProductResponse second = ProductResponse.builder().id(1L).build();
+            when(productResponseCache.getAllOrLoad(eq(List.of(3L, 2L, 1L)), any()))
+                .thenReturn(Map.of(1L, second, 3L, first));
+            
+            // When
+            ProductBatchResponse result = underTest.findResponsesByIds(List.of(3L, 2L, 3L, 1L));
+            
+            // Then
+            // Assert: duplicates collapsed, request order kept
+            assertThat(result.items()).containsExactly(first, second);
+            assertThat(result.missingIds()).containsExactly(2L);
+        }
+    }
+    
+    @Nested
+    @DisplayName("findPage")
+    class findPage {
+        
+        private ProductListingRow rowWithId(long id) {
+            return new ProductListingRow(id, "name-" + id, "brand", BigDecimal.TEN, 1, "description", 1L, null);
+        }
+        
+        private void mapRowsById() {
+            when(productResponseMapper.mapToDto(any(ProductListingRow.class))).thenAnswer(invocation -> {
+                ProductListingRow row = invocation.getArgument(0);
+                return ProductResponse.builder().id(row.id()).price(row.price()).build();
+            });
+        }
+        
+        @Test
+        public void findPage_should_ReturnNextCursor_when_MoreRowsThanPageSize() {
+            // Given
+            List<ProductListingRow> rows = List.of(rowWithId(1L), rowWithId(2L), rowWithId(3L));
+            
+            when(productRepository.findListingPageOrderedById(0L, PageRequest.ofSize(3))).thenReturn(rows);
+            mapRowsById();
+            
+            // When
+            ProductPageResponse result = underTest.findPage(ProductSort.ID, null, 2);
+            
+            // Then
+            // Assert: the extra look-ahead row is not returned
+            assertThat(result.items()).hasSize(2);
+            
+            // Assert: cursor points at the last returned row
+            assertThat(ProductCursor.decode(result.nextCursor(), ProductSort.ID).id()).isEqualTo(2L);
+        }
+        
+        @Test
+        public void findPage_should_OmitNextCursor_when_LastPage() {
+            // Given
+            String cursor = new ProductCursor(ProductSort.ID, null, 1L).encode();
+            
+            when(productRepository.findListingPageOrderedById(1L, PageRequest.ofSize(3))).thenReturn(List.of(rowWithId(2L)));
+            mapRowsById();
+            
+            // When
+            ProductPageResponse result = underTest.findPage(ProductSort.ID, cursor, 2);
+            
+            // Then
+            // Assert: seek started after the id carried by the cursor
+            verify(productRepository).findListingPageOrderedById(1L, PageRequest.ofSize(3));
+            
+            // Assert: no next page
+            assertThat(result.items()).hasSize(1);
+            assertThat(result.nextCursor()).isNull();
+        }
+        
+        @Test
+        public void findPage_should_CapPageSize_when_SizeAboveMaximum() {
+            // Given
+            PageRequest cappedLimit = PageRequest.ofSize(ProductService.MAX_PAGE_SIZE + 1);
+            when(productRepository.findListingPageOrderedById(0L, cappedLimit)).thenReturn(List.of());
+            
+            // When
+            ProductPageResponse result = underTest.findPage(ProductSort.ID, null, 10_000);
+            
+            // Then
+            verify(productRepository).findListingPageOrderedById(0L, cappedLimit);
+            assertThat(result.items()).isEmpty();
+        }
+        
+        @Test
+        public void findPage_should_ThrowInvalidCursor_when_CursorIssuedForOtherSort() {
+            // Given
+            String priceCursor = new ProductCursor(ProductSort.PRICE, BigDecimal.TEN, 1L).encode();
             
+            // When & Then
+            assertThrows(InvalidCursorException.class, () -> underTest.findPage(ProductSort.ID, priceCursor, 2));
+        }
+        
+        @Test
+        public void findPage_should_ThrowInvalidCursor_when_CursorMalformed() {
+            // When & Then
+            assertThrows(InvalidCursorException.class, () -> underTest.findPage(ProductSort.ID, "not-a-cursor", 2));
+        }
+    }
+    
+    @Nested
+    @DisplayName("lockForOrder")
+    class lockForOrder {
+        
+        @Test
+        public void lockForOrder_should_RefreshManagedProductsUnderLock_InIdOrder() {
+            // Given
+            Product first = fixtures.productEntity();
+            ReflectionTestUtils.setField(first, "id", 1L);
+            Product second = fixtures.productEntity();
+            ReflectionTestUtils.setField(second, "id", 2L);
+            when(entityManager.find(Product.class, 1L)).thenReturn(first);
+            when(entityManager.find(Product.class, 2L)).thenReturn(second);
+            
+            // When
+            List<Product> result = underTest.lockForOrder(List.of(2L, 1L, 2L));
+            
+            // Then
+            // Assert: the instances the caller already holds are re-read as locked, so none is checked stale
+            assertThat(result).containsExactly(first, second);
+            InOrder inOrder = inOrder(entityManager);
+            inOrder.verify(entityManager).refresh(eq(first), eq(LockModeType.PESSIMISTIC_WRITE), any());
+            inOrder.verify(entityManager).refresh(eq(second), eq(LockModeType.PESSIMISTIC_WRITE), any());
+        }
+        
+        @Test
+        public void lockForOrder_should_SkipProduct_when_NotFound() {
+            // Given
+            when(entityManager.find(Product.class, 1L)).thenReturn(null);
+            
+            // When
+            List<Product> result = underTest.lockForOrder(List.of(1L));
+            
+            // Then
+            assertThat(result).isEmpty();
+            verify(entityManager, never()).refresh(any(), any(LockModeType.class), any());
         }
     }
 }
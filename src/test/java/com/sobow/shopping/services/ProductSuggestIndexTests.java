@@ -0,0 +1,142 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.controllers.product.dto.ProductSuggestionsResponse;
+import com.sobow.shopping.domain.category.Category;
+import com.sobow.shopping.domain.category.CategoryDeletedEvent;
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.domain.product.ProductDeletedEvent;
+import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.services.product.Impl.ProductSuggestIndex;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductSuggestIndexTests {
+    
+    @Mock
+    private ProductRepository productRepository;
+    
+    @InjectMocks
+    private ProductSuggestIndex underTest;
+    
+    private Category phones;
+    private Category laptops;
+    
+    @BeforeEach
+    void setUp() {
+        phones = category(10L, "Phones");
+        laptops = category(20L, "Laptops");
+        
+        when(productRepository.findPageOrderedById(eq(0L), any(Pageable.class)))
+            .thenReturn(List.of(
+                product(1L, "iPhone 15", "Apple", phones),
+                product(2L, "Galaxy S24", "Samsung", phones),
+                product(3L, "MacBook Air", "Apple", laptops),
+                product(4L, "iPad Mini", "Apple", laptops)
+            ));
+        underTest.build();
+    }
+    
+    @Test
+    public void suggest_should_ReturnNamesAndDistinctBrands_when_PrefixMatchesCaseInsensitively() {
+        // When
+        ProductSuggestionsResponse result = underTest.suggest("  I", 10);
+        
+        // Then
+        assertThat(result.names()).containsExactly("iPad Mini", "iPhone 15");
+        assertThat(result.brands()).isEmpty();
+        assertThat(underTest.suggest("ap", 10).brands()).containsExactly("Apple");
+    }
+    
+    @Test
+    public void suggest_should_RespectLimit() {
+        // When
+        ProductSuggestionsResponse result = underTest.suggest("i", 1);
+        
+        // Then
+        assertThat(result.names()).containsExactly("iPad Mini");
+    }
+    
+    @Test
+    public void onProductChanged_should_ReplaceOldTerms_when_ProductRenamed() {
+        // When
+        underTest.onProductChanged(new ProductChangedEvent(product(2L, "Pixel 9", "Google", phones)));
+        
+        // Then
+        assertThat(underTest.suggest("gal", 10).names()).isEmpty();
+        assertThat(underTest.suggest("s", 10).brands()).isEmpty();
+        assertThat(underTest.suggest("p", 10).names()).containsExactly("Pixel 9");
+        assertThat(underTest.suggest("g", 10).brands()).containsExactly("Google");
+    }
+    
+    @Test
+    public void onProductDeleted_should_KeepSharedBrand_until_LastProductRemoved() {
+        // When
+        underTest.onProductDeleted(new ProductDeletedEvent(1L));
+        underTest.onProductDeleted(new ProductDeletedEvent(3L));
+        
+        // Then
+        assertThat(underTest.suggest("a", 10).brands()).containsExactly("Apple");
+        
+        underTest.onProductDeleted(new ProductDeletedEvent(4L));
+        assertThat(underTest.suggest("a", 10).brands()).isEmpty();
+    }
+    
+    @Test
+    public void onCategoryDeleted_should_RemoveProductsOfCategory() {
+        // When
+        underTest.onCategoryDeleted(new CategoryDeletedEvent(laptops.getId()));
+        
+        // Then
+        assertThat(underTest.suggest("m", 10).names()).isEmpty();
+        assertThat(underTest.suggest("i", 10).names()).containsExactly("iPhone 15");
+    }
+    
+    @Test
+    public void build_should_SkipProducts_when_TheirCategoryDeletedDuringBuild() {
+        // Given
+        ProductSuggestIndex building = new ProductSuggestIndex(productRepository);
+        // The build read the page, then the category delete committed before the rows were indexed
+        when(productRepository.findPageOrderedById(eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            building.onCategoryDeleted(new CategoryDeletedEvent(laptops.getId()));
+            return List.of(
+                product(1L, "iPhone 15", "Apple", phones),
+                product(3L, "MacBook Air", "Apple", laptops)
+            );
+        });
+        
+        // When
+        building.build();
+        
+        // Then
+        assertThat(building.suggest("m", 10).names()).isEmpty();
+        assertThat(building.suggest("i", 10).names()).containsExactly("iPhone 15");
+    }
+    
+    private static Category category(long id, String name) {
+        Category category = new Category(name);
+        ReflectionTestUtils.setField(category, "id", id);
+        return category;
+    }
+    
+    private static Product product(long id, String name, String brand, Category category) {
+        Product product = new Product(name, brand, "description", new BigDecimal("100.00"), 1);
+        ReflectionTestUtils.setField(product, "id", id);
+        product.linkTo(category);
+        return product;
+    }
+}
@@ -0,0 +1,99 @@
+package com.sobow.shopping.services;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.domain.product.Product;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.domain.product.StockLedgerEntry;
+import com.sobow.shopping.domain.product.StockLedgerRepository;
+import com.sobow.shopping.services.product.Impl.StockLedgerFlusher;
+import com.sobow.shopping.utils.TestFixtures;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class StockLedgerFlusherTests {
+    
+    @Mock
+    private StockLedgerRepository ledgerRepository;
+    
+    @Mock
+    private ProductRepository productRepository;
+    
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @InjectMocks
+    private StockLedgerFlusher underTest;
+    
+    private final TestFixtures fixtures = new TestFixtures();
+    
+    @Test
+    public void flush_should_ApplyOneUpdatePerProductInIdOrder_and_DeleteAppliedRows() {
+        // Given
+        runTransactionCallbacks();
+        when(ledgerRepository.findBatch(any(Pageable.class))).thenReturn(List.of(
+            entry(1L, 20L, 2),
+            entry(2L, 10L, 1),
+            entry(3L, 20L, 3)
+        ));
+        Product product = fixtures.productEntity();
+        when(productRepository.findAllById(Set.of(10L, 20L))).thenReturn(List.of(product));
+        
+        // When
+        underTest.flush();
+        
+        // Then
+        InOrder inOrder = inOrder(productRepository, ledgerRepository);
+        inOrder.verify(productRepository).applyLedger(10L, 1);
+        inOrder.verify(productRepository).applyLedger(20L, 5);
+        inOrder.verify(ledgerRepository).deleteByIds(List.of(1L, 2L, 3L));
+        verify(eventPublisher).publishEvent(new ProductChangedEvent(product));
+    }
+    
+    @Test
+    public void flushIfRequested_should_SkipDatabase_when_NoCheckoutCommittedSinceLastFlush() {
+        // Given
+        // The first run after startup always flushes
+        runTransactionCallbacks();
+        when(ledgerRepository.findBatch(any(Pageable.class))).thenReturn(List.of());
+        underTest.flushIfRequested();
+        
+        // When
+        underTest.flushIfRequested();
+        
+        // Then
+        verify(ledgerRepository).findBatch(any(Pageable.class));
+        verifyNoInteractions(productRepository);
+    }
+    
+    private void runTransactionCallbacks() {
+        when(transactionTemplate.execute(any())).thenAnswer(
+            invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+    
+    private static StockLedgerEntry entry(long id, long productId, int qty) {
+        StockLedgerEntry entry = new StockLedgerEntry(productId, qty);
+        ReflectionTestUtils.setField(entry, "id", id);
+        return entry;
+    }
+}
@@ -0,0 +1,229 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sobow.shopping.domain.cart.Cart;
+import com.sobow.shopping.domain.cart.CartItem;
+import com.sobow.shopping.domain.product.ProductChangedEvent;
+import com.sobow.shopping.domain.product.ProductRepository;
+import com.sobow.shopping.domain.reservation.StockReservation;
+import com.sobow.shopping.domain.reservation.StockReservationRepository;
+import com.sobow.shopping.exceptions.InsufficientStockException;
+import com.sobow.shopping.services.product.Impl.HotStock;
+import com.sobow.shopping.services.reservation.Impl.StockReservationServiceImpl;
+import com.sobow.shopping.utils.TestFixtures;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class StockReservationServiceImplTests {
+    
+    @Mock
+    private StockReservationRepository reservationRepository;
+    
+    @Mock
+    private ProductRepository productRepository;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Mock
+    private HotStock hotStock;
+    
+    private StockReservationServiceImpl underTest;
+    
+    private final TestFixtures fixtures = new TestFixtures();
+    
+    private static final long CART_ID = 1L;
+    private static final long PRODUCT_ID = 10L;
+    
+    @BeforeEach
+    public void setUp() {
+        underTest = new StockReservationServiceImpl(
+            reservationRepository, productRepository, eventPublisher, hotStock, Duration.ofMinutes(15)
+        );
+    }
+    
+    @Nested
+    @DisplayName("reserve")
+    class reserve {
+        
+        @Test
+        public void reserve_should_ReplaceExistingHold_and_RestartTtl() {
+            // Given
+            CartItem item = cartItem(PRODUCT_ID, 3);
+            StockReservation existing = reservation(5L, PRODUCT_ID, 1, Instant.now());
+            when(reservationRepository.findByCartIdAndProductId(CART_ID, PRODUCT_ID)).thenReturn(Optional.of(existing));
+            when(reservationRepository.claim(5L)).thenReturn(1);
+            when(productRepository.reserve(PRODUCT_ID, 1, 3)).thenReturn(1);
+            
+            // When
+            underTest.reserve(item);
+            
+            // Then
+            ArgumentCaptor<StockReservation> saved = ArgumentCaptor.forClass(StockReservation.class);
+            verify(reservationRepository).save(saved.capture());
+            assertThat(saved.getValue().getQty()).isEqualTo(3);
+            assertThat(saved.getValue().getExpiresAt()).isAfter(Instant.now().plus(Duration.ofMinutes(14)));
+        }
+        
+        @Test
+        public void reserve_should_ThrowInsufficientStock_when_OtherCartsHoldTheStock() {
+            // Given
+            CartItem item = cartItem(PRODUCT_ID, 3);
+            when(reservationRepository.findByCartIdAndProductId(CART_ID, PRODUCT_ID)).thenReturn(Optional.empty());
+            when(productRepository.reserve(PRODUCT_ID, 0, 3)).thenReturn(0);
+            when(productRepository.findAvailableToSell(PRODUCT_ID)).thenReturn(Optional.of(2));
+            
+            // When
+            InsufficientStockException ex = assertThrows(InsufficientStockException.class, () -> underTest.reserve(item));
+            
+            // Then
+            assertThat(ex.getAvailable()).isEqualTo(2);
+            verify(reservationRepository, never()).save(any());
+        }
+        
+        @Test
+        public void reserve_should_NotCountOldHold_when_AnotherTransactionClaimedItFirst() {
+            // Given
+            CartItem item = cartItem(PRODUCT_ID, 3);
+            StockReservation existing = reservation(5L, PRODUCT_ID, 1, Instant.now());
+            when(reservationRepository.findByCartIdAndProductId(CART_ID, PRODUCT_ID)).thenReturn(Optional.of(existing));
+            when(reservationRepository.claim(5L)).thenReturn(0);
+            when(productRepository.reserve(PRODUCT_ID, 0, 3)).thenReturn(1);
+            
+            // When
+            underTest.reserve(item);
+            
+            // Then
+            verify(productRepository).reserve(PRODUCT_ID, 0, 3);
+        }
+        
+        @Test
+        public void reserve_should_OnlyReleaseOldHold_when_ProductIsHot() {
+            // Given
+            CartItem item = cartItem(PRODUCT_ID, 3);
+            StockReservation existing = reservation(5L, PRODUCT_ID, 1, Instant.now());
+            when(reservationRepository.findByCartIdAndProductId(CART_ID, PRODUCT_ID)).thenReturn(Optional.of(existing));
+            when(reservationRepository.claim(5L)).thenReturn(1);
+            when(hotStock.isHot(PRODUCT_ID)).thenReturn(true);
+            
+            // When
+            underTest.reserve(item);
+            
+            // Then
+            verify(productRepository).releaseReserved(PRODUCT_ID, 1);
+            verify(productRepository, never()).reserve(anyLong(), anyInt(), anyInt());
+            verify(reservationRepository, never()).save(any());
+        }
+    }
+    
+    @Nested
+    @DisplayName("convert")
+    class convert {
+        
+        @Test
+        public void convert_should_TakeStock_and_DropHolds_InProductIdOrder() {
+            // Given
+            CartItem second = cartItem(20L, 1);
+            CartItem first = cartItem(PRODUCT_ID, 2);
+            when(reservationRepository.findAllByCartIdOrderByIdAsc(CART_ID))
+                .thenReturn(List.of(reservation(5L, PRODUCT_ID, 2, Instant.now())));
+            when(reservationRepository.claim(5L)).thenReturn(1);
+            when(productRepository.convertReserved(anyLong(), anyInt(), anyInt())).thenReturn(1);
+            
+            // When
+            underTest.convert(List.of(second, first));
+            
+            // Then
+            // Assert: the held line converts its hold, the expired line competes for free stock
+            InOrder inOrder = inOrder(productRepository);
+            inOrder.verify(productRepository).convertReserved(PRODUCT_ID, 2, 2);
+            inOrder.verify(productRepository).convertReserved(20L, 0, 1);
+            verify(productRepository, never()).releaseReserved(anyLong(), anyInt());
+            verify(eventPublisher).publishEvent(new ProductChangedEvent(first.getProduct()));
+            verify(eventPublisher).publishEvent(new ProductChangedEvent(second.getProduct()));
+        }
+        
+        @Test
+        public void convert_should_ThrowInsufficientStock_when_LineCannotBeCovered() {
+            // Given
+            CartItem item = cartItem(PRODUCT_ID, 4);
+            when(reservationRepository.findAllByCartIdOrderByIdAsc(CART_ID)).thenReturn(List.of());
+            when(productRepository.convertReserved(PRODUCT_ID, 0, 4)).thenReturn(0);
+            when(productRepository.findAvailableToSell(PRODUCT_ID)).thenReturn(Optional.of(1));
+            
+            // When & Then
+            assertThrows(InsufficientStockException.class, () -> underTest.convert(List.of(item)));
+            verify(eventPublisher, never()).publishEvent(any());
+        }
+    }
+    
+    @Nested
+    @DisplayName("releaseExpired")
+    class releaseExpired {
+        
+        @Test
+        public void releaseExpired_should_ReleaseClaimedHoldsPerProduct() {
+            // Given
+            Instant past = Instant.now().minusSeconds(60);
+            List<StockReservation> expired = List.of(
+                reservation(1L, PRODUCT_ID, 2, past),
+                reservation(2L, PRODUCT_ID, 3, past),
+                reservation(3L, 20L, 1, past)
+            );
+            when(reservationRepository.findExpired(any(Instant.class), any(Pageable.class))).thenReturn(expired);
+            when(reservationRepository.claimExpired(eq(1L), any())).thenReturn(1);
+            when(reservationRepository.claimExpired(eq(2L), any())).thenReturn(1);
+            // Renewed by its cart after it was found
+            when(reservationRepository.claimExpired(eq(3L), any())).thenReturn(0);
+            
+            // When
+            int result = underTest.releaseExpired(3);
+            
+            // Then
+            assertThat(result).isEqualTo(3);
+            verify(productRepository).releaseReserved(PRODUCT_ID, 5);
+            verify(productRepository, never()).releaseReserved(eq(20L), anyInt());
+        }
+    }
+    
+    private CartItem cartItem(long productId, int requestedQty) {
+        Cart cart = fixtures.cartEntity();
+        ReflectionTestUtils.setField(cart, "id", CART_ID);
+        CartItem item = fixtures.cartItemEntity();
+        ReflectionTestUtils.setField(item.getProduct(), "id", productId);
+        ReflectionTestUtils.setField(item, "requestedQty", requestedQty);
+        cart.addCartItemAndLink(item);
+        return item;
+    }
+    
+    private static StockReservation reservation(long id, long productId, int qty, Instant expiresAt) {
+        StockReservation reservation = new StockReservation(CART_ID, productId, qty, expiresAt);
+        ReflectionTestUtils.setField(reservation, "id", id);
+        return reservation;
+    }
+}
@@ -0,0 +1,120 @@
+package com.sobow.shopping.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.sobow.shopping.services.product.Impl.StripedStockCounter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+public class StripedStockCounterTests {
+    
+    @Test
+    public void tryTake_should_SpreadSeedOverStripes_and_TakeExactly() {
+        // Given
+        StripedStockCounter underTest = new StripedStockCounter(10, 4);
+        
+        // When
+        boolean taken = underTest.tryTake(3);
+        
+        // Then
+        assertThat(taken).isTrue();
+        assertThat(underTest.remaining()).isEqualTo(7);
+    }
+    
+    @Test
+    public void tryTake_should_GatherAcrossStripes_when_NoStripeCoversQuantity() {
+        // Given
+        // 3 stripes of 3, 3 and 2 units
+        StripedStockCounter underTest = new StripedStockCounter(8, 3);
+        
+        // When & Then
+        assertThat(underTest.tryTake(8)).isTrue();
+        assertThat(underTest.remaining()).isZero();
+    }
+    
+    @Test
+    public void tryTake_should_TakeNothing_when_StockDoesNotCoverQuantity() {
+        // Given
+        StripedStockCounter underTest = new StripedStockCounter(8, 3);
+        
+        // When
+        boolean taken = underTest.tryTake(9);
+        
+        // Then
+        assertThat(taken).isFalse();
+        assertThat(underTest.remaining()).isEqualTo(8);
+    }
+    
+    @Test
+    public void giveBack_should_MakeUnitsAvailableAgain() {
+        // Given
+        StripedStockCounter underTest = new StripedStockCounter(2, 2);
+        underTest.tryTake(2);
+        
+        // When
+        underTest.giveBack(2);
+        
+        // Then
+        assertThat(underTest.tryTake(2)).isTrue();
+    }
+    
+    @Test
+    public void constructor_should_RejectNegativeStock() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> new StripedStockCounter(-1, 4));
+    }
+    
+    // Stress: many buyers race for a small stock with mixed quantities, and some of them "roll back". Whatever the
+    // interleaving, units sold never exceed the seed and sold + remaining always equals it.
+    @RepeatedTest(5)
+    public void tryTake_should_NeverOversell_when_ManyThreadsCompete() throws Exception {
+        // Given
+        int stock = 1_000;
+        int threads = 16;
+        int attemptsPerThread = 2_000;
+        StripedStockCounter underTest = new StripedStockCounter(stock, 8);
+        AtomicLong sold = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        int qty = 1 + random.nextInt(200);
+                        if (!underTest.tryTake(qty)) continue;
+                        if (random.nextInt(10) == 0) {
+                            underTest.giveBack(qty);
+                        } else {
+                            sold.addAndGet(qty);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        // Then
+        assertThat(sold.get()).isLessThanOrEqualTo(stock);
+        assertThat(sold.get() + underTest.remaining()).isEqualTo(stock);
+    }
+}
@@ -41,6 +41,7 @@ import com.sobow.shopping.domain.user.User;
 import com.sobow.shopping.domain.user.UserAddress;
 import com.sobow.shopping.domain.user.UserProfile;
 import com.sobow.shopping.services.image.Impl.FileContent;
+import com.sobow.shopping.services.image.Impl.ImageSize;
 import java.math.BigDecimal;
 import java.sql.Blob;
 import java.sql.SQLException;
@@ -48,6 +49,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
 import javax.sql.rowset.serial.SerialBlob;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.mock.web.MockMultipartFile;
 
 public class TestFixtures {
@@ -302,10 +304,14 @@ public class TestFixtures {
     }
     
     public FileContent fileContent() {
-        return new FileContent(fileName, fileType, byteArray.length, byteArray);
+        return new FileContent(fileName, fileType, byteArray.length, new ByteArrayResource(byteArray), ImageSize.ORIGINAL);
     }
     
     // getters
+    public byte[] byteArray() {
+        return byteArray;
+    }
+    
     public Long nonExistingId() {
         return nonExistingId;
     }